@@ -0,0 +1,125 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.AlmacenMapeado;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingresos, retiros y consultas de saldo sobre un {@link AlmacenMapeado}, que actualizan el saldo con
+ * compare-and-set directamente sobre el fichero proyectado.
+ *
+ * <p>El heap ocupado por el almacén frente a un {@code Banco} con las mismas cuentas se puede comparar
+ * con {@code -prof gc}. Las operaciones y la persistencia al reabrir se comprueban en
+ * {@code AlmacenMapeadoTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlmacenBenchmark {
+
+    @Param({"1000000"})
+    int numCuentas;
+
+    private Path fichero;
+    private AlmacenMapeado almacen;
+    private String[] ibans;
+
+    /**
+     * Crea el fichero del almacén y abre en él las cuentas, de los tres tipos.
+     *
+     * @throws IOException si no se puede crear el fichero del almacén.
+     */
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        fichero = Files.createTempFile("banco-almacen", ".dat");
+        Files.delete(fichero);
+        almacen = AlmacenMapeado.abrir(fichero, numCuentas);
+        ibans = new String[numCuentas];
+        for (int i = 0; i < numCuentas; i++) {
+            ibans[i] = String.format("ES%010d", i);
+            almacen.abrirCuenta(crearCuenta(i, ibans[i]));
+        }
+    }
+
+    /**
+     * Cierra el almacén y borra su fichero.
+     *
+     * @throws IOException si no se puede cerrar o borrar el fichero.
+     */
+    @TearDown(Level.Trial)
+    public void terminar() throws IOException {
+        almacen.close();
+        Files.delete(fichero);
+    }
+
+    /**
+     * Ingresa un céntimo en una cuenta.
+     *
+     * @param hilo Estado del hilo.
+     * @return El nuevo saldo en céntimos.
+     */
+    @Benchmark
+    public long ingresar(EstadoHilo hilo) {
+        return almacen.ingresarCentimos(ibans[hilo.siguiente(numCuentas)], 1);
+    }
+
+    /**
+     * Retira un céntimo de una cuenta.
+     *
+     * @param hilo Estado del hilo.
+     * @return El nuevo saldo en céntimos.
+     */
+    @Benchmark
+    public long retirar(EstadoHilo hilo) {
+        return almacen.retirarCentimos(ibans[hilo.siguiente(numCuentas)], 1);
+    }
+
+    /**
+     * Consulta el saldo de una cuenta sin construir el objeto de la cuenta.
+     *
+     * @param hilo Estado del hilo.
+     * @return El saldo en céntimos.
+     */
+    @Benchmark
+    public long consultarSaldo(EstadoHilo hilo) {
+        return almacen.consultarSaldoCentimos(ibans[hilo.siguiente(numCuentas)]);
+    }
+
+    private static CuentaBancaria crearCuenta(int i, String iban) {
+        Persona titular = new Persona("Titular" + i, "Apellido" + (i % 1000), "Segundo", String.format("%08dT", i));
+        switch (i % 3) {
+            case 0:
+                return new CuentaAhorro(titular, 1000, iban, 1.5);
+            case 1:
+                return new CuentaCorrientePersonal(titular, 1000, iban, "Entidad A, Entidad B", 3);
+            default:
+                return new CuentaCorrienteEmpresa(titular, 1000, iban, "Entidad C", 7.5, 5000);
+        }
+    }
+}
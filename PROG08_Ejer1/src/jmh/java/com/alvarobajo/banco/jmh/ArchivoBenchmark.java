@@ -0,0 +1,168 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.ArchivoBanco;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guardado y carga de un banco completo con {@link ArchivoBanco}, con {@code hilos} hilos en el pool
+ * (0 para todos los procesadores).
+ *
+ * <p>Como referencia, {@code altaDirecta} abre las mismas cuentas directamente en el banco, que es la
+ * mayor parte de la carga: decodificar los bloques cuesta mucho menos que dar de alta las cuentas en los
+ * índices del banco. Con un millón de cuentas conviene darle al menos 3 GB de memoria. Que la carga
+ * conserva todas las cuentas campo a campo, detecta un bloque dañado y deja el asignador de IBAN más
+ * allá de las cuentas cargadas se comprueba en {@code ArchivoBancoTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ArchivoBenchmark {
+
+    @Param({"1000000"})
+    int numCuentas;
+
+    @Param({"1", "0"})
+    int hilos;
+
+    private CuentaBancaria[] cuentas;
+    private Banco banco;
+    private Path fichero;
+    private Path ficheroGuardado;
+    private ForkJoinPool pool;
+
+    /**
+     * Abre las cuentas en un banco de un solo hilo y lo guarda para medir la carga.
+     *
+     * @throws IOException si no se puede escribir el fichero.
+     */
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        pool = new ForkJoinPool(hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors());
+        cuentas = crearCuentas(numCuentas);
+        banco = new Banco(false);
+        abrir(banco, cuentas);
+        fichero = Files.createTempFile("banco", ".bin");
+        ficheroGuardado = Files.createTempFile("banco-guardado", ".bin");
+        ArchivoBanco.guardar(banco, fichero, pool);
+    }
+
+    /**
+     * Cierra el pool y borra los ficheros.
+     *
+     * @throws IOException si no se pueden borrar los ficheros.
+     */
+    @TearDown(Level.Trial)
+    public void terminar() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(fichero);
+        Files.deleteIfExists(ficheroGuardado);
+    }
+
+    /**
+     * Guarda todas las cuentas del banco.
+     *
+     * @return Número de cuentas guardadas.
+     * @throws IOException si no se puede escribir el fichero.
+     */
+    @Benchmark
+    public long guardar() throws IOException {
+        return ArchivoBanco.guardar(banco, ficheroGuardado, pool);
+    }
+
+    /**
+     * Carga todas las cuentas en un banco de un solo hilo, que las abre en el orden en que se guardaron.
+     *
+     * @return El banco cargado.
+     * @throws IOException si no se puede leer el fichero.
+     */
+    @Benchmark
+    public Banco cargarSecuencial() throws IOException {
+        Banco cargado = new Banco(false);
+        ArchivoBanco.cargar(fichero, cargado, pool);
+        return cargado;
+    }
+
+    /**
+     * Carga todas las cuentas en un banco concurrente, que abre las de cada bloque al decodificarlo.
+     *
+     * @return El banco cargado.
+     * @throws IOException si no se puede leer el fichero.
+     */
+    @Benchmark
+    public Banco cargarConcurrente() throws IOException {
+        Banco cargado = new Banco(true);
+        ArchivoBanco.cargar(fichero, cargado, pool);
+        return cargado;
+    }
+
+    /**
+     * Abre las mismas cuentas directamente en un banco de un solo hilo, como referencia de la carga.
+     *
+     * @return El banco con las cuentas abiertas.
+     */
+    @Benchmark
+    public Banco altaDirecta() {
+        Banco directo = new Banco(false);
+        abrir(directo, cuentas);
+        return directo;
+    }
+
+    private static void abrir(Banco banco, CuentaBancaria[] cuentas) {
+        for (CuentaBancaria cuenta : cuentas) {
+            banco.abrirCuenta(cuenta);
+        }
+    }
+
+    private static CuentaBancaria[] crearCuentas(int numCuentas) {
+        CuentaBancaria[] cuentas = new CuentaBancaria[numCuentas];
+        for (int i = 0; i < numCuentas; i++) {
+            Persona titular = i % 97 == 0 ? null
+                    : new Persona(i % 5 == 0 ? "Begoña" + i : "Titular" + i, "Apellido" + (i % 1000),
+                    i % 7 == 0 ? null : "Muñoz", String.format("%08dT", i / 2));
+            String iban = String.format("ES%022d", i);
+            switch (i % 3) {
+                case 0:
+                    cuentas[i] = new CuentaAhorro(titular, 1000, iban, 1.5 + i % 10);
+                    break;
+                case 1:
+                    cuentas[i] = new CuentaCorrientePersonal(titular, 1000, iban,
+                            i % 11 == 0 ? null : "Entidad A, Entidad B", 3);
+                    break;
+                default:
+                    cuentas[i] = new CuentaCorrienteEmpresa(titular, 1000, iban, "Entidad C", 7.5, 5000 + i);
+            }
+            cuentas[i].setSaldoCentimos(i * 37L - 50_000);
+            cuentas[i].setUltimaLiquidacion(i % 4 == 0 ? 20_250_101 : 0);
+        }
+        return cuentas;
+    }
+}
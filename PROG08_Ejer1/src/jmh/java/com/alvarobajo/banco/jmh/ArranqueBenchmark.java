@@ -0,0 +1,152 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.Diario;
+import com.alvarobajo.banco.persistencia.GestorInstantaneas;
+import com.alvarobajo.banco.persistencia.ModoDurabilidad;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Arranque en frío de un banco con muchas cuentas: recuperación desde una instantánea más el final del
+ * diario, comparada con la reproducción del diario completo.
+ *
+ * <p>Antes de la instantánea se aplica un historial de {@code operacionesHistorial} movimientos, que la
+ * reproducción completa tiene que recorrer entero y la recuperación desde la instantánea se salta; tras
+ * ella se aplican {@code operacionesCola} más. Que las dos formas de arrancar recuperan el mismo banco
+ * se comprueba en {@code GestorInstantaneasTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ArranqueBenchmark {
+
+    @Param({"1000000"})
+    int numCuentas;
+
+    @Param({"5000000"})
+    int operacionesHistorial;
+
+    @Param({"100000"})
+    int operacionesCola;
+
+    private Path directorio;
+
+    /**
+     * Crea el directorio con el diario y la instantánea del banco.
+     *
+     * @throws IOException si no se pueden escribir los ficheros.
+     */
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        directorio = Files.createTempDirectory("banco-arranque");
+        Banco banco = new Banco(true);
+        try (GestorInstantaneas gestor = GestorInstantaneas.abrir(directorio, ModoDurabilidad.ASINCRONO, banco)) {
+            CuentaBancaria[] cuentas = crearCuentas(banco, numCuentas);
+            operar(cuentas, operacionesHistorial);
+            gestor.tomarInstantanea();
+            operar(cuentas, operacionesCola);
+            gestor.getDiario().sincronizar();
+        }
+    }
+
+    /**
+     * Borra el directorio del banco.
+     *
+     * @throws IOException si no se pueden borrar los ficheros.
+     */
+    @TearDown(Level.Trial)
+    public void terminar() throws IOException {
+        try (Stream<Path> ficheros = Files.walk(directorio)) {
+            for (Path fichero : (Iterable<Path>) ficheros.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(fichero);
+            }
+        }
+    }
+
+    /**
+     * Recupera el banco desde la instantánea más reciente y el final del diario.
+     *
+     * @return El banco recuperado.
+     * @throws IOException si no se pueden leer los ficheros.
+     */
+    @Benchmark
+    public Banco arrancarDesdeInstantanea() throws IOException {
+        Banco recuperado = new Banco(true);
+        GestorInstantaneas.abrir(directorio, ModoDurabilidad.ASINCRONO, recuperado).close();
+        return recuperado;
+    }
+
+    /**
+     * Recupera el banco reproduciendo el diario completo.
+     *
+     * @return El banco recuperado.
+     * @throws IOException si no se puede leer el diario.
+     */
+    @Benchmark
+    public Banco reproducirDiarioCompleto() throws IOException {
+        Banco completo = new Banco(true);
+        Diario.abrir(directorio.resolve("diario.log"), ModoDurabilidad.ASINCRONO, completo).close();
+        return completo;
+    }
+
+    private static CuentaBancaria[] crearCuentas(Banco banco, int numCuentas) {
+        CuentaBancaria[] cuentas = new CuentaBancaria[numCuentas];
+        for (int i = 0; i < numCuentas; i++) {
+            Persona titular = new Persona("Titular" + i, "Apellido" + (i % 1000), "Segundo", String.format("%08dT", i));
+            String iban = String.format("ES%010d", i);
+            switch (i % 3) {
+                case 0:
+                    cuentas[i] = new CuentaAhorro(titular, 1000, iban, 1.5);
+                    break;
+                case 1:
+                    cuentas[i] = new CuentaCorrientePersonal(titular, 1000, iban, "Entidad A, Entidad B", 3);
+                    break;
+                default:
+                    cuentas[i] = new CuentaCorrienteEmpresa(titular, 1000, iban, "Entidad C", 7.5, 5000);
+            }
+            banco.abrirCuenta(cuentas[i]);
+        }
+        return cuentas;
+    }
+
+    private static void operar(CuentaBancaria[] cuentas, int operaciones) {
+        for (int i = 0; i < operaciones; i++) {
+            CuentaBancaria cuenta = cuentas[(int) ((i * 2654435761L) % cuentas.length)];
+            if ((i & 1) == 0) {
+                OperarCuenta.ingresar(cuenta, 100);
+            } else {
+                OperarCuenta.retirar(cuenta, 50);
+            }
+        }
+    }
+}
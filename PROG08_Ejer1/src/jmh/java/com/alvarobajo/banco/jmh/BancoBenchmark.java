@@ -0,0 +1,67 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de las operaciones del {@link com.alvarobajo.banco.controller.Banco} que dependen del
+ * número de cuentas: búsqueda por IBAN, alta y baja de cuentas y asignación de IBAN.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancoBenchmark {
+
+    private static final Persona TITULAR_TEMPORAL = new Persona("Temporal", "Benchmark", "", "00000000T");
+
+    /**
+     * Busca una cuenta existente por su IBAN.
+     *
+     * @param banco Banco con las cuentas.
+     * @param hilo  Estado del hilo.
+     * @return La cuenta encontrada.
+     */
+    @Benchmark
+    public CuentaBancaria buscarCuentaPorIBAN(EstadoBanco banco, EstadoHilo hilo) {
+        return banco.banco.buscarCuentaPorIBAN(banco.ibans[hilo.siguiente(banco.numCuentas)]);
+    }
+
+    /**
+     * Abre una cuenta nueva y la elimina a continuación. Se miden juntas para que el número de cuentas
+     * del banco no cambie durante la medición.
+     *
+     * @param banco Banco con las cuentas.
+     * @return true si la cuenta se eliminó.
+     */
+    @Benchmark
+    public boolean abrirYEliminarCuenta(EstadoBanco banco) {
+        CuentaBancaria cuenta = new CuentaAhorro(TITULAR_TEMPORAL, 0, banco.banco.getAsignadorIBAN().siguiente(), 1);
+        banco.banco.abrirCuenta(cuenta);
+        return banco.banco.eliminarCuenta(cuenta.getIban());
+    }
+
+    /**
+     * Asigna un IBAN nuevo, que sustituye al antiguo {@code CrearCuenta.generarIBAN}.
+     *
+     * @param banco Banco con las cuentas.
+     * @return El IBAN asignado.
+     */
+    @Benchmark
+    public String siguienteIBAN(EstadoBanco banco) {
+        return banco.banco.getAsignadorIBAN().siguiente();
+    }
+}
@@ -0,0 +1,186 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.Diario;
+import com.alvarobajo.banco.persistencia.ModoDurabilidad;
+import com.alvarobajo.banco.view.ServidorBinario;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servidor del protocolo binario ({@link ServidorBinario}) con una conexión por hilo del benchmark
+ * ({@code -t}), en la misma máquina, sin diario y con un {@link Diario} en modo
+ * {@link ModoDurabilidad#GRUPO}.
+ *
+ * <p>Cada invocación envía una ventana de {@code ventana} peticiones seguidas (un 45 % de ingresos, un
+ * 45 % de retiros y un 10 % de transferencias, sobre cuentas al azar) y espera todas sus respuestas, así
+ * que el tiempo medido es el de la ventana completa. Con una ventana de una petición no hay
+ * segmentación; con ventanas mayores el servidor aplica cada lote recibido, lo confirma una sola vez en
+ * el diario y responde casi en una sola escritura. Las respuestas, la confirmación por lote y los
+ * errores internos se comprueban en {@code ServidorBinarioTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinarioBenchmark {
+
+    private static final int NUM_CUENTAS = 10_000;
+
+    @Param({"SIN_DIARIO", "GRUPO"})
+    String modo;
+
+    @Param({"1", "64", "1024"})
+    int ventana;
+
+    private Path fichero;
+    private Diario diario;
+    private ServidorBinario servidor;
+    private byte[][] ibans;
+
+    /**
+     * Abre las cuentas, con el diario si el modo no es {@code SIN_DIARIO}, y arranca el servidor en un
+     * puerto libre.
+     *
+     * @throws IOException si no se puede crear el diario o arrancar el servidor.
+     */
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        Banco banco = new Banco(true);
+        if (!modo.equals("SIN_DIARIO")) {
+            fichero = Files.createTempFile("banco-diario", ".log");
+            diario = Diario.abrir(fichero, ModoDurabilidad.valueOf(modo), banco);
+        }
+        Persona titular = new Persona("Benchmark", "Binario", "", "00000000T");
+        ibans = new byte[NUM_CUENTAS][];
+        for (int i = 0; i < NUM_CUENTAS; i++) {
+            CuentaBancaria cuenta = new CuentaAhorro(titular, 1000, banco.getAsignadorIBAN().siguiente(), 1);
+            banco.abrirCuenta(cuenta);
+            ibans[i] = cuenta.getIban().getBytes(StandardCharsets.US_ASCII);
+        }
+        servidor = ServidorBinario.iniciar(banco, new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    /**
+     * Detiene el servidor, cierra el diario y borra su fichero.
+     *
+     * @throws IOException si no se puede escribir o borrar el fichero del diario.
+     */
+    @TearDown(Level.Trial)
+    public void terminar() throws IOException {
+        servidor.close();
+        if (diario != null) {
+            diario.close();
+            Files.deleteIfExists(fichero);
+        }
+    }
+
+    /**
+     * Conexión de un hilo del benchmark con el servidor.
+     */
+    @State(Scope.Thread)
+    public static class Conexion {
+
+        private SocketChannel canal;
+        private ByteBuffer peticiones;
+        private ByteBuffer respuestas;
+        private int id;
+
+        /**
+         * Conecta con el servidor.
+         *
+         * @param benchmark Estado con el servidor arrancado.
+         * @throws IOException si no se puede conectar.
+         */
+        @Setup(Level.Trial)
+        public void conectar(BinarioBenchmark benchmark) throws IOException {
+            canal = SocketChannel.open(new InetSocketAddress("127.0.0.1", benchmark.servidor.getPuerto()));
+            canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            peticiones = ByteBuffer.allocateDirect(benchmark.ventana * 128);
+            respuestas = ByteBuffer.allocateDirect(benchmark.ventana * ServidorBinario.TAMANO_RESPUESTA);
+        }
+
+        /**
+         * Cierra la conexión.
+         *
+         * @throws IOException si no se puede cerrar.
+         */
+        @TearDown(Level.Trial)
+        public void desconectar() throws IOException {
+            canal.close();
+        }
+    }
+
+    /**
+     * Envía una ventana de peticiones y espera todas sus respuestas.
+     *
+     * @param conexion Conexión del hilo.
+     * @param hilo     Estado del hilo.
+     * @return Identificador de la última respuesta.
+     * @throws IOException si falla la conexión o el servidor la cierra.
+     */
+    @Benchmark
+    public int enviarVentana(Conexion conexion, EstadoHilo hilo) throws IOException {
+        ByteBuffer peticiones = conexion.peticiones.clear();
+        for (int i = 0; i < ventana; i++) {
+            escribirPeticion(peticiones, conexion.id++, hilo);
+        }
+        peticiones.flip();
+        while (peticiones.hasRemaining()) {
+            conexion.canal.write(peticiones);
+        }
+        ByteBuffer respuestas = conexion.respuestas.clear();
+        while (respuestas.hasRemaining()) {
+            if (conexion.canal.read(respuestas) < 0) {
+                throw new EOFException("El servidor ha cerrado la conexión");
+            }
+        }
+        return respuestas.getInt(respuestas.limit() - ServidorBinario.TAMANO_RESPUESTA);
+    }
+
+    private void escribirPeticion(ByteBuffer peticiones, int id, EstadoHilo hilo) {
+        int tipo = hilo.siguiente(20);
+        byte[] iban = ibans[hilo.siguiente(NUM_CUENTAS)];
+        int inicio = peticiones.position();
+        peticiones.putInt(0);
+        if (tipo < 2) {
+            byte[] destino = ibans[hilo.siguiente(NUM_CUENTAS)];
+            peticiones.put(ServidorBinario.TRANSFERENCIA).putInt(id)
+                    .put((byte) iban.length).put(iban).put((byte) destino.length).put(destino);
+        } else {
+            peticiones.put(tipo < 11 ? ServidorBinario.INGRESO : ServidorBinario.RETIRO).putInt(id)
+                    .put((byte) iban.length).put(iban);
+        }
+        peticiones.putLong(1 + hilo.siguiente(10_000));
+        peticiones.putInt(inicio, peticiones.position() - inicio - Integer.BYTES);
+    }
+}
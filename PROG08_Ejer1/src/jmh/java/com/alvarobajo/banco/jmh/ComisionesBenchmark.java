@@ -0,0 +1,112 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.CobroComisiones;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.controller.cuentas.ResultadoCobro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cobro de comisiones de mantenimiento, solo y mientras otros hilos siguen haciendo ingresos y retiros
+ * sobre las mismas cuentas.
+ *
+ * <p>Cada invocación cobra el mes siguiente al de la anterior. Una de cada diez cuentas empieza sin saldo
+ * suficiente para pagar la comisión y el resto, con saldo de sobra para todos los meses. En
+ * el grupo {@code conTrafico}, el tiempo de {@code operar} muestra cuánto frena el cobro a las
+ * operaciones simultáneas. Que el dinero total cuadra con lo cobrado se comprueba en
+ * {@code CobroComisionesTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComisionesBenchmark {
+
+    @Param({"1000000"})
+    int numCuentas;
+
+    private CuentaBancaria[] cuentas;
+    private CobroComisiones cobro;
+    private LocalDate mes;
+
+    /**
+     * Abre las cuentas corrientes personales, con una comisión de 5 euros.
+     */
+    @Setup(Level.Trial)
+    public void preparar() {
+        Banco banco = new Banco(true);
+        cuentas = new CuentaBancaria[numCuentas];
+        Persona titular = new Persona("Benchmark", "Comisiones", "", "00000000T");
+        for (int i = 0; i < numCuentas; i++) {
+            double saldo = i % 10 == 0 ? 1 : 10_000_000;
+            cuentas[i] = new CuentaCorrientePersonal(titular, saldo, String.format("ES%010d", i), "", 5);
+            banco.abrirCuenta(cuentas[i]);
+        }
+        cobro = new CobroComisiones(banco);
+        mes = LocalDate.of(2024, 1, 1);
+    }
+
+    /**
+     * Cobra la comisión del mes siguiente sin tráfico simultáneo.
+     *
+     * @return Resumen del cobro.
+     */
+    @Benchmark
+    public ResultadoCobro cobrar() {
+        return cobrarMesSiguiente();
+    }
+
+    /**
+     * Cobra la comisión del mes siguiente mientras los hilos de {@link #operar} operan sobre las cuentas.
+     *
+     * @return Resumen del cobro.
+     */
+    @Benchmark
+    @Group("conTrafico")
+    @GroupThreads(1)
+    public ResultadoCobro cobrarConTrafico() {
+        return cobrarMesSiguiente();
+    }
+
+    /**
+     * Ingresa 3 euros o retira 2 de una cuenta al azar mientras se cobran las comisiones.
+     *
+     * @param hilo Estado del hilo.
+     * @return El nuevo saldo en céntimos.
+     */
+    @Benchmark
+    @Group("conTrafico")
+    @GroupThreads(2)
+    public long operar(EstadoHilo hilo) {
+        CuentaBancaria cuenta = cuentas[hilo.siguiente(numCuentas)];
+        return hilo.siguiente(2) == 0 ? OperarCuenta.ingresar(cuenta, 300) : OperarCuenta.retirar(cuenta, 200);
+    }
+
+    private ResultadoCobro cobrarMesSiguiente() {
+        mes = mes.plusMonths(1);
+        return cobro.cobrar(mes);
+    }
+}
@@ -0,0 +1,114 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.cuentas.ConvencionDias;
+import com.alvarobajo.banco.controller.cuentas.LiquidadorDescubiertos;
+import com.alvarobajo.banco.controller.cuentas.ResultadoLiquidacion;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.Persona;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cobro diario de intereses de descubierto sobre muchas cuentas corrientes de empresa, y el cálculo de
+ * los intereses sobre vectores de primitivos, escalar y con la API de vectores.
+ *
+ * <p>La mitad de las cuentas están en descubierto, con importes distintos. Cada invocación de
+ * {@code liquidar} cobra el día siguiente al de la anterior. El JVM del benchmark se arranca con
+ * {@code --add-modules jdk.incubator.vector}; si se quita, {@code calcularVectorial} mide el cálculo
+ * escalar. Que los dos cálculos coinciden y que el saldo baja exactamente en lo cobrado se comprueba en
+ * {@code LiquidadorDescubiertosTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DescubiertosBenchmark {
+
+    @Param({"5000000"})
+    int numCuentas;
+
+    private CuentaBancaria[] cuentas;
+    private LocalDate dia;
+    private double[] descubiertos;
+    private double[] tipos;
+    private double factor;
+    private long[] intereses;
+
+    /**
+     * Crea las cuentas, deja en descubierto la mitad y prepara los vectores del cálculo.
+     */
+    @Setup(Level.Trial)
+    public void preparar() {
+        // Las cuentas no se abren en ningún banco, así que no necesitan IBAN ni titulares distintos
+        Persona titular = new Persona("Benchmark", "Descubiertos", "", "00000000T");
+        cuentas = new CuentaBancaria[numCuentas];
+        for (int i = 0; i < numCuentas; i++) {
+            cuentas[i] = new CuentaCorrienteEmpresa(titular, 100, null, "", 8 + (i % 8) * 0.5, 1000);
+            if (i % 2 == 0) {
+                cuentas[i].retirarCentimos(10_000 + (i % 1001) * 100);
+            }
+        }
+        dia = LocalDate.of(2024, 3, 1);
+
+        descubiertos = new double[numCuentas];
+        tipos = new double[numCuentas];
+        for (int i = 0; i < numCuentas; i++) {
+            descubiertos[i] = 1 + (i * 7919L) % 10_000_000;
+            tipos[i] = 5 + (i % 16) * 0.75;
+        }
+        factor = ConvencionDias.REAL_365.fraccionAnio(dia, dia.plusDays(1)) / 100;
+        intereses = new long[numCuentas];
+    }
+
+    /**
+     * Cobra los intereses de descubierto del día siguiente en el pool común de fork-join.
+     *
+     * @return Resumen de la liquidación.
+     */
+    @Benchmark
+    public ResultadoLiquidacion liquidar() {
+        dia = dia.plusDays(1);
+        return LiquidadorDescubiertos.liquidar(cuentas, dia, ConvencionDias.REAL_365, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Calcula los intereses de todos los vectores con un bucle escalar.
+     *
+     * @return Los intereses calculados.
+     */
+    @Benchmark
+    public long[] calcularEscalar() {
+        LiquidadorDescubiertos.calcularInteresesEscalar(descubiertos, tipos, factor, intereses, numCuentas);
+        return intereses;
+    }
+
+    /**
+     * Calcula los intereses de todos los vectores con la API de vectores, si está disponible.
+     *
+     * @return Los intereses calculados.
+     */
+    @Benchmark
+    public long[] calcularVectorial() {
+        LiquidadorDescubiertos.calcularIntereses(descubiertos, tipos, factor, intereses, numCuentas);
+        return intereses;
+    }
+}
@@ -0,0 +1,101 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.Diario;
+import com.alvarobajo.banco.persistencia.ModoDurabilidad;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingresos sobre un banco con {@link Diario} en cada {@link ModoDurabilidad}, comparados con un banco
+ * sin diario ({@code SIN_DIARIO}).
+ *
+ * <p>En modo {@link ModoDurabilidad#GRUPO} el rendimiento debería crecer con el número de hilos
+ * ({@code -t}), porque cada sincronización con el disco cubre las operaciones de todos ellos. El
+ * fichero del diario se crea en el directorio temporal; otro directorio se puede elegir con
+ * {@code -jvmArgsAppend -Djava.io.tmpdir=...}. La recuperación del diario se comprueba en
+ * {@code DiarioTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiarioBenchmark {
+
+    private static final int CUENTAS = 10_000;
+
+    @Param({"SIN_DIARIO", "POR_OPERACION", "GRUPO", "ASINCRONO"})
+    String modo;
+
+    private Path fichero;
+    private Diario diario;
+    private CuentaBancaria[] cuentas;
+
+    /**
+     * Crea el banco, con su diario si el modo no es {@code SIN_DIARIO}, y abre las cuentas.
+     *
+     * @throws IOException si no se puede crear el fichero del diario.
+     */
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        Banco banco = new Banco(true);
+        if (!modo.equals("SIN_DIARIO")) {
+            fichero = Files.createTempFile("banco-diario", ".log");
+            diario = Diario.abrir(fichero, ModoDurabilidad.valueOf(modo), banco);
+        }
+        cuentas = new CuentaBancaria[CUENTAS];
+        Persona titular = new Persona("Benchmark", "Diario", "", "00000000T");
+        for (int i = 0; i < CUENTAS; i++) {
+            cuentas[i] = new CuentaAhorro(titular, 0, String.format("ES%010d", i), 1);
+            banco.abrirCuenta(cuentas[i]);
+        }
+    }
+
+    /**
+     * Cierra el diario y borra su fichero.
+     *
+     * @throws IOException si no se puede escribir o borrar el fichero.
+     */
+    @TearDown(Level.Trial)
+    public void terminar() throws IOException {
+        if (diario != null) {
+            diario.close();
+            Files.deleteIfExists(fichero);
+        }
+    }
+
+    /**
+     * Ingresa un céntimo en una cuenta al azar, esperando a que el diario lo confirme según el modo.
+     *
+     * @param hilo Estado del hilo.
+     * @return El nuevo saldo en céntimos.
+     */
+    @Benchmark
+    public long ingresar(EstadoHilo hilo) {
+        return OperarCuenta.ingresar(cuentas[hilo.siguiente(CUENTAS)], 1);
+    }
+}
@@ -0,0 +1,62 @@
+package com.alvarobajo.banco.jmh;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Ejecuta todos los benchmarks de JMH dos veces, con un hilo y con tantos hilos como núcleos (al
+ * menos dos), y guarda los resultados de cada pasada en JSON en {@code target/jmh}, con la fecha y
+ * el número de hilos en el nombre del fichero, para poder comparar unas ejecuciones con otras.
+ *
+ * <p>Admite las mismas opciones que la línea de órdenes de JMH; si se indican el número de hilos
+ * ({@code -t}) o el fichero de resultados ({@code -rff}), sustituyen a los anteriores. Por ejemplo,
+ * {@code java -jar target/benchmarks.jar Operaciones -p numCuentas=1000} ejecuta solo los benchmarks
+ * de operaciones con mil cuentas.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class EjecutarBenchmarks {
+
+    private static final Path DIRECTORIO_RESULTADOS = Path.of("target", "jmh");
+
+    /**
+     * Punto de entrada.
+     *
+     * @param args Opciones de JMH (opcionales).
+     * @throws CommandLineOptionException si las opciones no son válidas.
+     * @throws RunnerException            si falla algún benchmark.
+     * @throws IOException                si no se puede crear el directorio de resultados.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions opciones = new CommandLineOptions(args);
+        Files.createDirectories(DIRECTORIO_RESULTADOS);
+        String fecha = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        int multihilo = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        // Si se indica el número de hilos, se hace una sola pasada con ese número
+        int[] pasadas = opciones.getThreads().hasValue() ? new int[]{opciones.getThreads().get()}
+                : new int[]{1, multihilo};
+        for (int hilos : pasadas) {
+            ChainedOptionsBuilder pasada = new OptionsBuilder().parent(opciones).threads(hilos);
+            if (!opciones.getResult().hasValue()) {
+                pasada.resultFormat(ResultFormatType.JSON)
+                        .result(DIRECTORIO_RESULTADOS.resolve(fecha + "-" + hilos + "hilos.json").toString());
+            }
+            if (opciones.getIncludes().isEmpty()) {
+                pasada.include(EjecutarBenchmarks.class.getPackageName() + "\\..*Benchmark\\.");
+            }
+            new Runner(pasada.build()).run();
+        }
+    }
+}
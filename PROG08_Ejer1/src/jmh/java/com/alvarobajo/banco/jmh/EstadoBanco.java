@@ -0,0 +1,55 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Banco compartido por todos los hilos de un benchmark, con un número de cuentas de ahorro fijado por
+ * el parámetro {@code numCuentas}.
+ *
+ * <p>Cada titular tiene cuatro cuentas, para que los índices del banco trabajen con un número de
+ * personas parecido al real. Todas las cuentas empiezan con saldo de sobra para que ningún retiro de
+ * los benchmarks llegue a rechazarse.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+public class EstadoBanco {
+
+    static final int CUENTAS_POR_TITULAR = 4;
+    private static final double SALDO_INICIAL = 10_000_000;
+
+    @Param({"1000", "100000", "1000000"})
+    int numCuentas;
+
+    Banco banco;
+    CuentaBancaria[] cuentas;
+    String[] ibans;
+
+    /**
+     * Abre las cuentas del banco antes de cada ejecución del benchmark.
+     */
+    @Setup(Level.Trial)
+    public void preparar() {
+        banco = new Banco(true);
+        cuentas = new CuentaBancaria[numCuentas];
+        ibans = new String[numCuentas];
+        Persona titular = null;
+        for (int i = 0; i < numCuentas; i++) {
+            if (i % CUENTAS_POR_TITULAR == 0) {
+                titular = new Persona("Titular" + i / CUENTAS_POR_TITULAR, "Benchmark", "",
+                        String.format("%08d", i / CUENTAS_POR_TITULAR));
+            }
+            cuentas[i] = new CuentaAhorro(titular, SALDO_INICIAL, banco.getAsignadorIBAN().siguiente(), 1.5);
+            ibans[i] = cuentas[i].getIban();
+            banco.abrirCuenta(cuentas[i]);
+        }
+    }
+}
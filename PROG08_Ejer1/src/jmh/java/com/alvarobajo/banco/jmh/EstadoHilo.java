@@ -0,0 +1,30 @@
+package com.alvarobajo.banco.jmh;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Estado propio de cada hilo de un benchmark: elige las cuentas sobre las que operar sin compartir
+ * ningún contador con los demás hilos.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Thread)
+public class EstadoHilo {
+
+    // Generador congruencial: más barato que cualquier Random y sin estado compartido
+    private long semilla = ThreadLocalRandom.current().nextLong();
+
+    /**
+     * Devuelve una posición pseudoaleatoria entre 0 (incluido) y el límite (excluido).
+     *
+     * @param limite Número de posiciones.
+     * @return Posición elegida.
+     */
+    int siguiente(int limite) {
+        semilla = semilla * 6364136223846793005L + 1442695040888963407L;
+        return (int) (((semilla >>> 32) * limite) >>> 32);
+    }
+}
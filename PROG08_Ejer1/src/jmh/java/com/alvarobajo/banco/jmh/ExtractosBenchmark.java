@@ -0,0 +1,200 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.Extracto;
+import com.alvarobajo.banco.persistencia.HistorialMovimientos;
+import com.alvarobajo.banco.persistencia.ListaMovimientos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extractos de cuenta entre dos fechas del {@link HistorialMovimientos}, comparados con obtenerlos
+ * reproduciendo todos los movimientos de la cuenta.
+ *
+ * <p>Antes de medir se aplican operaciones al azar con un reloj simulado que avanza de modo que cubren
+ * un año entero desde la apertura del historial. Después se piden extractos de {@code dias} días de
+ * cuentas al azar. Que el extracto coincide con los movimientos del intervalo, en orden cronológico y
+ * con saldos coherentes, se comprueba en {@code HistorialMovimientosTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractosBenchmark {
+
+    private static final int NUM_CUENTAS = 10_000;
+    private static final int OPERACIONES_PREVIAS = 3_000_000;
+    private static final int CAPACIDAD = 32;
+    private static final long DIA_MS = 24L * 60 * 60 * 1000;
+    private static final int DIAS_REGISTRADOS = 365;
+    private static final long PRINCIPIO = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+
+    @Param({"7", "30", "365"})
+    int dias;
+
+    private Path fichero;
+    private HistorialMovimientos historial;
+    private CuentaBancaria[] cuentas;
+
+    /**
+     * Extracto y lista reutilizados por cada hilo.
+     */
+    @State(Scope.Thread)
+    public static class EstadoConsulta {
+
+        private final Extracto extracto = new Extracto();
+        private final ListaMovimientos todos = new ListaMovimientos(1000);
+    }
+
+    /**
+     * Abre las cuentas y el historial y les aplica las operaciones previas, repartidas en un año.
+     *
+     * @throws IOException si no se puede crear el fichero del historial.
+     */
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        Banco banco = new Banco(true);
+        Persona titular = new Persona("Benchmark", "Extractos", "", "00000000T");
+        cuentas = new CuentaBancaria[NUM_CUENTAS];
+        for (int i = 0; i < NUM_CUENTAS; i++) {
+            cuentas[i] = new CuentaAhorro(titular, 1000, banco.getAsignadorIBAN().siguiente(), 1);
+            banco.abrirCuenta(cuentas[i]);
+        }
+        long paso = Math.max(1, DIAS_REGISTRADOS * DIA_MS / OPERACIONES_PREVIAS);
+        fichero = Files.createTempFile("historial", ".bin");
+        // La primera lectura del reloj, al abrir el historial, da justo el principio del año
+        historial = HistorialMovimientos.abrir(fichero, CAPACIDAD, new RelojSimulado(PRINCIPIO - paso, paso),
+                banco);
+        EstadoHilo azar = new EstadoHilo();
+        for (int i = 0; i < OPERACIONES_PREVIAS; i++) {
+            operar(azar);
+        }
+    }
+
+    /**
+     * Cierra el historial y borra su fichero.
+     *
+     * @throws IOException si no se puede cerrar o borrar el fichero.
+     */
+    @TearDown(Level.Trial)
+    public void terminar() throws IOException {
+        historial.close();
+        Files.deleteIfExists(fichero);
+    }
+
+    /**
+     * Obtiene del historial el extracto de una cuenta al azar en un intervalo al azar.
+     *
+     * @param consulta Extracto del hilo.
+     * @param hilo     Estado del hilo.
+     * @return Número de movimientos del extracto.
+     * @throws IOException si no se puede leer el fichero del historial.
+     */
+    @Benchmark
+    public int extracto(EstadoConsulta consulta, EstadoHilo hilo) throws IOException {
+        long desde = PRINCIPIO + hilo.siguiente(DIAS_REGISTRADOS - dias + 1) * DIA_MS;
+        historial.extracto(cuentas[hilo.siguiente(NUM_CUENTAS)], desde, desde + dias * DIA_MS, consulta.extracto);
+        return consulta.extracto.getMovimientos().getTamano();
+    }
+
+    /**
+     * Obtiene el mismo extracto recorriendo todos los movimientos de la cuenta y contando los del
+     * intervalo.
+     *
+     * @param consulta Lista del hilo.
+     * @param hilo     Estado del hilo.
+     * @return Número de movimientos del intervalo.
+     * @throws IOException si no se puede leer el fichero del historial.
+     */
+    @Benchmark
+    public int reproduccion(EstadoConsulta consulta, EstadoHilo hilo) throws IOException {
+        long desde = PRINCIPIO + hilo.siguiente(DIAS_REGISTRADOS - dias + 1) * DIA_MS;
+        long hasta = desde + dias * DIA_MS;
+        ListaMovimientos todos = consulta.todos;
+        historial.ultimosMovimientos(cuentas[hilo.siguiente(NUM_CUENTAS)], Integer.MAX_VALUE, todos);
+        int enIntervalo = 0;
+        for (int i = 0; i < todos.getTamano() && todos.getInstante(i) >= desde; i++) {
+            if (todos.getInstante(i) < hasta) {
+                enIntervalo++;
+            }
+        }
+        return enIntervalo;
+    }
+
+    private long operar(EstadoHilo azar) {
+        int origen = azar.siguiente(NUM_CUENTAS);
+        long centimos = 1 + azar.siguiente(5_000);
+        int tipo = azar.siguiente(10);
+        if (tipo < 5) {
+            return OperarCuenta.ingresar(cuentas[origen], centimos);
+        } else if (tipo < 9) {
+            return OperarCuenta.retirar(cuentas[origen], centimos);
+        }
+        int destino = (origen + 1 + azar.siguiente(NUM_CUENTAS - 1)) % NUM_CUENTAS;
+        return OperarCuenta.transferir(cuentas[origen], cuentas[destino], centimos);
+    }
+
+    /**
+     * Reloj que avanza un paso fijo cada vez que se consulta, para repartir las operaciones en el tiempo
+     * sin esperar.
+     */
+    private static final class RelojSimulado extends Clock {
+
+        private final long paso;
+        private long instante;
+
+        RelojSimulado(long inicio, long paso) {
+            this.instante = inicio;
+            this.paso = paso;
+        }
+
+        @Override
+        public long millis() {
+            instante += paso;
+            return instante;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zona) {
+            throw new UnsupportedOperationException("El reloj simulado solo usa UTC");
+        }
+    }
+}
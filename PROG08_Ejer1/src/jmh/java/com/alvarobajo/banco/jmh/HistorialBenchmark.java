@@ -0,0 +1,194 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.HistorialMovimientos;
+import com.alvarobajo.banco.persistencia.ListaMovimientos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste que añade el {@link HistorialMovimientos} a los ingresos, retiros y transferencias, y consulta
+ * de los últimos movimientos de una cuenta, por debajo y por encima de la capacidad en memoria.
+ *
+ * <p>Con varios hilos ({@code -t}), {@code operarConHistorial} mide también la competencia entre
+ * desbordamientos de cuentas distintas. La memoria reservada por consulta se ve con {@code -prof gc}.
+ * Que los movimientos devueltos encadenan, también al pasar del anillo al fichero y con desbordamientos
+ * desde varios hilos, se comprueba en {@code HistorialMovimientosTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistorialBenchmark {
+
+    private static final int NUM_CUENTAS = 10_000;
+    // Suficientes para que casi todas las cuentas hayan desbordado al fichero antes de medir las consultas
+    private static final int OPERACIONES_PREVIAS = 2_000_000;
+
+    /**
+     * Banco con sus cuentas, sin historial.
+     */
+    @State(Scope.Benchmark)
+    public static class EstadoSinHistorial {
+
+        private CuentaBancaria[] cuentas;
+
+        /**
+         * Abre las cuentas.
+         */
+        @Setup(Level.Trial)
+        public void preparar() {
+            cuentas = abrirCuentas(new Banco(true));
+        }
+    }
+
+    /**
+     * Banco con sus cuentas y con historial, ya lleno con operaciones previas.
+     */
+    @State(Scope.Benchmark)
+    public static class EstadoConHistorial {
+
+        @Param({"32"})
+        int capacidad;
+
+        private Path fichero;
+        private HistorialMovimientos historial;
+        private CuentaBancaria[] cuentas;
+
+        /**
+         * Abre las cuentas y el historial y les aplica las operaciones previas.
+         *
+         * @throws IOException si no se puede crear el fichero del historial.
+         */
+        @Setup(Level.Trial)
+        public void preparar() throws IOException {
+            Banco banco = new Banco(true);
+            cuentas = abrirCuentas(banco);
+            fichero = Files.createTempFile("historial", ".bin");
+            historial = HistorialMovimientos.abrir(fichero, capacidad, banco);
+            EstadoHilo azar = new EstadoHilo();
+            for (int i = 0; i < OPERACIONES_PREVIAS; i++) {
+                operar(cuentas, azar);
+            }
+        }
+
+        /**
+         * Cierra el historial y borra su fichero.
+         *
+         * @throws IOException si no se puede cerrar o borrar el fichero.
+         */
+        @TearDown(Level.Trial)
+        public void terminar() throws IOException {
+            historial.close();
+            Files.deleteIfExists(fichero);
+        }
+    }
+
+    /**
+     * Lista reutilizada por cada hilo para las consultas.
+     */
+    @State(Scope.Thread)
+    public static class EstadoLista {
+
+        private final ListaMovimientos lista = new ListaMovimientos(1000);
+    }
+
+    /**
+     * Aplica un ingreso, un retiro o una transferencia al azar, sin historial.
+     *
+     * @param estado Banco con sus cuentas.
+     * @param hilo   Estado del hilo.
+     * @return El nuevo saldo de la cuenta.
+     */
+    @Benchmark
+    public long operarSinHistorial(EstadoSinHistorial estado, EstadoHilo hilo) {
+        return operar(estado.cuentas, hilo);
+    }
+
+    /**
+     * Aplica un ingreso, un retiro o una transferencia al azar, con historial.
+     *
+     * @param estado Banco con historial.
+     * @param hilo   Estado del hilo.
+     * @return El nuevo saldo de la cuenta.
+     */
+    @Benchmark
+    public long operarConHistorial(EstadoConHistorial estado, EstadoHilo hilo) {
+        return operar(estado.cuentas, hilo);
+    }
+
+    /**
+     * Consulta los diez últimos movimientos de una cuenta al azar, que están en memoria.
+     *
+     * @param estado Banco con historial.
+     * @param lista  Lista del hilo.
+     * @param hilo   Estado del hilo.
+     * @return Número de movimientos devueltos.
+     * @throws IOException si no se puede leer el fichero del historial.
+     */
+    @Benchmark
+    public int ultimos10(EstadoConHistorial estado, EstadoLista lista, EstadoHilo hilo) throws IOException {
+        return estado.historial.ultimosMovimientos(estado.cuentas[hilo.siguiente(NUM_CUENTAS)], 10, lista.lista);
+    }
+
+    /**
+     * Consulta los mil últimos movimientos de una cuenta al azar, la mayoría en el fichero.
+     *
+     * @param estado Banco con historial.
+     * @param lista  Lista del hilo.
+     * @param hilo   Estado del hilo.
+     * @return Número de movimientos devueltos.
+     * @throws IOException si no se puede leer el fichero del historial.
+     */
+    @Benchmark
+    public int ultimos1000(EstadoConHistorial estado, EstadoLista lista, EstadoHilo hilo) throws IOException {
+        return estado.historial.ultimosMovimientos(estado.cuentas[hilo.siguiente(NUM_CUENTAS)], 1000,
+                lista.lista);
+    }
+
+    private static CuentaBancaria[] abrirCuentas(Banco banco) {
+        Persona titular = new Persona("Benchmark", "Historial", "", "00000000T");
+        CuentaBancaria[] cuentas = new CuentaBancaria[NUM_CUENTAS];
+        for (int i = 0; i < NUM_CUENTAS; i++) {
+            cuentas[i] = new CuentaAhorro(titular, 1000, banco.getAsignadorIBAN().siguiente(), 1);
+            banco.abrirCuenta(cuentas[i]);
+        }
+        return cuentas;
+    }
+
+    private static long operar(CuentaBancaria[] cuentas, EstadoHilo hilo) {
+        int origen = hilo.siguiente(NUM_CUENTAS);
+        long centimos = 1 + hilo.siguiente(5_000);
+        int tipo = hilo.siguiente(10);
+        if (tipo < 5) {
+            return OperarCuenta.ingresar(cuentas[origen], centimos);
+        } else if (tipo < 9) {
+            return OperarCuenta.retirar(cuentas[origen], centimos);
+        }
+        int destino = (origen + 1 + hilo.siguiente(NUM_CUENTAS - 1)) % NUM_CUENTAS;
+        return OperarCuenta.transferir(cuentas[origen], cuentas[destino], centimos);
+    }
+}
@@ -0,0 +1,134 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.view.ServidorHttp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Latencia de la API HTTP del banco ({@link ServidorHttp}) vista por un cliente del JDK en el mismo
+ * proceso, con tantos clientes simultáneos como hilos del benchmark ({@code -t}).
+ *
+ * <p>Mide una mezcla de un 40 % de consultas de cuenta, un 30 % de ingresos y un 30 % de retiros sobre
+ * cuentas al azar, y el alta de cuentas, en la que cada petición toma un IBAN nuevo del asignador del
+ * banco. El modo {@code SampleTime} da también los percentiles. Las respuestas de la API, incluidos los
+ * errores de un alta que falla, se comprueban en {@code ServidorHttpTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpBenchmark {
+
+    private static final int NUM_CUENTAS = 1000;
+    private static final Pattern IBAN = Pattern.compile("\"iban\":\"([^\"]+)\"");
+    private static final String FORMULARIO_CUENTA = "tipo=AHORRO&dni=12345678Z&nombre=Cliente&apellido1=Carga"
+            + "&saldo=100000&tipoInteres=1.5";
+
+    private ServidorHttp servidor;
+    private ExecutorService hilosCliente;
+    private HttpClient cliente;
+    private URI altas;
+    private URI[] consultas;
+    private URI[] ingresos;
+    private URI[] retiros;
+
+    /**
+     * Arranca el servidor en un puerto libre y abre las cuentas a través de la API.
+     *
+     * @throws IOException          si no se puede arrancar el servidor o falla alguna petición.
+     * @throws InterruptedException si se interrumpe alguna petición.
+     */
+    @Setup(Level.Trial)
+    public void preparar() throws IOException, InterruptedException {
+        servidor = ServidorHttp.iniciar(new Banco(true), new InetSocketAddress("127.0.0.1", 0));
+        hilosCliente = Executors.newVirtualThreadPerTaskExecutor();
+        cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(hilosCliente).build();
+        String url = "http://127.0.0.1:" + servidor.getPuerto() + "/cuentas";
+        altas = URI.create(url);
+        consultas = new URI[NUM_CUENTAS];
+        ingresos = new URI[NUM_CUENTAS];
+        retiros = new URI[NUM_CUENTAS];
+        for (int i = 0; i < NUM_CUENTAS; i++) {
+            HttpResponse<String> respuesta = cliente.send(formulario(altas, FORMULARIO_CUENTA),
+                    HttpResponse.BodyHandlers.ofString());
+            Matcher iban = IBAN.matcher(respuesta.body());
+            if (respuesta.statusCode() != 201 || !iban.find()) {
+                throw new IllegalStateException("No se pudo abrir la cuenta: " + respuesta.body());
+            }
+            consultas[i] = URI.create(url + "/" + iban.group(1));
+            ingresos[i] = URI.create(url + "/" + iban.group(1) + "/ingresos");
+            retiros[i] = URI.create(url + "/" + iban.group(1) + "/retiros");
+        }
+    }
+
+    /**
+     * Detiene el servidor y los hilos del cliente.
+     */
+    @TearDown(Level.Trial)
+    public void terminar() {
+        servidor.close();
+        hilosCliente.shutdown();
+    }
+
+    /**
+     * Envía una consulta, un ingreso o un retiro de 1,25 € sobre una cuenta al azar.
+     *
+     * @param hilo Estado del hilo.
+     * @return Código de estado de la respuesta.
+     * @throws IOException          si falla la petición.
+     * @throws InterruptedException si se interrumpe la petición.
+     */
+    @Benchmark
+    public int peticionMixta(EstadoHilo hilo) throws IOException, InterruptedException {
+        int cuenta = hilo.siguiente(NUM_CUENTAS);
+        int tipo = hilo.siguiente(10);
+        HttpRequest peticion = tipo < 4 ? HttpRequest.newBuilder(consultas[cuenta]).GET().build()
+                : formulario(tipo < 7 ? ingresos[cuenta] : retiros[cuenta], "cantidad=1.25");
+        return cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * Abre una cuenta nueva.
+     *
+     * @return Código de estado de la respuesta.
+     * @throws IOException          si falla la petición.
+     * @throws InterruptedException si se interrumpe la petición.
+     */
+    @Benchmark
+    public int abrirCuenta() throws IOException, InterruptedException {
+        return cliente.send(formulario(altas, FORMULARIO_CUENTA), HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    private static HttpRequest formulario(URI uri, String cuerpo) {
+        return HttpRequest.newBuilder(uri).header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo)).build();
+    }
+}
@@ -0,0 +1,142 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.view.ImportadorCuentas;
+import com.alvarobajo.banco.view.ModoLote;
+import com.alvarobajo.banco.view.ResumenImportacion;
+import com.alvarobajo.banco.view.ResumenModoLote;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Importación de {@code filas} cuentas con {@link ImportadorCuentas}, en un banco de un solo hilo o
+ * concurrente y con {@code hilos} hilos de validación (0 para todos los procesadores), comparada con
+ * abrir las mismas cuentas orden a orden con {@link ModoLote}.
+ *
+ * <p>El fichero tiene filas de los tres tipos de cuenta y una de cada cien con un error. Que se abren
+ * exactamente las filas válidas, que el informe de rechazos las contiene en orden y con su motivo, y
+ * que un IBAN ya en uso no rechaza la fila, se comprueba en {@code ImportadorCuentasTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImportacionBenchmark {
+
+    private static final int FILAS_CON_ERROR = 100;
+
+    @Param({"1000000"})
+    int filas;
+
+    @Param({"false", "true"})
+    boolean concurrente;
+
+    @Param({"1", "0"})
+    int hilos;
+
+    private Path fichero;
+    private Path ordenes;
+    private ForkJoinPool pool;
+
+    /**
+     * Escribe el fichero de importación y el mismo contenido como órdenes {@code ABRIR} de
+     * {@link ModoLote}.
+     *
+     * @throws IOException si no se pueden escribir los ficheros.
+     */
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        pool = new ForkJoinPool(hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors());
+        fichero = Files.createTempFile("importacion", ".csv");
+        ordenes = Files.createTempFile("importacion", ".txt");
+        try (BufferedWriter importacion = Files.newBufferedWriter(fichero, StandardCharsets.UTF_8);
+             BufferedWriter lote = Files.newBufferedWriter(ordenes, StandardCharsets.UTF_8)) {
+            StringBuilder fila = new StringBuilder(128);
+            for (int i = 0; i < filas; i++) {
+                int error = i % FILAS_CON_ERROR == 0 ? (i / FILAS_CON_ERROR) % 4 : -1;
+                long centimos = 100 + i % 100_000;
+                fila.setLength(0);
+                fila.append(error == 0 ? "PLAZO" : i % 3 == 0 ? "AHORRO" : i % 3 == 1 ? "PERSONAL" : "EMPRESA")
+                        .append(';').append(String.format("%08d%c", i / 2, error == 1 ? '-' : 'T'))
+                        .append(";Titular").append(i).append(";Apellido").append(i % 1000).append(";Muñoz;")
+                        .append(error == 2 ? "-" : "").append(centimos / 100).append(',')
+                        .append(centimos % 100 / 10).append(centimos % 10);
+                switch (i % 3) {
+                    case 0:
+                        fila.append(error == 3 ? ";cero" : ";1,5");
+                        break;
+                    case 1:
+                        fila.append(";Entidad A, Entidad B;").append(error == 3 ? "0" : "3");
+                        break;
+                    default:
+                        fila.append(";Entidad C;7.5;").append(error == 3 ? "-1" : "5000");
+                }
+                importacion.append(fila).append(System.lineSeparator());
+                lote.append("ABRIR;").append(fila).append(System.lineSeparator());
+            }
+        }
+    }
+
+    /**
+     * Cierra el pool y borra los ficheros.
+     *
+     * @throws IOException si no se pueden borrar los ficheros.
+     */
+    @TearDown(Level.Trial)
+    public void terminar() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(fichero);
+        Files.deleteIfExists(ordenes);
+    }
+
+    /**
+     * Importa todas las filas del fichero en un banco nuevo.
+     *
+     * @return Resumen de la importación.
+     * @throws IOException si no se puede leer el fichero.
+     */
+    @Benchmark
+    public ResumenImportacion importar() throws IOException {
+        try (Reader entrada = Files.newBufferedReader(fichero, StandardCharsets.UTF_8)) {
+            return ImportadorCuentas.importar(new Banco(concurrente), entrada, Writer.nullWriter(), pool);
+        }
+    }
+
+    /**
+     * Abre las mismas cuentas en un banco nuevo orden a orden con {@link ModoLote}, como referencia.
+     *
+     * @return Resumen de las órdenes ejecutadas.
+     * @throws IOException si no se puede leer el fichero de órdenes.
+     */
+    @Benchmark
+    public ResumenModoLote modoLote() throws IOException {
+        try (Reader entrada = Files.newBufferedReader(ordenes, StandardCharsets.UTF_8)) {
+            return ModoLote.ejecutar(new Banco(concurrente), entrada, Writer.nullWriter());
+        }
+    }
+}
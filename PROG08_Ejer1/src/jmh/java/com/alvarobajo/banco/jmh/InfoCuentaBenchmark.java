@@ -0,0 +1,72 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de {@code devolverInfoString} para cada tipo de cuenta. No depende del número de cuentas
+ * del banco, así que trabaja sobre una sola cuenta por hilo.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InfoCuentaBenchmark {
+
+    @Param({"AHORRO", "CORRIENTE_PERSONAL", "CORRIENTE_EMPRESA"})
+    String tipo;
+
+    private CuentaBancaria cuenta;
+
+    /**
+     * Crea la cuenta del tipo indicado.
+     */
+    @Setup
+    public void preparar() {
+        Persona titular = new Persona("Álvaro", "Bajo", "Tabero", "12345678Z");
+        String iban = "ES9121000418450200051332";
+        switch (tipo) {
+            case "AHORRO":
+                cuenta = new CuentaAhorro(titular, 12_345.67, iban, 1.75);
+                break;
+            case "CORRIENTE_PERSONAL":
+                cuenta = new CuentaCorrientePersonal(titular, 12_345.67, iban, "Entidad A, Entidad B", 4.5);
+                break;
+            case "CORRIENTE_EMPRESA":
+                cuenta = new CuentaCorrienteEmpresa(titular, -1_234.5, iban, "Entidad A, Entidad B", 9.75, 50_000);
+                break;
+            default:
+                throw new IllegalArgumentException("Tipo de cuenta desconocido: " + tipo);
+        }
+    }
+
+    /**
+     * Genera la descripción de la cuenta.
+     *
+     * @return La descripción.
+     */
+    @Benchmark
+    public String devolverInfoString() {
+        return cuenta.devolverInfoString();
+    }
+}
@@ -0,0 +1,88 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.cuentas.ConvencionDias;
+import com.alvarobajo.banco.controller.cuentas.LiquidadorIntereses;
+import com.alvarobajo.banco.controller.cuentas.ResultadoLiquidacion;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Liquidación de intereses secuencial comparada con la liquidación en paralelo con fork-join sobre
+ * muchas cuentas de ahorro.
+ *
+ * <p>Cada invocación liquida el día siguiente al de la anterior, para que ninguna cuenta se omita por
+ * estar ya liquidada. Que las dos formas abonan lo mismo y no repiten un periodo se comprueba en
+ * {@code LiquidadorInteresesTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InteresesBenchmark {
+
+    @Param({"1000000", "10000000"})
+    int numCuentas;
+
+    private CuentaBancaria[] cuentas;
+    private LocalDate dia;
+
+    /**
+     * Crea las cuentas de ahorro, con saldos y tipos de interés distintos.
+     */
+    @Setup(Level.Trial)
+    public void preparar() {
+        // Las cuentas no se abren en ningún banco, así que no necesitan IBAN ni titulares distintos
+        Persona titular = new Persona("Benchmark", "Intereses", "", "00000000T");
+        cuentas = new CuentaBancaria[numCuentas];
+        for (int i = 0; i < numCuentas; i++) {
+            cuentas[i] = new CuentaAhorro(titular, 1000 + i % 10_000, null, 0.5 + (i % 8) * 0.25);
+        }
+        dia = LocalDate.of(2024, 1, 1);
+    }
+
+    /**
+     * Liquida un día en el hilo actual.
+     *
+     * @return Resumen de la liquidación.
+     */
+    @Benchmark
+    public ResultadoLiquidacion secuencial() {
+        LocalDate inicio = dia;
+        dia = dia.plusDays(1);
+        return LiquidadorIntereses.liquidarSecuencial(cuentas, inicio, dia, ConvencionDias.REAL_365);
+    }
+
+    /**
+     * Liquida un día en paralelo en el pool común de fork-join.
+     *
+     * @return Resumen de la liquidación.
+     */
+    @Benchmark
+    public ResultadoLiquidacion paralelo() {
+        LocalDate inicio = dia;
+        dia = dia.plusDays(1);
+        return LiquidadorIntereses.liquidar(cuentas, inicio, dia, ConvencionDias.REAL_365,
+                ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,102 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.MostrarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listado de todas las cuentas construyendo una cadena por cuenta, comparado con el listado que escribe
+ * cada cuenta directamente en un {@code Writer} con buffer mediante {@code appendTo}.
+ *
+ * <p>La salida se descarta. La memoria reservada por listado se ve con {@code -prof gc}. Que los dos
+ * listados son idénticos se comprueba en {@code MostrarCuentaTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListadoBenchmark {
+
+    @Param({"1000000"})
+    int numCuentas;
+
+    private Banco banco;
+
+    /**
+     * Abre las cuentas del banco, de los tres tipos.
+     */
+    @Setup(Level.Trial)
+    public void preparar() {
+        banco = new Banco();
+        for (int i = 0; i < numCuentas; i++) {
+            Persona titular = new Persona("Titular" + i, "Apellido", i % 2 == 0 ? "" : "Segundo", "00000000T");
+            String iban = String.format("ES%010d", i);
+            CuentaBancaria cuenta;
+            switch (i % 3) {
+                case 0:
+                    cuenta = new CuentaAhorro(titular, i * 1.37, iban, 1.5 + i % 7 * 0.25);
+                    break;
+                case 1:
+                    cuenta = new CuentaCorrientePersonal(titular, i * 0.91, iban, "Entidad", 4.5);
+                    break;
+                default:
+                    cuenta = new CuentaCorrienteEmpresa(titular, -i * 0.05, iban, "Entidad", 9.75, 50_000);
+            }
+            banco.abrirCuenta(cuenta);
+        }
+    }
+
+    /**
+     * Imprime cada cuenta con {@code println} de la cadena que devuelve {@code devolverInfoString}.
+     */
+    @Benchmark
+    public void cadenas() {
+        PrintStream consola = new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8);
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            consola.println(cuenta.devolverInfoString());
+        }
+        consola.flush();
+    }
+
+    /**
+     * Escribe el listado con {@link MostrarCuenta#escribirListado} en un {@code Writer} con buffer.
+     *
+     * @throws IOException si falla la escritura del listado.
+     */
+    @Benchmark
+    public void appendTo() throws IOException {
+        Writer salida = new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream(),
+                StandardCharsets.UTF_8), 1 << 16);
+        MostrarCuenta.escribirListado(banco, salida);
+        salida.flush();
+    }
+}
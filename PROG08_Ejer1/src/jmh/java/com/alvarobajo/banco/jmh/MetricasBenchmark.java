@@ -0,0 +1,36 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.metricas.Metricas;
+import com.alvarobajo.banco.metricas.OperacionMedida;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de la instrumentación de {@link Metricas} por operación: una llamada a {@code iniciar} y otra
+ * a {@code registrar}, sin operación entre medias. Para ver su efecto sobre una operación real, se
+ * puede comparar {@code OperacionesBenchmark} con y sin {@code -jvmArgsAppend -Dbanco.metricas=false}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricasBenchmark {
+
+    /**
+     * Cuenta una operación correcta, midiendo su latencia si le toca en el muestreo.
+     */
+    @Benchmark
+    public void iniciarYRegistrar() {
+        Metricas.registrar(OperacionMedida.INGRESO, Metricas.iniciar(), true);
+    }
+}
@@ -0,0 +1,65 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de las operaciones de {@link OperarCuenta} sobre cuentas elegidas al azar, de modo que
+ * con muchas cuentas la mayoría de los accesos fallan en la caché.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperacionesBenchmark {
+
+    /**
+     * Ingresa un céntimo en una cuenta.
+     *
+     * @param banco Banco con las cuentas.
+     * @param hilo  Estado del hilo.
+     * @return El nuevo saldo en céntimos.
+     */
+    @Benchmark
+    public long ingresar(EstadoBanco banco, EstadoHilo hilo) {
+        return OperarCuenta.ingresar(banco.cuentas[hilo.siguiente(banco.numCuentas)], 1);
+    }
+
+    /**
+     * Retira un céntimo de una cuenta.
+     *
+     * @param banco Banco con las cuentas.
+     * @param hilo  Estado del hilo.
+     * @return El nuevo saldo en céntimos.
+     */
+    @Benchmark
+    public long retirar(EstadoBanco banco, EstadoHilo hilo) {
+        return OperarCuenta.retirar(banco.cuentas[hilo.siguiente(banco.numCuentas)], 1);
+    }
+
+    /**
+     * Transfiere un céntimo entre dos cuentas distintas, para que ninguna transferencia se rechace por
+     * ser de una cuenta a sí misma.
+     *
+     * @param banco Banco con las cuentas.
+     * @param hilo  Estado del hilo.
+     * @return El nuevo saldo de la cuenta de origen en céntimos.
+     */
+    @Benchmark
+    public long transferir(EstadoBanco banco, EstadoHilo hilo) {
+        int origen = hilo.siguiente(banco.numCuentas);
+        int destino = (origen + 1 + hilo.siguiente(banco.numCuentas - 1)) % banco.numCuentas;
+        return OperarCuenta.transferir(banco.cuentas[origen], banco.cuentas[destino], 1);
+    }
+}
@@ -0,0 +1,118 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.OrdenListado;
+import com.alvarobajo.banco.controller.PaginaCuentas;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.Persona;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listado paginado de cuentas de un banco concurrente, por IBAN y por saldo: coste de pedir la primera
+ * y la última página, que debería ser el mismo, y de recorrer el listado completo.
+ *
+ * <p>Que cada cuenta aparece exactamente una vez aunque otro hilo abra y elimine cuentas durante el
+ * recorrido, y que el listado por saldo sale ordenado, se comprueba en {@code BancoListadoTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaginacionBenchmark {
+
+    @Param({"1000000"})
+    int numCuentas;
+
+    @Param({"100"})
+    int tamanoPagina;
+
+    @Param({"IBAN", "SALDO"})
+    OrdenListado orden;
+
+    private Banco banco;
+    private String cursorUltimaPagina;
+
+    /**
+     * Abre las cuentas, crea el índice del orden pedido y guarda el cursor de la última página.
+     */
+    @Setup(Level.Trial)
+    public void preparar() {
+        banco = new Banco(true);
+        Persona titular = new Persona("Benchmark", "Paginacion", "", "00000000T");
+        for (int i = 0; i < numCuentas; i++) {
+            banco.abrirCuenta(new CuentaAhorro(titular, (i * 7919L) % 100_000 / 100.0,
+                    banco.getAsignadorIBAN().siguiente(), 1));
+        }
+        String cursor = null;
+        PaginaCuentas pagina = banco.listarCuentas(orden, null, tamanoPagina);
+        while (pagina.haySiguiente()) {
+            cursor = pagina.getCursorSiguiente();
+            pagina = banco.listarCuentas(orden, cursor, tamanoPagina);
+        }
+        cursorUltimaPagina = cursor;
+    }
+
+    /**
+     * Detiene el refresco del índice de saldos.
+     */
+    @TearDown(Level.Trial)
+    public void terminar() {
+        banco.close();
+    }
+
+    /**
+     * Pide la primera página del listado.
+     *
+     * @return La página.
+     */
+    @Benchmark
+    public PaginaCuentas primeraPagina() {
+        return banco.listarCuentas(orden, null, tamanoPagina);
+    }
+
+    /**
+     * Pide la última página del listado a partir del cursor de la penúltima.
+     *
+     * @return La página.
+     */
+    @Benchmark
+    public PaginaCuentas ultimaPagina() {
+        return banco.listarCuentas(orden, cursorUltimaPagina, tamanoPagina);
+    }
+
+    /**
+     * Recorre el listado completo página a página.
+     *
+     * @return Número de cuentas listadas.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long recorrerListado() {
+        long cuentas = 0;
+        String cursor = null;
+        do {
+            PaginaCuentas pagina = banco.listarCuentas(orden, cursor, tamanoPagina);
+            cuentas += pagina.getCuentas().size();
+            cursor = pagina.getCursorSiguiente();
+        } while (cursor != null);
+        return cuentas;
+    }
+}
@@ -0,0 +1,174 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.CodificadorCuentas;
+import com.alvarobajo.banco.proyecciones.ProyeccionesBanco;
+import com.alvarobajo.banco.proyecciones.VistaTitular;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Si los informes frenan los ingresos, retiros y transferencias, con y sin las proyecciones de
+ * {@link ProyeccionesBanco}.
+ *
+ * <p>{@code operar} mide solo las operaciones ({@code -t} hilos), para ver lo que cuesta mantener las
+ * proyecciones. En el grupo {@code conInformes}, tres hilos operan mientras otro pide sin pausa los
+ * saldos por tipo de cuenta y las cuentas de un titular al azar: sin proyecciones el informe recorre
+ * todas las cuentas del banco; con proyecciones lee las últimas publicadas. Que las proyecciones
+ * coinciden con las cuentas después de operar desde varios hilos, y que no obligan a los ingresos a
+ * adquirir el monitor de la cuenta, se comprueba en {@code ProyeccionesBancoTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProyeccionesBenchmark {
+
+    private static final int NUM_CUENTAS = 300_000;
+    private static final int CUENTAS_POR_TITULAR = 3;
+    private static final String LETRAS_DNI = "TRWAGMYFPDXBNJZSQVHLCKE";
+
+    @Param({"false", "true"})
+    boolean conProyecciones;
+
+    private Banco banco;
+    private CuentaBancaria[] cuentas;
+    private String[] dnis;
+    private ProyeccionesBanco proyecciones;
+
+    /**
+     * Abre las cuentas de los tres tipos, de tres en tres por titular, y las proyecciones si se piden.
+     */
+    @Setup(Level.Trial)
+    public void preparar() {
+        banco = new Banco(true);
+        cuentas = new CuentaBancaria[NUM_CUENTAS];
+        dnis = new String[(NUM_CUENTAS + CUENTAS_POR_TITULAR - 1) / CUENTAS_POR_TITULAR];
+        for (int i = 0; i < dnis.length; i++) {
+            dnis[i] = String.format("%08d%c", i, LETRAS_DNI.charAt(i % 23));
+        }
+        for (int i = 0; i < NUM_CUENTAS; i++) {
+            Persona titular = new Persona("Titular", String.valueOf(i / CUENTAS_POR_TITULAR), "",
+                    dnis[i / CUENTAS_POR_TITULAR]);
+            String iban = banco.getAsignadorIBAN().siguiente();
+            switch (i % 3) {
+                case 0:
+                    cuentas[i] = new CuentaAhorro(titular, 1000, iban, 1);
+                    break;
+                case 1:
+                    cuentas[i] = new CuentaCorrientePersonal(titular, 1000, iban, "Entidad", 1);
+                    break;
+                default:
+                    cuentas[i] = new CuentaCorrienteEmpresa(titular, 1000, iban, "Entidad", 5, 500);
+            }
+            banco.abrirCuenta(cuentas[i]);
+        }
+        if (conProyecciones) {
+            proyecciones = ProyeccionesBanco.abrir(banco);
+            proyecciones.sincronizar();
+        }
+    }
+
+    /**
+     * Cierra las proyecciones.
+     */
+    @TearDown(Level.Trial)
+    public void terminar() {
+        if (proyecciones != null) {
+            proyecciones.close();
+        }
+    }
+
+    /**
+     * Aplica un ingreso, un retiro o una transferencia al azar, sin informes.
+     *
+     * @param hilo Estado del hilo.
+     * @return El nuevo saldo de la cuenta.
+     */
+    @Benchmark
+    public long operar(EstadoHilo hilo) {
+        return operarAlAzar(hilo);
+    }
+
+    /**
+     * Aplica un ingreso, un retiro o una transferencia al azar mientras otro hilo pide informes.
+     *
+     * @param hilo Estado del hilo.
+     * @return El nuevo saldo de la cuenta.
+     */
+    @Benchmark
+    @Group("conInformes")
+    @GroupThreads(3)
+    public long operarConInformes(EstadoHilo hilo) {
+        return operarAlAzar(hilo);
+    }
+
+    /**
+     * Obtiene el saldo total del banco y el de un titular al azar, de las proyecciones si las hay o
+     * recorriendo las cuentas si no.
+     *
+     * @param hilo Estado del hilo.
+     * @return Suma de los dos saldos en céntimos.
+     */
+    @Benchmark
+    @Group("conInformes")
+    @GroupThreads(1)
+    public long informe(EstadoHilo hilo) {
+        String dni = dnis[hilo.siguiente(dnis.length)];
+        if (proyecciones != null) {
+            VistaTitular vista = proyecciones.getVistaTitular(dni);
+            long saldoTitular = vista != null ? vista.getSaldoTotalCentimos() : 0;
+            return proyecciones.getSaldosPorTipo().getSaldoTotalCentimos() + saldoTitular;
+        }
+        long[] saldos = new long[CodificadorCuentas.TIPO_CORRIENTE_EMPRESA + 1];
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            saldos[CodificadorCuentas.tipoDe(cuenta)] += cuenta.getSaldoCentimos();
+        }
+        long total = 0;
+        for (long saldo : saldos) {
+            total += saldo;
+        }
+        for (CuentaBancaria cuenta : banco.buscarCuentasPorDNI(dni)) {
+            total += cuenta.getSaldoCentimos();
+        }
+        return total;
+    }
+
+    private long operarAlAzar(EstadoHilo hilo) {
+        int origen = hilo.siguiente(NUM_CUENTAS);
+        long centimos = 1 + hilo.siguiente(5_000);
+        int tipo = hilo.siguiente(10);
+        if (tipo < 5) {
+            return OperarCuenta.ingresar(cuentas[origen], centimos);
+        } else if (tipo < 9) {
+            return OperarCuenta.retirar(cuentas[origen], centimos);
+        }
+        int destino = (origen + 1 + hilo.siguiente(NUM_CUENTAS - 1)) % NUM_CUENTAS;
+        return OperarCuenta.transferir(cuentas[origen], cuentas[destino], centimos);
+    }
+}
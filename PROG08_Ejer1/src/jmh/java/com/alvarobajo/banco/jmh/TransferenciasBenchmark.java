@@ -0,0 +1,81 @@
+package com.alvarobajo.banco.jmh;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmark de {@link OperarCuenta#transferir} entre cuentas que no comparte ningún hilo con los demás,
+ * de modo que el rendimiento total debería crecer con el número de hilos ({@code -t}).
+ *
+ * <p>Cada hilo transfiere entre las cuentas de su propio grupo, de {@code cuentasPorGrupo} cuentas, y
+ * nunca de una cuenta a sí misma. La conservación del dinero total se comprueba en
+ * {@code OperarCuentaTest}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferenciasBenchmark {
+
+    private static final double SALDO_INICIAL = 1_000_000;
+    private static final Banco BANCO = new Banco(true);
+    private static final AtomicInteger GRUPOS = new AtomicInteger();
+
+    @Param({"2", "64"})
+    int cuentasPorGrupo;
+
+    private CuentaBancaria[] grupo;
+
+    /**
+     * Abre las cuentas del grupo del hilo.
+     *
+     * @throws IllegalArgumentException si el grupo tiene menos de dos cuentas.
+     */
+    @Setup
+    public void preparar() {
+        if (cuentasPorGrupo < 2) {
+            throw new IllegalArgumentException("Hacen falta al menos dos cuentas por grupo: " + cuentasPorGrupo);
+        }
+        Persona titular = new Persona("Benchmark", "Transferencias", "", "00000000T");
+        int numGrupo = GRUPOS.getAndIncrement();
+        grupo = new CuentaBancaria[cuentasPorGrupo];
+        for (int c = 0; c < cuentasPorGrupo; c++) {
+            grupo[c] = new CuentaAhorro(titular, SALDO_INICIAL, String.format("ES%06d%06d", numGrupo, c), 1);
+            BANCO.abrirCuenta(grupo[c]);
+        }
+    }
+
+    /**
+     * Transfiere entre dos cuentas distintas del grupo del hilo.
+     *
+     * @param hilo Estado del hilo.
+     * @return El nuevo saldo de la cuenta de origen en céntimos.
+     */
+    @Benchmark
+    public long transferir(EstadoHilo hilo) {
+        int origen = hilo.siguiente(grupo.length);
+        int destino = (origen + 1 + hilo.siguiente(grupo.length - 1)) % grupo.length;
+        return OperarCuenta.transferir(grupo[origen], grupo[destino], 1 + hilo.siguiente(1024));
+    }
+}
@@ -1,7 +1,35 @@
 package com.alvarobajo.banco;
 
+import com.alvarobajo.banco.controller.AsignadorIBAN;
 import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.metricas.Metricas;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.persistencia.Diario;
+import com.alvarobajo.banco.persistencia.GestorInstantaneas;
+import com.alvarobajo.banco.persistencia.HistorialMovimientos;
+import com.alvarobajo.banco.persistencia.ModoDurabilidad;
+import com.alvarobajo.banco.proyecciones.ProyeccionesBanco;
+import com.alvarobajo.banco.view.ImportadorCuentas;
 import com.alvarobajo.banco.view.Menu;
+import com.alvarobajo.banco.view.ModoLote;
+import com.alvarobajo.banco.view.ResumenImportacion;
+import com.alvarobajo.banco.view.ResumenModoLote;
+import com.alvarobajo.banco.view.ServidorBinario;
+import com.alvarobajo.banco.view.ServidorHttp;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Clase principal que inicia la aplicación bancaria.
@@ -9,17 +37,248 @@ import com.alvarobajo.banco.view.Menu;
  * <p>Crea una instancia de la clase `Banco` y llama al método `menuPrincipal` de la clase `Menu` para
  * comenzar la interacción con el usuario.</p>
  *
+ * <p>Con los argumentos {@code --diario <fichero> [modo]} el banco se recupera del diario de operaciones
+ * indicado y registra en él todas las operaciones siguientes. El modo es uno de los valores de
+ * {@link ModoDurabilidad} (por defecto, {@code GRUPO}). La numeración de los IBAN se guarda junto al diario,
+ * en un fichero con la extensión {@code .iban}, para no repetir números al reiniciar; si ese fichero se pierde,
+ * la numeración sigue después de la de las cuentas recuperadas.</p>
+ *
+ * <p>Con {@code --instantaneas <directorio> [modo]}, en lugar de {@code --diario}, el banco se guarda en el
+ * directorio indicado con un {@link GestorInstantaneas}: al arrancar se recupera de la instantánea más reciente
+ * y del final del diario, y se toma enseguida una instantánea nueva, para que el próximo arranque no tenga
+ * que reproducir lo mismo. Si el banco es concurrente (con {@code --http} o {@code --binario}), se toma
+ * además una instantánea cada {@value #MINUTOS_ENTRE_INSTANTANEAS} minutos.</p>
+ *
+ * <p>Con el argumento {@code --lote [fichero]} no se muestra el menú: se ejecutan las órdenes del fichero
+ * indicado (o de la entrada estándar, si no se indica o es {@code -}) con {@link ModoLote}, los resultados
+ * se escriben en la salida estándar y un resumen en la salida de errores. Se puede combinar con
+ * {@code --diario}.</p>
+ *
+ * <p>Con el argumento {@code --http [puerto]} (por defecto, 8080) tampoco se muestra el menú: se arranca la
+ * API HTTP del banco ({@link ServidorHttp}) sobre un banco concurrente, hasta que se detenga el proceso.
+ * Con {@code --binario [puerto]} (por defecto, 9090) se arranca de la misma forma el servidor del
+ * protocolo binario ({@link ServidorBinario}). Se pueden arrancar los dos a la vez.</p>
+ *
+ * <p>Con {@code --historial <fichero> [capacidad]} se guardan los movimientos de cada cuenta en un
+ * {@link HistorialMovimientos} (por defecto, los 64 últimos en memoria y el resto en el fichero), que la
+ * API HTTP ofrece en {@code /cuentas/{iban}/movimientos} y, como extractos entre dos fechas, en
+ * {@code /cuentas/{iban}/extracto}.</p>
+ *
+ * <p>Con {@code --proyecciones} se mantienen en un hilo aparte las proyecciones de saldos por tipo de
+ * cuenta y de cuentas por titular ({@link ProyeccionesBanco}), que la API HTTP ofrece en
+ * {@code /saldos} y {@code /titulares/{dni}} sin recorrer las cuentas. Se cargan después de recuperar
+ * el banco del diario; con esta opción el banco es siempre concurrente.</p>
+ *
+ * <p>Con {@code --importar <fichero> [informe]}, antes de nada se abren en el banco las cuentas del
+ * fichero indicado con {@link ImportadorCuentas}; las filas rechazadas se escriben en el informe (por
+ * defecto, el mismo fichero con la extensión {@code .rechazos}) y un resumen en la salida de errores.</p>
+ *
+ * <p>Con la propiedad del sistema {@code -Dbanco.metricas.volcado=<segundos>} se escribe en la salida de
+ * errores, con ese periodo, el resumen de las métricas de las operaciones ({@link Metricas}).</p>
+ *
  * @author Álvaro Bajo Tabero
  */
 public class Main {
 
+    private static final int PUERTO_HTTP_POR_DEFECTO = 8080;
+    private static final int PUERTO_BINARIO_POR_DEFECTO = 9090;
+    private static final int CAPACIDAD_HISTORIAL_POR_DEFECTO = 64;
+    private static final int MINUTOS_ENTRE_INSTANTANEAS = 5;
+
     /**
      * Punto de entrada principal para la aplicación bancaria.
      *
-     * @param args Los argumentos de la línea de comandos (no se utilizan).
+     * @param args Los argumentos de la línea de comandos.
      */
     public static void main(String[] args) {
-        Banco banco = new Banco();
-        Menu.menuPrincipal(banco);
+        Long volcado = Long.getLong("banco.metricas.volcado");
+        if (volcado != null && volcado > 0) {
+            Metricas.programarVolcado(System.err, volcado, TimeUnit.SECONDS);
+        }
+        String ficheroDiario = null;
+        String modoDiario = null;
+        String directorioInstantaneas = null;
+        boolean lote = false;
+        String ficheroLote = null;
+        int puertoHttp = -1;
+        int puertoBinario = -1;
+        String ficheroHistorial = null;
+        int capacidadHistorial = CAPACIDAD_HISTORIAL_POR_DEFECTO;
+        boolean conProyecciones = false;
+        String ficheroImportacion = null;
+        String ficheroRechazos = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--diario") && i + 1 < args.length) {
+                ficheroDiario = args[++i];
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    modoDiario = args[++i];
+                }
+            } else if (args[i].equals("--instantaneas") && i + 1 < args.length) {
+                directorioInstantaneas = args[++i];
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    modoDiario = args[++i];
+                }
+            } else if (args[i].equals("--http")) {
+                puertoHttp = PUERTO_HTTP_POR_DEFECTO;
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    puertoHttp = Integer.parseInt(args[++i]);
+                }
+            } else if (args[i].equals("--historial") && i + 1 < args.length) {
+                ficheroHistorial = args[++i];
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    capacidadHistorial = Integer.parseInt(args[++i]);
+                }
+            } else if (args[i].equals("--binario")) {
+                puertoBinario = PUERTO_BINARIO_POR_DEFECTO;
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    puertoBinario = Integer.parseInt(args[++i]);
+                }
+            } else if (args[i].equals("--proyecciones")) {
+                conProyecciones = true;
+            } else if (args[i].equals("--importar") && i + 1 < args.length) {
+                ficheroImportacion = args[++i];
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    ficheroRechazos = args[++i];
+                }
+            } else if (args[i].equals("--lote")) {
+                lote = true;
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    ficheroLote = args[++i];
+                }
+            }
+        }
+
+        if (ficheroDiario != null && directorioInstantaneas != null) {
+            System.err.println("Las opciones --diario e --instantaneas no se pueden usar a la vez");
+            return;
+        }
+        boolean servidor = puertoHttp >= 0 || puertoBinario >= 0;
+        // El hilo de las proyecciones recorre las cuentas mientras se opera desde el hilo principal
+        Banco banco = new Banco(servidor || conProyecciones);
+        ModoDurabilidad modo = modoDiario != null ? ModoDurabilidad.valueOf(modoDiario.toUpperCase())
+                : ModoDurabilidad.GRUPO;
+        if (directorioInstantaneas != null && !abrirInstantaneas(banco, Path.of(directorioInstantaneas), modo)) {
+            return;
+        }
+        if (ficheroDiario != null) {
+            try {
+                Diario diario = Diario.abrir(Path.of(ficheroDiario), modo, banco);
+                AsignadorIBAN asignador = AsignadorIBAN.abrir(Path.of(ficheroDiario + ".iban"));
+                usarAsignador(banco, asignador);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> cerrarDiario(diario, asignador)));
+            } catch (IOException e) {
+                System.err.println("No se pudo abrir el diario de operaciones: " + e.getMessage());
+                return;
+            }
+        }
+        HistorialMovimientos historial = null;
+        if (ficheroHistorial != null) {
+            try {
+                historial = HistorialMovimientos.abrir(Path.of(ficheroHistorial), capacidadHistorial, banco);
+            } catch (IOException e) {
+                System.err.println("No se pudo abrir el historial de movimientos: " + e.getMessage());
+                return;
+            }
+        }
+        ProyeccionesBanco proyecciones = conProyecciones ? ProyeccionesBanco.abrir(banco) : null;
+        if (ficheroImportacion != null && !importar(banco, ficheroImportacion,
+                ficheroRechazos != null ? ficheroRechazos : ficheroImportacion + ".rechazos")) {
+            return;
+        }
+        if (servidor) {
+            iniciarServidores(banco, historial, proyecciones, puertoHttp, puertoBinario);
+        } else if (lote) {
+            ejecutarLote(banco, ficheroLote);
+        } else {
+            Menu.menuPrincipal(banco);
+        }
+    }
+
+    private static void iniciarServidores(Banco banco, HistorialMovimientos historial, ProyeccionesBanco proyecciones,
+                                          int puertoHttp, int puertoBinario) {
+        if (puertoHttp >= 0) {
+            try {
+                ServidorHttp http = ServidorHttp.iniciar(banco, historial, proyecciones,
+                        new InetSocketAddress(puertoHttp));
+                System.out.println("API HTTP del banco escuchando en el puerto " + http.getPuerto());
+            } catch (IOException e) {
+                System.err.println("No se pudo arrancar el servidor HTTP: " + e.getMessage());
+            }
+        }
+        if (puertoBinario >= 0) {
+            try {
+                ServidorBinario binario = ServidorBinario.iniciar(banco, new InetSocketAddress(puertoBinario));
+                System.out.println("Protocolo binario del banco escuchando en el puerto " + binario.getPuerto());
+            } catch (IOException e) {
+                System.err.println("No se pudo arrancar el servidor binario: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void ejecutarLote(Banco banco, String fichero) {
+        // La salida estándar se usa sin el PrintStream de System.out, que vacía el buffer en cada línea
+        Writer salida = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out),
+                StandardCharsets.UTF_8), 1 << 16);
+        try (Reader entrada = fichero == null || fichero.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Path.of(fichero), StandardCharsets.UTF_8)) {
+            ResumenModoLote resumen = ModoLote.ejecutar(banco, entrada, salida);
+            salida.flush();
+            System.err.printf("%d órdenes, %d con error, en %.1f s%n", resumen.getOrdenes(), resumen.getErrores(),
+                    resumen.getNanos() / 1e9);
+        } catch (IOException e) {
+            System.err.println("No se pudieron ejecutar las órdenes: " + e.getMessage());
+        }
+    }
+
+    private static boolean importar(Banco banco, String fichero, String ficheroRechazos) {
+        try (Reader entrada = Files.newBufferedReader(Path.of(fichero), StandardCharsets.UTF_8);
+             Writer rechazos = Files.newBufferedWriter(Path.of(ficheroRechazos), StandardCharsets.UTF_8)) {
+            ResumenImportacion resumen = ImportadorCuentas.importar(banco, entrada, rechazos);
+            System.err.printf("%d filas importadas y %d rechazadas (en %s), en %.1f s%n", resumen.getImportadas(),
+                    resumen.getRechazadas(), ficheroRechazos, resumen.getNanos() / 1e9);
+            return true;
+        } catch (IOException e) {
+            System.err.println("No se pudieron importar las cuentas: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean abrirInstantaneas(Banco banco, Path directorio, ModoDurabilidad modo) {
+        try {
+            GestorInstantaneas gestor = GestorInstantaneas.abrir(directorio, modo, banco);
+            AsignadorIBAN asignador = AsignadorIBAN.abrir(directorio.resolve("diario.log.iban"));
+            usarAsignador(banco, asignador);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> cerrarDiario(gestor, asignador)));
+            gestor.tomarInstantanea();
+            if (banco.isConcurrente()) {
+                gestor.programar(MINUTOS_ENTRE_INSTANTANEAS, TimeUnit.MINUTES);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("No se pudo recuperar el banco de sus instantáneas: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Pone en el banco el asignador de IBAN guardado junto al diario, después de llevarlo más allá de las
+     * cuentas recuperadas: si el fichero de la numeración se ha perdido o está atrasado, las cuentas
+     * nuevas no deben repetir un IBAN que ya está en uso.
+     */
+    private static void usarAsignador(Banco banco, AsignadorIBAN asignador) {
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            asignador.avanzarHasta(cuenta.getIban());
+        }
+        banco.setAsignadorIBAN(asignador);
+    }
+
+    private static void cerrarDiario(AutoCloseable diario, AsignadorIBAN asignador) {
+        try {
+            diario.close();
+            asignador.close();
+        } catch (Exception e) {
+            System.err.println("No se pudo cerrar el diario de operaciones: " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,271 @@
+package com.alvarobajo.banco.controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asigna números de IBAN españoles únicos y válidos a las cuentas nuevas.
+ *
+ * <p>Los IBAN se forman con {@code ES}, los dígitos de control IBAN (módulo 97) y el código cuenta
+ * cliente: entidad, oficina, los dos dígitos de control del CCC y un número de cuenta de diez dígitos.
+ * Los números de cuenta son secuenciales y todos los hilos los toman de un mismo contador atómico,
+ * dentro del bloque reservado; solo reservar el bloque siguiente necesita sincronización. Así, asignar
+ * un IBAN no necesita comprobar si ya está en uso, y las peticiones atendidas cada una en su hilo
+ * virtual no reservan un bloque por hilo.</p>
+ *
+ * <p>Si se abre sobre un fichero, el asignador guarda en él el final del último bloque reservado antes
+ * de entregar ningún número del bloque. Tras reiniciar, se continúa a partir de ese punto: los números
+ * que quedaron sin usar en el último bloque reservado se pierden, pero nunca se repite uno ya
+ * entregado.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class AsignadorIBAN implements AutoCloseable {
+
+    /** Código de entidad que se usa si no se indica otro. */
+    public static final String ENTIDAD_POR_DEFECTO = "9000";
+    /** Código de oficina que se usa si no se indica otro. */
+    public static final String OFICINA_POR_DEFECTO = "0001";
+    /** Número de cuentas que se reservan de una vez si no se indica otro. */
+    public static final int TAMANO_BLOQUE_POR_DEFECTO = 1024;
+
+    private static final long MAXIMO_NUMERO_CUENTA = 9_999_999_999L;
+    private static final int LONGITUD_IBAN = 24;
+    private static final int[] PESOS_CCC = {1, 2, 4, 8, 5, 10, 9, 7, 3, 6};
+    // "ES00" pasado a dígitos para el cálculo del módulo 97: E = 14, S = 28
+    private static final int LETRAS_PAIS = 1428;
+
+    private final String entidad;
+    private final String oficina;
+    private final int digitoControlOficina;
+    private final int tamanoBloque;
+    private final FileChannel fichero;
+    private final AtomicLong proximo;
+    // Solo se modifica con el monitor del asignador; se lee sin él en cada asignación
+    private volatile long reservado;
+
+    /**
+     * Constructor para un asignador en memoria con la entidad y oficina por defecto, que empieza
+     * a numerar desde 0 y no conserva nada entre ejecuciones.
+     */
+    public AsignadorIBAN() {
+        this(ENTIDAD_POR_DEFECTO, OFICINA_POR_DEFECTO, TAMANO_BLOQUE_POR_DEFECTO, null, 0);
+    }
+
+    private AsignadorIBAN(String entidad, String oficina, int tamanoBloque, FileChannel fichero, long reservado) {
+        if (!esNumerico(entidad, 4) || !esNumerico(oficina, 4)) {
+            throw new IllegalArgumentException("La entidad y la oficina deben tener cuatro dígitos");
+        }
+        if (tamanoBloque <= 0) {
+            throw new IllegalArgumentException("Tamaño de bloque no válido: " + tamanoBloque);
+        }
+        this.entidad = entidad;
+        this.oficina = oficina;
+        this.digitoControlOficina = digitoControlCCC("00" + entidad + oficina);
+        this.tamanoBloque = tamanoBloque;
+        this.fichero = fichero;
+        this.reservado = reservado;
+        this.proximo = new AtomicLong(reservado);
+    }
+
+    /**
+     * Abre un asignador que guarda en un fichero el último número de cuenta reservado, para no repetir
+     * números tras reiniciar. Si el fichero no existe, se crea y se empieza desde 0.
+     *
+     * @param ruta         Fichero en el que guardar el último número reservado.
+     * @param entidad      Código de entidad de cuatro dígitos.
+     * @param oficina      Código de oficina de cuatro dígitos.
+     * @param tamanoBloque Número de cuentas que se reservan de una vez.
+     * @return El asignador abierto.
+     * @throws IOException si no se puede leer o crear el fichero.
+     */
+    public static AsignadorIBAN abrir(Path ruta, String entidad, String oficina, int tamanoBloque)
+            throws IOException {
+        FileChannel canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long reservado = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            if (canal.read(buffer, 0) == Long.BYTES) {
+                reservado = buffer.getLong(0);
+            }
+            if (reservado < 0 || reservado > MAXIMO_NUMERO_CUENTA + 1) {
+                throw new IOException("El fichero del asignador de IBAN está dañado: " + ruta);
+            }
+            return new AsignadorIBAN(entidad, oficina, tamanoBloque, canal, reservado);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Abre un asignador persistente con la entidad, la oficina y el tamaño de bloque por defecto.
+     *
+     * @param ruta Fichero en el que guardar el último número reservado.
+     * @return El asignador abierto.
+     * @throws IOException si no se puede leer o crear el fichero.
+     */
+    public static AsignadorIBAN abrir(Path ruta) throws IOException {
+        return abrir(ruta, ENTIDAD_POR_DEFECTO, OFICINA_POR_DEFECTO, TAMANO_BLOQUE_POR_DEFECTO);
+    }
+
+    /**
+     * Entrega un IBAN nuevo, distinto de todos los entregados antes por este asignador.
+     *
+     * @return IBAN de 24 caracteres, sin espacios.
+     * @throws IllegalStateException si se han agotado los números de cuenta o no se puede guardar la reserva.
+     */
+    public String siguiente() {
+        long numero = proximo.getAndIncrement();
+        if (numero >= reservado) {
+            reservarHasta(numero);
+        }
+        return formatear(numero);
+    }
+
+    /**
+     * Hace que el asignador no entregue nunca el IBAN de una cuenta que no ha numerado él, como las
+     * cargadas de una copia del banco: si el IBAN es válido y de la misma entidad y oficina, los números
+     * de cuenta que se entreguen después serán mayores que el suyo. Los demás IBAN no cambian nada.
+     *
+     * @param iban IBAN de una cuenta ya abierta.
+     * @throws IllegalStateException si no se puede guardar la reserva.
+     */
+    public void avanzarHasta(String iban) {
+        if (iban == null || !iban.regionMatches(4, entidad, 0, 4) || !iban.regionMatches(8, oficina, 0, 4)
+                || !esValido(iban)) {
+            return;
+        }
+        long numero = Long.parseLong(iban, 14, LONGITUD_IBAN, 10);
+        proximo.accumulateAndGet(numero + 1, Math::max);
+        if (numero >= reservado) {
+            reservarHasta(numero);
+        }
+    }
+
+    /**
+     * Comprueba si un texto es un IBAN español válido: formato, dígitos de control del CCC y
+     * dígitos de control IBAN.
+     *
+     * @param iban Texto a comprobar.
+     * @return true si es un IBAN español válido; false, en caso contrario.
+     */
+    public static boolean esValido(String iban) {
+        if (iban == null || iban.length() != LONGITUD_IBAN || !iban.startsWith("ES")
+                || !esNumerico(iban.substring(2), LONGITUD_IBAN - 2)) {
+            return false;
+        }
+        String ccc = iban.substring(4);
+        if (digitoControlCCC("00" + ccc.substring(0, 8)) != ccc.charAt(8) - '0'
+                || digitoControlCCC(ccc.substring(10)) != ccc.charAt(9) - '0') {
+            return false;
+        }
+        int resto = modulo97(ccc, 0);
+        resto = (int) ((resto * 1_000_000L + LETRAS_PAIS * 100L + Integer.parseInt(iban.substring(2, 4))) % 97);
+        return resto == 1;
+    }
+
+    /**
+     * Cierra el fichero del asignador, si lo tiene.
+     *
+     * @throws IOException si no se puede cerrar el fichero.
+     */
+    @Override
+    public void close() throws IOException {
+        if (fichero != null) {
+            fichero.close();
+        }
+    }
+
+    /**
+     * Reserva bloques hasta cubrir el número indicado, que el hilo que llama ya ha tomado del contador o
+     * que es el de una cuenta ya abierta. Si otro hilo ya lo ha cubierto mientras tanto, no hace nada.
+     */
+    private synchronized void reservarHasta(long numero) {
+        if (numero > MAXIMO_NUMERO_CUENTA) {
+            throw new IllegalStateException("Se han agotado los números de cuenta de la oficina " + oficina);
+        }
+        if (reservado <= numero) {
+            // Los bloques que falten se reservan de una vez: tras cargar cuentas pueden ser muchos
+            long bloques = (numero - reservado) / tamanoBloque + 1;
+            long fin = Math.min(reservado + bloques * tamanoBloque, MAXIMO_NUMERO_CUENTA + 1);
+            if (fichero != null) {
+                // La reserva se guarda antes de entregar ningún número del bloque
+                try {
+                    fichero.write(ByteBuffer.allocate(Long.BYTES).putLong(0, fin), 0);
+                    fichero.force(false);
+                } catch (IOException e) {
+                    throw new IllegalStateException("No se pudo guardar la reserva de números de cuenta", e);
+                }
+            }
+            reservado = fin;
+        }
+    }
+
+    private String formatear(long numeroCuenta) {
+        char[] iban = new char[LONGITUD_IBAN];
+        iban[0] = 'E';
+        iban[1] = 'S';
+        entidad.getChars(0, 4, iban, 4);
+        oficina.getChars(0, 4, iban, 8);
+        iban[12] = (char) ('0' + digitoControlOficina);
+        long resto = numeroCuenta;
+        int suma = 0;
+        for (int i = 9; i >= 0; i--) {
+            int digito = (int) (resto % 10);
+            resto /= 10;
+            iban[14 + i] = (char) ('0' + digito);
+            suma += digito * PESOS_CCC[i];
+        }
+        iban[13] = (char) ('0' + ajustarDigitoControl(suma));
+
+        int modulo = 0;
+        for (int i = 4; i < LONGITUD_IBAN; i++) {
+            modulo = (modulo * 10 + iban[i] - '0') % 97;
+        }
+        int control = 98 - (int) ((modulo * 1_000_000L + LETRAS_PAIS * 100L) % 97);
+        iban[2] = (char) ('0' + control / 10);
+        iban[3] = (char) ('0' + control % 10);
+        return new String(iban);
+    }
+
+    /**
+     * Calcula un dígito de control del CCC sobre diez dígitos.
+     */
+    private static int digitoControlCCC(String digitos) {
+        int suma = 0;
+        for (int i = 0; i < PESOS_CCC.length; i++) {
+            suma += (digitos.charAt(i) - '0') * PESOS_CCC[i];
+        }
+        return ajustarDigitoControl(suma);
+    }
+
+    private static int ajustarDigitoControl(int suma) {
+        int digito = 11 - suma % 11;
+        return digito == 11 ? 0 : digito == 10 ? 1 : digito;
+    }
+
+    private static int modulo97(String digitos, int resto) {
+        for (int i = 0; i < digitos.length(); i++) {
+            resto = (resto * 10 + digitos.charAt(i) - '0') % 97;
+        }
+        return resto;
+    }
+
+    private static boolean esNumerico(String texto, int longitud) {
+        if (texto == null || texto.length() != longitud) {
+            return false;
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) < '0' || texto.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,26 +1,90 @@
 package com.alvarobajo.banco.controller;
 
+import com.alvarobajo.banco.metricas.Metricas;
+import com.alvarobajo.banco.metricas.OperacionMedida;
 import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.ObservadorCuenta;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.models.TipoMovimiento;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Clase que representa un banco y gestiona cuentas bancarias.
  *
+ * <p>Puede crearse en modo concurrente para usarse desde varios hilos a la vez. En ese modo el índice
+ * por IBAN es un {@link ConcurrentHashMap}, de forma que las altas y bajas de cuentas distintas no compiten
+ * entre sí, y cada operación sobre el saldo de una cuenta es atómica sobre esa cuenta, sin ningún
+ * bloqueo global.</p>
+ *
+ * <p>Se pueden registrar observadores ({@link ObservadorBanco}) que reciben las altas, las bajas y los
+ * movimientos de saldo de las cuentas del banco, por ejemplo para llevar un diario de operaciones.
+ * Mientras no haya ninguno registrado que reciba los movimientos, las operaciones sobre el saldo no
+ * adquieren el monitor de la cuenta; los observadores que solo siguen los saldos reciben un aviso sin
+ * bloqueos después de cada cambio.</p>
+ *
+ * <p>El listado completo se puede recorrer por páginas ordenadas por IBAN o por saldo con
+ * {@link #listarCuentas(OrdenListado, String, int)}. El orden por IBAN se mantiene siempre en un
+ * {@link ConcurrentSkipListMap}; el orden por saldo usa un índice aparte que se crea la primera vez
+ * que se pide.</p>
+ *
+ * <p>Las búsquedas, altas y bajas de cuentas se cuentan y se cronometran en {@link Metricas}.</p>
+ *
  * @author Álvaro Bajo Tabero
  */
-public class Banco {
+public class Banco implements AutoCloseable {
 
-    private List<CuentaBancaria> cuentas;
+    private final Map<String, CuentaBancaria> cuentas;
+    private final ConcurrentNavigableMap<String, CuentaBancaria> cuentasPorIBAN = new ConcurrentSkipListMap<>();
+    private final IndiceTitulares indiceTitulares = new IndiceTitulares();
+    private final boolean concurrente;
+    private final List<ObservadorBanco> observadores = new CopyOnWriteArrayList<>();
+    // Observadores que reciben los movimientos y que solo siguen los saldos, recalculados en cada cambio
+    private volatile ObservadorBanco[] conMovimientos = new ObservadorBanco[0];
+    private volatile ObservadorBanco[] deSaldos = new ObservadorBanco[0];
+    private final ObservadorCuenta notificador = new NotificadorCuentas();
+    private volatile AsignadorIBAN asignadorIBAN = new AsignadorIBAN();
+    private volatile IndiceSaldos indiceSaldos;
+    private volatile boolean indiceSaldosCargado;
+    private volatile boolean cerrado;
 
     /**
      * Constructor para inicializar una instancia de Banco.
-     * Inicializa la lista de cuentas.
+     * Inicializa el índice de cuentas por IBAN, que conserva el orden de apertura.
      */
     public Banco() {
-        cuentas = new ArrayList<>();
+        this(false);
+    }
+
+    /**
+     * Constructor para inicializar una instancia de Banco, indicando si se usará desde varios hilos.
+     *
+     * @param concurrente true para crear un banco seguro en entornos concurrentes, en el que el listado
+     *                    de cuentas no conserva el orden de apertura; false para un banco de un solo hilo.
+     */
+    public Banco(boolean concurrente) {
+        this.concurrente = concurrente;
+        cuentas = concurrente ? new ConcurrentHashMap<>() : new LinkedHashMap<>();
+    }
+
+    /**
+     * Indica si el banco se creó en modo concurrente.
+     *
+     * @return true si el banco es seguro en entornos concurrentes; false, en caso contrario.
+     */
+    public boolean isConcurrente() {
+        return concurrente;
     }
 
     /**
@@ -31,30 +95,116 @@ public class Banco {
      * @throws RuntimeException si se alcanza el límite de cuentas (si decides establecer un límite).
      */
     public boolean abrirCuenta(CuentaBancaria nuevaCuenta) {
-        if (!estaIBANEnUso(nuevaCuenta.getIban())) {
-            cuentas.add(nuevaCuenta);
+        long inicio = Metricas.iniciar();
+        String clave = normalizarIBAN(nuevaCuenta.getIban());
+        boolean abierta = false;
+        if (clave != null) {
+            // El aviso de alta se produce antes que el de cualquier movimiento sobre la nueva cuenta. El
+            // observador se asigna antes de publicarla: un hilo que la encuentre en el índice ya la opera
+            // con el monitor, que no se suelta hasta haber avisado del alta
+            synchronized (nuevaCuenta) {
+                ObservadorCuenta anterior = nuevaCuenta.getObservador();
+                nuevaCuenta.setObservador(notificador);
+                if (cuentas.putIfAbsent(clave, nuevaCuenta) == null) {
+                    cuentasPorIBAN.put(clave, nuevaCuenta);
+                    indiceTitulares.agregar(nuevaCuenta);
+                    IndiceSaldos indice = indiceSaldos;
+                    if (indice != null) {
+                        indice.cuentaAbierta(nuevaCuenta);
+                    }
+                    for (ObservadorBanco observador : observadores) {
+                        observador.cuentaAbierta(nuevaCuenta);
+                    }
+                    abierta = true;
+                } else {
+                    nuevaCuenta.setObservador(anterior);
+                }
+            }
+        }
+        if (abierta) {
+            confirmarCambios();
+            Metricas.registrar(OperacionMedida.ALTA_CUENTA, inicio, true);
             return true;
         } else {
+            Metricas.registrar(OperacionMedida.ALTA_CUENTA, inicio, false);
             throw new RuntimeException("No se pueden abrir más cuentas. Límite alcanzado.");
         }
     }
 
     /**
      * Elimina una cuenta bancaria del banco si existe y su saldo es 0.
+     * La comprobación del saldo y el cierre de la cuenta son una única operación atómica,
+     * por lo que ningún ingreso simultáneo puede quedar en una cuenta ya eliminada.
      *
      * @param iban Número de IBAN de la cuenta a eliminar.
      * @return true si la cuenta se eliminó con éxito; false, si no se pudo eliminar la cuenta.
      */
     public boolean eliminarCuenta(String iban) {
-        Iterator<CuentaBancaria> iterator = cuentas.iterator();
-        while (iterator.hasNext()) {
-            CuentaBancaria cuenta = iterator.next();
-            if (cuenta.getIban().equalsIgnoreCase(iban) && cuenta.getSaldo() == 0) {
-                iterator.remove();
-                return true;
+        long inicio = Metricas.iniciar();
+        boolean eliminada = quitarCuenta(iban);
+        Metricas.registrar(OperacionMedida.BAJA_CUENTA, inicio, eliminada);
+        return eliminada;
+    }
+
+    private boolean quitarCuenta(String iban) {
+        String clave = normalizarIBAN(iban);
+        CuentaBancaria cuenta = clave != null ? cuentas.get(clave) : null;
+        if (cuenta == null) {
+            return false;
+        }
+        // El monitor de la cuenta impide cerrarla mientras participa en una transferencia
+        synchronized (cuenta) {
+            if (!cuenta.cerrarSiSaldoCero()) {
+                return false;
             }
+            cuentas.remove(clave, cuenta);
+            cuentasPorIBAN.remove(clave, cuenta);
+            IndiceSaldos indice = indiceSaldos;
+            if (indice != null) {
+                indice.cuentaEliminada(cuenta);
+            }
+            cuenta.setObservador(null);
+            for (ObservadorBanco observador : observadores) {
+                observador.cuentaEliminada(cuenta);
+            }
+        }
+        indiceTitulares.quitar(cuenta);
+        confirmarCambios();
+        return true;
+    }
+
+    /**
+     * Registra un observador que recibirá las altas, bajas y movimientos de las cuentas del banco.
+     *
+     * @param observador Observador a registrar.
+     */
+    public void agregarObservador(ObservadorBanco observador) {
+        synchronized (observadores) {
+            observadores.add(observador);
+            clasificarObservadores();
+        }
+    }
+
+    /**
+     * Elimina un observador registrado previamente.
+     *
+     * @param observador Observador a eliminar.
+     */
+    public void eliminarObservador(ObservadorBanco observador) {
+        synchronized (observadores) {
+            observadores.remove(observador);
+            clasificarObservadores();
+        }
+    }
+
+    private void clasificarObservadores() {
+        List<ObservadorBanco> movimientos = new ArrayList<>();
+        List<ObservadorBanco> saldos = new ArrayList<>();
+        for (ObservadorBanco observador : observadores) {
+            (observador.registraMovimientos() ? movimientos : saldos).add(observador);
         }
-        return false;
+        conMovimientos = movimientos.toArray(new ObservadorBanco[0]);
+        deSaldos = saldos.toArray(new ObservadorBanco[0]);
     }
 
     /**
@@ -63,7 +213,7 @@ public class Banco {
     public void listarCuentas() {
         if (!cuentas.isEmpty()) {
             System.out.println("Listado de cuentas:");
-            for (CuentaBancaria cuenta : cuentas) {
+            for (CuentaBancaria cuenta : cuentas.values()) {
                 System.out.println(cuenta);
             }
         } else {
@@ -71,6 +221,84 @@ public class Banco {
         }
     }
 
+    /**
+     * Obtiene una página del listado de cuentas en el orden indicado.
+     *
+     * <p>La primera página se pide sin cursor y cada página devuelve el cursor de la siguiente. El cursor
+     * guarda la última cuenta devuelta, no una posición, por lo que cada página cuesta O(log n) para
+     * situarse más el tamaño de la página, y las altas y bajas simultáneas de otras cuentas no desplazan
+     * las páginas: una cuenta que exista durante todo el recorrido aparece exactamente una vez. En el
+     * orden por saldo, una cuenta cuyo saldo cambie durante el recorrido puede aparecer en otra posición.</p>
+     *
+     * <p>La primera petición por saldo crea el índice de saldos, lo que supone recorrer una vez todas las
+     * cuentas. Las altas y bajas se reflejan en él al momento, pero los cambios de saldo solo cada pocos
+     * segundos (o al llamar a {@link #actualizarOrdenPorSaldo()}), para no añadir ningún coste a los
+     * ingresos y retiros. En un banco que no es concurrente, o que ya se ha cerrado con {@link #close()},
+     * no hay refresco en segundo plano: cada recorrido por saldo empieza reordenando las cuentas cuyo
+     * saldo ha cambiado.</p>
+     *
+     * @param orden  Orden del listado.
+     * @param cursor Cursor devuelto por la página anterior, o null para la primera página.
+     * @param tamano Número máximo de cuentas de la página.
+     * @return Página de cuentas.
+     * @throws IllegalArgumentException si el tamaño no es positivo o el cursor no es válido para ese orden.
+     */
+    public PaginaCuentas listarCuentas(OrdenListado orden, String cursor, int tamano) {
+        if (tamano <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser positivo: " + tamano);
+        }
+        CursorCuentas desde = cursor != null ? CursorCuentas.decodificar(cursor, orden) : null;
+        if (orden == OrdenListado.SALDO) {
+            IndiceSaldos indice = obtenerIndiceSaldos();
+            if (desde == null && (!concurrente || cerrado)) {
+                // Sin hilo de refresco, cada recorrido por saldo empieza reordenando las cuentas
+                indice.refrescar(cuentas.values());
+            }
+            return indice.pagina(desde, tamano);
+        }
+        Map<String, CuentaBancaria> resto = desde == null ? cuentasPorIBAN
+                : cuentasPorIBAN.tailMap(desde.getIban(), false);
+        List<CuentaBancaria> pagina = new ArrayList<>(tamano);
+        String ultima = null;
+        Iterator<Map.Entry<String, CuentaBancaria>> entradas = resto.entrySet().iterator();
+        while (pagina.size() < tamano && entradas.hasNext()) {
+            Map.Entry<String, CuentaBancaria> entrada = entradas.next();
+            pagina.add(entrada.getValue());
+            ultima = entrada.getKey();
+        }
+        String siguiente = entradas.hasNext() ? new CursorCuentas(OrdenListado.IBAN, 0, ultima).codificar() : null;
+        return new PaginaCuentas(pagina, siguiente);
+    }
+
+    /**
+     * Reordena inmediatamente en el listado por saldo las cuentas cuyo saldo ha cambiado, sin esperar al
+     * refresco periódico; por ejemplo, después de una liquidación de intereses. No hace nada si aún no se
+     * ha pedido ningún listado por saldo.
+     */
+    public void actualizarOrdenPorSaldo() {
+        IndiceSaldos indice = indiceSaldos;
+        if (indice != null) {
+            indice.refrescar(cuentas.values());
+        }
+    }
+
+    /**
+     * Detiene el refresco en segundo plano del índice de saldos, esperando a que termine el refresco en
+     * curso. El banco sigue funcionando; los listados por saldo pasan a reordenar las cuentas al empezar
+     * cada recorrido, como en un banco que no es concurrente.
+     */
+    @Override
+    public void close() {
+        IndiceSaldos indice;
+        synchronized (this) {
+            cerrado = true;
+            indice = indiceSaldos;
+        }
+        if (indice != null) {
+            indice.detenerRefresco();
+        }
+    }
+
     /**
      * Busca una cuenta bancaria por el nombre del titular.
      *
@@ -78,12 +306,79 @@ public class Banco {
      * @return Cuenta bancaria encontrada o null si no se encuentra.
      */
     public CuentaBancaria buscarCuentaPorTitular(String nombreTitular) {
-        for (CuentaBancaria cuenta : cuentas) {
+        if (nombreTitular == null) {
+            return null;
+        }
+        long inicio = Metricas.iniciar();
+        CuentaBancaria encontrada = null;
+        for (CuentaBancaria cuenta : indiceTitulares.buscarPorPrefijoNombre(nombreTitular)) {
             if (cuenta.getTitular().getNombre().equalsIgnoreCase(nombreTitular)) {
-                return cuenta;
+                encontrada = cuenta;
+                break;
             }
         }
-        return null;
+        Metricas.registrar(OperacionMedida.BUSQUEDA_TITULAR, inicio, encontrada != null);
+        return encontrada;
+    }
+
+    /**
+     * Busca todas las cuentas bancarias cuyo titular tiene el DNI indicado.
+     *
+     * @param dni DNI del titular.
+     * @return Lista de cuentas encontradas, vacía si no hay ninguna.
+     */
+    public List<CuentaBancaria> buscarCuentasPorDNI(String dni) {
+        long inicio = Metricas.iniciar();
+        List<CuentaBancaria> encontradas = indiceTitulares.buscarPorDni(dni);
+        Metricas.registrar(OperacionMedida.BUSQUEDA_TITULAR, inicio, !encontradas.isEmpty());
+        return encontradas;
+    }
+
+    /**
+     * Busca todas las cuentas bancarias cuyo titular tiene el nombre completo indicado.
+     * La comparación no distingue mayúsculas, minúsculas ni tildes.
+     *
+     * @param nombreCompleto Nombre y apellidos del titular.
+     * @return Lista de cuentas encontradas, vacía si no hay ninguna.
+     */
+    public List<CuentaBancaria> buscarCuentasPorTitular(String nombreCompleto) {
+        long inicio = Metricas.iniciar();
+        List<CuentaBancaria> encontradas = indiceTitulares.buscarPorNombre(nombreCompleto);
+        Metricas.registrar(OperacionMedida.BUSQUEDA_TITULAR, inicio, !encontradas.isEmpty());
+        return encontradas;
+    }
+
+    /**
+     * Busca todas las cuentas bancarias cuyo titular tiene un nombre completo que empieza por el prefijo indicado.
+     * La comparación no distingue mayúsculas, minúsculas ni tildes.
+     *
+     * @param prefijo Comienzo del nombre completo del titular.
+     * @return Lista de cuentas encontradas, ordenadas por nombre del titular, vacía si no hay ninguna.
+     */
+    public List<CuentaBancaria> buscarCuentasPorPrefijoTitular(String prefijo) {
+        long inicio = Metricas.iniciar();
+        List<CuentaBancaria> encontradas = indiceTitulares.buscarPorPrefijoNombre(prefijo);
+        Metricas.registrar(OperacionMedida.BUSQUEDA_TITULAR, inicio, !encontradas.isEmpty());
+        return encontradas;
+    }
+
+    /**
+     * Obtiene el asignador de IBAN para las cuentas nuevas del banco.
+     *
+     * @return Asignador de IBAN del banco.
+     */
+    public AsignadorIBAN getAsignadorIBAN() {
+        return asignadorIBAN;
+    }
+
+    /**
+     * Sustituye el asignador de IBAN del banco, por ejemplo por uno que conserve la numeración entre
+     * ejecuciones.
+     *
+     * @param asignadorIBAN Nuevo asignador de IBAN.
+     */
+    public void setAsignadorIBAN(AsignadorIBAN asignadorIBAN) {
+        this.asignadorIBAN = asignadorIBAN;
     }
 
     /**
@@ -93,12 +388,11 @@ public class Banco {
      * @return Cuenta bancaria encontrada o null si no se encuentra.
      */
     public CuentaBancaria buscarCuentaPorIBAN(String iban) {
-        for (CuentaBancaria cuenta : cuentas) {
-            if (cuenta.getIban().equalsIgnoreCase(iban)) {
-                return cuenta;
-            }
-        }
-        return null;
+        long inicio = Metricas.iniciar();
+        String clave = normalizarIBAN(iban);
+        CuentaBancaria cuenta = clave != null ? cuentas.get(clave) : null;
+        Metricas.registrar(OperacionMedida.BUSQUEDA_IBAN, inicio, cuenta != null);
+        return cuenta;
     }
 
     /**
@@ -108,12 +402,8 @@ public class Banco {
      * @return true si el IBAN está en uso; false, si no está en uso.
      */
     public boolean estaIBANEnUso(String iban) {
-        for (CuentaBancaria cuenta : cuentas) {
-            if (cuenta.getIban().equalsIgnoreCase(iban)) {
-                return true;
-            }
-        }
-        return false;
+        String clave = normalizarIBAN(iban);
+        return clave != null && cuentas.containsKey(clave);
     }
 
     /**
@@ -163,11 +453,93 @@ public class Banco {
     }
 
     /**
-     * Obtiene la lista de cuentas bancarias registradas en el banco.
+     * Obtiene las cuentas bancarias registradas en el banco, en orden de apertura.
+     * La colección es de solo lectura: las altas y bajas deben hacerse con {@link #abrirCuenta}
+     * y {@link #eliminarCuenta} para mantener el índice por IBAN.
      *
-     * @return Lista de cuentas bancarias.
+     * @return Colección no modificable de cuentas bancarias.
      */
-    public List<CuentaBancaria> getCuentas() {
-        return cuentas;
+    public Collection<CuentaBancaria> getCuentas() {
+        return Collections.unmodifiableCollection(cuentas.values());
+    }
+
+    /**
+     * Normaliza un IBAN para usarlo como clave del índice, de forma que la búsqueda
+     * no distinga entre mayúsculas y minúsculas.
+     *
+     * @param iban IBAN a normalizar.
+     * @return IBAN en mayúsculas, o null si el IBAN es null.
+     */
+    static String normalizarIBAN(String iban) {
+        return iban != null ? iban.toUpperCase(Locale.ROOT) : null;
+    }
+
+    private IndiceSaldos obtenerIndiceSaldos() {
+        if (!indiceSaldosCargado) {
+            synchronized (this) {
+                if (!indiceSaldosCargado) {
+                    IndiceSaldos indice = new IndiceSaldos();
+                    // Se publica antes de cargarlo para que las altas y bajas de mientras tanto no se pierdan
+                    indiceSaldos = indice;
+                    indice.refrescar(cuentas.values());
+                    if (concurrente && !cerrado) {
+                        indice.programarRefresco(cuentas.values());
+                    }
+                    indiceSaldosCargado = true;
+                }
+            }
+        }
+        return indiceSaldos;
+    }
+
+    private void confirmarCambios() {
+        for (ObservadorBanco observador : observadores) {
+            observador.confirmar();
+        }
+    }
+
+    /**
+     * Observador que el banco asigna a cada una de sus cuentas: mantiene el índice de titulares
+     * y reenvía los movimientos de saldo a los observadores del banco.
+     */
+    private final class NotificadorCuentas implements ObservadorCuenta {
+
+        @Override
+        public void titularCambiado(CuentaBancaria cuenta, Persona anterior) {
+            indiceTitulares.titularCambiado(cuenta, anterior);
+        }
+
+        @Override
+        public boolean registraMovimientos() {
+            return conMovimientos.length > 0;
+        }
+
+        @Override
+        public void saldoCambiado(CuentaBancaria cuenta) {
+            for (ObservadorBanco observador : deSaldos) {
+                observador.saldoCambiado(cuenta);
+            }
+        }
+
+        @Override
+        public void movimientoRealizado(CuentaBancaria cuenta, TipoMovimiento tipo, long importeCentimos,
+                                        long saldoCentimos) {
+            for (ObservadorBanco observador : conMovimientos) {
+                observador.movimientoRealizado(cuenta, tipo, importeCentimos, saldoCentimos);
+            }
+        }
+
+        @Override
+        public void transferenciaRealizada(CuentaBancaria origen, CuentaBancaria destino, long importeCentimos,
+                                           long saldoOrigen, long saldoDestino) {
+            for (ObservadorBanco observador : conMovimientos) {
+                observador.transferenciaRealizada(origen, destino, importeCentimos, saldoOrigen, saldoDestino);
+            }
+        }
+
+        @Override
+        public void confirmarMovimientos() {
+            confirmarCambios();
+        }
     }
 }
@@ -0,0 +1,73 @@
+package com.alvarobajo.banco.controller;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición en un listado paginado de cuentas: la clave de la última cuenta devuelta.
+ *
+ * <p>Se codifica en Base64 (variante para URL) como el orden del listado (un byte), el saldo en
+ * céntimos (solo en el orden por saldo) y el IBAN normalizado en UTF-8.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+final class CursorCuentas {
+
+    private final OrdenListado orden;
+    private final long saldo;
+    private final String iban;
+
+    CursorCuentas(OrdenListado orden, long saldo, String iban) {
+        this.orden = orden;
+        this.saldo = saldo;
+        this.iban = iban;
+    }
+
+    long getSaldo() {
+        return saldo;
+    }
+
+    String getIban() {
+        return iban;
+    }
+
+    /**
+     * Codifica el cursor como una cadena opaca.
+     *
+     * @return Cursor codificado.
+     */
+    String codificar() {
+        byte[] texto = iban.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer datos = ByteBuffer.allocate(1 + (orden == OrdenListado.SALDO ? 8 : 0) + texto.length);
+        datos.put((byte) orden.ordinal());
+        if (orden == OrdenListado.SALDO) {
+            datos.putLong(saldo);
+        }
+        datos.put(texto);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(datos.array());
+    }
+
+    /**
+     * Decodifica un cursor obtenido de una página anterior del mismo orden.
+     *
+     * @param cursor Cursor codificado.
+     * @param orden  Orden del listado que se está recorriendo.
+     * @return Cursor decodificado.
+     * @throws IllegalArgumentException si el cursor no es válido o pertenece a un listado con otro orden.
+     */
+    static CursorCuentas decodificar(String cursor, OrdenListado orden) {
+        try {
+            ByteBuffer datos = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+            if (datos.get() != orden.ordinal()) {
+                throw new IllegalArgumentException("El cursor pertenece a un listado con otro orden");
+            }
+            long saldo = orden == OrdenListado.SALDO ? datos.getLong() : 0;
+            String iban = StandardCharsets.UTF_8.decode(datos).toString();
+            return new CursorCuentas(orden, saldo, iban);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Cursor de listado no válido: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.alvarobajo.banco.controller;
+
+import com.alvarobajo.banco.models.CuentaBancaria;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Índice secundario de las cuentas de un banco ordenadas por saldo, para el listado paginado por saldo.
+ *
+ * <p>Las altas y bajas se aplican al momento: el banco las comunica con el monitor de la cuenta
+ * adquirido. Los movimientos de saldo, en cambio, no se avisan al índice, porque reordenar la cuenta en
+ * cada ingreso o retiro obligaría a todas las operaciones a dejar el compare-and-set sin bloqueos. En su
+ * lugar, un hilo en segundo plano recorre periódicamente las cuentas y reordena solo aquellas cuyo saldo
+ * ha cambiado desde la última vez. El orden del listado refleja, por tanto, los saldos del último
+ * refresco.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class IndiceSaldos {
+
+    private static final long INTERVALO_REFRESCO_SEGUNDOS = 5;
+
+    private final ConcurrentNavigableMap<Clave, CuentaBancaria> cuentas = new ConcurrentSkipListMap<>();
+    // CuentaBancaria no redefine equals ni hashCode, por lo que el mapa compara por identidad
+    private final ConcurrentMap<CuentaBancaria, Clave> claves = new ConcurrentHashMap<>();
+    private ScheduledExecutorService programador;
+
+    /**
+     * Posición de una cuenta en el índice: su saldo y, para desempatar, su IBAN normalizado.
+     */
+    private static final class Clave implements Comparable<Clave> {
+
+        private final long saldo;
+        private final String iban;
+
+        Clave(long saldo, String iban) {
+            this.saldo = saldo;
+            this.iban = iban;
+        }
+
+        @Override
+        public int compareTo(Clave otra) {
+            int porSaldo = Long.compare(saldo, otra.saldo);
+            return porSaldo != 0 ? porSaldo : iban.compareTo(otra.iban);
+        }
+    }
+
+    /**
+     * Programa el refresco periódico del índice en un hilo demonio, hasta que se llame a
+     * {@link #detenerRefresco()}.
+     *
+     * @param existentes Cuentas del banco, que se recorren en cada refresco.
+     * @throws IllegalStateException si el refresco ya está programado.
+     */
+    synchronized void programarRefresco(Iterable<CuentaBancaria> existentes) {
+        if (programador != null) {
+            throw new IllegalStateException("El refresco del índice de saldos ya está programado");
+        }
+        programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "banco-indice-saldos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        programador.scheduleWithFixedDelay(() -> refrescar(existentes), INTERVALO_REFRESCO_SEGUNDOS,
+                INTERVALO_REFRESCO_SEGUNDOS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Detiene el refresco periódico, si está programado, esperando a que termine el refresco en curso.
+     * El índice sigue pudiendo refrescarse con {@link #refrescar}.
+     */
+    void detenerRefresco() {
+        ScheduledExecutorService actual;
+        synchronized (this) {
+            actual = programador;
+            programador = null;
+        }
+        if (actual != null) {
+            actual.shutdown();
+            try {
+                actual.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Añade las cuentas que aún no estén en el índice y reordena las que han cambiado de saldo.
+     * Solo adquiere el monitor de las cuentas que tiene que mover.
+     *
+     * <p>Los cambios se aplican ordenados por su nueva posición: insertar en orden en la lista por saltos
+     * recorre casi siempre los mismos nodos y es unas tres veces más rápido que hacerlo al azar.</p>
+     *
+     * @param existentes Cuentas del banco.
+     */
+    void refrescar(Iterable<CuentaBancaria> existentes) {
+        List<Map.Entry<Clave, CuentaBancaria>> cambios = new ArrayList<>();
+        for (CuentaBancaria cuenta : existentes) {
+            long saldo = cuenta.getSaldoCentimos();
+            Clave actual = claves.get(cuenta);
+            if (actual == null) {
+                cambios.add(Map.entry(new Clave(saldo, Banco.normalizarIBAN(cuenta.getIban())), cuenta));
+            } else if (actual.saldo != saldo) {
+                cambios.add(Map.entry(new Clave(saldo, actual.iban), cuenta));
+            }
+        }
+        cambios.sort(Map.Entry.comparingByKey());
+        for (Map.Entry<Clave, CuentaBancaria> cambio : cambios) {
+            CuentaBancaria cuenta = cambio.getValue();
+            synchronized (cuenta) {
+                // Con el monitor, una baja simultánea ya ha cerrado la cuenta o aún no ha empezado
+                if (!cuenta.isCerrada()) {
+                    Clave nueva = cambio.getKey();
+                    actualizar(cuenta, nueva.saldo == cuenta.getSaldoCentimos() ? nueva : null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtiene una página de cuentas ordenadas por saldo.
+     *
+     * @param desde  Última cuenta de la página anterior, o null para la primera página.
+     * @param tamano Número máximo de cuentas de la página.
+     * @return Página de cuentas.
+     */
+    PaginaCuentas pagina(CursorCuentas desde, int tamano) {
+        Map<Clave, CuentaBancaria> resto = desde == null ? cuentas
+                : cuentas.tailMap(new Clave(desde.getSaldo(), desde.getIban()), false);
+        List<CuentaBancaria> pagina = new ArrayList<>(tamano);
+        Clave ultima = null;
+        Iterator<Map.Entry<Clave, CuentaBancaria>> entradas = resto.entrySet().iterator();
+        while (pagina.size() < tamano && entradas.hasNext()) {
+            Map.Entry<Clave, CuentaBancaria> entrada = entradas.next();
+            pagina.add(entrada.getValue());
+            ultima = entrada.getKey();
+        }
+        String siguiente = entradas.hasNext()
+                ? new CursorCuentas(OrdenListado.SALDO, ultima.saldo, ultima.iban).codificar() : null;
+        return new PaginaCuentas(pagina, siguiente);
+    }
+
+    /**
+     * Añade una cuenta recién abierta. Debe invocarse con el monitor de la cuenta adquirido.
+     *
+     * @param cuenta Cuenta abierta.
+     */
+    void cuentaAbierta(CuentaBancaria cuenta) {
+        actualizar(cuenta, null);
+    }
+
+    /**
+     * Quita una cuenta eliminada. Debe invocarse con el monitor de la cuenta adquirido.
+     *
+     * @param cuenta Cuenta eliminada.
+     */
+    void cuentaEliminada(CuentaBancaria cuenta) {
+        Clave anterior = claves.remove(cuenta);
+        if (anterior != null) {
+            cuentas.remove(anterior, cuenta);
+        }
+    }
+
+    /**
+     * Coloca una cuenta en la posición de su saldo actual. Debe invocarse con el monitor de la cuenta
+     * adquirido.
+     *
+     * @param nueva Posición ya calculada para el saldo actual, o null para calcularla.
+     */
+    private void actualizar(CuentaBancaria cuenta, Clave nueva) {
+        long saldo = cuenta.getSaldoCentimos();
+        Clave anterior = claves.get(cuenta);
+        if (anterior != null && anterior.saldo == saldo) {
+            return;
+        }
+        if (nueva == null) {
+            nueva = new Clave(saldo, anterior != null ? anterior.iban : Banco.normalizarIBAN(cuenta.getIban()));
+        }
+        claves.put(cuenta, nueva);
+        // Se inserta antes de quitar la anterior para que un listado simultáneo no pierda la cuenta
+        cuentas.put(nueva, cuenta);
+        if (anterior != null) {
+            cuentas.remove(anterior, cuenta);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.alvarobajo.banco.controller;
+
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.ObservadorCuenta;
+import com.alvarobajo.banco.models.ObservadorPersona;
+import com.alvarobajo.banco.models.Persona;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice secundario de las cuentas de un banco según los datos de su titular.
+ *
+ * <p>Permite buscar todas las cuentas de un titular por DNI, por nombre completo normalizado
+ * (sin tildes, en minúsculas y con los espacios simplificados) o por prefijo de ese nombre.
+ * Cada búsqueda cuesta un acceso al índice más un tiempo proporcional al número de cuentas devueltas.</p>
+ *
+ * <p>El índice se registra como observador de las cuentas y de sus titulares para reindexarlas
+ * cuando cambia el titular de una cuenta o los datos de una persona.</p>
+ *
+ * <p>Es seguro para uso concurrente: los mapas son concurrentes y cada grupo de cuentas se bloquea
+ * por separado, de modo que altas y bajas de titulares distintos no compiten entre sí. Un grupo que
+ * se queda vacío se marca como descartado antes de quitarlo del mapa, para que ninguna alta
+ * simultánea se pierda en un grupo que ya no está indexado.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class IndiceTitulares implements ObservadorCuenta, ObservadorPersona {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    private final ConcurrentMap<String, Grupo> cuentasPorDni = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<String, Grupo> cuentasPorNombre = new ConcurrentSkipListMap<>();
+    // Persona no redefine equals ni hashCode, por lo que el mapa compara por identidad
+    private final ConcurrentMap<Persona, EntradaPersona> personas = new ConcurrentHashMap<>();
+
+    /**
+     * Conjunto de cuentas asociadas a una clave del índice. Se accede siempre con su monitor.
+     */
+    private static class Grupo {
+        final Set<CuentaBancaria> cuentas = new LinkedHashSet<>();
+        boolean descartado;
+    }
+
+    /**
+     * Claves con las que está indexada una persona y cuentas de las que es titular.
+     */
+    private static final class EntradaPersona extends Grupo {
+        private String dni;
+        private String nombre;
+    }
+
+    /**
+     * Añade una cuenta al índice con su titular actual.
+     *
+     * @param cuenta Cuenta a indexar.
+     */
+    void agregar(CuentaBancaria cuenta) {
+        agregar(cuenta, cuenta.getTitular());
+    }
+
+    /**
+     * Quita una cuenta del índice.
+     *
+     * @param cuenta Cuenta a quitar.
+     */
+    void quitar(CuentaBancaria cuenta) {
+        quitar(cuenta, cuenta.getTitular());
+    }
+
+    /**
+     * Busca todas las cuentas cuyo titular tiene el DNI indicado.
+     *
+     * @param dni DNI del titular (no distingue mayúsculas y minúsculas).
+     * @return Lista con las cuentas encontradas, vacía si no hay ninguna.
+     */
+    List<CuentaBancaria> buscarPorDni(String dni) {
+        String clave = normalizarDni(dni);
+        return copiar(clave != null ? cuentasPorDni.get(clave) : null);
+    }
+
+    /**
+     * Busca todas las cuentas cuyo titular tiene exactamente el nombre completo indicado.
+     *
+     * @param nombreCompleto Nombre y apellidos del titular.
+     * @return Lista con las cuentas encontradas, vacía si no hay ninguna.
+     */
+    List<CuentaBancaria> buscarPorNombre(String nombreCompleto) {
+        String clave = normalizarNombre(nombreCompleto);
+        return copiar(clave != null ? cuentasPorNombre.get(clave) : null);
+    }
+
+    /**
+     * Busca todas las cuentas cuyo titular tiene un nombre completo que empieza por el prefijo indicado.
+     *
+     * @param prefijo Comienzo del nombre completo del titular.
+     * @return Lista con las cuentas encontradas, ordenadas por nombre, vacía si no hay ninguna.
+     */
+    List<CuentaBancaria> buscarPorPrefijoNombre(String prefijo) {
+        String clave = normalizarNombre(prefijo);
+        if (clave == null || clave.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<CuentaBancaria> encontradas = new ArrayList<>();
+        for (Grupo grupo : cuentasPorNombre.subMap(clave, true, clave + Character.MAX_VALUE, false).values()) {
+            synchronized (grupo) {
+                encontradas.addAll(grupo.cuentas);
+            }
+        }
+        return encontradas;
+    }
+
+    @Override
+    public void titularCambiado(CuentaBancaria cuenta, Persona anterior) {
+        quitar(cuenta, anterior);
+        agregar(cuenta, cuenta.getTitular());
+    }
+
+    @Override
+    public void personaModificada(Persona persona) {
+        EntradaPersona entrada = personas.get(persona);
+        if (entrada == null) {
+            return;
+        }
+        synchronized (entrada) {
+            if (entrada.descartado) {
+                return;
+            }
+            for (CuentaBancaria cuenta : entrada.cuentas) {
+                quitarDeClave(cuentasPorDni, entrada.dni, cuenta);
+                quitarDeClave(cuentasPorNombre, entrada.nombre, cuenta);
+            }
+            entrada.dni = normalizarDni(persona.getDni());
+            entrada.nombre = normalizarNombre(nombreCompleto(persona));
+            for (CuentaBancaria cuenta : entrada.cuentas) {
+                agregarAClave(cuentasPorDni, entrada.dni, cuenta);
+                agregarAClave(cuentasPorNombre, entrada.nombre, cuenta);
+            }
+        }
+    }
+
+    private void agregar(CuentaBancaria cuenta, Persona titular) {
+        if (titular == null) {
+            return;
+        }
+        while (true) {
+            EntradaPersona entrada = personas.computeIfAbsent(titular, t -> new EntradaPersona());
+            synchronized (entrada) {
+                if (entrada.descartado) {
+                    continue;
+                }
+                if (entrada.cuentas.isEmpty()) {
+                    entrada.dni = normalizarDni(titular.getDni());
+                    entrada.nombre = normalizarNombre(nombreCompleto(titular));
+                    titular.agregarObservador(this);
+                }
+                if (entrada.cuentas.add(cuenta)) {
+                    agregarAClave(cuentasPorDni, entrada.dni, cuenta);
+                    agregarAClave(cuentasPorNombre, entrada.nombre, cuenta);
+                }
+                return;
+            }
+        }
+    }
+
+    private void quitar(CuentaBancaria cuenta, Persona titular) {
+        EntradaPersona entrada = titular != null ? personas.get(titular) : null;
+        if (entrada == null) {
+            return;
+        }
+        synchronized (entrada) {
+            if (entrada.descartado || !entrada.cuentas.remove(cuenta)) {
+                return;
+            }
+            quitarDeClave(cuentasPorDni, entrada.dni, cuenta);
+            quitarDeClave(cuentasPorNombre, entrada.nombre, cuenta);
+            if (entrada.cuentas.isEmpty()) {
+                entrada.descartado = true;
+                personas.remove(titular, entrada);
+                titular.eliminarObservador(this);
+            }
+        }
+    }
+
+    private static void agregarAClave(ConcurrentMap<String, Grupo> indice, String clave, CuentaBancaria cuenta) {
+        if (clave == null) {
+            return;
+        }
+        while (true) {
+            Grupo grupo = indice.computeIfAbsent(clave, k -> new Grupo());
+            synchronized (grupo) {
+                if (!grupo.descartado) {
+                    grupo.cuentas.add(cuenta);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void quitarDeClave(ConcurrentMap<String, Grupo> indice, String clave, CuentaBancaria cuenta) {
+        Grupo grupo = clave != null ? indice.get(clave) : null;
+        if (grupo == null) {
+            return;
+        }
+        synchronized (grupo) {
+            if (grupo.cuentas.remove(cuenta) && grupo.cuentas.isEmpty()) {
+                grupo.descartado = true;
+                indice.remove(clave, grupo);
+            }
+        }
+    }
+
+    private static List<CuentaBancaria> copiar(Grupo grupo) {
+        if (grupo == null) {
+            return Collections.emptyList();
+        }
+        synchronized (grupo) {
+            return new ArrayList<>(grupo.cuentas);
+        }
+    }
+
+    /**
+     * Construye el nombre completo de una persona uniendo nombre y apellidos.
+     *
+     * @param persona Persona de la que obtener el nombre.
+     * @return Nombre completo de la persona.
+     */
+    static String nombreCompleto(Persona persona) {
+        StringBuilder nombre = new StringBuilder();
+        for (String parte : new String[]{persona.getNombre(), persona.getApellido1(), persona.getApellido2()}) {
+            if (parte != null && !parte.isBlank()) {
+                nombre.append(parte).append(' ');
+            }
+        }
+        return nombre.toString();
+    }
+
+    /**
+     * Normaliza un DNI para usarlo como clave del índice.
+     *
+     * @param dni DNI a normalizar.
+     * @return DNI sin espacios y en mayúsculas, o null si el DNI es null.
+     */
+    static String normalizarDni(String dni) {
+        return dni != null ? dni.trim().toUpperCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * Normaliza un nombre para usarlo como clave del índice: elimina tildes, pasa a minúsculas
+     * y reduce los espacios a uno solo entre palabras.
+     *
+     * @param nombre Nombre a normalizar.
+     * @return Nombre normalizado, o null si el nombre es null.
+     */
+    static String normalizarNombre(String nombre) {
+        if (nombre == null) {
+            return null;
+        }
+        StringBuilder normalizado = new StringBuilder(nombre.length());
+        boolean espacioPendiente = false;
+        for (int i = 0; i < nombre.length(); i++) {
+            char c = nombre.charAt(i);
+            if (c >= 0x80) {
+                return normalizarNombreUnicode(nombre);
+            }
+            if (Character.isWhitespace(c)) {
+                espacioPendiente = normalizado.length() > 0;
+            } else {
+                if (espacioPendiente) {
+                    normalizado.append(' ');
+                    espacioPendiente = false;
+                }
+                normalizado.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+            }
+        }
+        return normalizado.toString();
+    }
+
+    /**
+     * Normaliza un nombre con caracteres no ASCII, descomponiendo las letras para quitar las tildes.
+     */
+    private static String normalizarNombreUnicode(String nombre) {
+        String sinTildes = MARCAS.matcher(Normalizer.normalize(nombre, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACIOS.matcher(sinTildes.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,91 @@
+package com.alvarobajo.banco.controller;
+
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.TipoMovimiento;
+
+/**
+ * Interfaz para recibir los cambios que se producen en un Banco: altas y bajas de cuentas
+ * y movimientos de saldo sobre sus cuentas.
+ *
+ * <p>Los avisos se producen con el monitor de las cuentas afectadas adquirido y en el mismo orden en que
+ * se aplicaron los cambios, por lo que deben ser rápidos. Las esperas largas deben hacerse en
+ * {@link #confirmar()}, que se invoca después de liberar los monitores.</p>
+ *
+ * <p>Un observador que solo necesita seguir los saldos, y no cada movimiento en orden, puede devolver
+ * false en {@link #registraMovimientos()}: recibe entonces {@link #saldoCambiado} y no obliga a los
+ * ingresos y retiros a adquirir el monitor de la cuenta.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public interface ObservadorBanco {
+
+    /**
+     * Indica si el observador recibe los movimientos de saldo ({@link #movimientoRealizado} y
+     * {@link #transferenciaRealizada}). Mientras algún observador del banco los reciba, los ingresos y
+     * retiros se aplican con el monitor de la cuenta adquirido para avisarlos en orden.
+     *
+     * @return true si el observador recibe los movimientos; false si solo recibe {@link #saldoCambiado}.
+     */
+    default boolean registraMovimientos() {
+        return true;
+    }
+
+    /**
+     * Se invoca después de abrir una cuenta en el banco.
+     *
+     * @param cuenta Cuenta abierta.
+     */
+    default void cuentaAbierta(CuentaBancaria cuenta) {
+    }
+
+    /**
+     * Se invoca después de eliminar una cuenta del banco.
+     *
+     * @param cuenta Cuenta eliminada.
+     */
+    default void cuentaEliminada(CuentaBancaria cuenta) {
+    }
+
+    /**
+     * Se invoca después de un movimiento de saldo en una cuenta del banco.
+     *
+     * @param cuenta          Cuenta cuyo saldo ha cambiado.
+     * @param tipo            Tipo de movimiento.
+     * @param importeCentimos Importe del movimiento en céntimos.
+     * @param saldoCentimos   Saldo de la cuenta después del movimiento, en céntimos.
+     */
+    default void movimientoRealizado(CuentaBancaria cuenta, TipoMovimiento tipo, long importeCentimos,
+                                     long saldoCentimos) {
+    }
+
+    /**
+     * Se invoca después de una transferencia entre cuentas.
+     *
+     * @param origen          Cuenta de la que sale el dinero.
+     * @param destino         Cuenta a la que llega el dinero.
+     * @param importeCentimos Importe transferido en céntimos.
+     * @param saldoOrigen     Saldo de la cuenta de origen después de la transferencia, en céntimos.
+     * @param saldoDestino    Saldo de la cuenta de destino después de la transferencia, en céntimos.
+     */
+    default void transferenciaRealizada(CuentaBancaria origen, CuentaBancaria destino, long importeCentimos,
+                                        long saldoOrigen, long saldoDestino) {
+    }
+
+    /**
+     * Se invoca después de cualquier cambio del saldo de una cuenta del banco si el observador no
+     * registra movimientos. Puede llegar con o sin el monitor de la cuenta adquirido y, entre hilos
+     * distintos, en otro orden que los cambios: no dice cuál fue el cambio, así que quien lo recibe debe
+     * leer el saldo actual de la cuenta. Nunca debe bloquear.
+     *
+     * @param cuenta Cuenta cuyo saldo ha cambiado.
+     */
+    default void saldoCambiado(CuentaBancaria cuenta) {
+    }
+
+    /**
+     * Se invoca sin monitores adquiridos después de uno o varios avisos del hilo actual.
+     * Puede bloquear hasta que los cambios avisados queden registrados.
+     */
+    default void confirmar() {
+    }
+}
@@ -0,0 +1,14 @@
+package com.alvarobajo.banco.controller;
+
+/**
+ * Criterios de orden del listado paginado de cuentas de {@link Banco#listarCuentas(OrdenListado, String, int)}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public enum OrdenListado {
+
+    /** Por IBAN, en orden alfabético y sin distinguir mayúsculas de minúsculas. */
+    IBAN,
+    /** Por saldo, de menor a mayor; a igual saldo, por IBAN. */
+    SALDO
+}
@@ -0,0 +1,59 @@
+package com.alvarobajo.banco.controller;
+
+import com.alvarobajo.banco.models.CuentaBancaria;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Página de un listado de cuentas obtenida con {@link Banco#listarCuentas(OrdenListado, String, int)}.
+ *
+ * <p>El cursor de la página siguiente es una cadena opaca que identifica la última cuenta de esta
+ * página, no una posición, así que las altas y bajas de otras cuentas mientras se recorre el listado
+ * no desplazan las páginas siguientes ni hacen que se repitan o se salten cuentas.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class PaginaCuentas {
+
+    private final List<CuentaBancaria> cuentas;
+    private final String cursorSiguiente;
+
+    /**
+     * Constructor para inicializar una página del listado.
+     *
+     * @param cuentas         Cuentas de la página, en orden.
+     * @param cursorSiguiente Cursor de la página siguiente, o null si esta es la última.
+     */
+    PaginaCuentas(List<CuentaBancaria> cuentas, String cursorSiguiente) {
+        this.cuentas = Collections.unmodifiableList(cuentas);
+        this.cursorSiguiente = cursorSiguiente;
+    }
+
+    /**
+     * Obtiene las cuentas de la página, en el orden del listado.
+     *
+     * @return Lista no modificable de cuentas.
+     */
+    public List<CuentaBancaria> getCuentas() {
+        return cuentas;
+    }
+
+    /**
+     * Obtiene el cursor con el que pedir la página siguiente.
+     *
+     * @return Cursor de la página siguiente, o null si no hay más cuentas.
+     */
+    public String getCursorSiguiente() {
+        return cursorSiguiente;
+    }
+
+    /**
+     * Indica si hay una página siguiente.
+     *
+     * @return true si hay más cuentas después de esta página; false, en caso contrario.
+     */
+    public boolean haySiguiente() {
+        return cursorSiguiente != null;
+    }
+}
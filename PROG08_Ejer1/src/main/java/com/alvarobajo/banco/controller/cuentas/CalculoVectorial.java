@@ -0,0 +1,55 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Cálculo de los intereses de descubierto con la API de vectores del JDK.
+ *
+ * <p>Está separado de {@link LiquidadorDescubiertos} porque la API de vectores es un módulo en incubación:
+ * esta clase solo se carga si el módulo {@code jdk.incubator.vector} está disponible al ejecutar.
+ * Hace exactamente las mismas operaciones, y en el mismo orden, que el cálculo escalar, así que los
+ * resultados coinciden céntimo a céntimo.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+final class CalculoVectorial {
+
+    private static final VectorSpecies<Double> ESPECIE = DoubleVector.SPECIES_PREFERRED;
+
+    private CalculoVectorial() {
+    }
+
+    /**
+     * Calcula los intereses de las posiciones {@code [0, n)}.
+     *
+     * @param descubiertos Importe en descubierto de cada cuenta en céntimos, en positivo.
+     * @param tipos        Tipo de interés anual de cada cuenta en porcentaje.
+     * @param factor       Fracción de año del periodo dividida entre 100.
+     * @param intereses    Vector en el que se guardan los intereses en céntimos.
+     * @param n            Número de posiciones a calcular.
+     */
+    static void calcular(double[] descubiertos, double[] tipos, double factor, long[] intereses, int n) {
+        int limite = ESPECIE.loopBound(n);
+        int i = 0;
+        for (; i < limite; i += ESPECIE.length()) {
+            DoubleVector interes = DoubleVector.fromArray(ESPECIE, descubiertos, i)
+                    .mul(DoubleVector.fromArray(ESPECIE, tipos, i))
+                    .mul(factor)
+                    .add(0.5);
+            ((LongVector) interes.convert(VectorOperators.D2L, 0)).intoArray(intereses, i);
+        }
+        LiquidadorDescubiertos.calcularEscalar(descubiertos, tipos, factor, intereses, i, n);
+    }
+
+    /**
+     * Obtiene el número de valores que se calculan a la vez.
+     *
+     * @return Número de posiciones de cada vector.
+     */
+    static int getAnchura() {
+        return ESPECIE.length();
+    }
+}
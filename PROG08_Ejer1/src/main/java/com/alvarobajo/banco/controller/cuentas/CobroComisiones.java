@@ -0,0 +1,222 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.ObservadorCuenta;
+import com.alvarobajo.banco.models.TipoMovimiento;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Proceso por lotes que cobra la comisión de mantenimiento mensual de las cuentas corrientes personales.
+ *
+ * <p>Las cuentas se reparten en tramos que se cobran en paralelo con fork-join. Cada cargo es un retiro
+ * sobre una sola cuenta con su monitor adquirido solo durante ese cargo, de modo que los ingresos,
+ * retiros y transferencias siguen funcionando mientras el proceso avanza. Las cuentas sin saldo
+ * suficiente no se cobran y se anotan en el resultado.</p>
+ *
+ * <p>El periodo es el mes natural de la fecha de cobro. Igual que en {@link LiquidadorIntereses},
+ * cada cuenta guarda el último periodo cobrado, por lo que el proceso puede repetirse tantas veces como
+ * se quiera dentro del mes: solo cobra las cuentas que faltaban, incluidas las que antes no pudieron
+ * pagar. Los cargos se avisan al observador de la cuenta como movimientos {@link TipoMovimiento#COMISION}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class CobroComisiones implements AutoCloseable {
+
+    private static final int TAMANO_TRAMO = 4096;
+    private static final long OMITIDA = -1;
+    private static final long IMPAGADA = -2;
+
+    private final Banco banco;
+    private final ForkJoinPool pool;
+    private ScheduledExecutorService programador;
+
+    /**
+     * Constructor para un proceso de cobro que usa el pool común de fork-join.
+     *
+     * @param banco Banco con las cuentas a cobrar.
+     */
+    public CobroComisiones(Banco banco) {
+        this(banco, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor para un proceso de cobro que usa el pool de fork-join indicado.
+     *
+     * @param banco Banco con las cuentas a cobrar.
+     * @param pool  Pool de fork-join en el que ejecutar los tramos.
+     */
+    public CobroComisiones(Banco banco, ForkJoinPool pool) {
+        this.banco = banco;
+        this.pool = pool;
+    }
+
+    /**
+     * Cobra la comisión de mantenimiento del mes de la fecha indicada a todas las cuentas corrientes
+     * personales del banco que aún no la hayan pagado.
+     *
+     * @param fecha Fecha de cobro; el periodo es su mes natural.
+     * @return Resumen del cobro.
+     */
+    public ResultadoCobro cobrar(LocalDate fecha) {
+        long periodo = periodo(fecha);
+        long inicio = System.nanoTime();
+        CuentaBancaria[] cuentas = cuentasPersonales(banco);
+        long[] latencias = new long[(cuentas.length + TAMANO_TRAMO - 1) / TAMANO_TRAMO];
+        List<String> impagadas = new ArrayList<>();
+        LongAdder cobradas = new LongAdder();
+        LongAdder omitidas = new LongAdder();
+        LongAdder importe = new LongAdder();
+
+        TramosForkJoin.paralelo(cuentas.length, TAMANO_TRAMO, (desde, hasta) -> {
+            long inicioTramo = System.nanoTime();
+            long cobradasTramo = 0;
+            long omitidasTramo = 0;
+            long importeTramo = 0;
+            List<String> impagadasTramo = new ArrayList<>();
+            ObservadorCuenta porConfirmar = null;
+            for (int i = desde; i < hasta; i++) {
+                CuentaCorrientePersonal cuenta = (CuentaCorrientePersonal) cuentas[i];
+                ObservadorCuenta observador = cuenta.getObservador();
+                if (observador != null && !observador.registraMovimientos()) {
+                    observador = null;
+                }
+                long comision = cobrarCuenta(cuenta, periodo, observador);
+                if (comision == OMITIDA) {
+                    omitidasTramo++;
+                } else if (comision == IMPAGADA) {
+                    impagadasTramo.add(cuenta.getIban());
+                } else {
+                    cobradasTramo++;
+                    importeTramo += comision;
+                    if (observador != null) {
+                        if (porConfirmar != null && porConfirmar != observador) {
+                            porConfirmar.confirmarMovimientos();
+                        }
+                        porConfirmar = observador;
+                    }
+                }
+            }
+            if (porConfirmar != null) {
+                porConfirmar.confirmarMovimientos();
+            }
+            cobradas.add(cobradasTramo);
+            omitidas.add(omitidasTramo);
+            importe.add(importeTramo);
+            if (!impagadasTramo.isEmpty()) {
+                synchronized (impagadas) {
+                    impagadas.addAll(impagadasTramo);
+                }
+            }
+            latencias[desde / TAMANO_TRAMO] = System.nanoTime() - inicioTramo;
+        }, pool);
+
+        return new ResultadoCobro(periodo, cobradas.sum(), omitidas.sum(), importe.sum(), impagadas,
+                System.nanoTime() - inicio, latencias);
+    }
+
+    /**
+     * Programa el cobro periódico en un hilo en segundo plano. Cada ejecución cobra el mes en curso, así que
+     * puede programarse con un periodo menor que un mes (por ejemplo, diario) para reintentar las cuentas
+     * que no pudieron pagar.
+     *
+     * @param periodo Tiempo entre ejecuciones.
+     * @param unidad  Unidad del periodo.
+     * @param informe Acción que recibe el resumen de cada ejecución.
+     * @throws IllegalStateException si ya hay una programación activa.
+     */
+    public synchronized void programar(long periodo, TimeUnit unidad, Consumer<ResultadoCobro> informe) {
+        if (programador != null) {
+            throw new IllegalStateException("El cobro de comisiones ya está programado");
+        }
+        programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "banco-comisiones");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        programador.scheduleWithFixedDelay(() -> cobrarProgramado(informe), 0, periodo, unidad);
+    }
+
+    /**
+     * Detiene el cobro programado, esperando a que termine la ejecución en curso.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService actual;
+        synchronized (this) {
+            actual = programador;
+            programador = null;
+        }
+        if (actual != null) {
+            actual.shutdown();
+            try {
+                actual.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void cobrarProgramado(Consumer<ResultadoCobro> informe) {
+        // Una excepción sin capturar cancelaría las ejecuciones siguientes
+        try {
+            informe.accept(cobrar(LocalDate.now()));
+        } catch (RuntimeException e) {
+            System.err.println("No se pudo cobrar la comisión de mantenimiento: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene el identificador del periodo de cobro que corresponde a una fecha: su mes natural.
+     *
+     * @param fecha Fecha de cobro.
+     * @return Identificador del periodo.
+     */
+    public static long periodo(LocalDate fecha) {
+        return fecha.withDayOfMonth(1).toEpochDay();
+    }
+
+    private static CuentaBancaria[] cuentasPersonales(Banco banco) {
+        List<CuentaBancaria> personales = new ArrayList<>();
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            if (cuenta instanceof CuentaCorrientePersonal) {
+                personales.add(cuenta);
+            }
+        }
+        return personales.toArray(new CuentaBancaria[0]);
+    }
+
+    /**
+     * Carga la comisión del periodo a una cuenta si aún no se ha cargado.
+     *
+     * @return Comisión cobrada en céntimos, {@link #OMITIDA} si la cuenta ya estaba cobrada, cerrada o no
+     * tiene comisión, o {@link #IMPAGADA} si no tiene saldo suficiente.
+     */
+    private static long cobrarCuenta(CuentaCorrientePersonal cuenta, long periodo, ObservadorCuenta observador) {
+        long comision = CuentaBancaria.aCentimos(cuenta.getComisionMantenimiento());
+        synchronized (cuenta) {
+            if (comision <= 0 || cuenta.isCerrada() || cuenta.getUltimaLiquidacion() >= periodo) {
+                return OMITIDA;
+            }
+            long nuevoSaldo = cuenta.retirarCentimos(comision);
+            if (nuevoSaldo == CuentaBancaria.OPERACION_RECHAZADA) {
+                return IMPAGADA;
+            }
+            cuenta.setUltimaLiquidacion(periodo);
+            if (observador != null) {
+                observador.movimientoRealizado(cuenta, TipoMovimiento.COMISION, comision, nuevoSaldo);
+            }
+            return comision;
+        }
+    }
+}
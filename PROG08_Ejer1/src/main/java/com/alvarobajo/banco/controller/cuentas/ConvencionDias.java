@@ -0,0 +1,42 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Convenciones de cómputo de días para calcular qué fracción de año corresponde a un periodo
+ * de liquidación de intereses.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public enum ConvencionDias {
+
+    /** Días naturales del periodo sobre un año de 360 días (Actual/360). */
+    REAL_360,
+    /** Días naturales del periodo sobre un año de 365 días (Actual/365). */
+    REAL_365,
+    /** Meses de 30 días sobre un año de 360 días, al estilo europeo (30E/360). */
+    TREINTA_360;
+
+    /**
+     * Calcula la fracción de año entre dos fechas según la convención.
+     *
+     * @param inicio Fecha de inicio del periodo (incluida).
+     * @param fin    Fecha de fin del periodo (excluida).
+     * @return Fracción de año del periodo.
+     */
+    public double fraccionAnio(LocalDate inicio, LocalDate fin) {
+        switch (this) {
+            case REAL_360:
+                return ChronoUnit.DAYS.between(inicio, fin) / 360.0;
+            case REAL_365:
+                return ChronoUnit.DAYS.between(inicio, fin) / 365.0;
+            default:
+                int diaInicio = Math.min(inicio.getDayOfMonth(), 30);
+                int diaFin = Math.min(fin.getDayOfMonth(), 30);
+                int dias = 360 * (fin.getYear() - inicio.getYear())
+                        + 30 * (fin.getMonthValue() - inicio.getMonthValue()) + (diaFin - diaInicio);
+                return dias / 360.0;
+        }
+    }
+}
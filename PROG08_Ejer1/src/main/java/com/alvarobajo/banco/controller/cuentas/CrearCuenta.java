@@ -7,8 +7,6 @@ import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
 import com.alvarobajo.banco.models.CuentaCorrientePersonal;
 import com.alvarobajo.banco.models.Persona;
 
-import java.util.Random;
-
 /**
  * Clase que proporciona métodos para la creación de diferentes tipos de cuentas bancarias.
  * Permite la creación de cuentas de ahorro, cuentas corrientes personales y cuentas corrientes de empresa.
@@ -23,7 +21,6 @@ public class CrearCuenta {
     private static final String MENSAJE_COMISION_MANTENIMIENTO = "Ingrese la comisión de mantenimiento:";
     private static final String MENSAJE_TIPO_INTERES_DESCUBIERTO = "Ingrese el tipo de interés por descubierto:";
     private static final String MENSAJE_MAXIMO_DESCUBIERTO = "Ingrese el máximo descubierto permitido:";
-    private static final String FORMATO_IBAN = "ES%010d";
 
     /**
      * Crea una cuenta de ahorro.
@@ -112,11 +109,6 @@ public class CrearCuenta {
     }
 
     private static String generarIBAN(Banco banco) {
-        String nuevoIBAN;
-        do {
-            nuevoIBAN = String.format(FORMATO_IBAN, new Random().nextInt(Integer.MAX_VALUE));
-        } while (banco.estaIBANEnUso(nuevoIBAN));
-
-        return nuevoIBAN;
+        return banco.getAsignadorIBAN().siguiente();
     }
 }
@@ -95,10 +95,7 @@ public class CrearPersona {
      * @return true si el formato es válido, false de lo contrario.
      */
     private static boolean validarDNI(String dni) {
-        // Utilizar una expresión regular para validar el formato del DNI
-        String regex = "\\d{8}[a-zA-Z]";
-
-        if (!dni.matches(regex)) {
+        if (!esDNIValido(dni)) {
             System.out.println("El DNI debe tener 8 números seguidos por una letra.");
             return false;
         }
@@ -106,4 +103,26 @@ public class CrearPersona {
         // La validación fue exitosa
         return true;
     }
+
+    /**
+     * Comprueba, sin mostrar mensajes, si un DNI tiene el formato correcto: 8 números seguidos por una
+     * letra. Equivale a la expresión regular {@code \d{8}[a-zA-Z]}, pero sin compilarla en cada llamada,
+     * para poder validar muchos DNI seguidos.
+     *
+     * @param dni DNI a validar.
+     * @return true si el formato es válido, false de lo contrario.
+     */
+    public static boolean esDNIValido(String dni) {
+        if (dni == null || dni.length() != 9) {
+            return false;
+        }
+        for (int i = 0; i < 8; i++) {
+            char c = dni.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        char letra = dni.charAt(8);
+        return (letra >= 'a' && letra <= 'z') || (letra >= 'A' && letra <= 'Z');
+    }
 }
@@ -0,0 +1,302 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.ObservadorCuenta;
+import com.alvarobajo.banco.models.TipoMovimiento;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase que cobra cada día los intereses de descubierto de las cuentas corrientes de empresa.
+ *
+ * <p>A cada {@link CuentaCorrienteEmpresa} con saldo negativo se le carga el importe en descubierto
+ * por su tipo de interés por descubierto y por la fracción de año de un día según la
+ * {@link ConvencionDias} indicada, redondeado al céntimo. El cargo se aplica aunque deje la cuenta
+ * por debajo del máximo descubierto.</p>
+ *
+ * <p>Las cuentas se reparten en tramos que se procesan en paralelo con fork-join, y cada tramo va en
+ * tres pasos: copia los saldos negativos y los tipos a vectores de primitivos, calcula todos los
+ * intereses de una vez y, por último, aplica los cargos cuenta a cuenta con su monitor adquirido.
+ * El cálculo usa la API de vectores del JDK si el módulo {@code jdk.incubator.vector} está disponible
+ * ({@code --add-modules jdk.incubator.vector}) y, si no, un bucle escalar con el mismo resultado.
+ * Si el saldo de una cuenta cambia entre la copia y el cargo, su interés se recalcula con el saldo
+ * actual.</p>
+ *
+ * <p>Igual que en {@link LiquidadorIntereses}, cada día es un periodo y cada cuenta guarda el último
+ * periodo liquidado, así que el proceso puede repetirse sin cargar dos veces el mismo día. Los cargos,
+ * también los de importe 0, se avisan al observador de la cuenta como movimientos
+ * {@link TipoMovimiento#INTERES_DESCUBIERTO}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class LiquidadorDescubiertos {
+
+    private static final int TAMANO_TRAMO = 4096;
+    private static final boolean VECTORIAL = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    /**
+     * Cobra los intereses de descubierto de un día a todas las cuentas corrientes de empresa del banco
+     * usando el pool común de fork-join.
+     *
+     * @param banco      Banco con las cuentas a liquidar.
+     * @param dia        Día cuyos intereses se cobran, que identifica el periodo.
+     * @param convencion Convención de cómputo de días.
+     * @return Resumen de la liquidación.
+     */
+    public static ResultadoLiquidacion liquidar(Banco banco, LocalDate dia, ConvencionDias convencion) {
+        return liquidar(cuentasDeEmpresa(banco), dia, convencion, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Cobra en paralelo los intereses de descubierto de un día a las cuentas corrientes de empresa
+     * indicadas. Las cuentas de otros tipos se ignoran.
+     *
+     * @param cuentas    Cuentas a liquidar.
+     * @param dia        Día cuyos intereses se cobran, que identifica el periodo.
+     * @param convencion Convención de cómputo de días.
+     * @param pool       Pool de fork-join en el que ejecutar la liquidación.
+     * @return Resumen de la liquidación.
+     * @throws IllegalArgumentException si el día no es válido.
+     */
+    public static ResultadoLiquidacion liquidar(CuentaBancaria[] cuentas, LocalDate dia, ConvencionDias convencion,
+                                                ForkJoinPool pool) {
+        Liquidacion liquidacion = new Liquidacion(dia, convencion);
+        TramosForkJoin.paralelo(cuentas.length, TAMANO_TRAMO,
+                (desde, hasta) -> liquidarTramo(cuentas, desde, hasta, liquidacion), pool);
+        return liquidacion.resultado();
+    }
+
+    /**
+     * Cobra los intereses de descubierto de un día en el hilo actual, tramo a tramo.
+     *
+     * @param cuentas    Cuentas a liquidar.
+     * @param dia        Día cuyos intereses se cobran, que identifica el periodo.
+     * @param convencion Convención de cómputo de días.
+     * @return Resumen de la liquidación.
+     * @throws IllegalArgumentException si el día no es válido.
+     */
+    public static ResultadoLiquidacion liquidarSecuencial(CuentaBancaria[] cuentas, LocalDate dia,
+                                                          ConvencionDias convencion) {
+        Liquidacion liquidacion = new Liquidacion(dia, convencion);
+        TramosForkJoin.secuencial(cuentas.length, TAMANO_TRAMO,
+                (desde, hasta) -> liquidarTramo(cuentas, desde, hasta, liquidacion));
+        return liquidacion.resultado();
+    }
+
+    /**
+     * Obtiene el identificador de periodo que corresponde a un día.
+     *
+     * @param dia Día de la liquidación.
+     * @return Identificador del periodo.
+     */
+    public static long periodo(LocalDate dia) {
+        return dia.toEpochDay();
+    }
+
+    /**
+     * Calcula los intereses de descubierto de las posiciones {@code [0, n)}, con la API de vectores si
+     * está disponible. El interés de cada posición es {@code descubierto * tipo * factor} redondeado
+     * al céntimo.
+     *
+     * @param descubiertos Importe en descubierto de cada cuenta en céntimos, en positivo.
+     * @param tipos        Tipo de interés anual de cada cuenta en porcentaje.
+     * @param factor       Fracción de año del periodo dividida entre 100.
+     * @param intereses    Vector en el que se guardan los intereses en céntimos.
+     * @param n            Número de posiciones a calcular.
+     */
+    public static void calcularIntereses(double[] descubiertos, double[] tipos, double factor, long[] intereses,
+                                         int n) {
+        if (VECTORIAL) {
+            CalculoVectorial.calcular(descubiertos, tipos, factor, intereses, n);
+        } else {
+            calcularEscalar(descubiertos, tipos, factor, intereses, 0, n);
+        }
+    }
+
+    /**
+     * Calcula los intereses de descubierto de las posiciones {@code [0, n)} con un bucle escalar,
+     * sin usar la API de vectores aunque esté disponible.
+     *
+     * @param descubiertos Importe en descubierto de cada cuenta en céntimos, en positivo.
+     * @param tipos        Tipo de interés anual de cada cuenta en porcentaje.
+     * @param factor       Fracción de año del periodo dividida entre 100.
+     * @param intereses    Vector en el que se guardan los intereses en céntimos.
+     * @param n            Número de posiciones a calcular.
+     */
+    public static void calcularInteresesEscalar(double[] descubiertos, double[] tipos, double factor,
+                                                long[] intereses, int n) {
+        calcularEscalar(descubiertos, tipos, factor, intereses, 0, n);
+    }
+
+    /**
+     * Indica si el cálculo de intereses usa la API de vectores.
+     *
+     * @return true si el módulo {@code jdk.incubator.vector} está disponible; false, en caso contrario.
+     */
+    public static boolean isVectorial() {
+        return VECTORIAL;
+    }
+
+    /**
+     * Obtiene el número de intereses que se calculan a la vez.
+     *
+     * @return Número de posiciones de cada vector, o 1 si el cálculo es escalar.
+     */
+    public static int getAnchuraVectorial() {
+        return VECTORIAL ? CalculoVectorial.getAnchura() : 1;
+    }
+
+    static void calcularEscalar(double[] descubiertos, double[] tipos, double factor, long[] intereses,
+                                int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            // Los importes son positivos, así que sumar 0,5 y truncar redondea al céntimo más cercano
+            intereses[i] = (long) (descubiertos[i] * tipos[i] * factor + 0.5);
+        }
+    }
+
+    private static CuentaBancaria[] cuentasDeEmpresa(Banco banco) {
+        List<CuentaBancaria> empresa = new ArrayList<>();
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            if (cuenta instanceof CuentaCorrienteEmpresa) {
+                empresa.add(cuenta);
+            }
+        }
+        return empresa.toArray(new CuentaBancaria[0]);
+    }
+
+    private static void liquidarTramo(CuentaBancaria[] cuentas, int desde, int hasta, Liquidacion liquidacion) {
+        int tamano = hasta - desde;
+        CuentaCorrienteEmpresa[] enDescubierto = new CuentaCorrienteEmpresa[tamano];
+        long[] saldos = new long[tamano];
+        double[] descubiertos = new double[tamano];
+        double[] tipos = new double[tamano];
+        long omitidas = 0;
+        int n = 0;
+        for (int i = desde; i < hasta; i++) {
+            if (!(cuentas[i] instanceof CuentaCorrienteEmpresa)) {
+                continue;
+            }
+            CuentaCorrienteEmpresa cuenta = (CuentaCorrienteEmpresa) cuentas[i];
+            long saldo = cuenta.getSaldoCentimos();
+            if (saldo >= 0) {
+                continue;
+            }
+            if (cuenta.getUltimaLiquidacion() >= liquidacion.periodo) {
+                omitidas++;
+                continue;
+            }
+            enDescubierto[n] = cuenta;
+            saldos[n] = saldo;
+            descubiertos[n] = -saldo;
+            tipos[n] = cuenta.getTipoInteresDescubierto();
+            n++;
+        }
+
+        long[] intereses = new long[n];
+        calcularIntereses(descubiertos, tipos, liquidacion.factor, intereses, n);
+
+        long liquidadas = 0;
+        long importe = 0;
+        ObservadorCuenta porConfirmar = null;
+        for (int j = 0; j < n; j++) {
+            CuentaCorrienteEmpresa cuenta = enDescubierto[j];
+            ObservadorCuenta observador = cuenta.getObservador();
+            if (observador != null && !observador.registraMovimientos()) {
+                observador = null;
+            }
+            long interes = liquidarCuenta(cuenta, saldos[j], intereses[j], liquidacion, observador);
+            if (interes == -1) {
+                omitidas++;
+                continue;
+            }
+            if (interes < 0) {
+                // La cuenta salió del descubierto antes del cargo
+                continue;
+            }
+            liquidadas++;
+            importe += interes;
+            if (observador != null) {
+                if (porConfirmar != null && porConfirmar != observador) {
+                    porConfirmar.confirmarMovimientos();
+                }
+                porConfirmar = observador;
+            }
+        }
+        if (porConfirmar != null) {
+            porConfirmar.confirmarMovimientos();
+        }
+        liquidacion.acumular(liquidadas, omitidas, importe);
+    }
+
+    /**
+     * Carga los intereses del día a una cuenta si aún no se han cargado y marca el día como liquidado,
+     * aunque los intereses sean 0.
+     *
+     * @param saldoCalculado Saldo con el que se calcularon los intereses.
+     * @param interes        Intereses calculados con ese saldo.
+     * @return Intereses cargados en céntimos, -1 si la cuenta ya estaba liquidada o cerrada, o -2 si
+     * ya no está en descubierto.
+     */
+    private static long liquidarCuenta(CuentaCorrienteEmpresa cuenta, long saldoCalculado, long interes,
+                                       Liquidacion liquidacion, ObservadorCuenta observador) {
+        synchronized (cuenta) {
+            if (cuenta.isCerrada() || cuenta.getUltimaLiquidacion() >= liquidacion.periodo) {
+                return -1;
+            }
+            long saldo = cuenta.getSaldoCentimos();
+            if (saldo >= 0) {
+                return -2;
+            }
+            if (saldo != saldoCalculado) {
+                interes = (long) (-saldo * cuenta.getTipoInteresDescubierto() * liquidacion.factor + 0.5);
+            }
+            long nuevoSaldo = interes > 0 ? cuenta.cargarCentimos(interes) : saldo;
+            if (nuevoSaldo == CuentaBancaria.OPERACION_RECHAZADA) {
+                return -1;
+            }
+            cuenta.setUltimaLiquidacion(liquidacion.periodo);
+            // Sin intereses también se avisa, con importe 0, para que el diario guarde el periodo liquidado
+            if (observador != null) {
+                observador.movimientoRealizado(cuenta, TipoMovimiento.INTERES_DESCUBIERTO, Math.max(interes, 0),
+                        nuevoSaldo);
+            }
+            return Math.max(interes, 0);
+        }
+    }
+
+    /**
+     * Datos de una ejecución de la liquidación, compartidos por todos sus tramos.
+     */
+    private static final class Liquidacion {
+
+        private final long periodo;
+        private final double factor;
+        private final LongAdder liquidadas = new LongAdder();
+        private final LongAdder omitidas = new LongAdder();
+        private final LongAdder importe = new LongAdder();
+
+        Liquidacion(LocalDate dia, ConvencionDias convencion) {
+            if (periodo(dia) <= 0) {
+                throw new IllegalArgumentException("Día de liquidación no válido: " + dia);
+            }
+            this.periodo = periodo(dia);
+            this.factor = convencion.fraccionAnio(dia, dia.plusDays(1)) / 100;
+        }
+
+        void acumular(long liquidadasTramo, long omitidasTramo, long importeTramo) {
+            liquidadas.add(liquidadasTramo);
+            omitidas.add(omitidasTramo);
+            importe.add(importeTramo);
+        }
+
+        ResultadoLiquidacion resultado() {
+            return new ResultadoLiquidacion(periodo, liquidadas.sum(), omitidas.sum(), importe.sum());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.ObservadorCuenta;
+import com.alvarobajo.banco.models.TipoMovimiento;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase que liquida al final de un periodo los intereses de las cuentas de ahorro.
+ *
+ * <p>A cada {@link CuentaAhorro} se le abona su saldo por su tipo de interés anual y por la fracción
+ * de año del periodo según la {@link ConvencionDias} indicada, redondeado al céntimo. Las cuentas se
+ * reparten en tramos que se liquidan en paralelo con fork-join.</p>
+ *
+ * <p>Cada periodo se identifica por su fecha de fin y cada cuenta guarda el último periodo liquidado,
+ * que se actualiza junto con el abono con el monitor de la cuenta adquirido. Así, una liquidación
+ * interrumpida puede volver a lanzarse y solo liquida las cuentas que faltaban; con un diario de
+ * operaciones, el periodo liquidado se recupera junto con el saldo.</p>
+ *
+ * <p>Los abonos se avisan al observador de la cuenta como movimientos {@link TipoMovimiento#INTERES},
+ * también los de importe 0, y la confirmación se espera una sola vez por tramo, no por cuenta.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class LiquidadorIntereses {
+
+    private static final int TAMANO_TRAMO = 8192;
+
+    /**
+     * Liquida los intereses de todas las cuentas de ahorro del banco usando el pool común de fork-join.
+     *
+     * @param banco      Banco con las cuentas a liquidar.
+     * @param inicio     Fecha de inicio del periodo (incluida).
+     * @param fin        Fecha de fin del periodo (excluida), que identifica el periodo.
+     * @param convencion Convención de cómputo de días.
+     * @return Resumen de la liquidación.
+     */
+    public static ResultadoLiquidacion liquidar(Banco banco, LocalDate inicio, LocalDate fin,
+                                                ConvencionDias convencion) {
+        return liquidar(cuentasDeAhorro(banco), inicio, fin, convencion, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Liquida en paralelo los intereses de las cuentas de ahorro indicadas. Las cuentas de otros tipos
+     * se ignoran.
+     *
+     * @param cuentas    Cuentas a liquidar.
+     * @param inicio     Fecha de inicio del periodo (incluida).
+     * @param fin        Fecha de fin del periodo (excluida), que identifica el periodo.
+     * @param convencion Convención de cómputo de días.
+     * @param pool       Pool de fork-join en el que ejecutar la liquidación.
+     * @return Resumen de la liquidación.
+     * @throws IllegalArgumentException si el periodo no es válido.
+     */
+    public static ResultadoLiquidacion liquidar(CuentaBancaria[] cuentas, LocalDate inicio, LocalDate fin,
+                                                ConvencionDias convencion, ForkJoinPool pool) {
+        Liquidacion liquidacion = new Liquidacion(inicio, fin, convencion);
+        TramosForkJoin.paralelo(cuentas.length, TAMANO_TRAMO,
+                (desde, hasta) -> liquidarTramo(cuentas, desde, hasta, liquidacion), pool);
+        return liquidacion.resultado();
+    }
+
+    /**
+     * Liquida los intereses de las cuentas de ahorro indicadas en el hilo actual, tramo a tramo.
+     *
+     * @param cuentas    Cuentas a liquidar.
+     * @param inicio     Fecha de inicio del periodo (incluida).
+     * @param fin        Fecha de fin del periodo (excluida), que identifica el periodo.
+     * @param convencion Convención de cómputo de días.
+     * @return Resumen de la liquidación.
+     * @throws IllegalArgumentException si el periodo no es válido.
+     */
+    public static ResultadoLiquidacion liquidarSecuencial(CuentaBancaria[] cuentas, LocalDate inicio,
+                                                          LocalDate fin, ConvencionDias convencion) {
+        Liquidacion liquidacion = new Liquidacion(inicio, fin, convencion);
+        TramosForkJoin.secuencial(cuentas.length, TAMANO_TRAMO,
+                (desde, hasta) -> liquidarTramo(cuentas, desde, hasta, liquidacion));
+        return liquidacion.resultado();
+    }
+
+    /**
+     * Obtiene el identificador de periodo que corresponde a una fecha de fin.
+     *
+     * @param fin Fecha de fin del periodo.
+     * @return Identificador del periodo.
+     */
+    public static long periodo(LocalDate fin) {
+        return fin.toEpochDay();
+    }
+
+    private static CuentaBancaria[] cuentasDeAhorro(Banco banco) {
+        List<CuentaBancaria> ahorro = new ArrayList<>();
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            if (cuenta instanceof CuentaAhorro) {
+                ahorro.add(cuenta);
+            }
+        }
+        return ahorro.toArray(new CuentaBancaria[0]);
+    }
+
+    private static void liquidarTramo(CuentaBancaria[] cuentas, int desde, int hasta, Liquidacion liquidacion) {
+        long liquidadas = 0;
+        long omitidas = 0;
+        long importe = 0;
+        ObservadorCuenta porConfirmar = null;
+        for (int i = desde; i < hasta; i++) {
+            if (!(cuentas[i] instanceof CuentaAhorro)) {
+                continue;
+            }
+            CuentaAhorro cuenta = (CuentaAhorro) cuentas[i];
+            ObservadorCuenta observador = cuenta.getObservador();
+            if (observador != null && !observador.registraMovimientos()) {
+                observador = null;
+            }
+            long interes = liquidarCuenta(cuenta, liquidacion, observador);
+            if (interes < 0) {
+                omitidas++;
+                continue;
+            }
+            liquidadas++;
+            importe += interes;
+            if (observador != null) {
+                if (porConfirmar != null && porConfirmar != observador) {
+                    porConfirmar.confirmarMovimientos();
+                }
+                porConfirmar = observador;
+            }
+        }
+        if (porConfirmar != null) {
+            porConfirmar.confirmarMovimientos();
+        }
+        liquidacion.acumular(liquidadas, omitidas, importe);
+    }
+
+    /**
+     * Abona los intereses del periodo a una cuenta si aún no se han abonado y marca el periodo como
+     * liquidado, aunque los intereses sean 0.
+     *
+     * @return Intereses abonados en céntimos, o -1 si la cuenta ya estaba liquidada o cerrada.
+     */
+    private static long liquidarCuenta(CuentaAhorro cuenta, Liquidacion liquidacion, ObservadorCuenta observador) {
+        synchronized (cuenta) {
+            if (cuenta.isCerrada() || cuenta.getUltimaLiquidacion() >= liquidacion.periodo) {
+                return -1;
+            }
+            long interes = Math.round(cuenta.getSaldoCentimos() * (cuenta.getTipoInteres() / 100)
+                    * liquidacion.fraccionAnio);
+            long nuevoSaldo = interes > 0 ? cuenta.ingresarCentimos(interes) : cuenta.getSaldoCentimos();
+            if (nuevoSaldo == CuentaBancaria.OPERACION_RECHAZADA) {
+                return -1;
+            }
+            cuenta.setUltimaLiquidacion(liquidacion.periodo);
+            // Sin intereses también se avisa, con importe 0, para que el diario guarde el periodo liquidado
+            if (observador != null) {
+                observador.movimientoRealizado(cuenta, TipoMovimiento.INTERES, Math.max(interes, 0), nuevoSaldo);
+            }
+            return Math.max(interes, 0);
+        }
+    }
+
+    /**
+     * Datos de una ejecución de la liquidación, compartidos por todos sus tramos.
+     */
+    private static final class Liquidacion {
+
+        private final long periodo;
+        private final double fraccionAnio;
+        private final LongAdder liquidadas = new LongAdder();
+        private final LongAdder omitidas = new LongAdder();
+        private final LongAdder importe = new LongAdder();
+
+        Liquidacion(LocalDate inicio, LocalDate fin, ConvencionDias convencion) {
+            if (!fin.isAfter(inicio) || periodo(fin) <= 0) {
+                throw new IllegalArgumentException("Periodo de liquidación no válido: " + inicio + " - " + fin);
+            }
+            this.periodo = periodo(fin);
+            this.fraccionAnio = convencion.fraccionAnio(inicio, fin);
+        }
+
+        void acumular(long liquidadasTramo, long omitidasTramo, long importeTramo) {
+            liquidadas.add(liquidadasTramo);
+            omitidas.add(omitidasTramo);
+            importe.add(importeTramo);
+        }
+
+        ResultadoLiquidacion resultado() {
+            return new ResultadoLiquidacion(periodo, liquidadas.sum(), omitidas.sum(), importe.sum());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Lote de ingresos y retiros que se aplican juntos con {@link OperarCuenta#aplicarLote}.
+ *
+ * <p>Las operaciones se guardan en arrays paralelos (IBAN, tipo y cantidad en céntimos) para que un
+ * lote de miles de operaciones ocupe poca memoria. El orden de inserción se conserva: las operaciones
+ * de una misma cuenta se aplican en el orden en que se añadieron. Los IBAN se guardan en mayúsculas,
+ * porque el banco no distingue mayúsculas de minúsculas: una cuenta escrita de dos formas sigue siendo
+ * la misma cuenta para ese orden.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class LoteOperaciones {
+
+    static final byte INGRESO = 0;
+    static final byte RETIRO = 1;
+
+    private String[] ibans;
+    private byte[] tipos;
+    private long[] cantidades;
+    private int tamano;
+
+    /**
+     * Constructor para inicializar un lote vacío.
+     */
+    public LoteOperaciones() {
+        this(64);
+    }
+
+    /**
+     * Constructor para inicializar un lote vacío con capacidad para un número de operaciones.
+     *
+     * @param capacidad Número de operaciones previsto.
+     */
+    public LoteOperaciones(int capacidad) {
+        int inicial = Math.max(capacidad, 1);
+        ibans = new String[inicial];
+        tipos = new byte[inicial];
+        cantidades = new long[inicial];
+    }
+
+    /**
+     * Añade un ingreso al lote.
+     *
+     * @param iban     IBAN de la cuenta.
+     * @param centimos Cantidad a ingresar en céntimos.
+     * @return Posición de la operación en el lote.
+     */
+    public int agregarIngreso(String iban, long centimos) {
+        return agregar(iban, INGRESO, centimos);
+    }
+
+    /**
+     * Añade un retiro al lote.
+     *
+     * @param iban     IBAN de la cuenta.
+     * @param centimos Cantidad a retirar en céntimos.
+     * @return Posición de la operación en el lote.
+     */
+    public int agregarRetiro(String iban, long centimos) {
+        return agregar(iban, RETIRO, centimos);
+    }
+
+    /**
+     * Obtiene el número de operaciones del lote.
+     *
+     * @return Número de operaciones.
+     */
+    public int getTamano() {
+        return tamano;
+    }
+
+    /**
+     * Vacía el lote para poder reutilizarlo.
+     */
+    public void vaciar() {
+        Arrays.fill(ibans, 0, tamano, null);
+        tamano = 0;
+    }
+
+    String getIban(int posicion) {
+        return ibans[posicion];
+    }
+
+    byte getTipo(int posicion) {
+        return tipos[posicion];
+    }
+
+    long getCantidad(int posicion) {
+        return cantidades[posicion];
+    }
+
+    private int agregar(String iban, byte tipo, long centimos) {
+        if (tamano == ibans.length) {
+            int capacidad = tamano * 2;
+            ibans = Arrays.copyOf(ibans, capacidad);
+            tipos = Arrays.copyOf(tipos, capacidad);
+            cantidades = Arrays.copyOf(cantidades, capacidad);
+        }
+        ibans[tamano] = iban != null ? iban.toUpperCase(Locale.ROOT) : null;
+        tipos[tamano] = tipo;
+        cantidades[tamano] = centimos;
+        return tamano++;
+    }
+}
@@ -2,9 +2,15 @@ package com.alvarobajo.banco.controller.cuentas;
 
 import com.alvarobajo.banco.controller.Banco;
 import com.alvarobajo.banco.controller.LecturaTeclado;
+import com.alvarobajo.banco.controller.OrdenListado;
+import com.alvarobajo.banco.controller.PaginaCuentas;
 import com.alvarobajo.banco.models.CuentaBancaria;
 
-import java.util.List;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 
 /**
  * Clase que proporciona métodos para mostrar información detallada de cuentas bancarias.
@@ -14,12 +20,22 @@ import java.util.List;
  *
  * <p>Los mensajes de entrada son definidos como constantes para facilitar su modificación y mantenimiento.</p>
  *
+ * <p>El listado por consola se muestra por páginas ordenadas por IBAN, pidiendo confirmación antes de
+ * cada página, para no bloquear la consola con todo el banco. Los listados no construyen una cadena por
+ * cuenta: cada cuenta se escribe con {@link CuentaBancaria#appendTo(Appendable)} en un único
+ * {@code Writer} con buffer.</p>
+ *
  * @author Álvaro Bajo Tabero
  */
 public class MostrarCuenta {
 
     private static final String MENSAJE_BUSCAR_TITULAR = "Ingrese el nombre del titular:";
     private static final String MENSAJE_BUSCAR_IBAN = "Ingrese el IBAN de la cuenta:";
+    private static final String MENSAJE_SIGUIENTE_PAGINA = "¿Mostrar la siguiente página? (S/N):";
+
+    private static final int TAMANO_PAGINA = 20;
+
+    private static final int TAMANO_BUFFER_LISTADO = 1 << 16;
 
     /**
      * Muestra la información de una cuenta bancaria por titular.
@@ -73,21 +89,63 @@ public class MostrarCuenta {
     }
 
     /**
-     * Muestra un listado de todas las cuentas disponibles en el banco.
+     * Muestra un listado de todas las cuentas disponibles en el banco, por páginas ordenadas por IBAN.
+     * Después de cada página pregunta si se quiere ver la siguiente.
      *
      * @param banco El banco del que mostrar el listado.
      */
     public static void mostrarListado(Banco banco) {
-        List<CuentaBancaria> cuentas = banco.getCuentas();
-        int numCuentas = banco.getNumCuentas();
-
-        if (numCuentas > 0) {
+        if (banco.getNumCuentas() > 0) {
             System.out.println("Listado de cuentas:");
-            for (CuentaBancaria cuenta : cuentas) {
-                System.out.println(cuenta.devolverInfoString());
+            // No se cierra para no cerrar System.out; basta con volcarlo después de cada página
+            Writer salida = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()),
+                    TAMANO_BUFFER_LISTADO);
+            String cursor = null;
+            try {
+                do {
+                    PaginaCuentas pagina = banco.listarCuentas(OrdenListado.IBAN, cursor, TAMANO_PAGINA);
+                    escribir(pagina.getCuentas(), salida);
+                    salida.flush();
+                    cursor = pagina.getCursorSiguiente();
+                } while (cursor != null && LecturaTeclado.recogerTexto(MENSAJE_SIGUIENTE_PAGINA).equalsIgnoreCase("S"));
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo mostrar el listado de cuentas", e);
             }
         } else {
             System.out.println("No hay cuentas registradas en el banco.");
         }
     }
+
+    /**
+     * Escribe la información de todas las cuentas del banco en el destino indicado, cada una seguida
+     * de un salto de línea. No vuelca ni cierra el destino.
+     *
+     * @param banco   El banco del que escribir el listado.
+     * @param destino Destino de la escritura.
+     * @throws IOException si no se puede escribir en el destino.
+     */
+    public static void escribirListado(Banco banco, Writer destino) throws IOException {
+        escribir(banco.getCuentas(), destino);
+    }
+
+    /**
+     * Escribe cada cuenta seguida de un salto de línea. Cada cuenta se compone en un {@code StringBuilder}
+     * que se reutiliza y se escribe de una vez, porque escribir carácter a carácter en el {@code Writer}
+     * adquiere su bloqueo en cada carácter.
+     */
+    private static void escribir(Iterable<CuentaBancaria> cuentas, Writer destino) throws IOException {
+        StringBuilder texto = new StringBuilder(1024);
+        char[] caracteres = new char[1024];
+        for (CuentaBancaria cuenta : cuentas) {
+            texto.setLength(0);
+            cuenta.appendTo(texto);
+            texto.append(System.lineSeparator());
+            int longitud = texto.length();
+            if (longitud > caracteres.length) {
+                caracteres = new char[Math.max(longitud, caracteres.length * 2)];
+            }
+            texto.getChars(0, longitud, caracteres, 0);
+            destino.write(caracteres, 0, longitud);
+        }
+    }
 }
@@ -1,8 +1,17 @@
 package com.alvarobajo.banco.controller.cuentas;
 
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.metricas.Metricas;
+import com.alvarobajo.banco.metricas.OperacionMedida;
 import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.ObservadorCuenta;
+import com.alvarobajo.banco.models.TipoMovimiento;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Clase que proporciona métodos para realizar operaciones en una cuenta bancaria,
@@ -12,7 +21,31 @@ import java.text.DecimalFormat;
  * de la cuenta y realizar ingresos. Los mensajes de salida son definidos como constantes para
  * facilitar su modificación y mantenimiento.</p>
  *
- * <p>El formato de moneda se realiza utilizando la clase `DecimalFormat`.</p>
+ * <p>Las operaciones actualizan el saldo en céntimos con compare-and-set sobre la propia cuenta,
+ * sin bloqueos, de modo que son atómicas aunque se realicen desde varios hilos y las operaciones sobre
+ * cuentas distintas no compiten entre sí. Las cuentas cerradas se rechazan. Los métodos {@link #ingresar}
+ * y {@link #retirar} no muestran nada por consola ni reservan memoria, y son los que deben usarse
+ * en los caminos de alto rendimiento.</p>
+ *
+ * <p>Las transferencias adquieren el monitor de las dos cuentas, siempre en orden de IBAN, para que
+ * el retiro y el ingreso se apliquen juntos y no puedan producirse interbloqueos entre transferencias
+ * cruzadas. Las transferencias entre pares de cuentas distintos no comparten ningún bloqueo.</p>
+ *
+ * <p>Si la cuenta tiene un observador que registra movimientos (por ejemplo, el banco con un diario
+ * de operaciones), cada operación se aplica con el monitor de la cuenta adquirido y se avisa al
+ * observador antes de liberarlo, para que los movimientos se registren en el mismo orden en que se
+ * aplicaron; la confirmación se espera después, ya sin el monitor. Las variantes {@code SinConfirmar}
+ * no la esperan, para que quien aplica muchas operaciones seguidas pueda confirmarlas todas de una vez
+ * con {@link ObservadorCuenta#confirmarMovimientos()}.</p>
+ *
+ * <p>Los lotes ({@link #aplicarLote}) agrupan las operaciones por cuenta para buscar cada cuenta una
+ * sola vez y adquirir su monitor una sola vez, y devuelven un resultado por operación en lugar de
+ * mostrar mensajes.</p>
+ *
+ * <p>Los ingresos, retiros y transferencias se cuentan y se cronometran en {@link Metricas}.</p>
+ *
+ * <p>El formato de moneda se realiza utilizando la clase `DecimalFormat`, que no es segura entre hilos,
+ * por lo que se usa una instancia por hilo.</p>
  *
  * @author Álvaro Bajo Tabero
  */
@@ -26,7 +59,11 @@ public class OperarCuenta {
     private static final String MENSAJE_INGRESO_EXITOSO = "Ingreso exitoso. Nuevo saldo: %s";
     private static final String MENSAJE_ERROR_INGRESO = "Error en el ingreso. Verifique la cantidad ingresada.";
 
-    private static final DecimalFormat FORMATO_MONEDA = new DecimalFormat("###,###,##0.00");
+    private static final String MENSAJE_TRANSFERENCIA_EXITOSA = "Transferencia exitosa. Nuevo saldo de la cuenta de origen: %s";
+    private static final String MENSAJE_ERROR_TRANSFERENCIA = "Error en la transferencia. Verifique las cuentas y la cantidad ingresada.";
+
+    private static final ThreadLocal<DecimalFormat> FORMATO_MONEDA =
+            ThreadLocal.withInitial(() -> new DecimalFormat("###,###,##0.00"));
 
     /**
      * Realiza un retiro de efectivo en la cuenta bancaria.
@@ -35,9 +72,9 @@ public class OperarCuenta {
      * @param cantidad La cantidad a retirar.
      */
     public static void retirarEfectivo(CuentaBancaria cuenta, double cantidad) {
-        if (cantidad > 0 && cantidad <= cuenta.getSaldo()) {
-            cuenta.setSaldo(cuenta.getSaldo() - cantidad);
-            System.out.println(String.format(MENSAJE_RETIRO_EXITOSO, formatoMoneda(cuenta.getSaldo())));
+        long nuevoSaldo = retirar(cuenta, CuentaBancaria.aCentimos(cantidad));
+        if (nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA) {
+            System.out.println(String.format(MENSAJE_RETIRO_EXITOSO, formatoMoneda(nuevoSaldo / 100.0)));
         } else {
             System.out.println(MENSAJE_ERROR_RETIRO);
         }
@@ -59,15 +96,341 @@ public class OperarCuenta {
      * @param cantidad La cantidad a ingresar.
      */
     public static void realizarIngreso(CuentaBancaria cuenta, double cantidad) {
-        if (cantidad > 0) {
-            cuenta.setSaldo(cuenta.getSaldo() + cantidad);
-            System.out.println(String.format(MENSAJE_INGRESO_EXITOSO, formatoMoneda(cuenta.getSaldo())));
+        long nuevoSaldo = ingresar(cuenta, CuentaBancaria.aCentimos(cantidad));
+        if (nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA) {
+            System.out.println(String.format(MENSAJE_INGRESO_EXITOSO, formatoMoneda(nuevoSaldo / 100.0)));
         } else {
             System.out.println(MENSAJE_ERROR_INGRESO);
         }
     }
 
+    /**
+     * Realiza una transferencia entre dos cuentas bancarias.
+     *
+     * @param origen   La cuenta de la que sale el dinero.
+     * @param destino  La cuenta a la que llega el dinero.
+     * @param cantidad La cantidad a transferir.
+     */
+    public static void realizarTransferencia(CuentaBancaria origen, CuentaBancaria destino, double cantidad) {
+        long nuevoSaldo = transferir(origen, destino, CuentaBancaria.aCentimos(cantidad));
+        if (nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA) {
+            System.out.println(String.format(MENSAJE_TRANSFERENCIA_EXITOSA, formatoMoneda(nuevoSaldo / 100.0)));
+        } else {
+            System.out.println(MENSAJE_ERROR_TRANSFERENCIA);
+        }
+    }
+
+    /**
+     * Transfiere una cantidad en céntimos de una cuenta a otra de forma atómica, sin mostrar mensajes.
+     *
+     * <p>Se adquiere el monitor de ambas cuentas en orden de IBAN, por lo que ninguna de las dos puede
+     * cerrarse durante la transferencia y el dinero nunca queda a medio mover: o se aplican el retiro
+     * y el ingreso, o no se aplica ninguno.</p>
+     *
+     * @param origen   La cuenta de la que sale el dinero.
+     * @param destino  La cuenta a la que llega el dinero.
+     * @param centimos La cantidad a transferir en céntimos.
+     * @return El nuevo saldo de la cuenta de origen en céntimos, o {@link CuentaBancaria#OPERACION_RECHAZADA}
+     * si la transferencia no se realizó.
+     */
+    public static long transferir(CuentaBancaria origen, CuentaBancaria destino, long centimos) {
+        long inicio = Metricas.iniciar();
+        long nuevoSaldo = aplicarTransferencia(origen, destino, centimos, true);
+        Metricas.registrar(OperacionMedida.TRANSFERENCIA, inicio, nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA);
+        return nuevoSaldo;
+    }
+
+    /**
+     * Transfiere como {@link #transferir}, pero sin esperar a que los observadores de las cuentas
+     * confirmen la transferencia: quien llama debe invocar después {@code confirmarMovimientos()} del
+     * observador de cada cuenta antes de darla por hecha.
+     *
+     * @param origen   La cuenta de la que sale el dinero.
+     * @param destino  La cuenta a la que llega el dinero.
+     * @param centimos La cantidad a transferir en céntimos.
+     * @return El nuevo saldo de la cuenta de origen en céntimos, o {@link CuentaBancaria#OPERACION_RECHAZADA}
+     * si la transferencia no se realizó.
+     */
+    public static long transferirSinConfirmar(CuentaBancaria origen, CuentaBancaria destino, long centimos) {
+        long inicio = Metricas.iniciar();
+        long nuevoSaldo = aplicarTransferencia(origen, destino, centimos, false);
+        Metricas.registrar(OperacionMedida.TRANSFERENCIA, inicio, nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA);
+        return nuevoSaldo;
+    }
+
+    private static long aplicarTransferencia(CuentaBancaria origen, CuentaBancaria destino, long centimos,
+                                             boolean confirmar) {
+        if (origen == destino || centimos <= 0) {
+            return CuentaBancaria.OPERACION_RECHAZADA;
+        }
+        boolean origenPrimero = origen.getIban().compareTo(destino.getIban()) <= 0;
+        CuentaBancaria primera = origenPrimero ? origen : destino;
+        CuentaBancaria segunda = origenPrimero ? destino : origen;
+        ObservadorCuenta observadorOrigen;
+        ObservadorCuenta observadorDestino;
+        long resultado;
+        synchronized (primera) {
+            synchronized (segunda) {
+                if (destino.isCerrada()) {
+                    return CuentaBancaria.OPERACION_RECHAZADA;
+                }
+                long saldoOrigen = origen.retirarCentimos(centimos);
+                if (saldoOrigen == CuentaBancaria.OPERACION_RECHAZADA) {
+                    return CuentaBancaria.OPERACION_RECHAZADA;
+                }
+                long saldoDestino = destino.ingresarCentimos(centimos);
+                if (saldoDestino == CuentaBancaria.OPERACION_RECHAZADA) {
+                    // Solo ocurre si el saldo de destino se desbordaría: se devuelve el dinero al origen
+                    origen.ingresarCentimos(centimos);
+                    return CuentaBancaria.OPERACION_RECHAZADA;
+                }
+                observadorOrigen = origen.getObservador();
+                observadorDestino = destino.getObservador();
+                if (observadorOrigen != null) {
+                    observadorOrigen.transferenciaRealizada(origen, destino, centimos, saldoOrigen, saldoDestino);
+                }
+                if (observadorDestino != null && observadorDestino != observadorOrigen) {
+                    observadorDestino.transferenciaRealizada(origen, destino, centimos, saldoOrigen, saldoDestino);
+                }
+                resultado = saldoOrigen;
+            }
+        }
+        if (!confirmar) {
+            return resultado;
+        }
+        if (observadorOrigen != null) {
+            observadorOrigen.confirmarMovimientos();
+        }
+        if (observadorDestino != null && observadorDestino != observadorOrigen) {
+            observadorDestino.confirmarMovimientos();
+        }
+        return resultado;
+    }
+
+    /**
+     * Retira una cantidad en céntimos de la cuenta, sin mostrar mensajes.
+     * El retiro solo se realiza si hay saldo suficiente, comprobado de forma atómica.
+     *
+     * @param cuenta   La cuenta en la que realizar el retiro.
+     * @param centimos La cantidad a retirar en céntimos.
+     * @return El nuevo saldo en céntimos, o {@link CuentaBancaria#OPERACION_RECHAZADA} si el retiro no se realizó.
+     */
+    public static long retirar(CuentaBancaria cuenta, long centimos) {
+        long inicio = Metricas.iniciar();
+        long nuevoSaldo = operar(cuenta, TipoMovimiento.RETIRO, centimos, true);
+        Metricas.registrar(OperacionMedida.RETIRO, inicio, nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA);
+        return nuevoSaldo;
+    }
+
+    /**
+     * Retira como {@link #retirar}, pero sin esperar a que el observador de la cuenta confirme el
+     * movimiento: quien llama debe invocar después su {@code confirmarMovimientos()} antes de darlo por hecho.
+     *
+     * @param cuenta   La cuenta en la que realizar el retiro.
+     * @param centimos La cantidad a retirar en céntimos.
+     * @return El nuevo saldo en céntimos, o {@link CuentaBancaria#OPERACION_RECHAZADA} si el retiro no se realizó.
+     */
+    public static long retirarSinConfirmar(CuentaBancaria cuenta, long centimos) {
+        long inicio = Metricas.iniciar();
+        long nuevoSaldo = operar(cuenta, TipoMovimiento.RETIRO, centimos, false);
+        Metricas.registrar(OperacionMedida.RETIRO, inicio, nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA);
+        return nuevoSaldo;
+    }
+
+    /**
+     * Ingresa una cantidad en céntimos en la cuenta, sin mostrar mensajes.
+     *
+     * @param cuenta   La cuenta en la que realizar el ingreso.
+     * @param centimos La cantidad a ingresar en céntimos.
+     * @return El nuevo saldo en céntimos, o {@link CuentaBancaria#OPERACION_RECHAZADA} si el ingreso no se realizó.
+     */
+    public static long ingresar(CuentaBancaria cuenta, long centimos) {
+        long inicio = Metricas.iniciar();
+        long nuevoSaldo = operar(cuenta, TipoMovimiento.INGRESO, centimos, true);
+        Metricas.registrar(OperacionMedida.INGRESO, inicio, nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA);
+        return nuevoSaldo;
+    }
+
+    /**
+     * Ingresa como {@link #ingresar}, pero sin esperar a que el observador de la cuenta confirme el
+     * movimiento: quien llama debe invocar después su {@code confirmarMovimientos()} antes de darlo por hecho.
+     *
+     * @param cuenta   La cuenta en la que realizar el ingreso.
+     * @param centimos La cantidad a ingresar en céntimos.
+     * @return El nuevo saldo en céntimos, o {@link CuentaBancaria#OPERACION_RECHAZADA} si el ingreso no se realizó.
+     */
+    public static long ingresarSinConfirmar(CuentaBancaria cuenta, long centimos) {
+        long inicio = Metricas.iniciar();
+        long nuevoSaldo = operar(cuenta, TipoMovimiento.INGRESO, centimos, false);
+        Metricas.registrar(OperacionMedida.INGRESO, inicio, nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA);
+        return nuevoSaldo;
+    }
+
+    /**
+     * Aplica un ingreso o un retiro y avisa al observador de la cuenta si registra movimientos.
+     * Sin observador que registre movimientos, la operación es un único compare-and-set sin bloqueos.
+     */
+    private static long operar(CuentaBancaria cuenta, TipoMovimiento tipo, long centimos, boolean confirmar) {
+        ObservadorCuenta observador = cuenta.getObservador();
+        if (observador == null || !observador.registraMovimientos()) {
+            return aplicar(cuenta, tipo, centimos);
+        }
+        long nuevoSaldo;
+        synchronized (cuenta) {
+            nuevoSaldo = aplicarYAvisar(cuenta, tipo, centimos, observador);
+        }
+        if (confirmar && nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA) {
+            observador.confirmarMovimientos();
+        }
+        return nuevoSaldo;
+    }
+
+    private static long aplicar(CuentaBancaria cuenta, TipoMovimiento tipo, long centimos) {
+        return tipo == TipoMovimiento.INGRESO ? cuenta.ingresarCentimos(centimos) : cuenta.retirarCentimos(centimos);
+    }
+
+    /**
+     * Aplica un ingreso o un retiro y avisa al observador. Debe invocarse con el monitor de la cuenta adquirido.
+     */
+    private static long aplicarYAvisar(CuentaBancaria cuenta, TipoMovimiento tipo, long centimos,
+                                       ObservadorCuenta observador) {
+        long nuevoSaldo = aplicar(cuenta, tipo, centimos);
+        if (nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA && observador != null) {
+            observador.movimientoRealizado(cuenta, tipo, centimos, nuevoSaldo);
+        }
+        return nuevoSaldo;
+    }
+
+    /**
+     * Aplica un lote de ingresos y retiros sobre las cuentas de un banco.
+     *
+     * <p>Las operaciones se agrupan por IBAN, sin distinguir mayúsculas de minúsculas igual que el banco:
+     * cada cuenta se busca una sola vez y sus operaciones se aplican seguidas, en el orden del lote, con el
+     * monitor de la cuenta adquirido una sola vez (lo que además excluye transferencias y cierres
+     * simultáneos sobre esa cuenta). Una operación rechazada, por ejemplo por saldo insuficiente, se anota
+     * en su posición y el resto del lote continúa. Si el observador de la cuenta falla al registrar una
+     * operación, esa operación se anota como {@link ResultadoOperacion#ERROR_INTERNO}; si falla al
+     * confirmar los movimientos del lote, todas las operaciones correctas pasan a serlo.</p>
+     *
+     * @param banco Banco que contiene las cuentas.
+     * @param lote  Lote de operaciones a aplicar.
+     * @return Resultado de cada operación, en la misma posición que en el lote.
+     */
+    public static ResultadoLote aplicarLote(Banco banco, LoteOperaciones lote) {
+        int tamano = lote.getTamano();
+        ResultadoLote resultado = new ResultadoLote(tamano);
+
+        // Encadena las posiciones de cada IBAN: grupos guarda {primera, última} y siguiente el enlace. El
+        // lote guarda los IBAN en mayúsculas, así que una misma cuenta escrita de dos formas es un solo grupo
+        int[] siguiente = new int[tamano];
+        Map<String, int[]> grupos = new HashMap<>();
+        for (int i = 0; i < tamano; i++) {
+            siguiente[i] = -1;
+            String iban = lote.getIban(i);
+            int[] grupo = grupos.get(iban);
+            if (grupo == null) {
+                grupos.put(iban, new int[]{i, i});
+            } else {
+                siguiente[grupo[1]] = i;
+                grupo[1] = i;
+            }
+        }
+
+        // Casi siempre todas las cuentas del banco comparten el mismo observador
+        List<ObservadorCuenta> porConfirmar = new ArrayList<>(1);
+        for (Map.Entry<String, int[]> grupo : grupos.entrySet()) {
+            CuentaBancaria cuenta = banco.buscarCuentaPorIBAN(grupo.getKey());
+            int primera = grupo.getValue()[0];
+            if (cuenta == null) {
+                for (int i = primera; i != -1; i = siguiente[i]) {
+                    resultado.registrar(i, ResultadoOperacion.CUENTA_INEXISTENTE);
+                }
+                continue;
+            }
+            ObservadorCuenta observador = cuenta.getObservador();
+            synchronized (cuenta) {
+                for (int i = primera; i != -1; i = siguiente[i]) {
+                    resultado.registrar(i, aplicarDelLote(cuenta, lote, i, observador));
+                }
+            }
+            if (observador != null && !porConfirmar.contains(observador)) {
+                porConfirmar.add(observador);
+            }
+        }
+        // Se confirma una sola vez por observador, al terminar el lote, y no por operación
+        boolean confirmado = true;
+        for (ObservadorCuenta observador : porConfirmar) {
+            try {
+                observador.confirmarMovimientos();
+            } catch (RuntimeException e) {
+                confirmado = false;
+            }
+        }
+        if (!confirmado) {
+            resultado.anularCorrectas();
+        }
+        return resultado;
+    }
+
+    /**
+     * Aplica una operación del lote. Debe invocarse con el monitor de la cuenta adquirido.
+     *
+     * @return Resultado de la operación.
+     */
+    private static ResultadoOperacion aplicarDelLote(CuentaBancaria cuenta, LoteOperaciones lote, int posicion,
+                                                     ObservadorCuenta observador) {
+        long cantidad = lote.getCantidad(posicion);
+        try {
+            if (lote.getTipo(posicion) == LoteOperaciones.INGRESO) {
+                long nuevoSaldo = aplicarYAvisar(cuenta, TipoMovimiento.INGRESO, cantidad, observador);
+                return resultadoIngreso(cuenta, cantidad, nuevoSaldo);
+            }
+            long nuevoSaldo = aplicarYAvisar(cuenta, TipoMovimiento.RETIRO, cantidad, observador);
+            return resultadoRetiro(cuenta, cantidad, nuevoSaldo);
+        } catch (RuntimeException e) {
+            // Por ejemplo, un observador que no puede registrar el movimiento: el resto del lote sigue
+            return ResultadoOperacion.ERROR_INTERNO;
+        }
+    }
+
+    /**
+     * Interpreta el valor devuelto por un ingreso.
+     *
+     * @param cuenta     Cuenta en la que se intentó el ingreso.
+     * @param centimos   Cantidad del ingreso en céntimos.
+     * @param nuevoSaldo Valor devuelto por {@link #ingresar}.
+     * @return Resultado del ingreso.
+     */
+    public static ResultadoOperacion resultadoIngreso(CuentaBancaria cuenta, long centimos, long nuevoSaldo) {
+        if (nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA) {
+            return ResultadoOperacion.CORRECTA;
+        }
+        if (centimos <= 0) {
+            return ResultadoOperacion.CANTIDAD_INVALIDA;
+        }
+        // Un ingreso positivo en una cuenta abierta solo se rechaza si el saldo se desbordaría
+        return cuenta.isCerrada() ? ResultadoOperacion.CUENTA_CERRADA : ResultadoOperacion.CANTIDAD_INVALIDA;
+    }
+
+    /**
+     * Interpreta el valor devuelto por un retiro.
+     *
+     * @param cuenta     Cuenta en la que se intentó el retiro.
+     * @param centimos   Cantidad del retiro en céntimos.
+     * @param nuevoSaldo Valor devuelto por {@link #retirar}.
+     * @return Resultado del retiro.
+     */
+    public static ResultadoOperacion resultadoRetiro(CuentaBancaria cuenta, long centimos, long nuevoSaldo) {
+        if (nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA) {
+            return ResultadoOperacion.CORRECTA;
+        }
+        if (centimos <= 0) {
+            return ResultadoOperacion.CANTIDAD_INVALIDA;
+        }
+        return cuenta.isCerrada() ? ResultadoOperacion.CUENTA_CERRADA : ResultadoOperacion.SALDO_INSUFICIENTE;
+    }
+
     private static String formatoMoneda(double cantidad) {
-        return FORMATO_MONEDA.format(cantidad);
+        return FORMATO_MONEDA.get().format(cantidad);
     }
 }
@@ -0,0 +1,134 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resumen de un cobro de comisiones de mantenimiento realizado con {@link CobroComisiones}:
+ * cuentas cobradas, cuentas que no pudieron pagar, rendimiento y latencia de cada tramo.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class ResultadoCobro {
+
+    private final long periodo;
+    private final long cobradas;
+    private final long omitidas;
+    private final long importeCentimos;
+    private final List<String> impagadas;
+    private final long duracionNanos;
+    private final long[] latenciasTramo;
+
+    /**
+     * Constructor para inicializar el resumen de un cobro.
+     *
+     * @param periodo         Identificador del periodo cobrado.
+     * @param cobradas        Número de cuentas a las que se cargó la comisión.
+     * @param omitidas        Número de cuentas ya cobradas en el periodo, cerradas o sin comisión.
+     * @param importeCentimos Importe total cobrado en céntimos.
+     * @param impagadas       IBAN de las cuentas sin saldo suficiente para pagar la comisión.
+     * @param duracionNanos   Duración total del cobro en nanosegundos.
+     * @param latenciasTramo  Duración de cada tramo en nanosegundos.
+     */
+    ResultadoCobro(long periodo, long cobradas, long omitidas, long importeCentimos, List<String> impagadas,
+                   long duracionNanos, long[] latenciasTramo) {
+        this.periodo = periodo;
+        this.cobradas = cobradas;
+        this.omitidas = omitidas;
+        this.importeCentimos = importeCentimos;
+        this.impagadas = Collections.unmodifiableList(impagadas);
+        this.duracionNanos = duracionNanos;
+        this.latenciasTramo = latenciasTramo.clone();
+        Arrays.sort(this.latenciasTramo);
+    }
+
+    /**
+     * Obtiene el identificador del periodo cobrado.
+     *
+     * @return Identificador del periodo.
+     */
+    public long getPeriodo() {
+        return periodo;
+    }
+
+    /**
+     * Obtiene el número de cuentas a las que se cargó la comisión en esta ejecución.
+     *
+     * @return Número de cuentas cobradas.
+     */
+    public long getCobradas() {
+        return cobradas;
+    }
+
+    /**
+     * Obtiene el número de cuentas omitidas por estar ya cobradas en el periodo, cerradas o sin comisión.
+     *
+     * @return Número de cuentas omitidas.
+     */
+    public long getOmitidas() {
+        return omitidas;
+    }
+
+    /**
+     * Obtiene el importe total cobrado en esta ejecución.
+     *
+     * @return Importe total en céntimos.
+     */
+    public long getImporteCentimos() {
+        return importeCentimos;
+    }
+
+    /**
+     * Obtiene los IBAN de las cuentas que no tenían saldo suficiente para pagar la comisión.
+     * Estas cuentas no quedan marcadas como cobradas y se vuelven a intentar en la siguiente ejecución
+     * del mismo periodo.
+     *
+     * @return Lista no modificable de IBAN.
+     */
+    public List<String> getImpagadas() {
+        return impagadas;
+    }
+
+    /**
+     * Obtiene la duración total del cobro.
+     *
+     * @return Duración en nanosegundos.
+     */
+    public long getDuracionNanos() {
+        return duracionNanos;
+    }
+
+    /**
+     * Obtiene el número de cuentas procesadas por segundo (cobradas, impagadas y omitidas).
+     *
+     * @return Cuentas procesadas por segundo.
+     */
+    public double getCuentasPorSegundo() {
+        long procesadas = cobradas + omitidas + impagadas.size();
+        return duracionNanos > 0 ? procesadas * 1e9 / duracionNanos : 0;
+    }
+
+    /**
+     * Obtiene el número de tramos en que se dividió el cobro.
+     *
+     * @return Número de tramos.
+     */
+    public int getNumTramos() {
+        return latenciasTramo.length;
+    }
+
+    /**
+     * Obtiene un percentil de la duración de los tramos.
+     *
+     * @param percentil Percentil entre 0 y 100.
+     * @return Duración del tramo en ese percentil en nanosegundos, o 0 si no hubo tramos.
+     */
+    public long getLatenciaTramo(double percentil) {
+        if (latenciasTramo.length == 0) {
+            return 0;
+        }
+        int posicion = (int) Math.ceil(percentil / 100 * latenciasTramo.length) - 1;
+        return latenciasTramo[Math.max(0, Math.min(posicion, latenciasTramo.length - 1))];
+    }
+}
@@ -0,0 +1,66 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+/**
+ * Resumen de una liquidación de intereses realizada con {@link LiquidadorIntereses} o de intereses
+ * de descubierto realizada con {@link LiquidadorDescubiertos}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class ResultadoLiquidacion {
+
+    private final long periodo;
+    private final long liquidadas;
+    private final long omitidas;
+    private final long importeCentimos;
+
+    /**
+     * Constructor para inicializar el resumen de una liquidación.
+     *
+     * @param periodo         Identificador del periodo liquidado.
+     * @param liquidadas      Número de cuentas liquidadas en esta ejecución.
+     * @param omitidas        Número de cuentas que ya estaban liquidadas o cerradas.
+     * @param importeCentimos Importe total abonado o cargado en céntimos.
+     */
+    ResultadoLiquidacion(long periodo, long liquidadas, long omitidas, long importeCentimos) {
+        this.periodo = periodo;
+        this.liquidadas = liquidadas;
+        this.omitidas = omitidas;
+        this.importeCentimos = importeCentimos;
+    }
+
+    /**
+     * Obtiene el identificador del periodo liquidado.
+     *
+     * @return Identificador del periodo.
+     */
+    public long getPeriodo() {
+        return periodo;
+    }
+
+    /**
+     * Obtiene el número de cuentas liquidadas en esta ejecución, incluidas las que no generaron intereses.
+     *
+     * @return Número de cuentas liquidadas.
+     */
+    public long getLiquidadas() {
+        return liquidadas;
+    }
+
+    /**
+     * Obtiene el número de cuentas que no se liquidaron por estar ya liquidadas en el periodo o cerradas.
+     *
+     * @return Número de cuentas omitidas.
+     */
+    public long getOmitidas() {
+        return omitidas;
+    }
+
+    /**
+     * Obtiene el importe total de intereses abonados (o cargados, en los descubiertos) en esta ejecución.
+     *
+     * @return Importe total en céntimos.
+     */
+    public long getImporteCentimos() {
+        return importeCentimos;
+    }
+}
@@ -0,0 +1,78 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+/**
+ * Resultados de aplicar un {@link LoteOperaciones}: un código de un byte por operación,
+ * en la misma posición que la operación en el lote.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class ResultadoLote {
+
+    private final byte[] codigos;
+    private int rechazadas;
+
+    /**
+     * Constructor para inicializar los resultados de un lote.
+     *
+     * @param tamano Número de operaciones del lote.
+     */
+    ResultadoLote(int tamano) {
+        this.codigos = new byte[tamano];
+    }
+
+    void registrar(int posicion, ResultadoOperacion resultado) {
+        codigos[posicion] = resultado.getCodigo();
+        if (resultado != ResultadoOperacion.CORRECTA) {
+            rechazadas++;
+        }
+    }
+
+    /**
+     * Convierte en errores internos las operaciones correctas, cuando no se ha podido confirmar su registro.
+     */
+    void anularCorrectas() {
+        for (int i = 0; i < codigos.length; i++) {
+            if (codigos[i] == ResultadoOperacion.CORRECTA.getCodigo()) {
+                codigos[i] = ResultadoOperacion.ERROR_INTERNO.getCodigo();
+                rechazadas++;
+            }
+        }
+    }
+
+    /**
+     * Obtiene el resultado de una operación del lote.
+     *
+     * @param posicion Posición de la operación en el lote.
+     * @return Resultado de la operación.
+     */
+    public ResultadoOperacion getResultado(int posicion) {
+        return ResultadoOperacion.desdeCodigo(codigos[posicion]);
+    }
+
+    /**
+     * Obtiene el número de operaciones del lote.
+     *
+     * @return Número de operaciones.
+     */
+    public int getTamano() {
+        return codigos.length;
+    }
+
+    /**
+     * Obtiene el número de operaciones que no se pudieron realizar.
+     *
+     * @return Número de operaciones rechazadas.
+     */
+    public int getRechazadas() {
+        return rechazadas;
+    }
+
+    /**
+     * Obtiene una copia del vector de códigos de resultado (ver {@link ResultadoOperacion#getCodigo()}).
+     *
+     * @return Códigos de resultado, uno por operación.
+     */
+    public byte[] getCodigos() {
+        return codigos.clone();
+    }
+}
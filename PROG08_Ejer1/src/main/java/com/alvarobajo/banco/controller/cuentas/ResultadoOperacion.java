@@ -0,0 +1,44 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+/**
+ * Resultado de una operación sobre el saldo de una cuenta bancaria.
+ * Cada valor tiene un código de un byte para poder guardar muchos resultados de forma compacta.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public enum ResultadoOperacion {
+
+    /** La operación se realizó correctamente. */
+    CORRECTA,
+    /** No existe ninguna cuenta con el IBAN indicado. */
+    CUENTA_INEXISTENTE,
+    /** La cuenta está cerrada y no admite operaciones. */
+    CUENTA_CERRADA,
+    /** La cantidad indicada no es válida (debe ser positiva). */
+    CANTIDAD_INVALIDA,
+    /** La cuenta no tiene saldo suficiente para el retiro. */
+    SALDO_INSUFICIENTE,
+    /** La operación falló por un error interno, por ejemplo al escribir el diario; puede haberse aplicado o no. */
+    ERROR_INTERNO;
+
+    private static final ResultadoOperacion[] VALORES = values();
+
+    /**
+     * Obtiene el código de un byte del resultado.
+     *
+     * @return Código del resultado.
+     */
+    public byte getCodigo() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Obtiene el resultado correspondiente a un código.
+     *
+     * @param codigo Código del resultado.
+     * @return Resultado con ese código.
+     */
+    public static ResultadoOperacion desdeCodigo(byte codigo) {
+        return VALORES[codigo];
+    }
+}
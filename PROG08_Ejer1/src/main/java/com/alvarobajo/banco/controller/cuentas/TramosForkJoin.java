@@ -0,0 +1,90 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import java.io.Serial;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reparte el recorrido de un vector en tramos consecutivos que se procesan en paralelo con fork-join.
+ * Lo usan los procesos periódicos que recorren todas las cuentas del banco.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+final class TramosForkJoin {
+
+    /**
+     * Acción que procesa las posiciones {@code [desde, hasta)} de un tramo.
+     */
+    @FunctionalInterface
+    interface Tramo {
+        void procesar(int desde, int hasta);
+    }
+
+    private TramosForkJoin() {
+    }
+
+    /**
+     * Procesa en paralelo las posiciones {@code [0, total)} en tramos de como mucho el tamaño indicado.
+     * Los tramos empiezan siempre en múltiplos del tamaño, igual que en {@link #secuencial}.
+     *
+     * @param total  Número de posiciones.
+     * @param tamano Tamaño máximo de cada tramo.
+     * @param tramo  Acción a aplicar a cada tramo.
+     * @param pool   Pool de fork-join en el que ejecutar los tramos.
+     */
+    static void paralelo(int total, int tamano, Tramo tramo, ForkJoinPool pool) {
+        int numTramos = (total + tamano - 1) / tamano;
+        if (numTramos > 0) {
+            pool.invoke(new Tarea(0, numTramos, total, tamano, tramo));
+        }
+    }
+
+    /**
+     * Procesa en el hilo actual las posiciones {@code [0, total)} en tramos de como mucho el tamaño indicado.
+     *
+     * @param total  Número de posiciones.
+     * @param tamano Tamaño máximo de cada tramo.
+     * @param tramo  Acción a aplicar a cada tramo.
+     */
+    static void secuencial(int total, int tamano, Tramo tramo) {
+        for (int desde = 0; desde < total; desde += tamano) {
+            tramo.procesar(desde, Math.min(desde + tamano, total));
+        }
+    }
+
+    /**
+     * Divide por la mitad el rango de tramos hasta quedarse con uno solo.
+     */
+    private static final class Tarea extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int primerTramo;
+        private final int finTramos;
+        private final int total;
+        private final int tamano;
+        // Las tareas no se serializan nunca; la acción solo vive mientras se ejecuta el pool
+        private final transient Tramo tramo;
+
+        Tarea(int primerTramo, int finTramos, int total, int tamano, Tramo tramo) {
+            this.primerTramo = primerTramo;
+            this.finTramos = finTramos;
+            this.total = total;
+            this.tamano = tamano;
+            this.tramo = tramo;
+        }
+
+        @Override
+        protected void compute() {
+            if (finTramos - primerTramo == 1) {
+                int desde = primerTramo * tamano;
+                tramo.procesar(desde, Math.min(desde + tamano, total));
+                return;
+            }
+            int mitad = (primerTramo + finTramos) >>> 1;
+            invokeAll(new Tarea(primerTramo, mitad, total, tamano, tramo),
+                    new Tarea(mitad, finTramos, total, tamano, tramo));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.alvarobajo.banco.metricas;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Contadores de ejecuciones y de rechazos de cada operación, uno por hilo.
+ *
+ * <p>Cada hilo escribe solo en sus propios contadores, sin instrucciones atómicas: una suma atómica
+ * cuesta bastante más que un ingreso sin bloqueos. La lectura recorre los contadores de todos los
+ * hilos. Los de los hilos que ya han terminado se acumulan aparte y se dejan de recorrer, para que
+ * crear muchos hilos (por ejemplo, un hilo virtual por petición) no haga crecer el registro sin
+ * límite.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+final class ContadoresHilos {
+
+    private static final VarHandle ELEMENTOS = MethodHandles.arrayElementVarHandle(long[].class);
+    // Cada cuántos hilos nuevos se buscan hilos terminados en el registro
+    private static final int PERIODO_LIMPIEZA = 1024;
+
+    private final int numContadores;
+    private final ThreadLocal<long[]> propios;
+    private final Queue<ContadoresHilo> registro = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger registrados = new AtomicInteger();
+    private final long[] terminados;
+
+    /**
+     * Contadores de un hilo. Solo guarda una referencia débil al hilo para no impedir que se libere.
+     */
+    private static final class ContadoresHilo {
+
+        private final WeakReference<Thread> hilo;
+        private final long[] contadores;
+
+        ContadoresHilo(Thread hilo, long[] contadores) {
+            this.hilo = new WeakReference<>(hilo);
+            this.contadores = contadores;
+        }
+
+        boolean isTerminado() {
+            Thread propietario = hilo.get();
+            return propietario == null || !propietario.isAlive();
+        }
+    }
+
+    /**
+     * Crea los contadores.
+     *
+     * @param numContadores Número de contadores de cada hilo.
+     */
+    ContadoresHilos(int numContadores) {
+        this.numContadores = numContadores;
+        this.terminados = new long[numContadores];
+        this.propios = ThreadLocal.withInitial(this::registrarHilo);
+    }
+
+    /**
+     * Suma uno a un contador del hilo actual.
+     *
+     * @param contador Posición del contador.
+     */
+    void incrementar(int contador) {
+        long[] contadores = propios.get();
+        // Solo escribe este hilo; la escritura opaca basta para que los lectores vean valores completos
+        ELEMENTOS.setOpaque(contadores, contador, contadores[contador] + 1);
+    }
+
+    /**
+     * Suma los contadores de todos los hilos.
+     *
+     * @return Vector con la suma de cada contador.
+     */
+    long[] sumar() {
+        synchronized (terminados) {
+            limpiar();
+            long[] suma = terminados.clone();
+            for (ContadoresHilo contadoresHilo : registro) {
+                for (int i = 0; i < numContadores; i++) {
+                    suma[i] += (long) ELEMENTOS.getOpaque(contadoresHilo.contadores, i);
+                }
+            }
+            return suma;
+        }
+    }
+
+    private long[] registrarHilo() {
+        long[] contadores = new long[numContadores];
+        registro.add(new ContadoresHilo(Thread.currentThread(), contadores));
+        if (registrados.incrementAndGet() % PERIODO_LIMPIEZA == 0) {
+            synchronized (terminados) {
+                limpiar();
+            }
+        }
+        return contadores;
+    }
+
+    /**
+     * Pasa a {@link #terminados} los contadores de los hilos que ya no existen. Debe invocarse con el
+     * monitor de {@link #terminados} adquirido.
+     */
+    private void limpiar() {
+        Iterator<ContadoresHilo> iterador = registro.iterator();
+        while (iterador.hasNext()) {
+            ContadoresHilo contadoresHilo = iterador.next();
+            // Un hilo terminado ya no puede escribir, así que sus contadores son definitivos
+            if (contadoresHilo.isTerminado()) {
+                for (int i = 0; i < numContadores; i++) {
+                    terminados[i] += (long) ELEMENTOS.getOpaque(contadoresHilo.contadores, i);
+                }
+                iterador.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.alvarobajo.banco.metricas;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Histograma de latencias de una operación, con cubetas logarítmico-lineales al estilo de
+ * HdrHistogram: cada potencia de dos se divide en 32 cubetas iguales, lo que da un error relativo de
+ * como mucho un 3 % en cualquier valor entre 1 ns y unos 18 minutos.
+ *
+ * <p>Para que los hilos no compitan por las mismas posiciones de memoria, los datos se reparten en
+ * varias franjas y cada hilo escribe siempre en la misma, elegida a partir de su identificador. Las
+ * escrituras son sumas atómicas sin bloqueos; la lectura suma todas las franjas. Como solo se anota
+ * una muestra de las ejecuciones, el coste de la suma atómica apenas cuenta por operación.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+final class HistogramaLatencias {
+
+    private static final VarHandle ELEMENTOS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int BITS_SUBCUBETA = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    // Las latencias mayores de 2^40 ns se cuentan en la última cubeta
+    private static final long LATENCIA_MAXIMA = (1L << 40) - 1;
+    static final int NUM_CUBETAS = indice(LATENCIA_MAXIMA) + 1;
+
+    // La suma de las latencias va al principio de cada franja y las cubetas, a continuación
+    static final int SUMA_NANOS = 0;
+    static final int PRIMERA_CUBETA = 1;
+
+    private static final int NUM_FRANJAS = Integer.highestOneBit(
+            Math.max(1, Runtime.getRuntime().availableProcessors()) * 4 - 1) << 1;
+
+    private final long[][] franjas = new long[NUM_FRANJAS][PRIMERA_CUBETA + NUM_CUBETAS];
+
+    /**
+     * Anota una latencia.
+     *
+     * @param nanos Latencia en nanosegundos, no negativa.
+     */
+    void registrar(long nanos) {
+        long[] franja = franjas[franjaDelHilo()];
+        ELEMENTOS.getAndAdd(franja, SUMA_NANOS, nanos);
+        ELEMENTOS.getAndAdd(franja, PRIMERA_CUBETA + indice(Math.min(nanos, LATENCIA_MAXIMA)), 1L);
+    }
+
+    /**
+     * Suma las cubetas de todas las franjas.
+     *
+     * @return Vector con la suma de las latencias en la posición {@link #SUMA_NANOS} y las cubetas a
+     * partir de {@link #PRIMERA_CUBETA}.
+     */
+    long[] sumar() {
+        long[] suma = new long[PRIMERA_CUBETA + NUM_CUBETAS];
+        for (long[] franja : franjas) {
+            for (int i = 0; i < suma.length; i++) {
+                suma[i] += (long) ELEMENTOS.getOpaque(franja, i);
+            }
+        }
+        return suma;
+    }
+
+    /**
+     * Calcula la cubeta en la que se cuenta una latencia.
+     *
+     * @param nanos Latencia en nanosegundos, entre 0 y {@link #LATENCIA_MAXIMA}.
+     * @return Índice de la cubeta.
+     */
+    static int indice(long nanos) {
+        if (nanos < 2 * SUBCUBETAS) {
+            return (int) nanos;
+        }
+        // Desplazamiento que deja los seis bits más altos: la mantisa queda entre 32 y 63
+        int desplazamiento = 63 - Long.numberOfLeadingZeros(nanos) - BITS_SUBCUBETA;
+        return SUBCUBETAS * desplazamiento + (int) (nanos >>> desplazamiento);
+    }
+
+    /**
+     * Devuelve la mayor latencia que se cuenta en una cubeta.
+     *
+     * @param indice Índice de la cubeta.
+     * @return Latencia máxima de la cubeta en nanosegundos.
+     */
+    static long maximoCubeta(int indice) {
+        if (indice < 2 * SUBCUBETAS) {
+            return indice;
+        }
+        int desplazamiento = indice / SUBCUBETAS - 1;
+        long mantisa = indice - (long) SUBCUBETAS * desplazamiento;
+        return ((mantisa + 1) << desplazamiento) - 1;
+    }
+
+    private static int franjaDelHilo() {
+        // El producto por la razón áurea reparte identificadores consecutivos entre todas las franjas
+        long mezcla = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (mezcla >>> 32) & (NUM_FRANJAS - 1);
+    }
+}
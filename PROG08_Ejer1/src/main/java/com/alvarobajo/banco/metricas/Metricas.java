@@ -0,0 +1,155 @@
+package com.alvarobajo.banco.metricas;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contadores y latencias de las operaciones del banco.
+ *
+ * <p>Cada operación instrumentada llama a {@link #iniciar()} antes de empezar y a
+ * {@link #registrar(OperacionMedida, long, boolean)} al terminar. Todas las ejecuciones se cuentan,
+ * en contadores propios de cada hilo, pero la latencia solo se mide en una de cada {@value #MUESTREO},
+ * elegida al azar: leer el reloj dos veces cuesta bastante más que la propia operación en los
+ * ingresos y retiros sin bloqueos, y con miles de operaciones por segundo la muestra basta para
+ * calcular los percentiles. Con la
+ * propiedad del sistema {@code -Dbanco.metricas=false} la instrumentación desaparece por completo,
+ * porque el compilador elimina las llamadas.</p>
+ *
+ * <p>Los datos se leen con {@link #resumen()} o se vuelcan periódicamente como texto con
+ * {@link #programarVolcado(Appendable, long, TimeUnit)}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class Metricas {
+
+    /**
+     * Se mide la latencia de una de cada este número de ejecuciones.
+     */
+    public static final int MUESTREO = 64;
+
+    private static final boolean ACTIVAS = !"false".equalsIgnoreCase(System.getProperty("banco.metricas"));
+    private static final int MASCARA_MUESTREO = MUESTREO - 1;
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final HistogramaLatencias[] HISTOGRAMAS = new HistogramaLatencias[OperacionMedida.values().length];
+    // Dos contadores por operación: correctas en la posición 2 * ordinal y rechazadas en la siguiente
+    private static final ContadoresHilos CONTADORES = new ContadoresHilos(2 * HISTOGRAMAS.length);
+
+    static {
+        for (int i = 0; i < HISTOGRAMAS.length; i++) {
+            HISTOGRAMAS[i] = new HistogramaLatencias();
+        }
+    }
+
+    private static volatile ScheduledExecutorService programador;
+
+    private Metricas() {
+    }
+
+    /**
+     * Indica si las métricas están activas.
+     *
+     * @return true salvo que se hayan desactivado con {@code -Dbanco.metricas=false}.
+     */
+    public static boolean isActivas() {
+        return ACTIVAS;
+    }
+
+    /**
+     * Marca el inicio de una operación.
+     *
+     * @return El instante actual en nanosegundos si se va a medir esta ejecución, o 0 si no.
+     */
+    public static long iniciar() {
+        if (!ACTIVAS || (ThreadLocalRandom.current().nextInt() & MASCARA_MUESTREO) != 0) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Cuenta una ejecución de la operación y, si se ha medido, anota su latencia.
+     *
+     * @param operacion Operación ejecutada.
+     * @param inicio    Valor devuelto por {@link #iniciar()} al empezar la operación.
+     * @param correcta  true si la operación se realizó; false, si se rechazó.
+     */
+    public static void registrar(OperacionMedida operacion, long inicio, boolean correcta) {
+        if (!ACTIVAS) {
+            return;
+        }
+        CONTADORES.incrementar(2 * operacion.ordinal() + (correcta ? 0 : 1));
+        if (inicio != 0) {
+            HISTOGRAMAS[operacion.ordinal()].registrar(System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Obtiene los contadores y latencias acumulados hasta ahora de todas las operaciones.
+     *
+     * @return Resumen de las métricas.
+     */
+    public static ResumenMetricas resumen() {
+        Map<OperacionMedida, ResumenOperacion> operaciones = new EnumMap<>(OperacionMedida.class);
+        long[] contadores = CONTADORES.sumar();
+        for (OperacionMedida operacion : OperacionMedida.values()) {
+            int i = operacion.ordinal();
+            operaciones.put(operacion, new ResumenOperacion(operacion, contadores[2 * i], contadores[2 * i + 1],
+                    HISTOGRAMAS[i].sumar()));
+        }
+        return new ResumenMetricas(operaciones);
+    }
+
+    /**
+     * Programa el volcado periódico del resumen de las métricas, precedido de la fecha y la hora, en
+     * un hilo demonio. Si el destino es {@link Flushable}, se vacía después de cada volcado.
+     *
+     * <p>Si una escritura falla, el volcado deja de repetirse.</p>
+     *
+     * @param destino Destino del volcado, por ejemplo {@code System.err}.
+     * @param periodo Tiempo entre volcados.
+     * @param unidad  Unidad del periodo.
+     * @return Tarea programada, que se puede cancelar.
+     */
+    public static ScheduledFuture<?> programarVolcado(Appendable destino, long periodo, TimeUnit unidad) {
+        return obtenerProgramador().scheduleAtFixedRate(() -> volcar(destino), periodo, periodo, unidad);
+    }
+
+    private static void volcar(Appendable destino) {
+        try {
+            destino.append("--- Métricas ").append(LocalDateTime.now().format(FORMATO_HORA)).append(" ---")
+                    .append(System.lineSeparator());
+            resumen().appendTo(destino);
+            if (destino instanceof Flushable) {
+                ((Flushable) destino).flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ScheduledExecutorService obtenerProgramador() {
+        if (programador == null) {
+            synchronized (Metricas.class) {
+                if (programador == null) {
+                    programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                        Thread hilo = new Thread(tarea, "banco-metricas");
+                        hilo.setDaemon(true);
+                        return hilo;
+                    });
+                }
+            }
+        }
+        return programador;
+    }
+}
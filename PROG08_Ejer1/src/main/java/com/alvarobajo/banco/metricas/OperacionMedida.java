@@ -0,0 +1,37 @@
+package com.alvarobajo.banco.metricas;
+
+/**
+ * Operaciones del banco de las que se cuentan las ejecuciones y se mide la latencia.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public enum OperacionMedida {
+    /**
+     * Ingreso en una cuenta.
+     */
+    INGRESO,
+    /**
+     * Retiro de una cuenta.
+     */
+    RETIRO,
+    /**
+     * Transferencia entre dos cuentas.
+     */
+    TRANSFERENCIA,
+    /**
+     * Búsqueda de una cuenta por su IBAN.
+     */
+    BUSQUEDA_IBAN,
+    /**
+     * Búsqueda de cuentas por el DNI o el nombre del titular.
+     */
+    BUSQUEDA_TITULAR,
+    /**
+     * Apertura de una cuenta en el banco.
+     */
+    ALTA_CUENTA,
+    /**
+     * Eliminación de una cuenta del banco.
+     */
+    BAJA_CUENTA
+}
@@ -0,0 +1,61 @@
+package com.alvarobajo.banco.metricas;
+
+import com.alvarobajo.banco.models.Imprimible;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Contadores y latencias de todas las operaciones medidas en un momento dado, obtenidos con
+ * {@link Metricas#resumen()}.
+ *
+ * <p>Los datos se suman franja a franja mientras los hilos siguen operando, así que no son una foto
+ * exacta de un único instante, pero cada contador solo puede crecer entre un resumen y el siguiente.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class ResumenMetricas implements Imprimible {
+
+    private static final String CABECERA = "Operación\tTotal\tRechazadas\tMuestras\tMedia (µs)\tp50 (µs)"
+            + "\tp90 (µs)\tp99 (µs)\tp99,9 (µs)\tMáximo (µs)";
+
+    private final Map<OperacionMedida, ResumenOperacion> operaciones;
+
+    ResumenMetricas(Map<OperacionMedida, ResumenOperacion> operaciones) {
+        this.operaciones = new EnumMap<>(operaciones);
+    }
+
+    /**
+     * Obtiene el resumen de una operación.
+     *
+     * @param operacion Operación.
+     * @return Resumen de la operación.
+     */
+    public ResumenOperacion getOperacion(OperacionMedida operacion) {
+        return operaciones.get(operacion);
+    }
+
+    /**
+     * Escribe una tabla con una fila por operación, separada por tabuladores y con las latencias en
+     * microsegundos.
+     *
+     * @param destino Destino de la escritura.
+     * @throws IOException si no se puede escribir en el destino.
+     */
+    @Override
+    public void appendTo(Appendable destino) throws IOException {
+        destino.append(CABECERA).append(System.lineSeparator());
+        for (ResumenOperacion resumen : operaciones.values()) {
+            destino.append(resumen.getOperacion().name())
+                    .append('\t').append(Long.toString(resumen.getTotal()))
+                    .append('\t').append(Long.toString(resumen.getRechazadas()))
+                    .append('\t').append(Long.toString(resumen.getMuestras()))
+                    .append('\t').append(String.format("%.2f", resumen.getMediaNanos() / 1e3));
+            for (double percentil : new double[]{50, 90, 99, 99.9, 100}) {
+                destino.append('\t').append(String.format("%.2f", resumen.getPercentilNanos(percentil) / 1e3));
+            }
+            destino.append(System.lineSeparator());
+        }
+    }
+}
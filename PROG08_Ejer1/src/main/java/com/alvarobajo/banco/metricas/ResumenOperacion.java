@@ -0,0 +1,112 @@
+package com.alvarobajo.banco.metricas;
+
+/**
+ * Contadores y distribución de latencias de una operación en un momento dado.
+ *
+ * <p>Las latencias solo se miden en una muestra de las ejecuciones (véase {@link Metricas}), por lo
+ * que la media y los percentiles se calculan sobre {@link #getMuestras()} ejecuciones, mientras que
+ * {@link #getTotal()} y {@link #getRechazadas()} cuentan todas.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class ResumenOperacion {
+
+    private final OperacionMedida operacion;
+    private final long correctas;
+    private final long rechazadas;
+    private final long[] datos;
+    private final long muestras;
+
+    ResumenOperacion(OperacionMedida operacion, long correctas, long rechazadas, long[] datos) {
+        this.operacion = operacion;
+        this.correctas = correctas;
+        this.rechazadas = rechazadas;
+        this.datos = datos;
+        long suma = 0;
+        for (int i = HistogramaLatencias.PRIMERA_CUBETA; i < datos.length; i++) {
+            suma += datos[i];
+        }
+        this.muestras = suma;
+    }
+
+    /**
+     * Obtiene la operación resumida.
+     *
+     * @return Operación.
+     */
+    public OperacionMedida getOperacion() {
+        return operacion;
+    }
+
+    /**
+     * Obtiene el número de ejecuciones de la operación, realizadas o rechazadas.
+     *
+     * @return Número de ejecuciones.
+     */
+    public long getTotal() {
+        return correctas + rechazadas;
+    }
+
+    /**
+     * Obtiene el número de ejecuciones rechazadas (saldo insuficiente, cuenta inexistente, etc.).
+     *
+     * @return Número de ejecuciones rechazadas.
+     */
+    public long getRechazadas() {
+        return rechazadas;
+    }
+
+    /**
+     * Obtiene el número de ejecuciones cuya latencia se ha medido.
+     *
+     * @return Número de muestras.
+     */
+    public long getMuestras() {
+        return muestras;
+    }
+
+    /**
+     * Obtiene la latencia media de las muestras.
+     *
+     * @return Latencia media en nanosegundos, o 0 si no hay muestras.
+     */
+    public double getMediaNanos() {
+        return muestras == 0 ? 0 : (double) datos[HistogramaLatencias.SUMA_NANOS] / muestras;
+    }
+
+    /**
+     * Obtiene un percentil de la latencia de las muestras, con un error relativo de como mucho un 3 %
+     * por exceso.
+     *
+     * @param percentil Percentil entre 0 y 100 (por ejemplo, 99.9).
+     * @return Latencia en nanosegundos por debajo de la cual queda el percentil indicado de las
+     * muestras, o 0 si no hay muestras.
+     * @throws IllegalArgumentException si el percentil no está entre 0 y 100.
+     */
+    public long getPercentilNanos(double percentil) {
+        if (!(percentil >= 0 && percentil <= 100)) {
+            throw new IllegalArgumentException("El percentil debe estar entre 0 y 100: " + percentil);
+        }
+        if (muestras == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(percentil / 100 * muestras));
+        long acumuladas = 0;
+        for (int i = HistogramaLatencias.PRIMERA_CUBETA; i < datos.length; i++) {
+            acumuladas += datos[i];
+            if (acumuladas >= objetivo) {
+                return HistogramaLatencias.maximoCubeta(i - HistogramaLatencias.PRIMERA_CUBETA);
+            }
+        }
+        return HistogramaLatencias.maximoCubeta(HistogramaLatencias.NUM_CUBETAS - 1);
+    }
+
+    /**
+     * Obtiene la latencia máxima de las muestras, con el mismo error que los percentiles.
+     *
+     * @return Latencia máxima en nanosegundos, o 0 si no hay muestras.
+     */
+    public long getMaximoNanos() {
+        return getPercentilNanos(100);
+    }
+}
@@ -1,5 +1,7 @@
 package com.alvarobajo.banco.models;
 
+import java.io.IOException;
+
 /**
  * Clase que representa una cuenta de ahorro en el sistema bancario.
  * Esta clase extiende la funcionalidad de la clase abstracta CuentaBancaria,
@@ -45,20 +47,21 @@ public class CuentaAhorro extends CuentaBancaria {
     }
 
     /**
-     * Devuelve la información detallada de la cuenta de ahorro en formato de cadena.
+     * Escribe la información detallada de la cuenta de ahorro en el destino indicado.
      *
-     * @return Información detallada de la cuenta de ahorro en formato de cadena.
+     * @param destino Destino de la escritura.
+     * @throws IOException si no se puede escribir en el destino.
      */
     @Override
-    public String devolverInfoString() {
-        return String.format("Cuenta de Ahorro:\n" +
-                        "Titular: %s\n" +
-                        "Saldo: %.2f\n" +
-                        "IBAN: %s\n" +
-                        "Tasa de Interés: %.2f%%",
-                getTitular().devolverInfoString(),
-                getSaldo(),
-                getIban(),
-                tipoInteres);
+    public void appendTo(Appendable destino) throws IOException {
+        destino.append("Cuenta de Ahorro:\n");
+        destino.append("Titular: ");
+        getTitular().appendTo(destino);
+        destino.append("\nSaldo: ");
+        FormatoNumeros.anadirCentimos(destino, getSaldoCentimos());
+        destino.append("\nIBAN: ").append(getIban());
+        destino.append("\nTasa de Interés: ");
+        FormatoNumeros.anadirDosDecimales(destino, tipoInteres);
+        destino.append('%');
     }
 }
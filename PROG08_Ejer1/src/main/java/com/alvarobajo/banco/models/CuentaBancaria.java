@@ -1,19 +1,49 @@
 package com.alvarobajo.banco.models;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /**
  * Clase abstracta que representa una cuenta bancaria genérica.
  * Implementa la interfaz Imprimible para proporcionar una representación de cadena.
  * Las clases concretas deben extender esta clase para crear tipos específicos de cuentas bancarias.
  *
+ * <p>El saldo se guarda en céntimos como un {@code long}, para evitar los errores de redondeo de
+ * {@code double}, y los ingresos y retiros lo actualizan con operaciones compare-and-set sin bloqueos
+ * ni reservas de memoria. Una cuenta cerrada guarda un valor especial en el saldo, de forma que el
+ * cierre y cualquier operación simultánea sobre el saldo se excluyen de manera atómica. El saldo solo
+ * puede ser negativo en las cuentas que admiten descubierto, hasta el límite que fija cada subclase.
+ * Después de cada cambio del saldo se avisa al observador con {@link ObservadorCuenta#saldoCambiado}.</p>
+ *
  * @author Álvaro Bajo Tabero
  * @version 1.0
  * @since 2024-03-02
  */
 public abstract class CuentaBancaria implements Imprimible {
 
+    /**
+     * Valor devuelto por las operaciones sobre el saldo cuando la operación no se ha realizado.
+     */
+    public static final long OPERACION_RECHAZADA = Long.MIN_VALUE;
+
+    private static final long SALDO_CERRADA = Long.MIN_VALUE;
+    private static final VarHandle SALDO_CENTIMOS;
+
+    static {
+        try {
+            SALDO_CENTIMOS = MethodHandles.lookup().findVarHandle(CuentaBancaria.class, "saldoCentimos", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private Persona titular;
-    private double saldo;
+    private volatile long saldoCentimos;
     private String iban;
+    // Se lee sin el monitor en cada operación: el banco lo asigna antes de publicar la cuenta
+    private volatile ObservadorCuenta observador;
+    private volatile long ultimaLiquidacion;
 
     /**
      * Constructor para inicializar una instancia de CuentaBancaria.
@@ -24,7 +54,7 @@ public abstract class CuentaBancaria implements Imprimible {
      */
     public CuentaBancaria(Persona titular, double saldo, String iban) {
         this.titular = titular;
-        this.saldo = saldo;
+        this.saldoCentimos = aCentimos(saldo);
         this.iban = iban;
     }
 
@@ -45,7 +75,11 @@ public abstract class CuentaBancaria implements Imprimible {
      * @param titular Nuevo titular de la cuenta.
      */
     public void setTitular(Persona titular) {
+        Persona anterior = this.titular;
         this.titular = titular;
+        if (observador != null && anterior != titular) {
+            observador.titularCambiado(this, anterior);
+        }
     }
 
     /**
@@ -54,7 +88,7 @@ public abstract class CuentaBancaria implements Imprimible {
      * @return Saldo actual de la cuenta.
      */
     public double getSaldo() {
-        return saldo;
+        return getSaldoCentimos() / 100.0;
     }
 
     /**
@@ -63,7 +97,141 @@ public abstract class CuentaBancaria implements Imprimible {
      * @param saldo Nuevo saldo de la cuenta.
      */
     public void setSaldo(double saldo) {
-        this.saldo = saldo;
+        setSaldoCentimos(aCentimos(saldo));
+    }
+
+    /**
+     * Obtiene el saldo actual de la cuenta en céntimos.
+     *
+     * @return Saldo actual de la cuenta en céntimos (0 si la cuenta está cerrada).
+     */
+    public long getSaldoCentimos() {
+        long saldo = saldoCentimos;
+        return saldo == SALDO_CERRADA ? 0 : saldo;
+    }
+
+    /**
+     * Establece el saldo actual de la cuenta en céntimos. No tiene efecto si la cuenta está cerrada.
+     *
+     * @param saldo Nuevo saldo de la cuenta en céntimos.
+     */
+    public void setSaldoCentimos(long saldo) {
+        long actual;
+        do {
+            actual = saldoCentimos;
+            if (actual == SALDO_CERRADA) {
+                return;
+            }
+        } while (!SALDO_CENTIMOS.compareAndSet(this, actual, saldo));
+        avisarSaldo();
+    }
+
+    /**
+     * Suma una cantidad al saldo de forma atómica.
+     *
+     * @param cantidad Cantidad a ingresar en céntimos; debe ser positiva.
+     * @return Nuevo saldo en céntimos, u {@link #OPERACION_RECHAZADA} si la cantidad no es positiva,
+     * la cuenta está cerrada o el saldo se desbordaría.
+     */
+    public long ingresarCentimos(long cantidad) {
+        if (cantidad <= 0) {
+            return OPERACION_RECHAZADA;
+        }
+        long actual;
+        long nuevo;
+        do {
+            actual = saldoCentimos;
+            if (actual == SALDO_CERRADA || actual > Long.MAX_VALUE - cantidad) {
+                return OPERACION_RECHAZADA;
+            }
+            nuevo = actual + cantidad;
+        } while (!SALDO_CENTIMOS.compareAndSet(this, actual, nuevo));
+        avisarSaldo();
+        return nuevo;
+    }
+
+    /**
+     * Resta una cantidad del saldo de forma atómica, solo si hay saldo suficiente contando el
+     * descubierto permitido ({@link #getLimiteDescubiertoCentimos()}).
+     * La comprobación del saldo y la actualización forman parte del mismo compare-and-set,
+     * por lo que dos retiros simultáneos nunca pueden dejar la cuenta por debajo de ese límite.
+     *
+     * @param cantidad Cantidad a retirar en céntimos; debe ser positiva.
+     * @return Nuevo saldo en céntimos, u {@link #OPERACION_RECHAZADA} si la cantidad no es positiva,
+     * la cuenta está cerrada o el saldo no es suficiente.
+     */
+    public long retirarCentimos(long cantidad) {
+        if (cantidad <= 0) {
+            return OPERACION_RECHAZADA;
+        }
+        long limite = getLimiteDescubiertoCentimos();
+        long actual;
+        long nuevo;
+        do {
+            actual = saldoCentimos;
+            if (actual == SALDO_CERRADA || actual < cantidad - limite) {
+                return OPERACION_RECHAZADA;
+            }
+            nuevo = actual - cantidad;
+        } while (!SALDO_CENTIMOS.compareAndSet(this, actual, nuevo));
+        avisarSaldo();
+        return nuevo;
+    }
+
+    /**
+     * Resta una cantidad del saldo de forma atómica aunque deje la cuenta por debajo del descubierto
+     * permitido. Lo usan los cargos que el banco aplica de oficio, como los intereses de descubierto,
+     * que no pueden rechazarse por falta de saldo.
+     *
+     * @param cantidad Cantidad a cargar en céntimos; debe ser positiva.
+     * @return Nuevo saldo en céntimos, u {@link #OPERACION_RECHAZADA} si la cantidad no es positiva,
+     * la cuenta está cerrada o el saldo se desbordaría.
+     */
+    public long cargarCentimos(long cantidad) {
+        if (cantidad <= 0) {
+            return OPERACION_RECHAZADA;
+        }
+        long actual;
+        long nuevo;
+        do {
+            actual = saldoCentimos;
+            if (actual == SALDO_CERRADA || actual <= Long.MIN_VALUE + cantidad) {
+                return OPERACION_RECHAZADA;
+            }
+            nuevo = actual - cantidad;
+        } while (!SALDO_CENTIMOS.compareAndSet(this, actual, nuevo));
+        avisarSaldo();
+        return nuevo;
+    }
+
+    /**
+     * Avisa al observador, si lo hay, de que el saldo acaba de cambiar.
+     */
+    private void avisarSaldo() {
+        ObservadorCuenta actual = observador;
+        if (actual != null) {
+            actual.saldoCambiado(this);
+        }
+    }
+
+    /**
+     * Obtiene la cantidad en céntimos que el saldo puede quedar por debajo de cero en un retiro.
+     * Las cuentas genéricas no admiten descubierto.
+     *
+     * @return Descubierto permitido en céntimos (0 o positivo).
+     */
+    protected long getLimiteDescubiertoCentimos() {
+        return 0;
+    }
+
+    /**
+     * Cierra la cuenta si su saldo es exactamente 0. A partir de ese momento se rechaza
+     * cualquier operación sobre el saldo.
+     *
+     * @return true si la cuenta se ha cerrado; false, si tenía saldo o ya estaba cerrada.
+     */
+    public boolean cerrarSiSaldoCero() {
+        return SALDO_CENTIMOS.compareAndSet(this, 0L, SALDO_CERRADA);
     }
 
     /**
@@ -85,21 +253,79 @@ public abstract class CuentaBancaria implements Imprimible {
     }
 
     /**
-     * Devuelve la información de la cuenta en formato de cadena.
+     * Indica si la cuenta ha sido cerrada y ya no admite operaciones.
+     *
+     * @return true si la cuenta está cerrada; false, en caso contrario.
+     */
+    public boolean isCerrada() {
+        return saldoCentimos == SALDO_CERRADA;
+    }
+
+    /**
+     * Obtiene el identificador del último periodo liquidado en la cuenta (intereses o comisiones),
+     * que permite repetir una liquidación interrumpida sin aplicarla dos veces.
+     *
+     * @return Identificador del último periodo liquidado, o 0 si nunca se ha liquidado.
+     */
+    public long getUltimaLiquidacion() {
+        return ultimaLiquidacion;
+    }
+
+    /**
+     * Establece el identificador del último periodo liquidado en la cuenta.
      *
-     * @return Información de la cuenta en formato de cadena.
+     * @param ultimaLiquidacion Identificador del periodo.
+     */
+    public void setUltimaLiquidacion(long ultimaLiquidacion) {
+        this.ultimaLiquidacion = ultimaLiquidacion;
+    }
+
+    /**
+     * Obtiene el observador que recibe los avisos de cambios en la cuenta.
+     *
+     * @return Observador de la cuenta, o null si no tiene.
+     */
+    public ObservadorCuenta getObservador() {
+        return observador;
+    }
+
+    /**
+     * Establece el observador que recibirá los avisos de cambios en la cuenta.
+     * Lo utiliza el banco al abrir o eliminar la cuenta.
+     *
+     * @param observador Nuevo observador de la cuenta, o null para dejar de recibir avisos.
+     */
+    public void setObservador(ObservadorCuenta observador) {
+        this.observador = observador;
+    }
+
+    /**
+     * Escribe la información de la cuenta en el destino indicado.
+     *
+     * @param destino Destino de la escritura.
+     * @throws IOException si no se puede escribir en el destino.
      */
     @Override
-    public String devolverInfoString() {
-        StringBuilder info = new StringBuilder();
-        info.append("Tipo de cuenta: ").append(getClass().getSimpleName()).append("\n");
-        info.append("Titular: ").append(titular.getNombre()).append(" ").append(titular.getApellido1());
+    public void appendTo(Appendable destino) throws IOException {
+        destino.append("Tipo de cuenta: ").append(getClass().getSimpleName()).append('\n');
+        destino.append("Titular: ").append(titular.getNombre()).append(' ').append(titular.getApellido1());
         if (!titular.getApellido2().isEmpty()) {
-            info.append(" ").append(titular.getApellido2());
+            destino.append(' ').append(titular.getApellido2());
         }
-        info.append("\n");
-        info.append("IBAN: ").append(iban).append("\n");
-        info.append("Saldo actual: ").append(saldo).append(" €\n");
-        return info.toString();
+        destino.append('\n');
+        destino.append("IBAN: ").append(iban).append('\n');
+        destino.append("Saldo actual: ");
+        FormatoNumeros.anadirCentimosComoDouble(destino, getSaldoCentimos());
+        destino.append(" €\n");
+    }
+
+    /**
+     * Convierte una cantidad en euros a céntimos, redondeando al céntimo más cercano.
+     *
+     * @param euros Cantidad en euros.
+     * @return Cantidad equivalente en céntimos.
+     */
+    public static long aCentimos(double euros) {
+        return Math.round(euros * 100);
     }
 }
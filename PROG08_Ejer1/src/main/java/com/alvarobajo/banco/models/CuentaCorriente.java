@@ -1,5 +1,7 @@
 package com.alvarobajo.banco.models;
 
+import java.io.IOException;
+
 /**
  * Clase abstracta que representa una cuenta corriente genérica.
  * Extiende de la clase abstracta CuentaBancaria.
@@ -44,18 +46,21 @@ public abstract class CuentaCorriente extends CuentaBancaria {
     }
 
     /**
-     * Devuelve la información detallada de la cuenta corriente en formato de cadena.
+     * Escribe la información detallada de la cuenta corriente en el destino indicado.
      *
-     * @return Información detallada de la cuenta corriente en formato de cadena.
+     * @param destino Destino de la escritura.
+     * @throws IOException si no se puede escribir en el destino.
      */
     @Override
-    public String devolverInfoString() {
-        StringBuilder info = new StringBuilder();
-        info.append("Cuenta Corriente:\n");
-        info.append("Titular: ").append(getTitular().devolverInfoString()).append("\n");
-        info.append("Saldo: ").append(getSaldo()).append("\n");
-        info.append("IBAN: ").append(getIban()).append("\n");
-        info.append("Lista de Entidades Autorizadas: ").append(listaEntidades);
-        return info.toString();
+    public void appendTo(Appendable destino) throws IOException {
+        destino.append("Cuenta Corriente:\n");
+        destino.append("Titular: ");
+        getTitular().appendTo(destino);
+        destino.append('\n');
+        destino.append("Saldo: ");
+        FormatoNumeros.anadirCentimosComoDouble(destino, getSaldoCentimos());
+        destino.append('\n');
+        destino.append("IBAN: ").append(getIban()).append('\n');
+        destino.append("Lista de Entidades Autorizadas: ").append(listaEntidades);
     }
 }
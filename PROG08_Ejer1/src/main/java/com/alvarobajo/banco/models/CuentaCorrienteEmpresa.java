@@ -1,9 +1,15 @@
 package com.alvarobajo.banco.models;
 
+import java.io.IOException;
+
 /**
  * Clase que representa una cuenta corriente para una empresa.
  * Extiende de la clase abstracta CuentaCorriente.
  *
+ * <p>Admite descubierto: los retiros pueden dejar el saldo en negativo hasta el máximo descubierto,
+ * comprobado de forma atómica junto con la actualización del saldo. El saldo negativo devenga cada día
+ * el tipo de interés por descubierto.</p>
+ *
  * @author Álvaro Bajo Tabero
  * @version 1.0
  * @since 2024-03-02
@@ -11,7 +17,7 @@ package com.alvarobajo.banco.models;
 public class CuentaCorrienteEmpresa extends CuentaCorriente {
 
     private double tipoInteresDescubierto;
-    private double maximoDescubierto;
+    private volatile long maximoDescubiertoCentimos;
 
     /**
      * Constructor para inicializar una instancia de CuentaCorrienteEmpresa.
@@ -27,7 +33,7 @@ public class CuentaCorrienteEmpresa extends CuentaCorriente {
                                   double tipoInteresDescubierto, double maximoDescubierto) {
         super(titular, saldo, iban, listaEntidades);
         this.tipoInteresDescubierto = tipoInteresDescubierto;
-        this.maximoDescubierto = maximoDescubierto;
+        this.maximoDescubiertoCentimos = aCentimos(maximoDescubierto);
     }
 
     /**
@@ -54,26 +60,42 @@ public class CuentaCorrienteEmpresa extends CuentaCorriente {
      * @return Máximo descubierto permitido para la cuenta.
      */
     public double getMaximoDescubierto() {
-        return maximoDescubierto;
+        return maximoDescubiertoCentimos / 100.0;
     }
 
     /**
-     * Establece el máximo descubierto permitido para la cuenta.
+     * Establece el máximo descubierto permitido para la cuenta. Reducirlo no afecta al saldo actual,
+     * solo a los retiros posteriores.
      *
      * @param maximoDescubierto Nuevo máximo descubierto permitido para la cuenta.
      */
     public void setMaximoDescubierto(double maximoDescubierto) {
-        this.maximoDescubierto = maximoDescubierto;
+        this.maximoDescubiertoCentimos = aCentimos(maximoDescubierto);
+    }
+
+    /**
+     * Obtiene el máximo descubierto permitido para los retiros, nunca negativo.
+     *
+     * @return Máximo descubierto en céntimos.
+     */
+    @Override
+    protected long getLimiteDescubiertoCentimos() {
+        return Math.max(0, maximoDescubiertoCentimos);
     }
 
     /**
-     * Devuelve la información detallada de la cuenta corriente de empresa en formato de cadena.
+     * Escribe la información detallada de la cuenta corriente de empresa en el destino indicado.
      *
-     * @return Información detallada de la cuenta corriente de empresa en formato de cadena.
+     * @param destino Destino de la escritura.
+     * @throws IOException si no se puede escribir en el destino.
      */
     @Override
-    public String devolverInfoString() {
-        return String.format("Cuenta Corriente Empresa\n%s\nTasa de Interés Descubierto: %.2f\nMáximo Descubierto: %.2f",
-                super.devolverInfoString(), tipoInteresDescubierto, maximoDescubierto);
+    public void appendTo(Appendable destino) throws IOException {
+        destino.append("Cuenta Corriente Empresa\n");
+        super.appendTo(destino);
+        destino.append("\nTasa de Interés Descubierto: ");
+        FormatoNumeros.anadirDosDecimales(destino, tipoInteresDescubierto);
+        destino.append("\nMáximo Descubierto: ");
+        FormatoNumeros.anadirCentimos(destino, maximoDescubiertoCentimos);
     }
 }
@@ -1,5 +1,7 @@
 package com.alvarobajo.banco.models;
 
+import java.io.IOException;
+
 /**
  * Clase que representa una cuenta corriente personal.
  * Extiende de la clase abstracta CuentaCorriente.
@@ -46,13 +48,17 @@ public class CuentaCorrientePersonal extends CuentaCorriente {
     }
 
     /**
-     * Devuelve la información detallada de la cuenta corriente personal en formato de cadena.
+     * Escribe la información detallada de la cuenta corriente personal en el destino indicado.
      *
-     * @return Información detallada de la cuenta corriente personal en formato de cadena.
+     * @param destino Destino de la escritura.
+     * @throws IOException si no se puede escribir en el destino.
      */
     @Override
-    public String devolverInfoString() {
-        return String.format("Cuenta Corriente Personal\n%s\nComisión de Mantenimiento: %.2f €",
-                super.devolverInfoString(), comisionMantenimiento);
+    public void appendTo(Appendable destino) throws IOException {
+        destino.append("Cuenta Corriente Personal\n");
+        super.appendTo(destino);
+        destino.append("\nComisión de Mantenimiento: ");
+        FormatoNumeros.anadirDosDecimales(destino, comisionMantenimiento);
+        destino.append(" €");
     }
 }
@@ -0,0 +1,130 @@
+package com.alvarobajo.banco.models;
+
+import java.io.IOException;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Escritura de números en un {@link Appendable} carácter a carácter, sin crear cadenas ni objetos
+ * intermedios. La usan las implementaciones de {@link Imprimible#appendTo(Appendable)}.
+ *
+ * <p>Los métodos producen exactamente el mismo texto que {@code String.format("%.2f", ...)} y que
+ * {@code String.valueOf(double)}, a los que recurren solo en los casos poco habituales que no cubre el
+ * camino rápido (valores enormes, no finitos o justo a mitad de dos céntimos). El separador decimal y
+ * el dígito cero de {@code %.2f} se toman de la configuración regional por defecto al cargar la clase.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+final class FormatoNumeros {
+
+    private static final Locale REGION = Locale.getDefault(Locale.Category.FORMAT);
+    private static final char SEPARADOR_DECIMAL = DecimalFormatSymbols.getInstance(REGION).getDecimalSeparator();
+    private static final char CERO = DecimalFormatSymbols.getInstance(REGION).getZeroDigit();
+
+    // Por debajo de 2^53 céntimos la división entre 100 es exacta al imprimir con dos decimales
+    private static final long MAXIMO_EXACTO = 1L << 53;
+    // Por debajo de 10^7 el error de multiplicar por 100 es mucho menor que el margen de redondeo
+    private static final double MAXIMO_RAPIDO = 1e7;
+    private static final double MARGEN_REDONDEO = 1e-6;
+
+    private FormatoNumeros() {
+    }
+
+    /**
+     * Escribe un número con dos decimales, igual que {@code String.format("%.2f", valor)}.
+     *
+     * @param destino Destino de la escritura.
+     * @param valor   Número a escribir.
+     * @throws IOException si no se puede escribir en el destino.
+     */
+    static void anadirDosDecimales(Appendable destino, double valor) throws IOException {
+        double absoluto = Math.abs(valor);
+        if (!(absoluto < MAXIMO_RAPIDO)) {
+            destino.append(String.format(REGION, "%.2f", valor));
+            return;
+        }
+        double escalado = absoluto * 100;
+        double fraccion = escalado - Math.floor(escalado);
+        if (Math.abs(fraccion - 0.5) < MARGEN_REDONDEO) {
+            // Justo a mitad de dos céntimos decide el redondeo de la representación decimal exacta
+            destino.append(String.format(REGION, "%.2f", valor));
+            return;
+        }
+        if (Math.copySign(1.0, valor) < 0) {
+            destino.append('-');
+        }
+        anadirCentesimas(destino, Math.round(escalado), SEPARADOR_DECIMAL, CERO);
+    }
+
+    /**
+     * Escribe una cantidad en céntimos como euros con dos decimales, igual que
+     * {@code String.format("%.2f", centimos / 100.0)}.
+     *
+     * @param destino  Destino de la escritura.
+     * @param centimos Cantidad en céntimos.
+     * @throws IOException si no se puede escribir en el destino.
+     */
+    static void anadirCentimos(Appendable destino, long centimos) throws IOException {
+        if (centimos <= -MAXIMO_EXACTO || centimos >= MAXIMO_EXACTO) {
+            destino.append(String.format(REGION, "%.2f", centimos / 100.0));
+            return;
+        }
+        if (centimos < 0) {
+            destino.append('-');
+        }
+        anadirCentesimas(destino, Math.abs(centimos), SEPARADOR_DECIMAL, CERO);
+    }
+
+    /**
+     * Escribe una cantidad en céntimos como euros, igual que {@code String.valueOf(centimos / 100.0)}:
+     * sin ceros finales en los decimales, pero con al menos uno.
+     *
+     * @param destino  Destino de la escritura.
+     * @param centimos Cantidad en céntimos.
+     * @throws IOException si no se puede escribir en el destino.
+     */
+    static void anadirCentimosComoDouble(Appendable destino, long centimos) throws IOException {
+        // Desde 10^7 euros Double.toString usa notación científica
+        if (centimos <= -1_000_000_000L || centimos >= 1_000_000_000L) {
+            destino.append(String.valueOf(centimos / 100.0));
+            return;
+        }
+        if (centimos < 0) {
+            destino.append('-');
+        }
+        long absoluto = Math.abs(centimos);
+        anadirEntero(destino, absoluto / 100, '0');
+        destino.append('.');
+        int decimales = (int) (absoluto % 100);
+        destino.append((char) ('0' + decimales / 10));
+        if (decimales % 10 != 0) {
+            destino.append((char) ('0' + decimales % 10));
+        }
+    }
+
+    /**
+     * Escribe un entero no negativo en base 10.
+     *
+     * @param destino Destino de la escritura.
+     * @param valor   Entero no negativo.
+     * @param cero    Carácter del dígito cero.
+     * @throws IOException si no se puede escribir en el destino.
+     */
+    static void anadirEntero(Appendable destino, long valor, char cero) throws IOException {
+        long divisor = 1;
+        while (valor / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            destino.append((char) (cero + valor / divisor % 10));
+        }
+    }
+
+    private static void anadirCentesimas(Appendable destino, long centesimas, char separador, char cero)
+            throws IOException {
+        anadirEntero(destino, centesimas / 100, cero);
+        destino.append(separador);
+        destino.append((char) (cero + centesimas / 10 % 10));
+        destino.append((char) (cero + centesimas % 10));
+    }
+}
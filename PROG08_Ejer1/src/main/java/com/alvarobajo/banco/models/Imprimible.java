@@ -1,19 +1,44 @@
 package com.alvarobajo.banco.models;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 /**
  * Interfaz Imprimible para proporcionar un método para obtener información en formato de cadena.
  * Implementada por clases que desean ser impresas de manera legible.
  *
+ * <p>Las clases implementan {@link #appendTo(Appendable)}, que escribe la información directamente en
+ * un destino (por ejemplo, un {@code Writer} con buffer) sin construir cadenas intermedias, de modo que
+ * un listado de muchas instancias apenas genera basura. {@link #devolverInfoString()} se obtiene a
+ * partir de él.</p>
+ *
  * @author Álvaro Bajo Tabero
  * @version 1.0
  * @since 2024-03-02
  */
 public interface Imprimible {
 
+    /**
+     * Escribe la información de la instancia en el destino indicado.
+     *
+     * @param destino Destino de la escritura.
+     * @throws IOException si no se puede escribir en el destino.
+     */
+    void appendTo(Appendable destino) throws IOException;
+
     /**
      * Devuelve la información de la instancia en formato de cadena.
      *
      * @return Información de la instancia en formato de cadena.
      */
-    String devolverInfoString();
+    default String devolverInfoString() {
+        StringBuilder info = new StringBuilder(256);
+        try {
+            appendTo(info);
+        } catch (IOException e) {
+            // Un StringBuilder nunca lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return info.toString();
+    }
 }
@@ -0,0 +1,78 @@
+package com.alvarobajo.banco.models;
+
+/**
+ * Interfaz para recibir avisos de los cambios que se producen en una CuentaBancaria.
+ * El banco que gestiona la cuenta la utiliza para mantener sus índices actualizados
+ * y para registrar los movimientos de saldo.
+ *
+ * <p>Los avisos de movimientos se producen con el monitor de la cuenta (o de las dos cuentas, en una
+ * transferencia) adquirido, de modo que llegan en el mismo orden en que se aplicaron sobre el saldo;
+ * por eso deben ser rápidos. Cualquier espera larga, como la de escribir en disco, debe hacerse en
+ * {@link #confirmarMovimientos()}, que se invoca después de liberar los monitores.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public interface ObservadorCuenta {
+
+    /**
+     * Se invoca después de cambiar el titular de la cuenta.
+     *
+     * @param cuenta   Cuenta cuyo titular ha cambiado.
+     * @param anterior Titular que tenía la cuenta antes del cambio.
+     */
+    default void titularCambiado(CuentaBancaria cuenta, Persona anterior) {
+    }
+
+    /**
+     * Indica si el observador necesita recibir los movimientos de saldo. Si devuelve false, las
+     * operaciones sobre el saldo se realizan sin adquirir el monitor de la cuenta y sin avisos.
+     *
+     * @return true si el observador debe recibir los movimientos; false, en caso contrario.
+     */
+    default boolean registraMovimientos() {
+        return false;
+    }
+
+    /**
+     * Se invoca después de cualquier cambio del saldo, tanto si el observador registra movimientos como
+     * si no, y con o sin el monitor de la cuenta adquirido. No dice cuál fue el cambio, y los de hilos
+     * distintos pueden llegar en otro orden, así que quien lo recibe debe leer el saldo actual. Nunca
+     * debe bloquear.
+     *
+     * @param cuenta Cuenta cuyo saldo ha cambiado.
+     */
+    default void saldoCambiado(CuentaBancaria cuenta) {
+    }
+
+    /**
+     * Se invoca después de un movimiento de saldo, con el monitor de la cuenta adquirido.
+     *
+     * @param cuenta           Cuenta cuyo saldo ha cambiado.
+     * @param tipo             Tipo de movimiento.
+     * @param importeCentimos  Importe del movimiento en céntimos (siempre positivo).
+     * @param saldoCentimos    Saldo de la cuenta después del movimiento, en céntimos.
+     */
+    default void movimientoRealizado(CuentaBancaria cuenta, TipoMovimiento tipo, long importeCentimos,
+                                     long saldoCentimos) {
+    }
+
+    /**
+     * Se invoca después de una transferencia, con el monitor de ambas cuentas adquirido.
+     *
+     * @param origen          Cuenta de la que sale el dinero.
+     * @param destino         Cuenta a la que llega el dinero.
+     * @param importeCentimos Importe transferido en céntimos.
+     * @param saldoOrigen     Saldo de la cuenta de origen después de la transferencia, en céntimos.
+     * @param saldoDestino    Saldo de la cuenta de destino después de la transferencia, en céntimos.
+     */
+    default void transferenciaRealizada(CuentaBancaria origen, CuentaBancaria destino, long importeCentimos,
+                                        long saldoOrigen, long saldoDestino) {
+    }
+
+    /**
+     * Se invoca sin ningún monitor adquirido después de uno o varios avisos de movimientos realizados
+     * por el hilo actual. Puede bloquear hasta que esos movimientos queden registrados.
+     */
+    default void confirmarMovimientos() {
+    }
+}
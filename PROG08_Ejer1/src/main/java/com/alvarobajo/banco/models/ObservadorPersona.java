@@ -0,0 +1,17 @@
+package com.alvarobajo.banco.models;
+
+/**
+ * Interfaz para recibir avisos cuando cambian los datos de una Persona.
+ * Permite que las estructuras que indexan personas (por DNI o por nombre) se mantengan actualizadas.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public interface ObservadorPersona {
+
+    /**
+     * Se invoca después de modificar cualquiera de los datos de la persona.
+     *
+     * @param persona Persona cuyos datos han cambiado.
+     */
+    void personaModificada(Persona persona);
+}
@@ -1,5 +1,9 @@
 package com.alvarobajo.banco.models;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Clase que representa a una persona con información básica.
  * Implementa la interfaz Imprimible para proporcionar una representación de cadena.
@@ -14,6 +18,7 @@ public class Persona implements Imprimible {
     private String apellido1;
     private String apellido2;
     private String dni;
+    private volatile List<ObservadorPersona> observadores;
 
     /**
      * Constructor para inicializar una instancia de Persona.
@@ -48,6 +53,7 @@ public class Persona implements Imprimible {
      */
     public void setNombre(String nombre) {
         this.nombre = nombre;
+        notificarCambio();
     }
 
     /**
@@ -66,6 +72,7 @@ public class Persona implements Imprimible {
      */
     public void setApellido1(String apellido1) {
         this.apellido1 = apellido1;
+        notificarCambio();
     }
 
     /**
@@ -84,6 +91,7 @@ public class Persona implements Imprimible {
      */
     public void setApellido2(String apellido2) {
         this.apellido2 = apellido2;
+        notificarCambio();
     }
 
     /**
@@ -102,21 +110,58 @@ public class Persona implements Imprimible {
      */
     public void setDni(String dni) {
         this.dni = dni;
+        notificarCambio();
+    }
+
+    /**
+     * Registra un observador que será avisado cada vez que cambien los datos de la persona.
+     *
+     * @param observador Observador a registrar.
+     */
+    public synchronized void agregarObservador(ObservadorPersona observador) {
+        if (observadores == null) {
+            observadores = new CopyOnWriteArrayList<>();
+        }
+        observadores.add(observador);
+    }
+
+    /**
+     * Elimina un observador registrado previamente.
+     *
+     * @param observador Observador a eliminar.
+     */
+    public synchronized void eliminarObservador(ObservadorPersona observador) {
+        if (observadores != null) {
+            observadores.remove(observador);
+        }
+    }
+
+    /**
+     * Avisa a los observadores registrados de que los datos de la persona han cambiado.
+     */
+    private void notificarCambio() {
+        List<ObservadorPersona> actuales = observadores;
+        if (actuales != null) {
+            for (ObservadorPersona observador : actuales) {
+                observador.personaModificada(this);
+            }
+        }
     }
 
     /**
-     * Devuelve la información de la persona en formato de cadena.
+     * Escribe la información de la persona en el destino indicado.
      *
-     * @return Información de la persona en formato de cadena.
+     * @param destino Destino de la escritura.
+     * @throws IOException si no se puede escribir en el destino.
      */
     @Override
-    public String devolverInfoString() {
-        return "Información de la persona:\n" +
-                "---------------------------\n" +
-                "Nombre:      " + nombre + "\n" +
-                "Apellido 1:  " + apellido1 + "\n" +
-                "Apellido 2:  " + apellido2 + "\n" +
-                "DNI:         " + dni + "\n" +
-                "---------------------------";
+    public void appendTo(Appendable destino) throws IOException {
+        destino.append("Información de la persona:\n")
+                .append("---------------------------\n")
+                .append("Nombre:      ").append(nombre).append('\n')
+                .append("Apellido 1:  ").append(apellido1).append('\n')
+                .append("Apellido 2:  ").append(apellido2).append('\n')
+                .append("DNI:         ").append(dni).append('\n')
+                .append("---------------------------");
     }
 }
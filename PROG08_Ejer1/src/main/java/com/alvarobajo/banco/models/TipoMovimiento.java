@@ -0,0 +1,66 @@
+package com.alvarobajo.banco.models;
+
+/**
+ * Tipos de movimiento que modifican el saldo de una cuenta bancaria.
+ * Cada tipo tiene un código de un byte para guardarlo de forma compacta.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public enum TipoMovimiento {
+
+    /** Ingreso de dinero en la cuenta. */
+    INGRESO,
+    /** Retiro de efectivo de la cuenta. */
+    RETIRO,
+    /** Salida de dinero de la cuenta por una transferencia. */
+    TRANSFERENCIA_EMITIDA,
+    /** Entrada de dinero en la cuenta por una transferencia. */
+    TRANSFERENCIA_RECIBIDA,
+    /** Abono de los intereses de un periodo. */
+    INTERES,
+    /** Cargo de la comisión de mantenimiento de un periodo. */
+    COMISION,
+    /** Cargo de los intereses de un día en descubierto. */
+    INTERES_DESCUBIERTO;
+
+    private static final TipoMovimiento[] VALORES = values();
+
+    /**
+     * Obtiene el código de un byte del tipo de movimiento.
+     *
+     * @return Código del tipo de movimiento.
+     */
+    public byte getCodigo() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Indica si el movimiento es la liquidación de un periodo, que además del saldo actualiza
+     * el último periodo liquidado de la cuenta.
+     *
+     * @return true si es una liquidación periódica; false, en caso contrario.
+     */
+    public boolean isLiquidacion() {
+        return this == INTERES || this == COMISION || this == INTERES_DESCUBIERTO;
+    }
+
+    /**
+     * Indica si el movimiento suma al saldo de la cuenta (ingresos, transferencias recibidas e intereses
+     * abonados) o resta de él (el resto).
+     *
+     * @return true si es un abono; false, si es un cargo.
+     */
+    public boolean isAbono() {
+        return this == INGRESO || this == TRANSFERENCIA_RECIBIDA || this == INTERES;
+    }
+
+    /**
+     * Obtiene el tipo de movimiento correspondiente a un código.
+     *
+     * @param codigo Código del tipo de movimiento.
+     * @return Tipo de movimiento con ese código.
+     */
+    public static TipoMovimiento desdeCodigo(byte codigo) {
+        return VALORES[codigo];
+    }
+}
@@ -0,0 +1,573 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorriente;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Almacén de cuentas bancarias fuera del heap, en registros de tamaño fijo dentro de un fichero
+ * proyectado en memoria.
+ *
+ * <p>Cada cuenta ocupa un registro de {@value #TAMANO_REGISTRO} bytes con su saldo en céntimos, el límite
+ * de descubierto, el tipo de interés, la comisión, el tipo de cuenta, el IBAN, los datos del titular y las
+ * entidades autorizadas. Un índice de direccionamiento abierto, en el mismo fichero, relaciona cada IBAN
+ * con su registro. Los objetos {@link CuentaBancaria} solo se construyen cuando se piden, como copias del
+ * registro, de modo que el heap ocupado no crece con el número de cuentas.</p>
+ *
+ * <p>Los ingresos y retiros actualizan el saldo con compare-and-set directamente sobre el fichero
+ * proyectado, sin bloqueos. Las altas y bajas se serializan con el monitor del almacén. Una cuenta
+ * eliminada conserva su registro; si se vuelve a abrir el mismo IBAN se usa un registro nuevo.</p>
+ *
+ * <p>La capacidad se fija al crear el fichero y los textos tienen un ancho máximo en bytes UTF-8:
+ * {@value #ANCHO_IBAN} para el IBAN, {@value #ANCHO_NOMBRE} para el nombre y cada apellido,
+ * {@value #ANCHO_DNI} para el DNI y {@value #ANCHO_ENTIDADES} para las entidades autorizadas.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class AlmacenMapeado implements AutoCloseable {
+
+    /** Tamaño en bytes de cada registro de cuenta. */
+    public static final int TAMANO_REGISTRO = 256;
+    /** Número máximo de cuentas que puede tener un almacén. */
+    public static final int CAPACIDAD_MAXIMA = 1 << 26;
+
+    static final int MARCA = 0x424E434D;
+    static final int VERSION = 1;
+
+    static final int ANCHO_IBAN = 34;
+    static final int ANCHO_NOMBRE = 39;
+    static final int ANCHO_DNI = 15;
+    static final int ANCHO_ENTIDADES = 50;
+
+    // Cabecera del fichero
+    private static final int CAB_MARCA = 0;
+    private static final int CAB_VERSION = 4;
+    private static final int CAB_TAMANO_REGISTRO = 8;
+    private static final int CAB_CAPACIDAD = 12;
+    private static final int CAB_CAPACIDAD_INDICE = 16;
+    private static final int CAB_NUM_REGISTROS = 20;
+    private static final int CAB_NUM_CUENTAS = 24;
+    private static final int TAMANO_CABECERA = 64;
+    private static final int ALINEACION_REGISTROS = 4096;
+
+    // Campos del registro; el saldo va al principio para que quede alineado a 8 bytes
+    private static final int REG_SALDO = 0;
+    private static final int REG_LIMITE_DESCUBIERTO = 8;
+    private static final int REG_TIPO_INTERES = 16;
+    private static final int REG_COMISION = 24;
+    private static final int REG_TIPO = 32;
+    private static final int REG_CON_TITULAR = 33;
+    private static final int REG_IBAN = 34;
+    private static final int REG_NOMBRE = REG_IBAN + 1 + ANCHO_IBAN;
+    private static final int REG_APELLIDO1 = REG_NOMBRE + 1 + ANCHO_NOMBRE;
+    private static final int REG_APELLIDO2 = REG_APELLIDO1 + 1 + ANCHO_NOMBRE;
+    private static final int REG_DNI = REG_APELLIDO2 + 1 + ANCHO_NOMBRE;
+    private static final int REG_ENTIDADES = REG_DNI + 1 + ANCHO_DNI;
+
+    private static final int TEXTO_NULO = 0xFF;
+    private static final long SALDO_CERRADA = Long.MIN_VALUE;
+
+    // Cada segmento proyecta 2^22 registros (1 GiB), por debajo del límite de 2 GiB de un MappedByteBuffer
+    private static final int BITS_SEGMENTO = 22;
+    private static final int MASCARA_SEGMENTO = (1 << BITS_SEGMENTO) - 1;
+
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel canal;
+    private final MappedByteBuffer cabecera;
+    private final MappedByteBuffer indice;
+    private final MappedByteBuffer[] segmentos;
+    private final int capacidad;
+    private final int mascaraIndice;
+    private int numRegistros;
+    private volatile int numCuentas;
+
+    private AlmacenMapeado(FileChannel canal, MappedByteBuffer cabecera, MappedByteBuffer indice,
+                           MappedByteBuffer[] segmentos, int capacidad, int capacidadIndice) {
+        this.canal = canal;
+        this.cabecera = cabecera;
+        this.indice = indice;
+        this.segmentos = segmentos;
+        this.capacidad = capacidad;
+        this.mascaraIndice = capacidadIndice - 1;
+        this.numRegistros = cabecera.getInt(CAB_NUM_REGISTROS);
+        this.numCuentas = cabecera.getInt(CAB_NUM_CUENTAS);
+    }
+
+    /**
+     * Abre el almacén guardado en un fichero, o lo crea vacío si el fichero no existe.
+     *
+     * @param fichero   Fichero del almacén.
+     * @param capacidad Número máximo de cuentas del almacén si se crea; si ya existe, se usa la guardada.
+     * @return El almacén abierto.
+     * @throws IOException              si no se puede abrir o proyectar el fichero, o no es un almacén válido.
+     * @throws IllegalArgumentException si la capacidad no está entre 1 y {@link #CAPACIDAD_MAXIMA}.
+     */
+    public static AlmacenMapeado abrir(Path fichero, int capacidad) throws IOException {
+        FileChannel canal = FileChannel.open(fichero, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            boolean nuevo = canal.size() == 0;
+            MappedByteBuffer cabecera = canal.map(FileChannel.MapMode.READ_WRITE, 0, TAMANO_CABECERA);
+            cabecera.order(ByteOrder.LITTLE_ENDIAN);
+            int capacidadIndice;
+            if (nuevo) {
+                if (capacidad <= 0 || capacidad > CAPACIDAD_MAXIMA) {
+                    throw new IllegalArgumentException("Capacidad de almacén no válida: " + capacidad);
+                }
+                capacidadIndice = Integer.highestOneBit(capacidad) << 2;
+                cabecera.putInt(CAB_MARCA, MARCA);
+                cabecera.putInt(CAB_VERSION, VERSION);
+                cabecera.putInt(CAB_TAMANO_REGISTRO, TAMANO_REGISTRO);
+                cabecera.putInt(CAB_CAPACIDAD, capacidad);
+                cabecera.putInt(CAB_CAPACIDAD_INDICE, capacidadIndice);
+            } else {
+                if (cabecera.getInt(CAB_MARCA) != MARCA || cabecera.getInt(CAB_VERSION) != VERSION
+                        || cabecera.getInt(CAB_TAMANO_REGISTRO) != TAMANO_REGISTRO) {
+                    throw new IOException("El fichero no es un almacén de cuentas válido: " + fichero);
+                }
+                capacidad = cabecera.getInt(CAB_CAPACIDAD);
+                capacidadIndice = cabecera.getInt(CAB_CAPACIDAD_INDICE);
+            }
+            MappedByteBuffer indice = canal.map(FileChannel.MapMode.READ_WRITE, TAMANO_CABECERA,
+                    (long) capacidadIndice * Integer.BYTES);
+            long inicioRegistros = inicioRegistros(capacidadIndice);
+            int numSegmentos = ((capacidad - 1) >>> BITS_SEGMENTO) + 1;
+            MappedByteBuffer[] segmentos = new MappedByteBuffer[numSegmentos];
+            for (int s = 0; s < numSegmentos; s++) {
+                int registros = Math.min(capacidad - (s << BITS_SEGMENTO), 1 << BITS_SEGMENTO);
+                segmentos[s] = canal.map(FileChannel.MapMode.READ_WRITE,
+                        inicioRegistros + ((long) s << BITS_SEGMENTO) * TAMANO_REGISTRO,
+                        (long) registros * TAMANO_REGISTRO);
+                segmentos[s].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new AlmacenMapeado(canal, cabecera, indice, segmentos, capacidad, capacidadIndice);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Guarda una nueva cuenta en el almacén. Se copian sus datos y su saldo actual; los cambios
+     * posteriores sobre el objeto no se reflejan en el almacén.
+     *
+     * @param nuevaCuenta Cuenta a guardar.
+     * @return true si la cuenta se guardó con éxito.
+     * @throws RuntimeException         si el IBAN ya está en uso o el almacén está lleno.
+     * @throws IllegalArgumentException si algún texto de la cuenta no cabe en su campo.
+     */
+    public synchronized boolean abrirCuenta(CuentaBancaria nuevaCuenta) {
+        String clave = normalizarIBAN(nuevaCuenta.getIban());
+        if (clave == null || numRegistros >= capacidad) {
+            throw new RuntimeException("No se pueden abrir más cuentas. Límite alcanzado.");
+        }
+        int ranura = buscarRanura(clave);
+        int anterior = (int) INT.getAcquire(indice, ranura * Integer.BYTES) - 1;
+        if (anterior >= 0 && (long) LONG.getVolatile(segmento(anterior), posicion(anterior)) != SALDO_CERRADA) {
+            throw new RuntimeException("No se pueden abrir más cuentas. Límite alcanzado.");
+        }
+
+        int registro = numRegistros;
+        escribirRegistro(segmento(registro), posicion(registro), clave, nuevaCuenta);
+        // El registro queda completo antes de publicarlo en el índice
+        INT.setRelease(indice, ranura * Integer.BYTES, registro + 1);
+        numRegistros = registro + 1;
+        numCuentas++;
+        cabecera.putInt(CAB_NUM_REGISTROS, numRegistros);
+        cabecera.putInt(CAB_NUM_CUENTAS, numCuentas);
+        return true;
+    }
+
+    /**
+     * Elimina una cuenta del almacén si existe y su saldo es 0. La comprobación del saldo y el cierre
+     * son un único compare-and-set, por lo que ningún ingreso simultáneo puede quedar en la cuenta eliminada.
+     *
+     * @param iban Número de IBAN de la cuenta a eliminar.
+     * @return true si la cuenta se eliminó con éxito; false, si no existe o tiene saldo.
+     */
+    public synchronized boolean eliminarCuenta(String iban) {
+        int registro = buscarRegistro(normalizarIBAN(iban));
+        if (registro < 0 || !LONG.compareAndSet(segmento(registro), posicion(registro), 0L, SALDO_CERRADA)) {
+            return false;
+        }
+        numCuentas--;
+        cabecera.putInt(CAB_NUM_CUENTAS, numCuentas);
+        return true;
+    }
+
+    /**
+     * Construye una copia de la cuenta con el IBAN indicado a partir de su registro.
+     *
+     * @param iban Número de IBAN de la cuenta.
+     * @return Copia de la cuenta, o null si no existe o está eliminada.
+     */
+    public CuentaBancaria buscarCuentaPorIBAN(String iban) {
+        int registro = buscarRegistro(normalizarIBAN(iban));
+        return registro >= 0 ? leerRegistro(segmento(registro), posicion(registro)) : null;
+    }
+
+    /**
+     * Comprueba si un IBAN pertenece a alguna cuenta del almacén.
+     *
+     * @param iban Número de IBAN a comprobar.
+     * @return true si hay una cuenta abierta con ese IBAN.
+     */
+    public boolean estaIBANEnUso(String iban) {
+        int registro = buscarRegistro(normalizarIBAN(iban));
+        return registro >= 0 && (long) LONG.getVolatile(segmento(registro), posicion(registro)) != SALDO_CERRADA;
+    }
+
+    /**
+     * Consulta el saldo de una cuenta sin construir el objeto de la cuenta.
+     *
+     * @param iban Número de IBAN de la cuenta.
+     * @return Saldo en céntimos, o {@link CuentaBancaria#OPERACION_RECHAZADA} si la cuenta no existe
+     * o está eliminada.
+     */
+    public long consultarSaldoCentimos(String iban) {
+        int registro = buscarRegistro(normalizarIBAN(iban));
+        return registro >= 0 ? (long) LONG.getVolatile(segmento(registro), posicion(registro))
+                : CuentaBancaria.OPERACION_RECHAZADA;
+    }
+
+    /**
+     * Suma una cantidad al saldo de una cuenta de forma atómica.
+     *
+     * @param iban     Número de IBAN de la cuenta.
+     * @param cantidad Cantidad a ingresar en céntimos; debe ser positiva.
+     * @return Nuevo saldo en céntimos, u {@link CuentaBancaria#OPERACION_RECHAZADA} si la cantidad no es
+     * positiva, la cuenta no existe o está eliminada, o el saldo se desbordaría.
+     */
+    public long ingresarCentimos(String iban, long cantidad) {
+        int registro = cantidad > 0 ? buscarRegistro(normalizarIBAN(iban)) : -1;
+        if (registro < 0) {
+            return CuentaBancaria.OPERACION_RECHAZADA;
+        }
+        MappedByteBuffer segmento = segmento(registro);
+        int posicion = posicion(registro);
+        long actual;
+        long nuevo;
+        do {
+            actual = (long) LONG.getVolatile(segmento, posicion);
+            if (actual == SALDO_CERRADA || actual > Long.MAX_VALUE - cantidad) {
+                return CuentaBancaria.OPERACION_RECHAZADA;
+            }
+            nuevo = actual + cantidad;
+        } while (!LONG.compareAndSet(segmento, posicion, actual, nuevo));
+        return nuevo;
+    }
+
+    /**
+     * Resta una cantidad del saldo de una cuenta de forma atómica, solo si el saldo resultante no queda
+     * por debajo del límite de descubierto de la cuenta, igual que {@link CuentaBancaria#retirarCentimos}.
+     *
+     * @param iban     Número de IBAN de la cuenta.
+     * @param cantidad Cantidad a retirar en céntimos; debe ser positiva.
+     * @return Nuevo saldo en céntimos, u {@link CuentaBancaria#OPERACION_RECHAZADA} si la cantidad no es
+     * positiva, la cuenta no existe o está eliminada, o el saldo más el descubierto no es suficiente.
+     */
+    public long retirarCentimos(String iban, long cantidad) {
+        int registro = cantidad > 0 ? buscarRegistro(normalizarIBAN(iban)) : -1;
+        if (registro < 0) {
+            return CuentaBancaria.OPERACION_RECHAZADA;
+        }
+        MappedByteBuffer segmento = segmento(registro);
+        int posicion = posicion(registro);
+        long limite = segmento.getLong(posicion + REG_LIMITE_DESCUBIERTO);
+        long actual;
+        long nuevo;
+        do {
+            actual = (long) LONG.getVolatile(segmento, posicion);
+            if (actual == SALDO_CERRADA || actual < cantidad - limite) {
+                return CuentaBancaria.OPERACION_RECHAZADA;
+            }
+            nuevo = actual - cantidad;
+        } while (!LONG.compareAndSet(segmento, posicion, actual, nuevo));
+        return nuevo;
+    }
+
+    /**
+     * Recorre las cuentas abiertas del almacén construyendo una copia de cada una solo mientras se procesa.
+     *
+     * @param accion Acción a aplicar a cada cuenta.
+     */
+    public void recorrer(Consumer<CuentaBancaria> accion) {
+        int registros = numRegistrosPublicados();
+        for (int registro = 0; registro < registros; registro++) {
+            CuentaBancaria cuenta = leerRegistro(segmento(registro), posicion(registro));
+            if (cuenta != null) {
+                accion.accept(cuenta);
+            }
+        }
+    }
+
+    /**
+     * Suma el saldo de todas las cuentas abiertas leyendo directamente los registros.
+     *
+     * @return Saldo total en céntimos.
+     */
+    public long getSaldoTotalCentimos() {
+        int registros = numRegistrosPublicados();
+        long total = 0;
+        for (int registro = 0; registro < registros; registro++) {
+            long saldo = (long) LONG.getVolatile(segmento(registro), posicion(registro));
+            if (saldo != SALDO_CERRADA) {
+                total += saldo;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene el número de cuentas abiertas en el almacén.
+     *
+     * @return Número de cuentas abiertas.
+     */
+    public int getNumCuentas() {
+        return numCuentas;
+    }
+
+    /**
+     * Obtiene el número máximo de registros del almacén.
+     *
+     * @return Capacidad del almacén.
+     */
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    /**
+     * Fuerza la escritura en disco de todos los cambios del almacén.
+     */
+    public void sincronizar() {
+        for (MappedByteBuffer segmento : segmentos) {
+            segmento.force();
+        }
+        indice.force();
+        synchronized (this) {
+            cabecera.force();
+        }
+    }
+
+    /**
+     * Escribe los cambios en disco y cierra el fichero del almacén.
+     *
+     * @throws IOException si no se puede cerrar el fichero.
+     */
+    @Override
+    public void close() throws IOException {
+        sincronizar();
+        canal.close();
+    }
+
+    private synchronized int numRegistrosPublicados() {
+        return numRegistros;
+    }
+
+    /**
+     * Busca el registro de una cuenta con el IBAN ya normalizado, sin bloqueos.
+     *
+     * @return Número de registro, o -1 si el IBAN no está en el índice.
+     */
+    private int buscarRegistro(String clave) {
+        if (clave == null) {
+            return -1;
+        }
+        int ranura = hash(clave) & mascaraIndice;
+        while (true) {
+            int registro = (int) INT.getAcquire(indice, ranura * Integer.BYTES) - 1;
+            if (registro < 0) {
+                return -1;
+            }
+            if (ibanIgual(segmento(registro), posicion(registro), clave)) {
+                return registro;
+            }
+            ranura = (ranura + 1) & mascaraIndice;
+        }
+    }
+
+    /**
+     * Busca la ranura del índice que corresponde a un IBAN: la que ya lo contiene o la primera libre.
+     */
+    private int buscarRanura(String clave) {
+        int ranura = hash(clave) & mascaraIndice;
+        while (true) {
+            int registro = (int) INT.getAcquire(indice, ranura * Integer.BYTES) - 1;
+            if (registro < 0 || ibanIgual(segmento(registro), posicion(registro), clave)) {
+                return ranura;
+            }
+            ranura = (ranura + 1) & mascaraIndice;
+        }
+    }
+
+    private void escribirRegistro(MappedByteBuffer segmento, int posicion, String clave, CuentaBancaria cuenta) {
+        byte tipo = CodificadorCuentas.tipoDe(cuenta);
+        double tipoInteres = 0;
+        double comision = 0;
+        long limiteDescubierto = 0;
+        switch (tipo) {
+            case CodificadorCuentas.TIPO_AHORRO:
+                tipoInteres = ((CuentaAhorro) cuenta).getTipoInteres();
+                break;
+            case CodificadorCuentas.TIPO_CORRIENTE_PERSONAL:
+                comision = ((CuentaCorrientePersonal) cuenta).getComisionMantenimiento();
+                break;
+            default:
+                CuentaCorrienteEmpresa empresa = (CuentaCorrienteEmpresa) cuenta;
+                tipoInteres = empresa.getTipoInteresDescubierto();
+                limiteDescubierto = CuentaBancaria.aCentimos(empresa.getMaximoDescubierto());
+        }
+        Persona titular = cuenta.getTitular();
+        // Se comprueba que todos los textos caben antes de escribir nada
+        byte[][] textos = {
+                titular != null ? codificar(titular.getNombre(), ANCHO_NOMBRE, "nombre") : null,
+                titular != null ? codificar(titular.getApellido1(), ANCHO_NOMBRE, "primer apellido") : null,
+                titular != null ? codificar(titular.getApellido2(), ANCHO_NOMBRE, "segundo apellido") : null,
+                titular != null ? codificar(titular.getDni(), ANCHO_DNI, "DNI") : null,
+                cuenta instanceof CuentaCorriente
+                        ? codificar(((CuentaCorriente) cuenta).getListaEntidades(), ANCHO_ENTIDADES, "entidades")
+                        : null
+        };
+        byte[] iban = codificar(clave, ANCHO_IBAN, "IBAN");
+
+        segmento.putLong(posicion + REG_LIMITE_DESCUBIERTO, limiteDescubierto);
+        segmento.putDouble(posicion + REG_TIPO_INTERES, tipoInteres);
+        segmento.putDouble(posicion + REG_COMISION, comision);
+        segmento.put(posicion + REG_TIPO, tipo);
+        segmento.put(posicion + REG_CON_TITULAR, (byte) (titular != null ? 1 : 0));
+        escribirTexto(segmento, posicion + REG_IBAN, iban);
+        escribirTexto(segmento, posicion + REG_NOMBRE, textos[0]);
+        escribirTexto(segmento, posicion + REG_APELLIDO1, textos[1]);
+        escribirTexto(segmento, posicion + REG_APELLIDO2, textos[2]);
+        escribirTexto(segmento, posicion + REG_DNI, textos[3]);
+        escribirTexto(segmento, posicion + REG_ENTIDADES, textos[4]);
+        LONG.setVolatile(segmento, posicion + REG_SALDO, cuenta.getSaldoCentimos());
+    }
+
+    private static CuentaBancaria leerRegistro(MappedByteBuffer segmento, int posicion) {
+        long saldo = (long) LONG.getVolatile(segmento, posicion + REG_SALDO);
+        if (saldo == SALDO_CERRADA) {
+            return null;
+        }
+        String iban = leerTexto(segmento, posicion + REG_IBAN);
+        Persona titular = null;
+        if (segmento.get(posicion + REG_CON_TITULAR) != 0) {
+            titular = new Persona(leerTexto(segmento, posicion + REG_NOMBRE),
+                    leerTexto(segmento, posicion + REG_APELLIDO1), leerTexto(segmento, posicion + REG_APELLIDO2),
+                    leerTexto(segmento, posicion + REG_DNI));
+        }
+        CuentaBancaria cuenta;
+        switch (segmento.get(posicion + REG_TIPO)) {
+            case CodificadorCuentas.TIPO_AHORRO:
+                cuenta = new CuentaAhorro(titular, 0, iban, segmento.getDouble(posicion + REG_TIPO_INTERES));
+                break;
+            case CodificadorCuentas.TIPO_CORRIENTE_PERSONAL:
+                cuenta = new CuentaCorrientePersonal(titular, 0, iban, leerTexto(segmento, posicion + REG_ENTIDADES),
+                        segmento.getDouble(posicion + REG_COMISION));
+                break;
+            default:
+                cuenta = new CuentaCorrienteEmpresa(titular, 0, iban, leerTexto(segmento, posicion + REG_ENTIDADES),
+                        segmento.getDouble(posicion + REG_TIPO_INTERES),
+                        segmento.getLong(posicion + REG_LIMITE_DESCUBIERTO) / 100.0);
+        }
+        cuenta.setSaldoCentimos(saldo);
+        return cuenta;
+    }
+
+    private static byte[] codificar(String texto, int ancho, String campo) {
+        if (texto == null) {
+            return null;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > ancho) {
+            throw new IllegalArgumentException("El campo " + campo + " no cabe en el almacén: " + texto);
+        }
+        return bytes;
+    }
+
+    private static void escribirTexto(MappedByteBuffer segmento, int posicion, byte[] bytes) {
+        if (bytes == null) {
+            segmento.put(posicion, (byte) TEXTO_NULO);
+            return;
+        }
+        segmento.put(posicion, (byte) bytes.length);
+        segmento.put(posicion + 1, bytes);
+    }
+
+    private static String leerTexto(MappedByteBuffer segmento, int posicion) {
+        int longitud = segmento.get(posicion) & 0xFF;
+        if (longitud == TEXTO_NULO) {
+            return null;
+        }
+        byte[] bytes = new byte[longitud];
+        segmento.get(posicion + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean ibanIgual(MappedByteBuffer segmento, int posicion, String clave) {
+        int inicio = posicion + REG_IBAN;
+        if ((segmento.get(inicio) & 0xFF) != clave.length()) {
+            return false;
+        }
+        for (int i = 0; i < clave.length(); i++) {
+            if (segmento.get(inicio + 1 + i) != (byte) clave.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MappedByteBuffer segmento(int registro) {
+        return segmentos[registro >>> BITS_SEGMENTO];
+    }
+
+    private static int posicion(int registro) {
+        return (registro & MASCARA_SEGMENTO) * TAMANO_REGISTRO;
+    }
+
+    private static int hash(String clave) {
+        int h = clave.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long inicioRegistros(int capacidadIndice) {
+        long finIndice = TAMANO_CABECERA + (long) capacidadIndice * Integer.BYTES;
+        return (finIndice + ALINEACION_REGISTROS - 1) / ALINEACION_REGISTROS * ALINEACION_REGISTROS;
+    }
+
+    /**
+     * Normaliza un IBAN para usarlo como clave del índice, igual que {@code Banco}.
+     * Los IBAN con caracteres no ASCII no se admiten.
+     */
+    private static String normalizarIBAN(String iban) {
+        if (iban == null) {
+            return null;
+        }
+        String clave = iban.toUpperCase(Locale.ROOT);
+        for (int i = 0; i < clave.length(); i++) {
+            if (clave.charAt(i) >= 0x80) {
+                return null;
+            }
+        }
+        return clave;
+    }
+}
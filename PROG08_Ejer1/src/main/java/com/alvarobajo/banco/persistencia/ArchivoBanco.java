@@ -0,0 +1,333 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.controller.AsignadorIBAN;
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaBancaria;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Guarda y carga todas las cuentas de un {@link Banco} en un fichero binario, repartiendo el trabajo en
+ * bloques que se codifican y decodifican en paralelo.
+ *
+ * <p>A diferencia de las instantáneas de {@link GestorInstantaneas}, que se leen y escriben de principio
+ * a fin en un solo hilo y van ligadas al diario, es una copia completa e independiente del banco.</p>
+ *
+ * <p>Formato: cabecera con la marca {@code BNCA}, la versión, el número de cuentas, el número de bloques,
+ * la posición del índice y el CRC32C del índice; después, los bloques, y al final el índice, con la
+ * posición, el tamaño, el número de cuentas y el CRC32C de cada bloque. Cada bloque contiene hasta
+ * {@value #CUENTAS_POR_BLOQUE} cuentas consecutivas, cada una como su longitud (int) seguida de la cuenta
+ * codificada con {@link CodificadorCuentas} y del último periodo liquidado en ella (long). Los bloques se
+ * escriben en el fichero en el orden en que terminan de codificarse, pero el índice conserva el orden de
+ * las cuentas. Igual que las instantáneas, el fichero se escribe con otro nombre y se renombra al
+ * terminar.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class ArchivoBanco {
+
+    static final int MARCA = 0x424E4341;
+    static final byte VERSION = 1;
+    static final int CUENTAS_POR_BLOQUE = 16_384;
+
+    private static final int TAMANO_CABECERA = 4 + 1 + 8 + 4 + 8 + 4;
+    private static final int TAMANO_ENTRADA_INDICE = 8 + 4 + 4 + 4;
+    private static final int TAMANO_BUFFER = 1024 * 1024;
+    private static final int TAMANO_MAXIMO_BLOQUE = 256 * 1024 * 1024;
+
+    private ArchivoBanco() {
+    }
+
+    /**
+     * Guarda todas las cuentas del banco usando el pool común de fork-join.
+     *
+     * @param banco   Banco a guardar.
+     * @param fichero Fichero de destino; si existe, se sustituye al terminar.
+     * @return Número de cuentas guardadas.
+     * @throws IOException si no se puede escribir el fichero.
+     */
+    public static long guardar(Banco banco, Path fichero) throws IOException {
+        return guardar(banco, fichero, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Guarda todas las cuentas del banco, codificando los bloques en paralelo. Las cuentas se recorren
+     * sin detener las operaciones, así que el saldo de cada cuenta es el que tenía al codificarla.
+     *
+     * @param banco   Banco a guardar.
+     * @param fichero Fichero de destino; si existe, se sustituye al terminar.
+     * @param pool    Pool de fork-join en el que codificar los bloques.
+     * @return Número de cuentas guardadas.
+     * @throws IOException si no se puede escribir el fichero.
+     */
+    public static long guardar(Banco banco, Path fichero, ForkJoinPool pool) throws IOException {
+        CuentaBancaria[] cuentas = banco.getCuentas().toArray(new CuentaBancaria[0]);
+        int numBloques = (cuentas.length + CUENTAS_POR_BLOQUE - 1) / CUENTAS_POR_BLOQUE;
+        Path temporal = fichero.resolveSibling(fichero.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer indice = ByteBuffer.allocate(numBloques * TAMANO_ENTRADA_INDICE);
+            AtomicLong posicion = new AtomicLong(TAMANO_CABECERA);
+            // Cada bloque reutiliza un buffer de los que ya han terminado otros bloques
+            ConcurrentLinkedQueue<ByteBuffer> libres = new ConcurrentLinkedQueue<>();
+            List<Callable<Void>> tareas = new ArrayList<>(numBloques);
+            for (int b = 0; b < numBloques; b++) {
+                int bloque = b;
+                tareas.add(() -> {
+                    ByteBuffer buffer = libres.poll();
+                    if (buffer == null) {
+                        buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+                    }
+                    buffer = codificar(cuentas, bloque, buffer);
+                    CRC32C crc = new CRC32C();
+                    crc.update(buffer.duplicate());
+                    int tamano = buffer.remaining();
+                    long inicio = posicion.getAndAdd(tamano);
+                    escribirCompleto(canal, buffer, inicio);
+                    indice.putLong(bloque * TAMANO_ENTRADA_INDICE, inicio)
+                            .putInt(bloque * TAMANO_ENTRADA_INDICE + 8, tamano)
+                            .putInt(bloque * TAMANO_ENTRADA_INDICE + 12, numCuentas(cuentas.length, bloque))
+                            .putInt(bloque * TAMANO_ENTRADA_INDICE + 16, (int) crc.getValue());
+                    libres.add(buffer.clear());
+                    return null;
+                });
+            }
+            ejecutar(pool, tareas);
+
+            long posicionIndice = posicion.get();
+            CRC32C crcIndice = new CRC32C();
+            crcIndice.update(indice.duplicate());
+            escribirCompleto(canal, indice, posicionIndice);
+            ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA);
+            cabecera.putInt(MARCA).put(VERSION).putLong(cuentas.length).putInt(numBloques).putLong(posicionIndice)
+                    .putInt((int) crcIndice.getValue()).flip();
+            escribirCompleto(canal, cabecera, 0);
+            canal.force(true);
+        }
+        Files.move(temporal, fichero, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return cuentas.length;
+    }
+
+    /**
+     * Carga en el banco todas las cuentas del fichero usando el pool común de fork-join.
+     *
+     * @param fichero Fichero guardado con {@link #guardar}.
+     * @param banco   Banco vacío en el que abrir las cuentas.
+     * @return Número de cuentas cargadas.
+     * @throws IOException si no se puede leer el fichero o su contenido no es válido.
+     */
+    public static long cargar(Path fichero, Banco banco) throws IOException {
+        return cargar(fichero, banco, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Carga en el banco todas las cuentas del fichero, leyendo y decodificando los bloques en paralelo.
+     * En un banco concurrente cada bloque abre sus cuentas en cuanto las decodifica; en uno de un solo
+     * hilo se abren todas al final desde el hilo que llama, en el orden en que se guardaron. Si el
+     * fichero está dañado no se abre ninguna cuenta, salvo en el banco concurrente las de los bloques
+     * que se hayan leído ya. El asignador de IBAN del banco se avanza más allá de los números de las
+     * cuentas cargadas, para que las que se abran después no repitan ninguno.
+     *
+     * @param fichero Fichero guardado con {@link #guardar}.
+     * @param banco   Banco vacío en el que abrir las cuentas.
+     * @param pool    Pool de fork-join en el que leer los bloques.
+     * @return Número de cuentas cargadas.
+     * @throws IOException si no se puede leer el fichero o su contenido no es válido.
+     */
+    public static long cargar(Path fichero, Banco banco, ForkJoinPool pool) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA);
+            leerCompleto(canal, cabecera, 0);
+            cabecera.flip();
+            if (cabecera.getInt() != MARCA || cabecera.get() != VERSION) {
+                throw new IOException("El fichero no es una copia del banco válida: " + fichero);
+            }
+            long numCuentas = cabecera.getLong();
+            int numBloques = cabecera.getInt();
+            long posicionIndice = cabecera.getLong();
+            int crcIndice = cabecera.getInt();
+            if (numCuentas < 0 || numBloques != (numCuentas + CUENTAS_POR_BLOQUE - 1) / CUENTAS_POR_BLOQUE
+                    || posicionIndice + (long) numBloques * TAMANO_ENTRADA_INDICE != canal.size()) {
+                throw new IOException("La copia del banco está dañada: " + fichero);
+            }
+            ByteBuffer indice = ByteBuffer.allocate(numBloques * TAMANO_ENTRADA_INDICE);
+            leerCompleto(canal, indice, posicionIndice);
+            indice.flip();
+            CRC32C crc = new CRC32C();
+            crc.update(indice.duplicate());
+            if ((int) crc.getValue() != crcIndice) {
+                throw new IOException("La copia del banco está dañada: " + fichero);
+            }
+
+            CuentaBancaria[][] bloques = new CuentaBancaria[numBloques][];
+            List<Callable<Void>> tareas = new ArrayList<>(numBloques);
+            for (int b = 0; b < numBloques; b++) {
+                int bloque = b;
+                long inicio = indice.getLong(bloque * TAMANO_ENTRADA_INDICE);
+                int tamano = indice.getInt(bloque * TAMANO_ENTRADA_INDICE + 8);
+                int cuentas = indice.getInt(bloque * TAMANO_ENTRADA_INDICE + 12);
+                int crcBloque = indice.getInt(bloque * TAMANO_ENTRADA_INDICE + 16);
+                if (inicio < TAMANO_CABECERA || tamano < 0 || tamano > TAMANO_MAXIMO_BLOQUE
+                        || inicio + tamano > posicionIndice || cuentas != numCuentas(numCuentas, bloque)) {
+                    throw new IOException("La copia del banco está dañada: " + fichero);
+                }
+                tareas.add(() -> {
+                    bloques[bloque] = decodificar(canal, inicio, tamano, cuentas, crcBloque, fichero);
+                    if (banco.isConcurrente()) {
+                        abrir(banco, bloques[bloque]);
+                        bloques[bloque] = null;
+                    }
+                    return null;
+                });
+            }
+            ejecutar(pool, tareas);
+            if (!banco.isConcurrente()) {
+                for (CuentaBancaria[] bloque : bloques) {
+                    abrir(banco, bloque);
+                }
+            }
+            return numCuentas;
+        }
+    }
+
+    /**
+     * Codifica las cuentas de un bloque en el buffer, que se sustituye por otro mayor si no caben.
+     *
+     * @return Buffer con el bloque codificado, listo para leer.
+     */
+    private static ByteBuffer codificar(CuentaBancaria[] cuentas, int bloque, ByteBuffer buffer) {
+        int fin = Math.min(cuentas.length, (bloque + 1) * CUENTAS_POR_BLOQUE);
+        for (int i = bloque * CUENTAS_POR_BLOQUE; i < fin; i++) {
+            CuentaBancaria cuenta = cuentas[i];
+            int tamanoMaximo = 4 + CodificadorCuentas.tamanoMaximo(cuenta) + 8;
+            if (buffer.remaining() < tamanoMaximo) {
+                ByteBuffer mayor = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2,
+                        buffer.position() + tamanoMaximo));
+                buffer = mayor.put(buffer.flip());
+            }
+            int inicio = buffer.position();
+            buffer.position(inicio + 4);
+            CodificadorCuentas.escribir(buffer, cuenta);
+            buffer.putLong(cuenta.getUltimaLiquidacion());
+            buffer.putInt(inicio, buffer.position() - inicio - 4);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Lee un bloque del fichero, comprueba su CRC y decodifica sus cuentas.
+     */
+    private static CuentaBancaria[] decodificar(FileChannel canal, long inicio, int tamano, int numCuentas,
+                                                int crcEsperado, Path fichero) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(tamano);
+        leerCompleto(canal, buffer, inicio);
+        buffer.flip();
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate());
+        if ((int) crc.getValue() != crcEsperado) {
+            throw new IOException("La copia del banco está dañada: " + fichero);
+        }
+        CuentaBancaria[] cuentas = new CuentaBancaria[numCuentas];
+        try {
+            for (int i = 0; i < numCuentas; i++) {
+                int longitud = buffer.getInt();
+                buffer.limit(buffer.position() + longitud);
+                cuentas[i] = CodificadorCuentas.leer(buffer);
+                cuentas[i].setUltimaLiquidacion(buffer.getLong());
+                if (buffer.hasRemaining()) {
+                    throw new IOException("La copia del banco está dañada: " + fichero);
+                }
+                buffer.limit(tamano);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("La copia del banco está dañada: " + fichero, e);
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException("La copia del banco está dañada: " + fichero);
+        }
+        return cuentas;
+    }
+
+    /**
+     * Abre las cuentas en el banco y avanza su asignador de IBAN más allá de ellas, para que las cuentas
+     * nuevas no reciban el IBAN de una cargada.
+     */
+    private static void abrir(Banco banco, CuentaBancaria[] cuentas) {
+        AsignadorIBAN asignador = banco.getAsignadorIBAN();
+        for (CuentaBancaria cuenta : cuentas) {
+            asignador.avanzarHasta(cuenta.getIban());
+            banco.abrirCuenta(cuenta);
+        }
+    }
+
+    /**
+     * Calcula el número de cuentas de un bloque: todos están llenos salvo el último.
+     */
+    private static int numCuentas(long total, int bloque) {
+        return (int) Math.min(CUENTAS_POR_BLOQUE, total - (long) bloque * CUENTAS_POR_BLOQUE);
+    }
+
+    /**
+     * Ejecuta las tareas en el pool y espera a que terminen todas, relanzando el primer error.
+     */
+    private static void ejecutar(ForkJoinPool pool, List<Callable<Void>> tareas) throws IOException {
+        IOException error = null;
+        for (Future<Void> resultado : pool.invokeAll(tareas)) {
+            try {
+                resultado.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrumpido mientras se esperaba a los bloques", e);
+            } catch (ExecutionException e) {
+                // El pool puede envolver el error de la tarea en otro: se busca la IOException original
+                Throwable causa = e.getCause();
+                while (causa != null && !(causa instanceof IOException) && causa.getCause() != null) {
+                    causa = causa.getCause();
+                }
+                if (causa instanceof IOException) {
+                    if (error == null) {
+                        error = (IOException) causa;
+                    }
+                } else if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                } else {
+                    throw (RuntimeException) e.getCause();
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private static void escribirCompleto(FileChannel canal, ByteBuffer buffer, long posicion) throws IOException {
+        while (buffer.hasRemaining()) {
+            posicion += canal.write(buffer, posicion);
+        }
+    }
+
+    private static void leerCompleto(FileChannel canal, ByteBuffer buffer, long posicion) throws IOException {
+        while (buffer.hasRemaining()) {
+            int leidos = canal.read(buffer, posicion);
+            if (leidos < 0) {
+                throw new IOException("La copia del banco está incompleta");
+            }
+            posicion += leidos;
+        }
+    }
+}
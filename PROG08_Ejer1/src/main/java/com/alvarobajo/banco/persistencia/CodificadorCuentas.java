@@ -0,0 +1,212 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorriente;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codificación binaria compacta de las cuentas bancarias y sus titulares sobre un {@link ByteBuffer}.
+ *
+ * <p>Cada cuenta se escribe como una etiqueta de tipo de un byte, el IBAN, el saldo en céntimos,
+ * los datos del titular y los campos propios de su subclase. Los textos se escriben con su longitud
+ * en bytes (dos bytes sin signo, con {@code 0xFFFF} para null) seguida de su contenido en UTF-8.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class CodificadorCuentas {
+
+    /** Etiqueta de una {@link CuentaAhorro}. */
+    public static final byte TIPO_AHORRO = 1;
+    /** Etiqueta de una {@link CuentaCorrientePersonal}. */
+    public static final byte TIPO_CORRIENTE_PERSONAL = 2;
+    /** Etiqueta de una {@link CuentaCorrienteEmpresa}. */
+    public static final byte TIPO_CORRIENTE_EMPRESA = 3;
+
+    private static final int TEXTO_NULO = 0xFFFF;
+
+    private CodificadorCuentas() {
+    }
+
+    /**
+     * Obtiene la etiqueta de tipo de una cuenta.
+     *
+     * @param cuenta Cuenta de la que obtener la etiqueta.
+     * @return Etiqueta del tipo de cuenta.
+     * @throws IllegalArgumentException si el tipo de cuenta no se puede codificar.
+     */
+    public static byte tipoDe(CuentaBancaria cuenta) {
+        if (cuenta instanceof CuentaAhorro) {
+            return TIPO_AHORRO;
+        } else if (cuenta instanceof CuentaCorrientePersonal) {
+            return TIPO_CORRIENTE_PERSONAL;
+        } else if (cuenta instanceof CuentaCorrienteEmpresa) {
+            return TIPO_CORRIENTE_EMPRESA;
+        }
+        throw new IllegalArgumentException("Tipo de cuenta no soportado: " + cuenta.getClass().getName());
+    }
+
+    /**
+     * Calcula un límite superior del número de bytes que ocupa una cuenta codificada.
+     *
+     * @param cuenta Cuenta a codificar.
+     * @return Número máximo de bytes de la cuenta codificada.
+     */
+    public static int tamanoMaximo(CuentaBancaria cuenta) {
+        Persona titular = cuenta.getTitular();
+        int tamano = 1 + 8 + 4 * 8 + tamanoMaximo(cuenta.getIban());
+        if (titular != null) {
+            tamano += tamanoMaximo(titular.getNombre()) + tamanoMaximo(titular.getApellido1())
+                    + tamanoMaximo(titular.getApellido2()) + tamanoMaximo(titular.getDni());
+        }
+        if (cuenta instanceof CuentaCorriente) {
+            tamano += tamanoMaximo(((CuentaCorriente) cuenta).getListaEntidades());
+        }
+        return tamano + 1;
+    }
+
+    /**
+     * Escribe una cuenta en el buffer a partir de su posición actual.
+     *
+     * @param destino Buffer en el que escribir.
+     * @param cuenta  Cuenta a escribir.
+     * @throws java.nio.BufferOverflowException si no hay espacio suficiente en el buffer.
+     */
+    public static void escribir(ByteBuffer destino, CuentaBancaria cuenta) {
+        byte tipo = tipoDe(cuenta);
+        destino.put(tipo);
+        escribirTexto(destino, cuenta.getIban());
+        destino.putLong(cuenta.getSaldoCentimos());
+        Persona titular = cuenta.getTitular();
+        destino.put((byte) (titular != null ? 1 : 0));
+        if (titular != null) {
+            escribirTexto(destino, titular.getNombre());
+            escribirTexto(destino, titular.getApellido1());
+            escribirTexto(destino, titular.getApellido2());
+            escribirTexto(destino, titular.getDni());
+        }
+        switch (tipo) {
+            case TIPO_AHORRO:
+                destino.putDouble(((CuentaAhorro) cuenta).getTipoInteres());
+                break;
+            case TIPO_CORRIENTE_PERSONAL:
+                CuentaCorrientePersonal personal = (CuentaCorrientePersonal) cuenta;
+                escribirTexto(destino, personal.getListaEntidades());
+                destino.putDouble(personal.getComisionMantenimiento());
+                break;
+            default:
+                CuentaCorrienteEmpresa empresa = (CuentaCorrienteEmpresa) cuenta;
+                escribirTexto(destino, empresa.getListaEntidades());
+                destino.putDouble(empresa.getTipoInteresDescubierto());
+                destino.putDouble(empresa.getMaximoDescubierto());
+        }
+    }
+
+    /**
+     * Lee una cuenta del buffer a partir de su posición actual.
+     *
+     * @param origen Buffer del que leer.
+     * @return Cuenta leída.
+     * @throws IllegalArgumentException si la etiqueta de tipo no es válida.
+     * @throws java.nio.BufferUnderflowException si el buffer no contiene la cuenta completa.
+     */
+    public static CuentaBancaria leer(ByteBuffer origen) {
+        byte tipo = origen.get();
+        String iban = leerTexto(origen);
+        long saldo = origen.getLong();
+        Persona titular = null;
+        if (origen.get() != 0) {
+            titular = new Persona(leerTexto(origen), leerTexto(origen), leerTexto(origen), leerTexto(origen));
+        }
+        CuentaBancaria cuenta;
+        switch (tipo) {
+            case TIPO_AHORRO:
+                cuenta = new CuentaAhorro(titular, 0, iban, origen.getDouble());
+                break;
+            case TIPO_CORRIENTE_PERSONAL:
+                String entidadesPersonal = leerTexto(origen);
+                cuenta = new CuentaCorrientePersonal(titular, 0, iban, entidadesPersonal, origen.getDouble());
+                break;
+            case TIPO_CORRIENTE_EMPRESA:
+                String entidadesEmpresa = leerTexto(origen);
+                double tipoInteresDescubierto = origen.getDouble();
+                cuenta = new CuentaCorrienteEmpresa(titular, 0, iban, entidadesEmpresa, tipoInteresDescubierto,
+                        origen.getDouble());
+                break;
+            default:
+                throw new IllegalArgumentException("Etiqueta de tipo de cuenta no válida: " + tipo);
+        }
+        cuenta.setSaldoCentimos(saldo);
+        return cuenta;
+    }
+
+    /**
+     * Escribe un texto con su longitud en bytes seguida de su contenido en UTF-8.
+     *
+     * @param destino Buffer en el que escribir.
+     * @param texto   Texto a escribir (puede ser null).
+     */
+    public static void escribirTexto(ByteBuffer destino, String texto) {
+        if (texto == null) {
+            destino.putShort((short) TEXTO_NULO);
+            return;
+        }
+        if (esAscii(texto)) {
+            // Camino rápido sin reservar memoria, habitual en IBAN y DNI
+            destino.putShort((short) texto.length());
+            for (int i = 0; i < texto.length(); i++) {
+                destino.put((byte) texto.charAt(i));
+            }
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= TEXTO_NULO) {
+            throw new IllegalArgumentException("Texto demasiado largo para codificarlo: " + bytes.length + " bytes");
+        }
+        destino.putShort((short) bytes.length);
+        destino.put(bytes);
+    }
+
+    /**
+     * Lee un texto escrito con {@link #escribirTexto}.
+     *
+     * @param origen Buffer del que leer.
+     * @return Texto leído (puede ser null).
+     */
+    public static String leerTexto(ByteBuffer origen) {
+        int longitud = origen.getShort() & 0xFFFF;
+        if (longitud == TEXTO_NULO) {
+            return null;
+        }
+        byte[] bytes = new byte[longitud];
+        origen.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Calcula un límite superior del número de bytes que ocupa un texto codificado.
+     *
+     * @param texto Texto a codificar (puede ser null).
+     * @return Número máximo de bytes del texto codificado.
+     */
+    public static int tamanoMaximo(String texto) {
+        return 2 + (texto != null ? texto.length() * 3 : 0);
+    }
+
+    private static boolean esAscii(String texto) {
+        if (texto.length() >= TEXTO_NULO) {
+            return false;
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,521 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.ObservadorBanco;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.TipoMovimiento;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario de operaciones de solo escritura al final (write-ahead log) de un {@link Banco}.
+ *
+ * <p>Se registra como observador del banco y escribe un registro por cada alta de cuenta, baja de cuenta,
+ * movimiento de saldo y transferencia, en el mismo orden en que se aplicaron. Los movimientos guardan el
+ * saldo resultante de la cuenta, por lo que volver a aplicar un registro ya aplicado no cambia nada.
+ * Las liquidaciones periódicas (por ejemplo, los intereses) guardan además el periodo liquidado, para que
+ * una liquidación interrumpida pueda repetirse tras recuperar el banco sin aplicarse dos veces.</p>
+ *
+ * <p>Formato de cada registro: longitud del contenido (int), CRC32C del contenido (int) y contenido:
+ * tipo de registro (byte), número de secuencia (long) y los datos propios del tipo. Un registro
+ * incompleto o con el CRC incorrecto al final del fichero se considera una escritura interrumpida
+ * y se descarta al abrir el diario.</p>
+ *
+ * <p>Los registros se acumulan en un buffer en memoria y se escriben en el fichero con un
+ * {@link FileChannel}. Cuándo se sincronizan con el disco depende del {@link ModoDurabilidad}:
+ * en modo {@link ModoDurabilidad#GRUPO} el primer hilo que necesita sincronizar lo hace para todos
+ * los registros pendientes, y el resto de hilos esperan a esa misma sincronización.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class Diario implements ObservadorBanco, AutoCloseable {
+
+    static final byte REGISTRO_APERTURA = 1;
+    static final byte REGISTRO_ELIMINACION = 2;
+    static final byte REGISTRO_MOVIMIENTO = 3;
+    static final byte REGISTRO_TRANSFERENCIA = 4;
+    static final byte REGISTRO_LIQUIDACION = 5;
+
+    private static final int CABECERA = 8;
+    private static final int TAMANO_MAXIMO_REGISTRO = 16 * 1024 * 1024;
+    private static final int TAMANO_BUFFER = 1024 * 1024;
+    private static final long INTERVALO_ASINCRONO_MS = 10;
+
+    private final FileChannel canal;
+    private final ModoDurabilidad modo;
+    private final CRC32C crc = new CRC32C();
+    private final ThreadLocal<long[]> ultimaDelHilo = ThreadLocal.withInitial(() -> new long[1]);
+    private final ScheduledExecutorService volcador;
+
+    private ByteBuffer pendiente = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+    private long siguienteSecuencia;
+    private long sincronizada;
+    private boolean sincronizando;
+    private boolean cerrado;
+
+    private Diario(FileChannel canal, ModoDurabilidad modo, long siguienteSecuencia) {
+        this.canal = canal;
+        this.modo = modo;
+        this.siguienteSecuencia = siguienteSecuencia;
+        this.sincronizada = siguienteSecuencia - 1;
+        if (modo == ModoDurabilidad.ASINCRONO) {
+            volcador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "diario-volcado");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            volcador.scheduleWithFixedDelay(this::sincronizarEnSegundoPlano,
+                    INTERVALO_ASINCRONO_MS, INTERVALO_ASINCRONO_MS, TimeUnit.MILLISECONDS);
+        } else {
+            volcador = null;
+        }
+    }
+
+    /**
+     * Abre (o crea) el diario de un banco: aplica al banco todos los registros válidos del fichero,
+     * descarta una posible escritura interrumpida al final y registra el diario como observador del
+     * banco para que las operaciones siguientes se añadan al fichero.
+     *
+     * <p>Debe llamarse con el banco recién creado, antes de registrar otros observadores.</p>
+     *
+     * @param fichero Fichero del diario.
+     * @param modo    Modo de durabilidad de las operaciones.
+     * @param banco   Banco al que aplicar el diario.
+     * @return El diario abierto.
+     * @throws IOException si no se puede leer o escribir el fichero, o si contiene un registro con el CRC
+     *                     correcto que no se puede aplicar; el mensaje indica su posición.
+     */
+    public static Diario abrir(Path fichero, ModoDurabilidad modo, Banco banco) throws IOException {
+        return abrir(fichero, modo, banco, 0, 0);
+    }
+
+    /**
+     * Abre el diario de un banco aplicando solo los registros a partir de una posición del fichero
+     * y con número de secuencia igual o mayor que el indicado. Se usa al arrancar desde una instantánea.
+     *
+     * @param fichero          Fichero del diario.
+     * @param modo             Modo de durabilidad de las operaciones.
+     * @param banco            Banco al que aplicar el diario.
+     * @param posicionInicial  Posición del fichero desde la que leer registros.
+     * @param secuenciaMinima  Número de secuencia del primer registro que se aplica.
+     * @return El diario abierto.
+     * @throws IOException si no se puede leer o escribir el fichero.
+     */
+    static Diario abrir(Path fichero, ModoDurabilidad modo, Banco banco, long posicionInicial,
+                        long secuenciaMinima) throws IOException {
+        FileChannel canal = FileChannel.open(fichero, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long[] estado = reproducir(canal, banco, posicionInicial, secuenciaMinima);
+            long posicionFinal = estado[0];
+            long siguienteSecuencia = Math.max(estado[1] + 1, secuenciaMinima);
+            if (canal.size() > posicionFinal) {
+                canal.truncate(posicionFinal);
+            }
+            canal.position(posicionFinal);
+            Diario diario = new Diario(canal, modo, siguienteSecuencia);
+            banco.agregarObservador(diario);
+            return diario;
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lee los registros válidos del diario y los aplica al banco. Se detiene en el primer registro
+     * incompleto o con el CRC incorrecto.
+     *
+     * @return Posición del final del último registro válido y número de secuencia de ese registro.
+     */
+    private static long[] reproducir(FileChannel canal, Banco banco, long posicionInicial, long secuenciaMinima)
+            throws IOException {
+        ByteBuffer lectura = ByteBuffer.allocate(TAMANO_BUFFER);
+        CRC32C crc = new CRC32C();
+        long posicion = posicionInicial;
+        long ultimaSecuencia = secuenciaMinima - 1;
+        canal.position(posicionInicial);
+        lectura.flip();
+        while (true) {
+            if (lectura.remaining() < CABECERA && !rellenar(canal, lectura, CABECERA)) {
+                break;
+            }
+            int longitud = lectura.getInt(lectura.position());
+            int crcEsperado = lectura.getInt(lectura.position() + 4);
+            if (longitud <= 0 || longitud > TAMANO_MAXIMO_REGISTRO) {
+                break;
+            }
+            if (lectura.capacity() < CABECERA + longitud) {
+                ByteBuffer mayor = ByteBuffer.allocate(CABECERA + longitud);
+                mayor.put(lectura).flip();
+                lectura = mayor;
+            }
+            if (lectura.remaining() < CABECERA + longitud && !rellenar(canal, lectura, CABECERA + longitud)) {
+                break;
+            }
+            ByteBuffer contenido = lectura.slice(lectura.position() + CABECERA, longitud);
+            crc.reset();
+            crc.update(contenido.duplicate());
+            if ((int) crc.getValue() != crcEsperado) {
+                break;
+            }
+            long secuencia = contenido.getLong(1);
+            if (secuencia >= secuenciaMinima) {
+                contenido.position(9);
+                try {
+                    aplicar(banco, contenido.get(0), contenido);
+                } catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e) {
+                    // El CRC es correcto, así que no es una escritura interrumpida: no se descarta nada
+                    throw new IOException("Registro no válido en la posición " + posicion + " del diario", e);
+                }
+                ultimaSecuencia = secuencia;
+            }
+            lectura.position(lectura.position() + CABECERA + longitud);
+            posicion += CABECERA + longitud;
+        }
+        return new long[]{posicion, ultimaSecuencia};
+    }
+
+    /**
+     * Lee más datos del canal hasta tener al menos los bytes indicados disponibles en el buffer.
+     *
+     * @return false si se alcanza el final del fichero antes de tenerlos.
+     */
+    private static boolean rellenar(FileChannel canal, ByteBuffer lectura, int necesarios) throws IOException {
+        lectura.compact();
+        while (lectura.position() < necesarios) {
+            if (canal.read(lectura) < 0) {
+                lectura.flip();
+                return false;
+            }
+        }
+        lectura.flip();
+        return true;
+    }
+
+    private static void aplicar(Banco banco, byte tipo, ByteBuffer contenido) {
+        switch (tipo) {
+            case REGISTRO_APERTURA:
+                CuentaBancaria nueva = CodificadorCuentas.leer(contenido);
+                if (!banco.estaIBANEnUso(nueva.getIban())) {
+                    banco.abrirCuenta(nueva);
+                }
+                break;
+            case REGISTRO_ELIMINACION:
+                String iban = CodificadorCuentas.leerTexto(contenido);
+                CuentaBancaria eliminada = banco.buscarCuentaPorIBAN(iban);
+                if (eliminada != null) {
+                    eliminada.setSaldoCentimos(0);
+                    banco.eliminarCuenta(iban);
+                }
+                break;
+            case REGISTRO_MOVIMIENTO:
+                CuentaBancaria cuenta = banco.buscarCuentaPorIBAN(CodificadorCuentas.leerTexto(contenido));
+                contenido.get();
+                contenido.getLong();
+                long saldo = contenido.getLong();
+                if (cuenta != null) {
+                    cuenta.setSaldoCentimos(saldo);
+                }
+                break;
+            case REGISTRO_LIQUIDACION:
+                CuentaBancaria liquidada = banco.buscarCuentaPorIBAN(CodificadorCuentas.leerTexto(contenido));
+                contenido.get();
+                contenido.getLong();
+                long saldoLiquidado = contenido.getLong();
+                long periodo = contenido.getLong();
+                if (liquidada != null) {
+                    liquidada.setSaldoCentimos(saldoLiquidado);
+                    liquidada.setUltimaLiquidacion(periodo);
+                }
+                break;
+            case REGISTRO_TRANSFERENCIA:
+                CuentaBancaria origen = banco.buscarCuentaPorIBAN(CodificadorCuentas.leerTexto(contenido));
+                CuentaBancaria destino = banco.buscarCuentaPorIBAN(CodificadorCuentas.leerTexto(contenido));
+                contenido.getLong();
+                long saldoOrigen = contenido.getLong();
+                long saldoDestino = contenido.getLong();
+                if (origen != null) {
+                    origen.setSaldoCentimos(saldoOrigen);
+                }
+                if (destino != null) {
+                    destino.setSaldoCentimos(saldoDestino);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Tipo de registro no válido: " + tipo);
+        }
+    }
+
+    @Override
+    public void cuentaAbierta(CuentaBancaria cuenta) {
+        synchronized (this) {
+            int inicio = comenzarRegistro(REGISTRO_APERTURA, CodificadorCuentas.tamanoMaximo(cuenta));
+            CodificadorCuentas.escribir(pendiente, cuenta);
+            terminarRegistro(inicio);
+        }
+    }
+
+    @Override
+    public void cuentaEliminada(CuentaBancaria cuenta) {
+        synchronized (this) {
+            int inicio = comenzarRegistro(REGISTRO_ELIMINACION, CodificadorCuentas.tamanoMaximo(cuenta.getIban()));
+            CodificadorCuentas.escribirTexto(pendiente, cuenta.getIban());
+            terminarRegistro(inicio);
+        }
+    }
+
+    @Override
+    public void movimientoRealizado(CuentaBancaria cuenta, TipoMovimiento tipo, long importeCentimos,
+                                    long saldoCentimos) {
+        boolean liquidacion = tipo.isLiquidacion();
+        synchronized (this) {
+            int inicio = comenzarRegistro(liquidacion ? REGISTRO_LIQUIDACION : REGISTRO_MOVIMIENTO,
+                    CodificadorCuentas.tamanoMaximo(cuenta.getIban()) + 25);
+            CodificadorCuentas.escribirTexto(pendiente, cuenta.getIban());
+            pendiente.put(tipo.getCodigo());
+            pendiente.putLong(importeCentimos);
+            pendiente.putLong(saldoCentimos);
+            if (liquidacion) {
+                pendiente.putLong(cuenta.getUltimaLiquidacion());
+            }
+            terminarRegistro(inicio);
+        }
+    }
+
+    @Override
+    public void transferenciaRealizada(CuentaBancaria origen, CuentaBancaria destino, long importeCentimos,
+                                       long saldoOrigen, long saldoDestino) {
+        synchronized (this) {
+            int inicio = comenzarRegistro(REGISTRO_TRANSFERENCIA, CodificadorCuentas.tamanoMaximo(origen.getIban())
+                    + CodificadorCuentas.tamanoMaximo(destino.getIban()) + 24);
+            CodificadorCuentas.escribirTexto(pendiente, origen.getIban());
+            CodificadorCuentas.escribirTexto(pendiente, destino.getIban());
+            pendiente.putLong(importeCentimos);
+            pendiente.putLong(saldoOrigen);
+            pendiente.putLong(saldoDestino);
+            terminarRegistro(inicio);
+        }
+    }
+
+    /**
+     * Espera a que los registros escritos por el hilo actual estén en disco, según el modo de durabilidad.
+     */
+    @Override
+    public void confirmar() {
+        long objetivo = ultimaDelHilo.get()[0];
+        try {
+            switch (modo) {
+                case POR_OPERACION:
+                    synchronized (this) {
+                        if (sincronizada < objetivo) {
+                            volcar();
+                            canal.force(false);
+                            sincronizada = siguienteSecuencia - 1;
+                        }
+                    }
+                    break;
+                case GRUPO:
+                    esperarSincronizacion(objetivo);
+                    break;
+                default:
+                    // En modo asíncrono el hilo de volcado sincroniza periódicamente
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el diario de operaciones", e);
+        }
+    }
+
+    /**
+     * Escribe en el fichero y sincroniza con el disco todos los registros pendientes.
+     *
+     * @throws IOException si no se puede escribir el fichero.
+     */
+    public void sincronizar() throws IOException {
+        long objetivo;
+        synchronized (this) {
+            objetivo = siguienteSecuencia - 1;
+        }
+        esperarSincronizacion(objetivo);
+    }
+
+    /**
+     * Obtiene el número de secuencia que recibirá el próximo registro del diario.
+     *
+     * @return Número de secuencia del próximo registro.
+     */
+    public synchronized long getSiguienteSecuencia() {
+        return siguienteSecuencia;
+    }
+
+    /**
+     * Escribe en el fichero los registros pendientes y devuelve la posición del final del fichero
+     * y el número de secuencia del próximo registro. Todos los registros anteriores a esa posición
+     * tienen un número de secuencia menor. Lo usan las instantáneas para saber desde dónde reproducir.
+     *
+     * @return Posición del final del fichero y número de secuencia del próximo registro.
+     * @throws IOException si no se puede escribir el fichero.
+     */
+    synchronized long[] puntoDeControl() throws IOException {
+        volcar();
+        return new long[]{canal.position(), siguienteSecuencia};
+    }
+
+    /**
+     * Obtiene el modo de durabilidad del diario.
+     *
+     * @return Modo de durabilidad.
+     */
+    public ModoDurabilidad getModo() {
+        return modo;
+    }
+
+    /**
+     * Sincroniza los registros pendientes y cierra el fichero del diario.
+     *
+     * @throws IOException si no se puede escribir el fichero.
+     */
+    @Override
+    public void close() throws IOException {
+        if (volcador != null) {
+            volcador.shutdown();
+        }
+        synchronized (this) {
+            if (cerrado) {
+                return;
+            }
+            while (sincronizando) {
+                esperar();
+            }
+            volcar();
+            canal.force(false);
+            cerrado = true;
+        }
+        canal.close();
+    }
+
+    /**
+     * Group commit: si nadie está sincronizando, el hilo actual escribe y sincroniza todos los registros
+     * pendientes; si otro hilo ya lo está haciendo, espera a que termine y vuelve a comprobar.
+     */
+    private void esperarSincronizacion(long objetivo) throws IOException {
+        long hasta;
+        synchronized (this) {
+            while (true) {
+                if (sincronizada >= objetivo || cerrado) {
+                    return;
+                }
+                if (!sincronizando) {
+                    sincronizando = true;
+                    hasta = siguienteSecuencia - 1;
+                    break;
+                }
+                esperar();
+            }
+            try {
+                volcar();
+            } catch (IOException | RuntimeException e) {
+                sincronizando = false;
+                notifyAll();
+                throw e;
+            }
+        }
+        // La sincronización con el disco se hace sin el monitor, para que otros hilos sigan añadiendo registros
+        boolean sincronizado = false;
+        try {
+            canal.force(false);
+            sincronizado = true;
+        } finally {
+            synchronized (this) {
+                sincronizando = false;
+                if (sincronizado) {
+                    sincronizada = Math.max(sincronizada, hasta);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private void sincronizarEnSegundoPlano() {
+        try {
+            sincronizar();
+        } catch (IOException e) {
+            System.err.println("Error al sincronizar el diario de operaciones: " + e.getMessage());
+        }
+    }
+
+    private void esperar() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido mientras se esperaba al diario de operaciones", e);
+        }
+    }
+
+    /**
+     * Reserva espacio en el buffer para un registro y escribe su tipo y número de secuencia.
+     * Debe invocarse con el monitor del diario adquirido.
+     *
+     * @return Posición del comienzo del registro en el buffer.
+     */
+    private int comenzarRegistro(byte tipo, int tamanoMaximoDatos) {
+        if (cerrado) {
+            throw new IllegalStateException("El diario de operaciones está cerrado");
+        }
+        int necesario = CABECERA + 9 + tamanoMaximoDatos;
+        if (pendiente.remaining() < necesario) {
+            try {
+                volcar();
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo escribir el diario de operaciones", e);
+            }
+            if (pendiente.capacity() < necesario) {
+                pendiente = ByteBuffer.allocateDirect(necesario);
+            }
+        }
+        int inicio = pendiente.position();
+        pendiente.position(inicio + CABECERA);
+        pendiente.put(tipo);
+        pendiente.putLong(siguienteSecuencia);
+        return inicio;
+    }
+
+    /**
+     * Completa la cabecera del registro (longitud y CRC) y anota su número de secuencia como el último
+     * del hilo actual. Debe invocarse con el monitor del diario adquirido.
+     */
+    private void terminarRegistro(int inicio) {
+        int longitud = pendiente.position() - inicio - CABECERA;
+        crc.reset();
+        crc.update(pendiente.slice(inicio + CABECERA, longitud));
+        pendiente.putInt(inicio, longitud);
+        pendiente.putInt(inicio + 4, (int) crc.getValue());
+        ultimaDelHilo.get()[0] = siguienteSecuencia;
+        siguienteSecuencia++;
+    }
+
+    /**
+     * Escribe en el fichero los registros acumulados en el buffer. Debe invocarse con el monitor adquirido.
+     */
+    private void volcar() throws IOException {
+        pendiente.flip();
+        try {
+            while (pendiente.hasRemaining()) {
+                canal.write(pendiente);
+            }
+        } finally {
+            pendiente.compact();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.alvarobajo.banco.persistencia;
+
+/**
+ * Extracto de una cuenta en un intervalo de tiempo, obtenido de un {@link HistorialMovimientos}:
+ * saldo al principio del intervalo, movimientos del intervalo en orden cronológico y saldo al final.
+ *
+ * <p>Si el intervalo empieza antes de que el historial empezara a registrar movimientos, el extracto
+ * no está disponible ({@link #isDisponible()}): no tiene movimientos y sus saldos no significan nada.</p>
+ *
+ * <p>Como {@link ListaMovimientos}, está pensado para reutilizarse entre consultas.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class Extracto {
+
+    final ListaMovimientos movimientos = new ListaMovimientos();
+    long saldoInicial;
+    long saldoFinal;
+    boolean disponible;
+
+    /**
+     * Indica si el historial tiene todos los movimientos del intervalo.
+     *
+     * @return true si el extracto está completo; false si el intervalo empieza antes de que el historial
+     * empezara a registrar movimientos.
+     */
+    public boolean isDisponible() {
+        return disponible;
+    }
+
+    /**
+     * Obtiene el saldo de la cuenta al principio del intervalo.
+     *
+     * @return Saldo en céntimos.
+     */
+    public long getSaldoInicialCentimos() {
+        return saldoInicial;
+    }
+
+    /**
+     * Obtiene el saldo de la cuenta al final del intervalo.
+     *
+     * @return Saldo en céntimos.
+     */
+    public long getSaldoFinalCentimos() {
+        return saldoFinal;
+    }
+
+    /**
+     * Obtiene los movimientos del intervalo, del más antiguo al más reciente.
+     *
+     * @return Movimientos del intervalo.
+     */
+    public ListaMovimientos getMovimientos() {
+        return movimientos;
+    }
+}
@@ -0,0 +1,182 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaBancaria;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gestiona la persistencia de un {@link Banco} en un directorio con instantáneas periódicas y un {@link Diario}.
+ *
+ * <p>Al arrancar se carga la instantánea más reciente que sea válida y se reproduce solo la parte del diario
+ * posterior a ella, en lugar de toda la historia. Las instantáneas se toman sin detener las operaciones:
+ * se anota el punto del diario, se recorren las cuentas mientras siguen operándose y, al reproducir
+ * desde ese punto, los registros ya incluidos en la instantánea se vuelven a aplicar sin efecto.</p>
+ *
+ * <p>Se conservan las dos instantáneas más recientes, para poder arrancar desde la anterior si la última
+ * estuviera dañada.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class GestorInstantaneas implements AutoCloseable {
+
+    private static final String FICHERO_DIARIO = "diario.log";
+    private static final String PREFIJO_INSTANTANEA = "instantanea-";
+    private static final String EXTENSION_INSTANTANEA = ".bin";
+    private static final int INSTANTANEAS_CONSERVADAS = 2;
+
+    private final Path directorio;
+    private final Banco banco;
+    private final Diario diario;
+    private ScheduledExecutorService programador;
+
+    private GestorInstantaneas(Path directorio, Banco banco, Diario diario) {
+        this.directorio = directorio;
+        this.banco = banco;
+        this.diario = diario;
+    }
+
+    /**
+     * Recupera el banco desde el directorio indicado (instantánea más reciente y final del diario)
+     * y deja el diario abierto para registrar las operaciones siguientes.
+     *
+     * @param directorio Directorio con las instantáneas y el diario; se crea si no existe.
+     * @param modo       Modo de durabilidad del diario.
+     * @param banco      Banco vacío en el que cargar los datos.
+     * @return El gestor de persistencia del banco.
+     * @throws IOException si no se pueden leer o escribir los ficheros.
+     */
+    public static GestorInstantaneas abrir(Path directorio, ModoDurabilidad modo, Banco banco) throws IOException {
+        Files.createDirectories(directorio);
+        long posicion = 0;
+        long secuencia = 0;
+        for (Path fichero : instantaneas(directorio)) {
+            try {
+                Instantanea instantanea = Instantanea.leer(fichero, banco);
+                posicion = instantanea.getPosicionDiario();
+                secuencia = instantanea.getSecuencia();
+                break;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Se descarta la instantánea " + fichero.getFileName() + ": " + e.getMessage());
+                vaciar(banco);
+            }
+        }
+        Diario diario = Diario.abrir(directorio.resolve(FICHERO_DIARIO), modo, banco, posicion, secuencia);
+        return new GestorInstantaneas(directorio, banco, diario);
+    }
+
+    /**
+     * Toma una instantánea de todas las cuentas del banco sin detener las operaciones.
+     *
+     * @return Fichero de la nueva instantánea.
+     * @throws IOException si no se puede escribir la instantánea.
+     */
+    public synchronized Path tomarInstantanea() throws IOException {
+        long[] punto = diario.puntoDeControl();
+        Path fichero = directorio.resolve(String.format("%s%019d%s", PREFIJO_INSTANTANEA, punto[1],
+                EXTENSION_INSTANTANEA));
+        Instantanea.escribir(banco, punto[1], punto[0], fichero);
+        List<Path> existentes = instantaneas(directorio);
+        for (int i = INSTANTANEAS_CONSERVADAS; i < existentes.size(); i++) {
+            Files.deleteIfExists(existentes.get(i));
+        }
+        return fichero;
+    }
+
+    /**
+     * Programa la toma periódica de instantáneas en un hilo en segundo plano.
+     * Requiere un banco concurrente, porque las cuentas se recorren mientras otros hilos operan.
+     *
+     * @param periodo Tiempo entre instantáneas.
+     * @param unidad  Unidad del periodo.
+     * @throws IllegalStateException si el banco no es concurrente o ya hay una programación activa.
+     */
+    public synchronized void programar(long periodo, TimeUnit unidad) {
+        if (!banco.isConcurrente()) {
+            throw new IllegalStateException("Las instantáneas periódicas requieren un banco concurrente");
+        }
+        if (programador != null) {
+            throw new IllegalStateException("Las instantáneas ya están programadas");
+        }
+        programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "banco-instantaneas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        programador.scheduleWithFixedDelay(this::tomarInstantaneaProgramada, periodo, periodo, unidad);
+    }
+
+    /**
+     * Obtiene el diario de operaciones del banco.
+     *
+     * @return Diario de operaciones.
+     */
+    public Diario getDiario() {
+        return diario;
+    }
+
+    /**
+     * Detiene las instantáneas programadas y cierra el diario.
+     *
+     * @throws IOException si no se puede cerrar el diario.
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService actual;
+        synchronized (this) {
+            actual = programador;
+            programador = null;
+        }
+        if (actual != null) {
+            actual.shutdown();
+            try {
+                actual.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        diario.close();
+    }
+
+    private void tomarInstantaneaProgramada() {
+        try {
+            tomarInstantanea();
+        } catch (IOException e) {
+            System.err.println("No se pudo tomar la instantánea del banco: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Devuelve las instantáneas del directorio, de la más reciente a la más antigua.
+     */
+    private static List<Path> instantaneas(Path directorio) throws IOException {
+        List<Path> ficheros = new ArrayList<>();
+        try (DirectoryStream<Path> contenido = Files.newDirectoryStream(directorio,
+                PREFIJO_INSTANTANEA + "*" + EXTENSION_INSTANTANEA)) {
+            for (Path fichero : contenido) {
+                ficheros.add(fichero);
+            }
+        }
+        ficheros.sort(Comparator.comparing((Path fichero) -> fichero.getFileName().toString()).reversed());
+        return ficheros;
+    }
+
+    /**
+     * Deja el banco vacío tras una instantánea leída a medias.
+     */
+    private static void vaciar(Banco banco) {
+        for (CuentaBancaria cuenta : new ArrayList<>(banco.getCuentas())) {
+            cuenta.setSaldoCentimos(0);
+            banco.eliminarCuenta(cuenta.getIban());
+        }
+    }
+}
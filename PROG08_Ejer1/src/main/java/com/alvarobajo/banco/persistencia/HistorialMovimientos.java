@@ -0,0 +1,520 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.ObservadorBanco;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.TipoMovimiento;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Historial de movimientos de cada cuenta de un {@link Banco}: instante, tipo, importe y saldo
+ * resultante de cada ingreso, retiro, transferencia y liquidación.
+ *
+ * <p>Se registra como observador del banco. Los movimientos más recientes de cada cuenta se guardan en
+ * un anillo en memoria de capacidad fija, como tres {@code long} seguidos en un array de primitivos (el
+ * instante y el tipo comparten el primero) en lugar de un objeto por movimiento. El anillo se reserva
+ * pequeño y crece hasta su capacidad, para que las cuentas con pocos movimientos ocupen poco. Cuando
+ * está lleno, el movimiento más antiguo pasa a un fichero compartido por todas las cuentas, en registros
+ * de tamaño fijo que enlazan con el registro anterior de la misma cuenta. Así,
+ * {@link #ultimosMovimientos} recorre exactamente los movimientos pedidos, primero en el anillo y
+ * después siguiendo los enlaces del fichero, sin buscar entre los de otras cuentas.</p>
+ *
+ * <p>Para los extractos ({@link #extracto}), los movimientos de cada cuenta se agrupan además en
+ * particiones de un día (UTC). De cada partición se guarda, también en un array de primitivos, el día,
+ * el número de orden en la cuenta de su último movimiento, la posición de ese movimiento en el fichero
+ * una vez desbordado y el saldo de la cuenta al terminar el día, que es el saldo inicial de la
+ * partición siguiente. Un extracto localiza las particiones del intervalo con una búsqueda binaria y
+ * recorre solo sus movimientos, sin reproducir la cuenta desde el principio. Los instantes de una
+ * cuenta nunca retroceden, aunque lo haga el reloj, para que sus particiones queden ordenadas.</p>
+ *
+ * <p>Para que los desbordamientos de cuentas distintas no compitan por un único bloqueo, las cuentas se
+ * reparten por su IBAN entre {@value #NUM_FRANJAS} franjas, cada una con su propio buffer y su propio
+ * monitor. Cada franja reserva en el fichero, con un contador atómico, una región del tamaño de su buffer,
+ * la rellena y la escribe entera cuando se llena, antes de reservar la siguiente; las escrituras de
+ * franjas distintas van a regiones distintas y no se esperan entre sí.</p>
+ *
+ * <p>Formato de cada registro del fichero: posición del registro anterior de la misma cuenta, o -1
+ * (long), instante en milisegundos desplazado un byte a la izquierda con el código del tipo en el byte
+ * bajo (long), importe en céntimos (long) y saldo resultante en céntimos (long). El fichero solo sirve a
+ * la ejecución actual: se vacía al abrir el historial. Por eso el historial solo conoce los movimientos
+ * posteriores a su apertura, y los extractos de intervalos que empiezan antes no están disponibles.</p>
+ *
+ * <p>Los movimientos llegan con el monitor de la cuenta adquirido, que protege también su anillo y sus
+ * particiones; las consultas lo adquieren solo para la parte en memoria. Mientras el historial está
+ * registrado, las operaciones sobre el saldo dejan el compare-and-set sin bloqueos y adquieren el
+ * monitor de la cuenta, como con el {@link Diario}.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class HistorialMovimientos implements ObservadorBanco, AutoCloseable {
+
+    static final int TAMANO_REGISTRO = 4 * Long.BYTES;
+    // Potencia de dos, para elegir la franja de una cuenta con una máscara
+    static final int NUM_FRANJAS = 16;
+
+    private static final long DURACION_PARTICION_MS = 24L * 60 * 60 * 1000;
+    private static final int CAPACIDAD_INICIAL = 4;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    // Datos de cada partición, en posiciones consecutivas del array de particiones de la cuenta
+    private static final int PERIODO = 0;
+    private static final int ULTIMO = 1;
+    private static final int POSICION_ULTIMO = 2;
+    private static final int SALDO_FINAL = 3;
+    private static final int DATOS_PARTICION = 4;
+
+    private final Banco banco;
+    private final FileChannel canal;
+    private final int capacidad;
+    private final Clock reloj;
+    private final long registraDesde;
+    // Por IBAN y no por la cuenta: el hash de identidad de un objeto cuyo monitor está adquirido se
+    // calcula por un camino lento de la JVM, y los movimientos llegan siempre con el monitor adquirido
+    private final Map<String, Anillo> anillos = new ConcurrentHashMap<>();
+    private final Franja[] franjas = new Franja[NUM_FRANJAS];
+    // Final de la última región reservada del fichero
+    private final AtomicLong reservado = new AtomicLong();
+
+    /**
+     * Buffer de desbordamiento de las cuentas de una franja y región del fichero que le corresponde.
+     * Los registros de la franja anteriores a la región ya están escritos en el fichero.
+     */
+    private static final class Franja {
+
+        private final ByteBuffer pendiente = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        // Posición en el fichero de la región del buffer, o -1 si aún no se ha reservado ninguna
+        private long inicio = -1;
+    }
+
+    /**
+     * Movimientos recientes de una cuenta, del más antiguo al más reciente a partir de {@code inicio},
+     * y particiones diarias de todos sus movimientos.
+     */
+    private static final class Anillo {
+
+        private final Franja franja;
+        private long[] datos;
+        private int inicio;
+        private int tamano;
+        private long ultimoDesbordado = -1;
+        // Número de movimientos registrados, que es el número de orden del siguiente
+        private long total;
+        private long ultimoInstante;
+        private final long saldoInicial;
+        private long[] particiones = new long[2 * DATOS_PARTICION];
+        private int numParticiones;
+        // Primera partición cuyo último movimiento sigue en el anillo
+        private int sinPosicion;
+
+        Anillo(Franja franja, int capacidad, long saldoInicial) {
+            this.franja = franja;
+            this.datos = new long[Math.min(CAPACIDAD_INICIAL, capacidad) * 3];
+            this.saldoInicial = saldoInicial;
+        }
+
+        long particion(int i, int dato) {
+            return particiones[i * DATOS_PARTICION + dato];
+        }
+
+        /**
+         * Saldo de la cuenta antes de los movimientos de una partición.
+         */
+        long saldoAntesDe(int i) {
+            return i == 0 ? saldoInicial : particion(i - 1, SALDO_FINAL);
+        }
+
+        /**
+         * Última partición de un periodo igual o anterior al indicado, o -1 si no hay ninguna.
+         */
+        int ultimaHasta(long periodo) {
+            int bajo = 0;
+            int alto = numParticiones - 1;
+            while (bajo <= alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (particion(medio, PERIODO) <= periodo) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio - 1;
+                }
+            }
+            return alto;
+        }
+    }
+
+    private HistorialMovimientos(Banco banco, FileChannel canal, int capacidad, Clock reloj) {
+        this.banco = banco;
+        this.canal = canal;
+        this.capacidad = capacidad;
+        this.reloj = reloj;
+        this.registraDesde = reloj.millis();
+        for (int i = 0; i < NUM_FRANJAS; i++) {
+            franjas[i] = new Franja();
+        }
+    }
+
+    /**
+     * Crea el historial de un banco y lo registra como observador, de modo que guarda todos los
+     * movimientos posteriores.
+     *
+     * @param fichero             Fichero de desbordamiento (se vacía si ya existe).
+     * @param capacidadPorCuenta  Número de movimientos de cada cuenta que se guardan en memoria.
+     * @param banco               Banco del que guardar los movimientos.
+     * @return El historial abierto.
+     * @throws IllegalArgumentException si la capacidad no es positiva.
+     * @throws IOException              si no se puede crear el fichero.
+     */
+    public static HistorialMovimientos abrir(Path fichero, int capacidadPorCuenta, Banco banco) throws IOException {
+        return abrir(fichero, capacidadPorCuenta, Clock.systemUTC(), banco);
+    }
+
+    /**
+     * Crea el historial de un banco, con el reloj indicado para fechar los movimientos, y lo registra
+     * como observador.
+     *
+     * @param fichero             Fichero de desbordamiento (se vacía si ya existe).
+     * @param capacidadPorCuenta  Número de movimientos de cada cuenta que se guardan en memoria.
+     * @param reloj               Reloj con el que se fechan los movimientos.
+     * @param banco               Banco del que guardar los movimientos.
+     * @return El historial abierto.
+     * @throws IllegalArgumentException si la capacidad no es positiva.
+     * @throws IOException              si no se puede crear el fichero.
+     */
+    public static HistorialMovimientos abrir(Path fichero, int capacidadPorCuenta, Clock reloj, Banco banco)
+            throws IOException {
+        if (capacidadPorCuenta <= 0) {
+            throw new IllegalArgumentException("La capacidad por cuenta debe ser positiva");
+        }
+        FileChannel canal = FileChannel.open(fichero, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        HistorialMovimientos historial = new HistorialMovimientos(banco, canal, capacidadPorCuenta, reloj);
+        banco.agregarObservador(historial);
+        return historial;
+    }
+
+    /**
+     * Obtiene los últimos movimientos de una cuenta, del más reciente al más antiguo.
+     *
+     * <p>El coste es proporcional al número de movimientos devueltos. Solo se reserva memoria si la
+     * lista tiene que crecer.</p>
+     *
+     * @param cuenta  Cuenta de la que obtener los movimientos.
+     * @param n       Número máximo de movimientos.
+     * @param destino Lista en la que se dejan los movimientos; se vacía antes.
+     * @return Número de movimientos obtenidos.
+     * @throws IOException si no se puede leer el fichero de desbordamiento.
+     */
+    public int ultimosMovimientos(CuentaBancaria cuenta, int n, ListaMovimientos destino) throws IOException {
+        destino.vaciar(Math.min(n, capacidad));
+        long desbordado;
+        Franja franja;
+        synchronized (cuenta) {
+            Anillo anillo = anillos.get(cuenta.getIban());
+            if (anillo == null) {
+                return 0;
+            }
+            int enAnillo = Math.min(n, anillo.tamano);
+            int huecos = anillo.datos.length / 3;
+            for (int i = 0; i < enAnillo; i++) {
+                int posicion = (anillo.inicio + anillo.tamano - 1 - i) % huecos * 3;
+                destino.anadir(anillo.datos[posicion], anillo.datos[posicion + 1], anillo.datos[posicion + 2]);
+            }
+            desbordado = enAnillo < n ? anillo.ultimoDesbordado : -1;
+            franja = anillo.franja;
+        }
+        // Los registros del fichero no cambian una vez escritos: se leen ya sin el monitor de la cuenta
+        ByteBuffer registro = destino.registro;
+        while (destino.getTamano() < n && desbordado >= 0) {
+            leerRegistro(franja, desbordado, registro);
+            destino.anadir(registro.getLong(Long.BYTES), registro.getLong(2 * Long.BYTES),
+                    registro.getLong(3 * Long.BYTES));
+            desbordado = registro.getLong(0);
+        }
+        return destino.getTamano();
+    }
+
+    /**
+     * Obtiene el extracto de una cuenta entre dos instantes: el saldo al principio, los movimientos del
+     * intervalo en orden cronológico y el saldo al final.
+     *
+     * <p>Solo se recorren los movimientos de los días que toca el intervalo. Antes del primer movimiento
+     * registrado, el saldo es el que tenía la cuenta entonces. Si el intervalo empieza antes de
+     * {@link #getRegistraDesde()}, por ejemplo porque el programa se ha reiniciado desde entonces, faltan
+     * movimientos y el extracto se marca como no disponible.</p>
+     *
+     * @param cuenta  Cuenta de la que obtener el extracto.
+     * @param desde   Inicio del intervalo, incluido, en milisegundos desde el 1 de enero de 1970 (UTC).
+     * @param hasta   Fin del intervalo, excluido, en milisegundos desde el 1 de enero de 1970 (UTC).
+     * @param destino Extracto que se rellena; se vacía antes.
+     * @throws IllegalArgumentException si el fin del intervalo es anterior al inicio.
+     * @throws IOException              si no se puede leer el fichero de desbordamiento.
+     */
+    public void extracto(CuentaBancaria cuenta, long desde, long hasta, Extracto destino) throws IOException {
+        if (hasta < desde) {
+            throw new IllegalArgumentException("El fin del intervalo es anterior al inicio");
+        }
+        destino.movimientos.vaciar(capacidad);
+        destino.disponible = desde >= registraDesde;
+        if (!destino.disponible) {
+            destino.saldoInicial = 0;
+            destino.saldoFinal = 0;
+            return;
+        }
+        long primero;
+        long numero;
+        long desbordado;
+        Franja franja;
+        synchronized (cuenta) {
+            Anillo anillo = anillos.get(cuenta.getIban());
+            if (anillo == null) {
+                destino.saldoInicial = cuenta.getSaldoCentimos();
+                destino.saldoFinal = destino.saldoInicial;
+                return;
+            }
+            int primera = anillo.ultimaHasta(Math.floorDiv(desde, DURACION_PARTICION_MS) - 1) + 1;
+            int ultima = anillo.ultimaHasta(Math.floorDiv(hasta - 1, DURACION_PARTICION_MS));
+            if (ultima < primera) {
+                // Ningún movimiento en los días del intervalo: el saldo es el que dejó el último anterior
+                destino.saldoInicial = anillo.saldoAntesDe(ultima + 1);
+                destino.saldoFinal = destino.saldoInicial;
+                return;
+            }
+            // Los movimientos de las particiones de los extremos que caen fuera del intervalo corrigen estos saldos
+            destino.saldoInicial = anillo.saldoAntesDe(primera);
+            destino.saldoFinal = anillo.particion(ultima, SALDO_FINAL);
+            primero = primera == 0 ? 0 : anillo.particion(primera - 1, ULTIMO) + 1;
+            numero = anillo.particion(ultima, ULTIMO);
+
+            // Primero los que siguen en el anillo, del más reciente al más antiguo
+            long primeroEnAnillo = anillo.total - anillo.tamano;
+            int huecos = anillo.datos.length / 3;
+            for (; numero >= primero && numero >= primeroEnAnillo; numero--) {
+                int posicion = (anillo.inicio + (int) (numero - primeroEnAnillo)) % huecos * 3;
+                if (!anadirAlExtracto(destino, desde, hasta, anillo.datos[posicion], anillo.datos[posicion + 1],
+                        anillo.datos[posicion + 2])) {
+                    numero = -1;
+                    break;
+                }
+            }
+            if (numero < primero) {
+                desbordado = -1;
+            } else if (numero == primeroEnAnillo - 1) {
+                desbordado = anillo.ultimoDesbordado;
+            } else {
+                desbordado = anillo.particion(ultima, POSICION_ULTIMO);
+            }
+            franja = anillo.franja;
+        }
+        ByteBuffer registro = destino.movimientos.registro;
+        for (; numero >= primero && desbordado >= 0; numero--) {
+            leerRegistro(franja, desbordado, registro);
+            if (!anadirAlExtracto(destino, desde, hasta, registro.getLong(Long.BYTES),
+                    registro.getLong(2 * Long.BYTES), registro.getLong(3 * Long.BYTES))) {
+                break;
+            }
+            desbordado = registro.getLong(0);
+        }
+        destino.movimientos.invertir();
+    }
+
+    /**
+     * Obtiene el instante desde el que el historial registra movimientos, que es el de su apertura.
+     *
+     * @return Instante en milisegundos desde el 1 de enero de 1970 (UTC).
+     */
+    public long getRegistraDesde() {
+        return registraDesde;
+    }
+
+    @Override
+    public void cuentaEliminada(CuentaBancaria cuenta) {
+        anillos.remove(cuenta.getIban());
+    }
+
+    @Override
+    public void movimientoRealizado(CuentaBancaria cuenta, TipoMovimiento tipo, long importeCentimos,
+                                    long saldoCentimos) {
+        anadir(cuenta, reloj.millis(), tipo, importeCentimos, saldoCentimos);
+    }
+
+    @Override
+    public void transferenciaRealizada(CuentaBancaria origen, CuentaBancaria destino, long importeCentimos,
+                                       long saldoOrigen, long saldoDestino) {
+        long instante = reloj.millis();
+        anadir(origen, instante, TipoMovimiento.TRANSFERENCIA_EMITIDA, importeCentimos, saldoOrigen);
+        anadir(destino, instante, TipoMovimiento.TRANSFERENCIA_RECIBIDA, importeCentimos, saldoDestino);
+    }
+
+    /**
+     * Deja de registrar movimientos y cierra el fichero de desbordamiento.
+     *
+     * @throws IOException si no se puede cerrar el fichero.
+     */
+    @Override
+    public void close() throws IOException {
+        banco.eliminarObservador(this);
+        canal.close();
+    }
+
+    static long instante(long instanteYTipo) {
+        return instanteYTipo >>> 8;
+    }
+
+    static byte codigoTipo(long instanteYTipo) {
+        return (byte) instanteYTipo;
+    }
+
+    /**
+     * Procesa un movimiento de un extracto, que se recorren del más reciente al más antiguo: lo añade si
+     * es del intervalo o, si es posterior o anterior, corrige el saldo final o el inicial.
+     *
+     * @return false si el movimiento es anterior al intervalo y no hay que seguir.
+     */
+    private static boolean anadirAlExtracto(Extracto extracto, long desde, long hasta, long instanteYTipo,
+                                            long importe, long saldo) {
+        long instante = instante(instanteYTipo);
+        if (instante >= hasta) {
+            boolean abono = TipoMovimiento.desdeCodigo(codigoTipo(instanteYTipo)).isAbono();
+            extracto.saldoFinal = abono ? saldo - importe : saldo + importe;
+            return true;
+        }
+        if (instante < desde) {
+            extracto.saldoInicial = saldo;
+            return false;
+        }
+        extracto.movimientos.anadir(instanteYTipo, importe, saldo);
+        return true;
+    }
+
+    /**
+     * Añade un movimiento al anillo y a las particiones de la cuenta. Debe invocarse con el monitor de
+     * la cuenta adquirido.
+     */
+    private void anadir(CuentaBancaria cuenta, long instante, TipoMovimiento tipo, long importe, long saldo) {
+        Anillo anillo = anillos.get(cuenta.getIban());
+        if (anillo == null) {
+            anillo = new Anillo(franja(cuenta.getIban()), capacidad, tipo.isAbono() ? saldo - importe
+                    : saldo + importe);
+            anillos.put(cuenta.getIban(), anillo);
+        }
+        instante = Math.max(instante, anillo.ultimoInstante);
+        anillo.ultimoInstante = instante;
+
+        int huecos = anillo.datos.length / 3;
+        if (anillo.tamano == capacidad) {
+            int masAntiguo = anillo.inicio * 3;
+            long posicion = desbordar(anillo.franja, anillo.ultimoDesbordado, anillo.datos[masAntiguo],
+                    anillo.datos[masAntiguo + 1], anillo.datos[masAntiguo + 2]);
+            anillo.ultimoDesbordado = posicion;
+            // Se desborda en orden, así que el movimiento solo puede ser el último de la primera pendiente
+            int pendienteDePosicion = anillo.sinPosicion;
+            if (pendienteDePosicion < anillo.numParticiones
+                    && anillo.particion(pendienteDePosicion, ULTIMO) == anillo.total - anillo.tamano) {
+                anillo.particiones[pendienteDePosicion * DATOS_PARTICION + POSICION_ULTIMO] = posicion;
+                anillo.sinPosicion++;
+            }
+            anillo.inicio = (anillo.inicio + 1) % huecos;
+            anillo.tamano--;
+        } else if (anillo.tamano == huecos) {
+            // Se ordena al crecer para que el más antiguo quede al principio
+            long[] datos = new long[Math.min(huecos * 2, capacidad) * 3];
+            int primeros = (huecos - anillo.inicio) * 3;
+            System.arraycopy(anillo.datos, anillo.inicio * 3, datos, 0, primeros);
+            System.arraycopy(anillo.datos, 0, datos, primeros, anillo.inicio * 3);
+            anillo.datos = datos;
+            anillo.inicio = 0;
+            huecos = datos.length / 3;
+        }
+        int posicion = (anillo.inicio + anillo.tamano) % huecos * 3;
+        anillo.datos[posicion] = instante << 8 | tipo.getCodigo();
+        anillo.datos[posicion + 1] = importe;
+        anillo.datos[posicion + 2] = saldo;
+        anillo.tamano++;
+
+        anadirAParticion(anillo, Math.floorDiv(instante, DURACION_PARTICION_MS), saldo);
+        anillo.total++;
+    }
+
+    /**
+     * Hace del movimiento número {@code total} el último de la partición de su día.
+     */
+    private static void anadirAParticion(Anillo anillo, long periodo, long saldo) {
+        int ultima = anillo.numParticiones - 1;
+        if (ultima < 0 || anillo.particion(ultima, PERIODO) != periodo) {
+            ultima++;
+            if ((ultima + 1) * DATOS_PARTICION > anillo.particiones.length) {
+                anillo.particiones = Arrays.copyOf(anillo.particiones, anillo.particiones.length * 2);
+            }
+            anillo.numParticiones++;
+            anillo.particiones[ultima * DATOS_PARTICION + PERIODO] = periodo;
+        } else if (anillo.sinPosicion > ultima) {
+            // Con capacidad 1 el anterior último de la partición ya se ha desbordado: el nuevo aún no
+            anillo.sinPosicion = ultima;
+        }
+        int base = ultima * DATOS_PARTICION;
+        anillo.particiones[base + ULTIMO] = anillo.total;
+        anillo.particiones[base + POSICION_ULTIMO] = -1;
+        anillo.particiones[base + SALDO_FINAL] = saldo;
+    }
+
+    private Franja franja(String iban) {
+        int hash = iban.hashCode();
+        return franjas[(hash ^ hash >>> 16) & (NUM_FRANJAS - 1)];
+    }
+
+    /**
+     * Añade un registro al buffer de desbordamiento de una franja. Si está lleno, lo escribe en su región
+     * del fichero y reserva la siguiente.
+     *
+     * @return Posición del registro en el fichero.
+     */
+    private long desbordar(Franja franja, long anterior, long instanteYTipo, long importe, long saldo) {
+        synchronized (franja) {
+            ByteBuffer pendiente = franja.pendiente;
+            if (franja.inicio < 0 || !pendiente.hasRemaining()) {
+                if (franja.inicio >= 0) {
+                    pendiente.flip();
+                    try {
+                        while (pendiente.hasRemaining()) {
+                            canal.write(pendiente, franja.inicio + pendiente.position());
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("No se pudo escribir el historial de movimientos", e);
+                    }
+                    pendiente.clear();
+                }
+                franja.inicio = reservado.getAndAdd(TAMANO_BUFFER);
+            }
+            long posicion = franja.inicio + pendiente.position();
+            pendiente.putLong(anterior).putLong(instanteYTipo).putLong(importe).putLong(saldo);
+            return posicion;
+        }
+    }
+
+    private void leerRegistro(Franja franja, long posicion, ByteBuffer registro) throws IOException {
+        registro.clear();
+        synchronized (franja) {
+            // Las regiones de una franja se reservan en orden: solo la actual sigue en el buffer
+            if (posicion >= franja.inicio) {
+                registro.put(0, franja.pendiente, (int) (posicion - franja.inicio), TAMANO_REGISTRO);
+                return;
+            }
+        }
+        while (registro.hasRemaining()) {
+            if (canal.read(registro, posicion + registro.position()) < 0) {
+                throw new EOFException("Registro incompleto en el historial de movimientos");
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaBancaria;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Lectura y escritura de instantáneas binarias de todas las cuentas de un {@link Banco}.
+ *
+ * <p>Formato: cabecera con la marca {@code BNCS}, la versión, el número de secuencia y la posición del
+ * diario a partir de los que hay que reproducir, el número de cuentas y el CRC32C del contenido; después,
+ * cada cuenta como su longitud (int) seguida de la cuenta codificada con {@link CodificadorCuentas}
+ * y del último periodo liquidado en ella (long).
+ * La cabecera se completa al final y el fichero se escribe con otro nombre y se renombra, de forma que
+ * una instantánea interrumpida nunca sustituye a una válida.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+final class Instantanea {
+
+    static final int MARCA = 0x424E4353;
+    static final byte VERSION = 2;
+
+    private static final int TAMANO_CABECERA = 4 + 1 + 8 + 8 + 8 + 4;
+    private static final int TAMANO_BUFFER = 1024 * 1024;
+
+    private final long secuencia;
+    private final long posicionDiario;
+
+    private Instantanea(long secuencia, long posicionDiario) {
+        this.secuencia = secuencia;
+        this.posicionDiario = posicionDiario;
+    }
+
+    /**
+     * Obtiene el número de secuencia del primer registro del diario que no está incluido con seguridad
+     * en la instantánea.
+     *
+     * @return Número de secuencia desde el que reproducir el diario.
+     */
+    long getSecuencia() {
+        return secuencia;
+    }
+
+    /**
+     * Obtiene la posición del diario desde la que reproducir.
+     *
+     * @return Posición en bytes del fichero del diario.
+     */
+    long getPosicionDiario() {
+        return posicionDiario;
+    }
+
+    /**
+     * Escribe una instantánea de las cuentas del banco. Las cuentas se recorren sin detener las operaciones,
+     * así que la instantánea puede incluir parte de las operaciones posteriores al punto de control;
+     * como los registros del diario guardan saldos absolutos, reproducirlos de nuevo no cambia el resultado.
+     *
+     * @param banco          Banco del que tomar la instantánea.
+     * @param secuencia      Número de secuencia del diario en el momento de empezar.
+     * @param posicionDiario Posición del diario en el momento de empezar.
+     * @param fichero        Fichero de destino.
+     * @return Número de cuentas escritas.
+     * @throws IOException si no se puede escribir el fichero.
+     */
+    static long escribir(Banco banco, long secuencia, long posicionDiario, Path fichero) throws IOException {
+        Path temporal = fichero.resolveSibling(fichero.getFileName() + ".tmp");
+        long numCuentas = 0;
+        CRC32C crc = new CRC32C();
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+            canal.position(TAMANO_CABECERA);
+            for (CuentaBancaria cuenta : banco.getCuentas()) {
+                int tamanoMaximo = 4 + CodificadorCuentas.tamanoMaximo(cuenta) + 8;
+                if (buffer.remaining() < tamanoMaximo) {
+                    volcar(canal, buffer, crc);
+                    if (buffer.capacity() < tamanoMaximo) {
+                        buffer = ByteBuffer.allocateDirect(tamanoMaximo);
+                    }
+                }
+                int inicio = buffer.position();
+                buffer.position(inicio + 4);
+                CodificadorCuentas.escribir(buffer, cuenta);
+                buffer.putLong(cuenta.getUltimaLiquidacion());
+                buffer.putInt(inicio, buffer.position() - inicio - 4);
+                numCuentas++;
+            }
+            volcar(canal, buffer, crc);
+
+            ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA);
+            cabecera.putInt(MARCA).put(VERSION).putLong(secuencia).putLong(posicionDiario)
+                    .putLong(numCuentas).putInt((int) crc.getValue()).flip();
+            while (cabecera.hasRemaining()) {
+                canal.write(cabecera, cabecera.position());
+            }
+            canal.force(true);
+        }
+        Files.move(temporal, fichero, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return numCuentas;
+    }
+
+    /**
+     * Lee una instantánea y abre en el banco todas sus cuentas.
+     *
+     * @param fichero Fichero de la instantánea.
+     * @param banco   Banco vacío en el que cargar las cuentas.
+     * @return Datos del punto de control de la instantánea.
+     * @throws IOException si no se puede leer el fichero o su contenido no es válido.
+     */
+    static Instantanea leer(Path fichero, Banco banco) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA);
+            leerCompleto(canal, cabecera);
+            cabecera.flip();
+            if (cabecera.getInt() != MARCA || cabecera.get() != VERSION) {
+                throw new IOException("El fichero no es una instantánea válida: " + fichero);
+            }
+            long secuencia = cabecera.getLong();
+            long posicionDiario = cabecera.getLong();
+            long numCuentas = cabecera.getLong();
+            int crcEsperado = cabecera.getInt();
+
+            CRC32C crc = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+            buffer.flip();
+            for (long i = 0; i < numCuentas; i++) {
+                buffer = asegurar(canal, buffer, 4, crc);
+                int longitud = buffer.getInt(buffer.position());
+                buffer = asegurar(canal, buffer, 4 + longitud, crc);
+                buffer.position(buffer.position() + 4);
+                int limite = buffer.limit();
+                buffer.limit(buffer.position() + longitud);
+                CuentaBancaria cuenta = CodificadorCuentas.leer(buffer);
+                cuenta.setUltimaLiquidacion(buffer.getLong());
+                banco.abrirCuenta(cuenta);
+                buffer.limit(limite);
+            }
+            if ((int) crc.getValue() != crcEsperado || buffer.hasRemaining() || canal.position() != canal.size()) {
+                throw new IOException("La instantánea está dañada: " + fichero);
+            }
+            return new Instantanea(secuencia, posicionDiario);
+        }
+    }
+
+    private static void volcar(FileChannel canal, ByteBuffer buffer, CRC32C crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Garantiza que el buffer tiene al menos los bytes indicados por leer, leyendo más del canal
+     * (y actualizando el CRC con lo leído) si es necesario.
+     */
+    private static ByteBuffer asegurar(FileChannel canal, ByteBuffer buffer, int necesarios, CRC32C crc)
+            throws IOException {
+        if (buffer.remaining() >= necesarios) {
+            return buffer;
+        }
+        if (necesarios < 0 || necesarios > 64 * 1024 * 1024) {
+            throw new IOException("Longitud de cuenta no válida en la instantánea: " + necesarios);
+        }
+        if (buffer.capacity() < necesarios) {
+            ByteBuffer mayor = ByteBuffer.allocateDirect(necesarios);
+            mayor.put(buffer).flip();
+            buffer = mayor;
+        }
+        buffer.compact();
+        while (buffer.position() < necesarios) {
+            int inicio = buffer.position();
+            if (canal.read(buffer) < 0) {
+                throw new IOException("La instantánea está incompleta");
+            }
+            crc.update(buffer.duplicate().flip().position(inicio));
+        }
+        return buffer.flip();
+    }
+
+    private static void leerCompleto(FileChannel canal, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer) < 0) {
+                throw new IOException("La instantánea está incompleta");
+            }
+        }
+    }
+}
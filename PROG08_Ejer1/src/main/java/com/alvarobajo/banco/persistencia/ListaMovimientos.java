@@ -0,0 +1,152 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.models.TipoMovimiento;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Movimientos de una cuenta leídos de un {@link HistorialMovimientos}, en el orden de la consulta: del
+ * más reciente al más antiguo en {@link HistorialMovimientos#ultimosMovimientos} y al revés en los
+ * extractos.
+ *
+ * <p>Los datos se guardan en arrays paralelos de primitivos y no en un objeto por movimiento. La lista
+ * está pensada para reutilizarse: cada consulta la vacía y la rellena de nuevo, y solo reserva memoria
+ * cuando necesita crecer.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class ListaMovimientos {
+
+    private long[] instantes;
+    private byte[] tipos;
+    private long[] importes;
+    private long[] saldos;
+    private int tamano;
+    // Registro leído del fichero de desbordamiento, reutilizado entre consultas
+    final ByteBuffer registro = ByteBuffer.allocate(HistorialMovimientos.TAMANO_REGISTRO);
+
+    /**
+     * Constructor para inicializar una lista vacía.
+     */
+    public ListaMovimientos() {
+        this(16);
+    }
+
+    /**
+     * Constructor para inicializar una lista vacía con capacidad para un número de movimientos.
+     *
+     * @param capacidad Número de movimientos previsto.
+     */
+    public ListaMovimientos(int capacidad) {
+        int inicial = Math.max(capacidad, 1);
+        instantes = new long[inicial];
+        tipos = new byte[inicial];
+        importes = new long[inicial];
+        saldos = new long[inicial];
+    }
+
+    /**
+     * Obtiene el número de movimientos de la lista.
+     *
+     * @return Número de movimientos.
+     */
+    public int getTamano() {
+        return tamano;
+    }
+
+    /**
+     * Obtiene el instante de un movimiento.
+     *
+     * @param i Posición del movimiento en la lista.
+     * @return Milisegundos desde el 1 de enero de 1970 (UTC).
+     */
+    public long getInstante(int i) {
+        return instantes[comprobar(i)];
+    }
+
+    /**
+     * Obtiene el tipo de un movimiento.
+     *
+     * @param i Posición del movimiento en la lista.
+     * @return Tipo de movimiento.
+     */
+    public TipoMovimiento getTipo(int i) {
+        return TipoMovimiento.desdeCodigo(tipos[comprobar(i)]);
+    }
+
+    /**
+     * Obtiene el importe de un movimiento.
+     *
+     * @param i Posición del movimiento en la lista.
+     * @return Importe en céntimos (siempre positivo).
+     */
+    public long getImporteCentimos(int i) {
+        return importes[comprobar(i)];
+    }
+
+    /**
+     * Obtiene el saldo de la cuenta después de un movimiento.
+     *
+     * @param i Posición del movimiento en la lista.
+     * @return Saldo en céntimos.
+     */
+    public long getSaldoCentimos(int i) {
+        return saldos[comprobar(i)];
+    }
+
+    void vaciar(int capacidad) {
+        tamano = 0;
+        if (instantes.length < capacidad) {
+            instantes = new long[capacidad];
+            tipos = new byte[capacidad];
+            importes = new long[capacidad];
+            saldos = new long[capacidad];
+        }
+    }
+
+    /**
+     * Añade un movimiento con el instante y el tipo empaquetados como en el historial.
+     */
+    void anadir(long instanteYTipo, long importe, long saldo) {
+        if (tamano == instantes.length) {
+            int nueva = tamano * 2;
+            instantes = Arrays.copyOf(instantes, nueva);
+            tipos = Arrays.copyOf(tipos, nueva);
+            importes = Arrays.copyOf(importes, nueva);
+            saldos = Arrays.copyOf(saldos, nueva);
+        }
+        instantes[tamano] = HistorialMovimientos.instante(instanteYTipo);
+        tipos[tamano] = HistorialMovimientos.codigoTipo(instanteYTipo);
+        importes[tamano] = importe;
+        saldos[tamano] = saldo;
+        tamano++;
+    }
+
+    /**
+     * Invierte el orden de los movimientos de la lista.
+     */
+    void invertir() {
+        for (int i = 0, j = tamano - 1; i < j; i++, j--) {
+            long instante = instantes[i];
+            instantes[i] = instantes[j];
+            instantes[j] = instante;
+            byte tipo = tipos[i];
+            tipos[i] = tipos[j];
+            tipos[j] = tipo;
+            long importe = importes[i];
+            importes[i] = importes[j];
+            importes[j] = importe;
+            long saldo = saldos[i];
+            saldos[i] = saldos[j];
+            saldos[j] = saldo;
+        }
+    }
+
+    private int comprobar(int i) {
+        if (i < 0 || i >= tamano) {
+            throw new IndexOutOfBoundsException("Posición " + i + " fuera de la lista de " + tamano + " movimientos");
+        }
+        return i;
+    }
+}
@@ -0,0 +1,22 @@
+package com.alvarobajo.banco.persistencia;
+
+/**
+ * Modos de durabilidad del {@link Diario} de operaciones.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public enum ModoDurabilidad {
+
+    /** Cada operación espera a su propia sincronización con el disco (fsync). Es el modo más lento. */
+    POR_OPERACION,
+    /**
+     * Cada operación espera a estar en disco, pero una sola sincronización cubre todas las operaciones
+     * escritas hasta ese momento por cualquier hilo (group commit).
+     */
+    GRUPO,
+    /**
+     * Las operaciones no esperan: el diario se vuelca y sincroniza periódicamente en segundo plano,
+     * por lo que una caída puede perder las operaciones de los últimos milisegundos.
+     */
+    ASINCRONO
+}
@@ -0,0 +1,438 @@
+package com.alvarobajo.banco.proyecciones;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.ObservadorBanco;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.CodificadorCuentas;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Modelos de lectura de un {@link Banco} alimentados por eventos: saldos por tipo de cuenta
+ * ({@link SaldosPorTipo}) y cuentas de cada titular ({@link VistaTitular}).
+ *
+ * <p>Se registra como observador del banco que no registra movimientos, de modo que los ingresos y
+ * retiros siguen sin adquirir el monitor de la cuenta. Cada alta, baja o cambio de saldo solo anota la
+ * cuenta afectada en un anillo de capacidad fija, sin esperar nunca. Un hilo propio aplica las cuentas
+ * anotadas leyendo su situación actual (saldo, tipo, titular y si está cerrada), sobre un estado que
+ * solo él modifica; como no se fía del orden de los avisos, da igual que los de hilos distintos lleguen
+ * desordenados. Los saldos por tipo se publican como un objeto inmutable cada vez que el hilo alcanza a
+ * los productores; la vista de un titular se copia al consultarla, con el monitor de su estado, que el
+ * hilo adquiere solo para cambiar los saldos de ese titular (publicar una vista nueva por cada titular
+ * modificado costaba tanto como aplicar los eventos). Las consultas no recorren las cuentas del banco
+ * ni adquieren sus monitores, así que los informes no compiten con los ingresos y retiros por los
+ * mismos datos.</p>
+ *
+ * <p>Como en el histograma de latencias de las métricas, los anillos se reparten en franjas y cada hilo
+ * anota siempre en la misma, elegida a partir de su identificador, para que los productores no
+ * compitan por el mismo contador. Cada franja guarda referencias a las cuentas en un array, sin un
+ * objeto por evento. Si una franja se llena, el productor no espera a que el hilo la vacíe: descarta
+ * la anotación y pide al hilo que vuelva a leer todas las cuentas del banco, lo que cubre cualquier
+ * anotación perdida.</p>
+ *
+ * <p>Las proyecciones van por detrás del banco: reflejan los eventos que el hilo ya ha aplicado.
+ * {@link #sincronizar()} espera a que reflejen todo lo ocurrido antes de llamarlo. Los datos del
+ * titular de una cuenta son los que tenía al aplicar su alta: los cambios posteriores no cambian su
+ * vista.</p>
+ *
+ * <p>Al abrirse, el propio hilo lee las cuentas que ya tiene el banco, después de registrarse como
+ * observador, así que la carga es exacta aunque haya operaciones en curso.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class ProyeccionesBanco implements ObservadorBanco, AutoCloseable {
+
+    static final int CAPACIDAD_FRANJA = 1 << 14;
+
+    private static final int NUM_FRANJAS = Integer.highestOneBit(
+            Math.max(1, Runtime.getRuntime().availableProcessors()) * 4 - 1) << 1;
+    private static final VarHandle SECUENCIAS = MethodHandles.arrayElementVarHandle(long[].class);
+    // Espera del hilo cuando no hay eventos: los productores no lo despiertan para no hacer una llamada
+    // al sistema por evento
+    private static final long ESPERA_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // Eventos aplicados entre dos avisos a los productores del espacio libre en la franja
+    private static final int AVISO_ESPACIO = 1024;
+
+    private final Banco banco;
+    private final Thread hilo;
+    private volatile boolean cerrado;
+
+    private final Franja[] franjas = new Franja[NUM_FRANJAS];
+    // Se pide al hilo que lea todas las cuentas del banco: al abrir y cuando una franja se llena
+    private volatile boolean recargar = true;
+    // Peticiones de sincronización recibidas y atendidas por el hilo
+    private final AtomicLong sincronizaciones = new AtomicLong();
+    private volatile long atendidas;
+
+    // Estado del hilo de las proyecciones; los titulares se consultan también desde otros hilos
+    private final Map<String, EstadoCuenta> cuentas = new HashMap<>();
+    private final Map<String, Titular> titulares = new ConcurrentHashMap<>();
+    private final long[] numCuentas = new long[CodificadorCuentas.TIPO_CORRIENTE_EMPRESA + 1];
+    private final long[] saldos = new long[CodificadorCuentas.TIPO_CORRIENTE_EMPRESA + 1];
+    private long aplicados;
+    private volatile SaldosPorTipo saldosPorTipo;
+
+    /**
+     * Anillo de cuentas anotadas por los hilos de una franja: la posición de cada anotación es su número
+     * de secuencia módulo la capacidad.
+     */
+    private static final class Franja {
+
+        final AtomicLong reservados = new AtomicLong();
+        // Anotaciones que el hilo de las proyecciones ya no necesita en el anillo
+        volatile long consumidos;
+        final long[] secuencias = new long[CAPACIDAD_FRANJA];
+        final CuentaBancaria[] anotadas = new CuentaBancaria[CAPACIDAD_FRANJA];
+
+        Franja() {
+            Arrays.fill(secuencias, -1);
+        }
+    }
+
+    /**
+     * Última situación conocida de una cuenta. El saldo se lee y se escribe con el monitor del titular.
+     */
+    private static final class EstadoCuenta {
+
+        final CuentaBancaria cuenta;
+        final String iban;
+        final byte tipo;
+        final Titular titular;
+        long saldo;
+
+        EstadoCuenta(CuentaBancaria cuenta, byte tipo, Titular titular) {
+            this.cuenta = cuenta;
+            this.iban = cuenta.getIban();
+            this.tipo = tipo;
+            this.titular = titular;
+        }
+    }
+
+    /**
+     * Cuentas de un titular, protegidas por su monitor.
+     */
+    private static final class Titular {
+
+        final String dni;
+        final String nombre;
+        final List<EstadoCuenta> cuentas = new ArrayList<>(2);
+
+        Titular(String dni, String nombre) {
+            this.dni = dni;
+            this.nombre = nombre;
+        }
+    }
+
+    private ProyeccionesBanco(Banco banco) {
+        this.banco = banco;
+        for (int i = 0; i < NUM_FRANJAS; i++) {
+            franjas[i] = new Franja();
+        }
+        this.saldosPorTipo = new SaldosPorTipo(numCuentas, saldos, 0);
+        this.hilo = new Thread(this::aplicarEventos, "banco-proyecciones");
+        hilo.setDaemon(true);
+    }
+
+    /**
+     * Crea las proyecciones de un banco y las registra como observador para seguir sus cambios. Su hilo
+     * empieza cargando las cuentas actuales del banco.
+     *
+     * @param banco Banco concurrente del que mantener las proyecciones.
+     * @return Las proyecciones, ya en marcha.
+     * @throws IllegalArgumentException si el banco no es concurrente: el hilo de las proyecciones recorre
+     *                                  sus cuentas mientras otros hilos lo modifican.
+     */
+    public static ProyeccionesBanco abrir(Banco banco) {
+        if (!banco.isConcurrente()) {
+            throw new IllegalArgumentException("Las proyecciones necesitan un banco concurrente");
+        }
+        ProyeccionesBanco proyecciones = new ProyeccionesBanco(banco);
+        banco.agregarObservador(proyecciones);
+        proyecciones.hilo.start();
+        return proyecciones;
+    }
+
+    /**
+     * Obtiene el número de cuentas y el saldo total de cada tipo de cuenta.
+     *
+     * @return El último resumen publicado.
+     */
+    public SaldosPorTipo getSaldosPorTipo() {
+        return saldosPorTipo;
+    }
+
+    /**
+     * Obtiene las cuentas de un titular con sus saldos.
+     *
+     * @param dni DNI del titular.
+     * @return Vista del titular con los eventos aplicados hasta ahora, o null si no tiene cuentas.
+     */
+    public VistaTitular getVistaTitular(String dni) {
+        Titular titular = titulares.get(dni);
+        if (titular == null) {
+            return null;
+        }
+        synchronized (titular) {
+            int n = titular.cuentas.size();
+            if (n == 0) {
+                return null;
+            }
+            String[] ibansTitular = new String[n];
+            byte[] tiposTitular = new byte[n];
+            long[] saldosTitular = new long[n];
+            for (int i = 0; i < n; i++) {
+                EstadoCuenta estado = titular.cuentas.get(i);
+                ibansTitular[i] = estado.iban;
+                tiposTitular[i] = estado.tipo;
+                saldosTitular[i] = estado.saldo;
+            }
+            return new VistaTitular(titular.dni, titular.nombre, ibansTitular, tiposTitular, saldosTitular);
+        }
+    }
+
+    /**
+     * Espera a que las proyecciones publicadas reflejen todos los cambios del banco anteriores a la
+     * llamada.
+     *
+     * @throws IllegalStateException si las proyecciones están cerradas o se interrumpe la espera.
+     */
+    public void sincronizar() {
+        long objetivo = sincronizaciones.incrementAndGet();
+        LockSupport.unpark(hilo);
+        while (atendidas < objetivo) {
+            if (cerrado) {
+                throw new IllegalStateException("Las proyecciones están cerradas");
+            }
+            LockSupport.parkNanos(this, ESPERA_NANOS);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrumpido mientras se esperaba a las proyecciones");
+            }
+        }
+    }
+
+    /**
+     * Las proyecciones no reciben los movimientos, solo {@link #saldoCambiado}, para que los ingresos y
+     * retiros no tengan que adquirir el monitor de la cuenta.
+     *
+     * @return false.
+     */
+    @Override
+    public boolean registraMovimientos() {
+        return false;
+    }
+
+    @Override
+    public void cuentaAbierta(CuentaBancaria cuenta) {
+        anotar(cuenta);
+    }
+
+    @Override
+    public void cuentaEliminada(CuentaBancaria cuenta) {
+        anotar(cuenta);
+    }
+
+    @Override
+    public void saldoCambiado(CuentaBancaria cuenta) {
+        anotar(cuenta);
+    }
+
+    /**
+     * Deja de seguir los cambios del banco y detiene el hilo de las proyecciones. Las últimas
+     * proyecciones publicadas se pueden seguir consultando.
+     */
+    @Override
+    public void close() {
+        banco.eliminarObservador(this);
+        cerrado = true;
+        LockSupport.unpark(hilo);
+        try {
+            hilo.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Anota una cuenta en la franja del hilo actual. Si la franja está llena, pide una recarga en lugar
+     * de esperar.
+     */
+    private void anotar(CuentaBancaria cuenta) {
+        Franja franja = franjas[franjaDelHilo()];
+        long secuencia;
+        do {
+            secuencia = franja.reservados.get();
+            if (secuencia - franja.consumidos >= CAPACIDAD_FRANJA) {
+                if (!recargar) {
+                    recargar = true;
+                }
+                return;
+            }
+        } while (!franja.reservados.compareAndSet(secuencia, secuencia + 1));
+        int i = (int) secuencia & (CAPACIDAD_FRANJA - 1);
+        franja.anotadas[i] = cuenta;
+        SECUENCIAS.setRelease(franja.secuencias, i, secuencia);
+    }
+
+    /**
+     * Bucle del hilo de las proyecciones: recarga todas las cuentas si se ha pedido, aplica las cuentas
+     * anotadas en cada franja y publica el resultado. Las sincronizaciones pedidas antes de empezar una
+     * pasada se dan por atendidas cuando la pasada alcanza todo lo que se había reservado.
+     */
+    private void aplicarEventos() {
+        while (!cerrado) {
+            long solicitadas = sincronizaciones.get();
+            long antes = aplicados;
+            if (recargar) {
+                // Se baja la marca antes de leer las cuentas: un descarte posterior la vuelve a subir
+                recargar = false;
+                recargarCuentas();
+            }
+            boolean alDia = true;
+            for (Franja franja : franjas) {
+                alDia &= vaciar(franja);
+            }
+            if (aplicados != antes) {
+                saldosPorTipo = new SaldosPorTipo(numCuentas, saldos, aplicados);
+            }
+            if (!alDia) {
+                // Algún productor tiene una posición reservada y aún no la ha escrito
+                Thread.yield();
+            } else {
+                if (atendidas != solicitadas) {
+                    atendidas = solicitadas;
+                }
+                if (aplicados == antes) {
+                    LockSupport.parkNanos(this, ESPERA_NANOS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Aplica las cuentas anotadas en una franja hasta la última posición reservada.
+     *
+     * @return true si ha llegado a la última posición reservada; false si se ha detenido en una que
+     * aún no está escrita.
+     */
+    private boolean vaciar(Franja franja) {
+        long hasta = franja.reservados.get();
+        long siguiente = franja.consumidos;
+        boolean alDia = true;
+        for (; siguiente < hasta; siguiente++) {
+            int i = (int) siguiente & (CAPACIDAD_FRANJA - 1);
+            if ((long) SECUENCIAS.getAcquire(franja.secuencias, i) != siguiente) {
+                alDia = false;
+                break;
+            }
+            CuentaBancaria cuenta = franja.anotadas[i];
+            franja.anotadas[i] = null;
+            aplicar(cuenta);
+            if ((siguiente & (AVISO_ESPACIO - 1)) == 0) {
+                franja.consumidos = siguiente + 1;
+            }
+        }
+        franja.consumidos = siguiente;
+        return alDia;
+    }
+
+    /**
+     * Lee todas las cuentas del banco y da de baja las que se han cerrado.
+     */
+    private void recargarCuentas() {
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            aplicar(cuenta);
+        }
+        List<EstadoCuenta> cerradas = new ArrayList<>();
+        for (EstadoCuenta estado : cuentas.values()) {
+            if (estado.cuenta.isCerrada()) {
+                cerradas.add(estado);
+            }
+        }
+        for (EstadoCuenta estado : cerradas) {
+            darDeBaja(estado);
+        }
+    }
+
+    /**
+     * Refleja la situación actual de una cuenta: su alta si no se conocía, su baja si está cerrada o su
+     * saldo.
+     */
+    private void aplicar(CuentaBancaria cuenta) {
+        aplicados++;
+        EstadoCuenta estado = cuentas.get(cuenta.getIban());
+        if (estado != null && estado.cuenta != cuenta) {
+            // El IBAN es ahora de otra cuenta: la anterior se cerró
+            darDeBaja(estado);
+            estado = null;
+        }
+        if (cuenta.isCerrada()) {
+            if (estado != null) {
+                darDeBaja(estado);
+            }
+            return;
+        }
+        if (estado == null) {
+            estado = darDeAlta(cuenta);
+        }
+        cambiarSaldo(estado, cuenta.getSaldoCentimos());
+    }
+
+    private EstadoCuenta darDeAlta(CuentaBancaria cuenta) {
+        Persona persona = cuenta.getTitular();
+        String dni = persona != null ? persona.getDni() : "";
+        Titular titular = titulares.get(dni);
+        if (titular == null) {
+            String nombre = persona == null ? ""
+                    : persona.getApellido2() == null || persona.getApellido2().isEmpty()
+                    ? persona.getNombre() + " " + persona.getApellido1()
+                    : persona.getNombre() + " " + persona.getApellido1() + " " + persona.getApellido2();
+            titular = new Titular(dni, nombre);
+            titulares.put(dni, titular);
+        }
+        EstadoCuenta estado = new EstadoCuenta(cuenta, CodificadorCuentas.tipoDe(cuenta), titular);
+        cuentas.put(estado.iban, estado);
+        synchronized (titular) {
+            titular.cuentas.add(estado);
+        }
+        numCuentas[estado.tipo]++;
+        return estado;
+    }
+
+    private void darDeBaja(EstadoCuenta estado) {
+        cambiarSaldo(estado, 0);
+        cuentas.remove(estado.iban);
+        Titular titular = estado.titular;
+        synchronized (titular) {
+            titular.cuentas.remove(estado);
+            if (titular.cuentas.isEmpty()) {
+                titulares.remove(titular.dni);
+            }
+        }
+        numCuentas[estado.tipo]--;
+    }
+
+    private void cambiarSaldo(EstadoCuenta estado, long saldo) {
+        saldos[estado.tipo] += saldo - estado.saldo;
+        synchronized (estado.titular) {
+            estado.saldo = saldo;
+        }
+    }
+
+    private static int franjaDelHilo() {
+        // El producto por la razón áurea reparte identificadores consecutivos entre todas las franjas
+        long mezcla = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (mezcla >>> 32) & (NUM_FRANJAS - 1);
+    }
+}
@@ -0,0 +1,89 @@
+package com.alvarobajo.banco.proyecciones;
+
+import com.alvarobajo.banco.persistencia.CodificadorCuentas;
+
+/**
+ * Número de cuentas y saldo total de cada tipo de cuenta del banco, según la proyección de
+ * {@link ProyeccionesBanco} en un momento dado.
+ *
+ * <p>Es inmutable: cada vez que la proyección aplica eventos nuevos publica otro resumen, de modo que
+ * los totales de un resumen siempre corresponden al mismo punto de la secuencia de eventos.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class SaldosPorTipo {
+
+    private final long[] numCuentas;
+    private final long[] saldos;
+    private final long eventosAplicados;
+
+    SaldosPorTipo(long[] numCuentas, long[] saldos, long eventosAplicados) {
+        this.numCuentas = numCuentas.clone();
+        this.saldos = saldos.clone();
+        this.eventosAplicados = eventosAplicados;
+    }
+
+    /**
+     * Obtiene el número de cuentas abiertas de un tipo.
+     *
+     * @param tipo Etiqueta del tipo de cuenta ({@link CodificadorCuentas#TIPO_AHORRO}, etc.).
+     * @return Número de cuentas.
+     * @throws IllegalArgumentException si la etiqueta no es de un tipo de cuenta.
+     */
+    public long getNumCuentas(byte tipo) {
+        return numCuentas[comprobar(tipo)];
+    }
+
+    /**
+     * Obtiene la suma de los saldos de las cuentas de un tipo.
+     *
+     * @param tipo Etiqueta del tipo de cuenta ({@link CodificadorCuentas#TIPO_AHORRO}, etc.).
+     * @return Saldo total en céntimos.
+     * @throws IllegalArgumentException si la etiqueta no es de un tipo de cuenta.
+     */
+    public long getSaldoCentimos(byte tipo) {
+        return saldos[comprobar(tipo)];
+    }
+
+    /**
+     * Obtiene el número de cuentas abiertas de todos los tipos.
+     *
+     * @return Número de cuentas.
+     */
+    public long getNumCuentasTotal() {
+        long total = 0;
+        for (long cuentas : numCuentas) {
+            total += cuentas;
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene la suma de los saldos de todas las cuentas.
+     *
+     * @return Saldo total en céntimos.
+     */
+    public long getSaldoTotalCentimos() {
+        long total = 0;
+        for (long saldo : saldos) {
+            total += saldo;
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene el número de eventos aplicados a la proyección cuando se publicó este resumen.
+     *
+     * @return Número de eventos.
+     */
+    public long getEventosAplicados() {
+        return eventosAplicados;
+    }
+
+    private static int comprobar(byte tipo) {
+        if (tipo < CodificadorCuentas.TIPO_AHORRO || tipo > CodificadorCuentas.TIPO_CORRIENTE_EMPRESA) {
+            throw new IllegalArgumentException("Tipo de cuenta desconocido: " + tipo);
+        }
+        return tipo;
+    }
+}
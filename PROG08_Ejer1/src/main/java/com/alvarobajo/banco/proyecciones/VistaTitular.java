@@ -0,0 +1,98 @@
+package com.alvarobajo.banco.proyecciones;
+
+/**
+ * Cuentas de un titular con sus saldos, según la proyección de {@link ProyeccionesBanco} en un momento
+ * dado.
+ *
+ * <p>Es una copia inmutable, tomada al consultarla, que no hace referencia a las cuentas del banco: los
+ * saldos de todas las cuentas corresponden al mismo punto de la secuencia de eventos. Las cuentas están
+ * en orden de apertura.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class VistaTitular {
+
+    private final String dni;
+    private final String nombre;
+    private final String[] ibans;
+    private final byte[] tipos;
+    private final long[] saldos;
+
+    VistaTitular(String dni, String nombre, String[] ibans, byte[] tipos, long[] saldos) {
+        this.dni = dni;
+        this.nombre = nombre;
+        this.ibans = ibans;
+        this.tipos = tipos;
+        this.saldos = saldos;
+    }
+
+    /**
+     * Obtiene el DNI del titular.
+     *
+     * @return DNI del titular.
+     */
+    public String getDni() {
+        return dni;
+    }
+
+    /**
+     * Obtiene el nombre completo del titular, tal como era al abrir su primera cuenta.
+     *
+     * @return Nombre y apellidos del titular.
+     */
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Obtiene el número de cuentas del titular.
+     *
+     * @return Número de cuentas.
+     */
+    public int getNumCuentas() {
+        return ibans.length;
+    }
+
+    /**
+     * Obtiene el IBAN de una cuenta del titular.
+     *
+     * @param i Posición de la cuenta en la vista.
+     * @return IBAN de la cuenta.
+     */
+    public String getIban(int i) {
+        return ibans[i];
+    }
+
+    /**
+     * Obtiene el tipo de una cuenta del titular.
+     *
+     * @param i Posición de la cuenta en la vista.
+     * @return Etiqueta del tipo de cuenta, como en {@link com.alvarobajo.banco.persistencia.CodificadorCuentas}.
+     */
+    public byte getTipo(int i) {
+        return tipos[i];
+    }
+
+    /**
+     * Obtiene el saldo de una cuenta del titular.
+     *
+     * @param i Posición de la cuenta en la vista.
+     * @return Saldo en céntimos.
+     */
+    public long getSaldoCentimos(int i) {
+        return saldos[i];
+    }
+
+    /**
+     * Obtiene la suma de los saldos de todas las cuentas del titular.
+     *
+     * @return Saldo total en céntimos.
+     */
+    public long getSaldoTotalCentimos() {
+        long total = 0;
+        for (long saldo : saldos) {
+            total += saldo;
+        }
+        return total;
+    }
+}
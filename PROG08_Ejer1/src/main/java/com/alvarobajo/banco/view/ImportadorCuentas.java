@@ -0,0 +1,254 @@
+package com.alvarobajo.banco.view;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.CrearPersona;
+import com.alvarobajo.banco.models.CuentaBancaria;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Importa de una vez muchas cuentas nuevas, de los tres tipos, desde un fichero con una cuenta por
+ * línea, por ejemplo para dar de alta una cartera migrada de otra entidad.
+ *
+ * <p>Los campos de cada fila se separan con punto y coma, igual que las órdenes {@code ABRIR} de
+ * {@link ModoLote} pero sin el nombre de la orden; las líneas vacías y las que empiezan por {@code #}
+ * se ignoran. Las cantidades se escriben en euros con punto o coma decimal y como mucho dos decimales:</p>
+ * <pre>
+ * AHORRO;dni;nombre;apellido1;apellido2;saldo;tipoInteres
+ * PERSONAL;dni;nombre;apellido1;apellido2;saldo;entidades;comisionMantenimiento
+ * EMPRESA;dni;nombre;apellido1;apellido2;saldo;entidades;tipoInteresDescubierto;maximoDescubierto
+ * </pre>
+ *
+ * <p>El hilo que llama lee las líneas y las agrupa en lotes de {@value #FILAS_POR_LOTE}, que se
+ * validan y convierten en cuentas en paralelo con fork-join, con las mismas reglas que {@link ModoLote}.
+ * Las cuentas de cada lote se abren en el banco de una vez: en un banco concurrente, desde la propia
+ * tarea del lote; en uno de un solo hilo, desde el hilo que llama y en el orden del fichero, mientras
+ * los lotes siguientes se siguen validando. Para no llenar la memoria con un fichero grande, se leen
+ * como mucho unos pocos lotes por delante del último terminado.</p>
+ *
+ * <p>Cada fila rechazada se escribe en el informe de rechazos, en el orden del fichero, como su número
+ * de línea, el motivo y la línea original, separados por punto y coma. Motivos: {@code CAMPOS_INVALIDOS}
+ * si el tipo no existe o faltan o sobran campos, {@code DNI_INVALIDO}, {@code SALDO_INVALIDO} si el
+ * saldo no es una cantidad positiva, {@code DATOS_INVALIDOS} si falta el nombre o algún dato propio
+ * del tipo no es válido y {@code ALTA_FALLIDA} si el banco no pudo abrir la cuenta.</p>
+ *
+ * <p>Si el IBAN que el asignador dio a una fila ya está en uso en el banco, porque tiene cuentas de otra
+ * numeración o porque otro hilo ha abierto una con él a la vez, la fila no se rechaza: se le asigna otro
+ * IBAN y se vuelve a intentar.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class ImportadorCuentas {
+
+    static final int FILAS_POR_LOTE = 4096;
+
+    private static final char SEPARADOR = ';';
+    private static final int MAXIMO_CAMPOS = 10;
+
+    private static final String CAMPOS_INVALIDOS = "CAMPOS_INVALIDOS";
+    private static final String DNI_INVALIDO = "DNI_INVALIDO";
+    private static final String SALDO_INVALIDO = "SALDO_INVALIDO";
+    private static final String DATOS_INVALIDOS = "DATOS_INVALIDOS";
+    private static final String ALTA_FALLIDA = "ALTA_FALLIDA";
+
+    /**
+     * Importa todas las cuentas de la entrada usando el pool común de fork-join. El informe de rechazos
+     * no se cierra ni se vacía.
+     *
+     * @param banco    Banco en el que abrir las cuentas.
+     * @param entrada  Entrada con las filas.
+     * @param rechazos Salida para el informe de filas rechazadas.
+     * @return Resumen de la importación.
+     * @throws IOException si falla la lectura de las filas o la escritura del informe.
+     */
+    public static ResumenImportacion importar(Banco banco, Reader entrada, Writer rechazos) throws IOException {
+        return importar(banco, entrada, rechazos, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Importa todas las cuentas de la entrada, validando los lotes en el pool indicado. El informe de
+     * rechazos no se cierra ni se vacía. Si falla la lectura o la escritura, las filas de los lotes ya
+     * leídos pueden haberse importado en parte.
+     *
+     * @param banco    Banco en el que abrir las cuentas.
+     * @param entrada  Entrada con las filas.
+     * @param rechazos Salida para el informe de filas rechazadas.
+     * @param pool     Pool de fork-join en el que validar los lotes.
+     * @return Resumen de la importación.
+     * @throws IOException si falla la lectura de las filas o la escritura del informe.
+     */
+    public static ResumenImportacion importar(Banco banco, Reader entrada, Writer rechazos, ForkJoinPool pool)
+            throws IOException {
+        BufferedReader lector = entrada instanceof BufferedReader ? (BufferedReader) entrada
+                : new BufferedReader(entrada, 1 << 16);
+        int maximoPendientes = 2 * pool.getParallelism() + 1;
+        ArrayDeque<Future<Lote>> pendientes = new ArrayDeque<>();
+        StringBuilder informe = new StringBuilder(256);
+        long filas = 0;
+        long rechazadas = 0;
+        long numeroLinea = 0;
+        long inicio = System.nanoTime();
+
+        Lote lote = new Lote();
+        String linea;
+        while ((linea = lector.readLine()) != null) {
+            numeroLinea++;
+            if (linea.isBlank() || linea.charAt(0) == '#') {
+                continue;
+            }
+            filas++;
+            lote.anadir(numeroLinea, linea);
+            if (lote.tamano == FILAS_POR_LOTE) {
+                Lote completo = lote;
+                pendientes.add(pool.submit(() -> completo.procesar(banco)));
+                lote = new Lote();
+                if (pendientes.size() > maximoPendientes) {
+                    rechazadas += terminar(banco, pendientes.poll(), rechazos, informe);
+                }
+            }
+        }
+        if (lote.tamano > 0) {
+            Lote ultimo = lote;
+            pendientes.add(pool.submit(() -> ultimo.procesar(banco)));
+        }
+        while (!pendientes.isEmpty()) {
+            rechazadas += terminar(banco, pendientes.poll(), rechazos, informe);
+        }
+        return new ResumenImportacion(filas, rechazadas, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Espera a que se valide un lote, abre sus cuentas si el banco no es concurrente y escribe sus
+     * rechazos en el informe.
+     *
+     * @return Número de filas rechazadas del lote.
+     */
+    private static int terminar(Banco banco, Future<Lote> pendiente, Writer rechazos, StringBuilder informe)
+            throws IOException {
+        Lote lote;
+        try {
+            lote = pendiente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido mientras se esperaba a un lote", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("No se pudo validar un lote", e.getCause());
+        }
+        if (!banco.isConcurrente()) {
+            lote.abrir(banco);
+        }
+        int rechazadas = 0;
+        informe.setLength(0);
+        for (int i = 0; i < lote.tamano; i++) {
+            if (lote.motivos[i] != null) {
+                informe.append(lote.numerosLinea[i]).append(SEPARADOR).append(lote.motivos[i]).append(SEPARADOR)
+                        .append(lote.lineas[i]).append(System.lineSeparator());
+                rechazadas++;
+            }
+        }
+        rechazos.append(informe);
+        return rechazadas;
+    }
+
+    /**
+     * Comprueba el formato de una fila antes de crear su cuenta: número de campos, DNI y saldo.
+     *
+     * @return El motivo del rechazo, o null si la fila los cumple.
+     */
+    private static String comprobar(String[] campos, int numCampos) {
+        if (numCampos < 7 || numCampos != 6 + ModoLote.datosPorTipo(campos[0])) {
+            return CAMPOS_INVALIDOS;
+        }
+        if (!CrearPersona.esDNIValido(campos[1])) {
+            return DNI_INVALIDO;
+        }
+        return ModoLote.leerCentimos(campos[5]) > 0 ? null : SALDO_INVALIDO;
+    }
+
+    /**
+     * Filas consecutivas del fichero que se validan juntas, con la cuenta creada o el motivo del
+     * rechazo de cada una.
+     */
+    private static final class Lote {
+
+        private final long[] numerosLinea = new long[FILAS_POR_LOTE];
+        private final String[] lineas = new String[FILAS_POR_LOTE];
+        private final CuentaBancaria[] cuentas = new CuentaBancaria[FILAS_POR_LOTE];
+        private final String[] motivos = new String[FILAS_POR_LOTE];
+        private int tamano;
+
+        void anadir(long numeroLinea, String linea) {
+            numerosLinea[tamano] = numeroLinea;
+            lineas[tamano++] = linea;
+        }
+
+        Lote procesar(Banco banco) {
+            String[] campos = new String[MAXIMO_CAMPOS];
+            for (int i = 0; i < tamano; i++) {
+                int numCampos = ModoLote.trocear(lineas[i], campos);
+                motivos[i] = comprobar(campos, numCampos);
+                if (motivos[i] != null) {
+                    continue;
+                }
+                try {
+                    cuentas[i] = ModoLote.crearCuenta(banco, campos[0], campos[1], campos[2], campos[3], campos[4],
+                            campos[5], Arrays.copyOfRange(campos, 6, numCampos));
+                } catch (IllegalArgumentException e) {
+                    motivos[i] = DATOS_INVALIDOS;
+                }
+            }
+            if (banco.isConcurrente()) {
+                abrir(banco);
+            }
+            return this;
+        }
+
+        void abrir(Banco banco) {
+            for (int i = 0; i < tamano; i++) {
+                if (cuentas[i] != null) {
+                    motivos[i] = abrirCuenta(banco, cuentas[i]);
+                    cuentas[i] = null;
+                }
+            }
+        }
+
+        /**
+         * Abre una cuenta en el banco, con otro IBAN del asignador cada vez que el suyo ya está en uso.
+         * Los IBAN que entrega el asignador no se repiten, así que acaba encontrando uno libre o agotando
+         * los números de cuenta.
+         *
+         * @return El motivo del rechazo, o null si se ha abierto la cuenta.
+         */
+        private static String abrirCuenta(Banco banco, CuentaBancaria cuenta) {
+            try {
+                while (true) {
+                    if (!banco.estaIBANEnUso(cuenta.getIban())) {
+                        try {
+                            banco.abrirCuenta(cuenta);
+                            return null;
+                        } catch (RuntimeException e) {
+                            // Otro hilo puede haber abierto una cuenta con el mismo IBAN tras la comprobación;
+                            // si la que está en el banco es esta, lo que ha fallado es un observador, por
+                            // ejemplo el diario, y la cuenta ya no puede cambiar de IBAN
+                            CuentaBancaria existente = banco.buscarCuentaPorIBAN(cuenta.getIban());
+                            if (existente == null || existente == cuenta) {
+                                return ALTA_FALLIDA;
+                            }
+                        }
+                    }
+                    cuenta.setIban(banco.getAsignadorIBAN().siguiente());
+                }
+            } catch (RuntimeException e) {
+                return ALTA_FALLIDA;
+            }
+        }
+    }
+}
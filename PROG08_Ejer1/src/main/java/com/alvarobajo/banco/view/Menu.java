@@ -129,8 +129,7 @@ public class Menu {
 
         CuentaBancaria cuenta = banco.buscarCuentaPorIBAN(Iban);
         if (cuenta != null) {
-            if (cuenta.getSaldo() == 0) {
-                banco.getCuentas().remove(cuenta);
+            if (banco.eliminarCuenta(Iban)) {
                 System.out.println("La cuenta con IBAN " + Iban + " ha sido eliminada.");
             } else {
                 System.out.println("No se pudo eliminar la cuenta. Asegúrate de que el saldo es 0.");
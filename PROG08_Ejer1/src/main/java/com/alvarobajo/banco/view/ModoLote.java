@@ -0,0 +1,343 @@
+package com.alvarobajo.banco.view;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.CrearPersona;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.controller.cuentas.ResultadoOperacion;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Modo no interactivo: ejecuta contra un banco las órdenes de un fichero o de la entrada estándar,
+ * una por línea, sin mensajes ni preguntas, y escribe una línea de resultado por orden.
+ *
+ * <p>Los campos de cada orden se separan con punto y coma; las líneas vacías y las que empiezan por
+ * {@code #} se ignoran, y el nombre de la orden no distingue mayúsculas de minúsculas. Las cantidades
+ * se escriben en euros con punto o coma decimal y como mucho dos decimales. Órdenes admitidas:</p>
+ * <pre>
+ * ABRIR;AHORRO;dni;nombre;apellido1;apellido2;saldo;tipoInteres
+ * ABRIR;PERSONAL;dni;nombre;apellido1;apellido2;saldo;entidades;comisionMantenimiento
+ * ABRIR;EMPRESA;dni;nombre;apellido1;apellido2;saldo;entidades;tipoInteresDescubierto;maximoDescubierto
+ * INGRESAR;iban;cantidad
+ * RETIRAR;iban;cantidad
+ * SALDO;iban
+ * ELIMINAR;iban
+ * </pre>
+ *
+ * <p>Cada resultado empieza por el número de línea de la orden, seguido de {@code OK} y el dato que
+ * devuelve la orden (el IBAN de la cuenta abierta o el saldo en euros tras la operación) o de
+ * {@code ERROR} y el motivo: los de {@link ResultadoOperacion}, {@code SALDO_NO_NULO} si se intenta
+ * eliminar una cuenta con saldo, {@code DATOS_INVALIDOS} si los datos de una cuenta nueva no son
+ * válidos, {@code IBAN_EN_USO} si el IBAN asignado a una cuenta nueva ya lo tiene otra del banco u
+ * {@code ORDEN_INVALIDA} si la línea no se entiende. Si el banco no puede abrir una cuenta por otro
+ * motivo, por ejemplo porque falla el diario, la orden termina con {@code ERROR_INTERNO} y se sigue con
+ * las siguientes.</p>
+ *
+ * <p>Para procesar millones de órdenes por minuto, cada línea se trocea a mano, sin expresiones
+ * regulares, las cantidades se leen directamente en céntimos y cada resultado se compone en un
+ * {@link StringBuilder} reutilizado que se escribe de una vez en la salida, que debería tener buffer.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public class ModoLote {
+
+    private static final char SEPARADOR = ';';
+    private static final int MAXIMO_CAMPOS = 10;
+    // Con más cifras, los céntimos podrían desbordar un long
+    private static final int MAXIMO_CIFRAS_ENTERAS = 15;
+
+    private static final String OK = "OK";
+    private static final String ERROR = "ERROR";
+    private static final String ORDEN_INVALIDA = "ORDEN_INVALIDA";
+    private static final String DATOS_INVALIDOS = "DATOS_INVALIDOS";
+    private static final String SALDO_NO_NULO = "SALDO_NO_NULO";
+    private static final String IBAN_EN_USO = "IBAN_EN_USO";
+
+    /**
+     * Ejecuta todas las órdenes de la entrada contra el banco. La salida no se cierra ni se vacía.
+     *
+     * @param banco   Banco sobre el que se ejecutan las órdenes.
+     * @param entrada Entrada con las órdenes.
+     * @param salida  Salida para los resultados.
+     * @return Resumen de la ejecución.
+     * @throws IOException si falla la lectura de las órdenes o la escritura de los resultados.
+     */
+    public static ResumenModoLote ejecutar(Banco banco, Reader entrada, Writer salida) throws IOException {
+        BufferedReader lector = entrada instanceof BufferedReader ? (BufferedReader) entrada
+                : new BufferedReader(entrada, 1 << 16);
+        String[] campos = new String[MAXIMO_CAMPOS];
+        StringBuilder resultado = new StringBuilder(128);
+        char[] volcado = new char[128];
+        long ordenes = 0;
+        long errores = 0;
+        long numeroLinea = 0;
+        long inicio = System.nanoTime();
+
+        String linea;
+        while ((linea = lector.readLine()) != null) {
+            numeroLinea++;
+            if (linea.isBlank() || linea.charAt(0) == '#') {
+                continue;
+            }
+            ordenes++;
+            resultado.setLength(0);
+            resultado.append(numeroLinea).append(SEPARADOR);
+            int numCampos = trocear(linea, campos);
+            if (!ejecutarOrden(banco, campos, numCampos, resultado)) {
+                errores++;
+            }
+            resultado.append(System.lineSeparator());
+
+            int longitud = resultado.length();
+            if (longitud > volcado.length) {
+                volcado = new char[Math.max(longitud, volcado.length * 2)];
+            }
+            resultado.getChars(0, longitud, volcado, 0);
+            salida.write(volcado, 0, longitud);
+        }
+        return new ResumenModoLote(ordenes, errores, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Ejecuta una orden y añade al resultado {@code OK} o {@code ERROR} y el dato o el motivo.
+     *
+     * @return true si la orden se ejecutó correctamente.
+     */
+    private static boolean ejecutarOrden(Banco banco, String[] campos, int numCampos, StringBuilder resultado) {
+        String orden = campos[0];
+        if (orden.equalsIgnoreCase("INGRESAR") || orden.equalsIgnoreCase("RETIRAR")) {
+            if (numCampos != 3) {
+                return error(resultado, ORDEN_INVALIDA);
+            }
+            CuentaBancaria cuenta = banco.buscarCuentaPorIBAN(campos[1]);
+            if (cuenta == null) {
+                return error(resultado, ResultadoOperacion.CUENTA_INEXISTENTE.name());
+            }
+            long centimos = leerCentimos(campos[2]);
+            if (centimos < 0) {
+                return error(resultado, ResultadoOperacion.CANTIDAD_INVALIDA.name());
+            }
+            boolean ingreso = orden.equalsIgnoreCase("INGRESAR");
+            long nuevoSaldo = ingreso ? OperarCuenta.ingresar(cuenta, centimos)
+                    : OperarCuenta.retirar(cuenta, centimos);
+            ResultadoOperacion estado = ingreso ? OperarCuenta.resultadoIngreso(cuenta, centimos, nuevoSaldo)
+                    : OperarCuenta.resultadoRetiro(cuenta, centimos, nuevoSaldo);
+            if (estado != ResultadoOperacion.CORRECTA) {
+                return error(resultado, estado.name());
+            }
+            return correcto(resultado, nuevoSaldo);
+        }
+        if (orden.equalsIgnoreCase("SALDO")) {
+            if (numCampos != 2) {
+                return error(resultado, ORDEN_INVALIDA);
+            }
+            CuentaBancaria cuenta = banco.buscarCuentaPorIBAN(campos[1]);
+            if (cuenta == null || cuenta.isCerrada()) {
+                return error(resultado, ResultadoOperacion.CUENTA_INEXISTENTE.name());
+            }
+            return correcto(resultado, cuenta.getSaldoCentimos());
+        }
+        if (orden.equalsIgnoreCase("ELIMINAR")) {
+            if (numCampos != 2) {
+                return error(resultado, ORDEN_INVALIDA);
+            }
+            if (banco.buscarCuentaPorIBAN(campos[1]) == null) {
+                return error(resultado, ResultadoOperacion.CUENTA_INEXISTENTE.name());
+            }
+            if (!banco.eliminarCuenta(campos[1])) {
+                return error(resultado, SALDO_NO_NULO);
+            }
+            resultado.append(OK);
+            return true;
+        }
+        if (orden.equalsIgnoreCase("ABRIR")) {
+            return abrir(banco, campos, numCampos, resultado);
+        }
+        return error(resultado, ORDEN_INVALIDA);
+    }
+
+    private static boolean abrir(Banco banco, String[] campos, int numCampos, StringBuilder resultado) {
+        if (numCampos < 8 || numCampos != 7 + datosPorTipo(campos[1])) {
+            return error(resultado, ORDEN_INVALIDA);
+        }
+        CuentaBancaria cuenta;
+        try {
+            cuenta = crearCuenta(banco, campos[1], campos[2], campos[3], campos[4], campos[5], campos[6],
+                    Arrays.copyOfRange(campos, 7, numCampos));
+        } catch (IllegalArgumentException e) {
+            return error(resultado, DATOS_INVALIDOS);
+        }
+        try {
+            banco.abrirCuenta(cuenta);
+        } catch (RuntimeException e) {
+            // Como en la API HTTP: si la cuenta ya está en el banco, lo que ha fallado es un observador
+            CuentaBancaria existente = banco.buscarCuentaPorIBAN(cuenta.getIban());
+            return error(resultado, existente != null && existente != cuenta ? IBAN_EN_USO
+                    : ResultadoOperacion.ERROR_INTERNO.name());
+        }
+        resultado.append(OK).append(SEPARADOR).append(cuenta.getIban());
+        return true;
+    }
+
+    /**
+     * Indica cuántos datos propios necesita cada tipo de cuenta, además del titular y el saldo.
+     *
+     * @param tipo Tipo de cuenta: {@code AHORRO}, {@code PERSONAL} o {@code EMPRESA}.
+     * @return Número de datos propios del tipo, o -1 si el tipo no existe.
+     */
+    static int datosPorTipo(String tipo) {
+        return tipo.equalsIgnoreCase("AHORRO") ? 1 : tipo.equalsIgnoreCase("PERSONAL") ? 2
+                : tipo.equalsIgnoreCase("EMPRESA") ? 3 : -1;
+    }
+
+    /**
+     * Crea una cuenta nueva, con un IBAN del asignador del banco, a partir de sus datos en texto. No la
+     * abre en el banco.
+     *
+     * @param banco     Banco del que se toma el IBAN.
+     * @param tipo      Tipo de cuenta: {@code AHORRO}, {@code PERSONAL} o {@code EMPRESA}.
+     * @param dni       DNI del titular.
+     * @param nombre    Nombre del titular.
+     * @param apellido1 Primer apellido del titular.
+     * @param apellido2 Segundo apellido del titular (puede ser vacío).
+     * @param saldo     Saldo inicial en euros.
+     * @param datos     Datos propios del tipo: el tipo de interés; las entidades y la comisión de
+     *                  mantenimiento; o las entidades, el tipo de interés por descubierto y el máximo
+     *                  descubierto.
+     * @return La cuenta creada.
+     * @throws IllegalArgumentException si el tipo no existe, faltan o sobran datos o alguno no es válido.
+     */
+    static CuentaBancaria crearCuenta(Banco banco, String tipo, String dni, String nombre, String apellido1,
+                                      String apellido2, String saldo, String... datos) {
+        if (datos.length != datosPorTipo(tipo)) {
+            throw new IllegalArgumentException("Tipo de cuenta o número de datos no válido: " + tipo);
+        }
+        long centimos = leerCentimos(saldo);
+        if (!CrearPersona.esDNIValido(dni) || nombre.isEmpty() || apellido1.isEmpty() || centimos <= 0) {
+            throw new IllegalArgumentException("Datos del titular o saldo no válidos");
+        }
+        Persona titular = new Persona(nombre, apellido1, apellido2, dni);
+        // Los tipos y comisiones se leen antes de pedir el IBAN para no gastar números en cuentas no válidas
+        switch (datos.length) {
+            case 1: {
+                double tipoInteres = leerPositivo(datos[0]);
+                return new CuentaAhorro(titular, centimos / 100.0, banco.getAsignadorIBAN().siguiente(), tipoInteres);
+            }
+            case 2: {
+                double comision = leerPositivo(datos[1]);
+                return new CuentaCorrientePersonal(titular, centimos / 100.0, banco.getAsignadorIBAN().siguiente(),
+                        datos[0], comision);
+            }
+            default: {
+                double tipoDescubierto = leerPositivo(datos[1]);
+                double maximoDescubierto = leerPositivo(datos[2]);
+                return new CuentaCorrienteEmpresa(titular, centimos / 100.0, banco.getAsignadorIBAN().siguiente(),
+                        datos[0], tipoDescubierto, maximoDescubierto);
+            }
+        }
+    }
+
+    private static boolean correcto(StringBuilder resultado, long centimos) {
+        anadirCentimos(resultado.append(OK).append(SEPARADOR), centimos);
+        return true;
+    }
+
+    /**
+     * Escribe una cantidad en céntimos como euros con punto decimal y dos decimales, sin depender de la
+     * configuración regional.
+     *
+     * @param resultado Destino de la escritura.
+     * @param centimos  Cantidad en céntimos.
+     */
+    static void anadirCentimos(StringBuilder resultado, long centimos) {
+        if (centimos < 0) {
+            resultado.append('-');
+        }
+        long absoluto = Math.abs(centimos);
+        resultado.append(absoluto / 100).append('.');
+        int decimales = (int) (absoluto % 100);
+        resultado.append((char) ('0' + decimales / 10)).append((char) ('0' + decimales % 10));
+    }
+
+    private static boolean error(StringBuilder resultado, String motivo) {
+        resultado.append(ERROR).append(SEPARADOR).append(motivo);
+        return false;
+    }
+
+    /**
+     * Separa los campos de una línea por {@link #SEPARADOR}, sin espacios alrededor.
+     *
+     * @return Número de campos, o uno más del máximo si la línea tiene demasiados.
+     */
+    static int trocear(String linea, String[] campos) {
+        int numCampos = 0;
+        int desde = 0;
+        while (true) {
+            int hasta = linea.indexOf(SEPARADOR, desde);
+            if (numCampos == campos.length) {
+                return campos.length + 1;
+            }
+            campos[numCampos++] = linea.substring(desde, hasta < 0 ? linea.length() : hasta).strip();
+            if (hasta < 0) {
+                return numCampos;
+            }
+            desde = hasta + 1;
+        }
+    }
+
+    /**
+     * Lee una cantidad en euros, con punto o coma decimal y como mucho dos decimales.
+     *
+     * @param texto Cantidad en texto.
+     * @return La cantidad en céntimos, o -1 si el texto no es una cantidad válida.
+     */
+    static long leerCentimos(String texto) {
+        int longitud = texto.length();
+        long centimos = 0;
+        int cifrasEnteras = 0;
+        int i = 0;
+        for (; i < longitud && texto.charAt(i) != '.' && texto.charAt(i) != ','; i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9' || ++cifrasEnteras > MAXIMO_CIFRAS_ENTERAS) {
+                return -1;
+            }
+            centimos = centimos * 10 + (c - '0');
+        }
+        if (cifrasEnteras == 0) {
+            return -1;
+        }
+        centimos *= 100;
+        if (i < longitud) {
+            int decimales = longitud - i - 1;
+            if (decimales < 1 || decimales > 2) {
+                return -1;
+            }
+            for (int d = 0; d < decimales; d++) {
+                char c = texto.charAt(i + 1 + d);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                centimos += (c - '0') * (d == 0 ? 10 : 1);
+            }
+        }
+        return centimos;
+    }
+
+    private static double leerPositivo(String texto) {
+        // NumberFormatException es una IllegalArgumentException
+        double valor = Double.parseDouble(texto.replace(',', '.'));
+        if (!(valor > 0)) {
+            throw new IllegalArgumentException("El valor debe ser positivo: " + texto);
+        }
+        return valor;
+    }
+}
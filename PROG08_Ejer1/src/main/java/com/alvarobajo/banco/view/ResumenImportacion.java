@@ -0,0 +1,55 @@
+package com.alvarobajo.banco.view;
+
+/**
+ * Resumen de la importación de un fichero de cuentas con {@link ImportadorCuentas}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class ResumenImportacion {
+
+    private final long filas;
+    private final long rechazadas;
+    private final long nanos;
+
+    ResumenImportacion(long filas, long rechazadas, long nanos) {
+        this.filas = filas;
+        this.rechazadas = rechazadas;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Obtiene el número de filas leídas, sin contar líneas vacías ni comentarios.
+     *
+     * @return Número de filas.
+     */
+    public long getFilas() {
+        return filas;
+    }
+
+    /**
+     * Obtiene el número de cuentas abiertas en el banco.
+     *
+     * @return Número de filas importadas.
+     */
+    public long getImportadas() {
+        return filas - rechazadas;
+    }
+
+    /**
+     * Obtiene el número de filas rechazadas, que aparecen en el informe de rechazos.
+     *
+     * @return Número de filas rechazadas.
+     */
+    public long getRechazadas() {
+        return rechazadas;
+    }
+
+    /**
+     * Obtiene el tiempo que ha llevado la importación.
+     *
+     * @return Duración en nanosegundos.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+}
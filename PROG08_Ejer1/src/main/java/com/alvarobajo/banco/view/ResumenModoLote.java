@@ -0,0 +1,46 @@
+package com.alvarobajo.banco.view;
+
+/**
+ * Resumen de la ejecución de un fichero de órdenes con {@link ModoLote}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class ResumenModoLote {
+
+    private final long ordenes;
+    private final long errores;
+    private final long nanos;
+
+    ResumenModoLote(long ordenes, long errores, long nanos) {
+        this.ordenes = ordenes;
+        this.errores = errores;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Obtiene el número de órdenes ejecutadas, sin contar líneas vacías ni comentarios.
+     *
+     * @return Número de órdenes.
+     */
+    public long getOrdenes() {
+        return ordenes;
+    }
+
+    /**
+     * Obtiene el número de órdenes que terminaron con error.
+     *
+     * @return Número de órdenes con error.
+     */
+    public long getErrores() {
+        return errores;
+    }
+
+    /**
+     * Obtiene el tiempo que ha llevado la ejecución.
+     *
+     * @return Duración en nanosegundos.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+}
@@ -0,0 +1,401 @@
+package com.alvarobajo.banco.view;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.controller.cuentas.ResultadoOperacion;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.ObservadorCuenta;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Servidor de un protocolo binario compacto para ingresos, retiros, transferencias y consultas de
+ * saldo a gran ritmo, pensado para clientes que envían muchos mensajes pequeños por pocas conexiones.
+ *
+ * <p>Un único hilo atiende todas las conexiones con un {@link Selector} de NIO sin bloqueos. Cada
+ * petición se aplica directamente con {@link OperarCuenta}, con el compare-and-set sin bloqueos de
+ * las cuentas, así que el coste por mensaje es el de la operación y poco más. Los clientes pueden
+ * enviar peticiones seguidas sin esperar las respuestas: el servidor atiende todas las peticiones
+ * completas que ha recibido por una conexión y envía sus respuestas juntas, en una sola escritura y en
+ * el mismo orden. Mientras un cliente no lee sus respuestas, no se leen más peticiones suyas.</p>
+ *
+ * <p>Si las cuentas tienen un observador que registra movimientos, como el banco con un diario de
+ * operaciones, las peticiones de un lote se aplican sin esperar su confirmación y el lote se confirma
+ * una sola vez, antes de escribir sus respuestas; en modo {@code GRUPO}, eso es una sola sincronización
+ * con el disco por lote y no por petición. Si la confirmación falla, las respuestas correctas del lote
+ * se envían como {@code ERROR_INTERNO}.</p>
+ *
+ * <p>Todos los enteros van en orden de red (big-endian). Cada petición empieza por su longitud, sin
+ * contarse a sí misma, seguida de la operación, un identificador elegido por el cliente y los datos de
+ * la operación. Los IBAN van precedidos de su longitud en un byte y en ASCII.</p>
+ * <pre>
+ * petición:  int longitud, byte operación, int id, datos
+ *   INGRESO (1), RETIRO (2):   byte n, n bytes IBAN, long céntimos
+ *   SALDO (3):                 byte n, n bytes IBAN
+ *   TRANSFERENCIA (4):         byte n, n bytes IBAN de origen, byte m, m bytes IBAN de destino, long céntimos
+ * respuesta: int id, byte resultado, long saldo   (13 bytes)
+ * </pre>
+ *
+ * <p>El resultado es el código de {@link ResultadoOperacion}. El saldo, en céntimos, es el nuevo saldo
+ * de la cuenta (de la de origen en las transferencias) si la operación es correcta, el saldo actual
+ * si se ha rechazado y 0 si la cuenta no existe. Una petición que falla por un error interno recibe
+ * {@code ERROR_INTERNO}, sin afectar al resto del lote. Una petición mal formada o con una operación
+ * desconocida cierra la conexión.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class ServidorBinario implements AutoCloseable {
+
+    /** Código de operación de un ingreso. */
+    public static final byte INGRESO = 1;
+    /** Código de operación de un retiro. */
+    public static final byte RETIRO = 2;
+    /** Código de operación de una consulta de saldo. */
+    public static final byte SALDO = 3;
+    /** Código de operación de una transferencia. */
+    public static final byte TRANSFERENCIA = 4;
+    /** Tamaño en bytes de cada respuesta. */
+    public static final int TAMANO_RESPUESTA = Integer.BYTES + 1 + Long.BYTES;
+
+    // Operación, identificador y un IBAN de al menos un carácter
+    private static final int LONGITUD_MINIMA = 1 + Integer.BYTES + 2;
+    // La petición más larga es una transferencia entre dos IBAN de 255 caracteres
+    private static final int LONGITUD_MAXIMA = 1 + Integer.BYTES + 2 * (1 + 255) + Long.BYTES;
+    private static final int TAMANO_ENTRADA = 64 * 1024;
+    // Cabe la respuesta de todas las peticiones que caben en la entrada, así que nunca se llena a medias
+    private static final int TAMANO_SALIDA = TAMANO_ENTRADA / (Integer.BYTES + LONGITUD_MINIMA) * TAMANO_RESPUESTA;
+
+    private final Banco banco;
+    private final Selector selector;
+    private final ServerSocketChannel canalServidor;
+    private final Thread hilo;
+    private volatile boolean cerrado;
+    // Reutilizados por el único hilo del servidor para convertir los IBAN en cadenas y para anotar los
+    // observadores con movimientos del lote en curso, que suelen ser uno solo: el del banco
+    private final byte[] iban = new byte[255];
+    private final List<ObservadorCuenta> porConfirmar = new ArrayList<>();
+
+    private ServidorBinario(Banco banco, Selector selector, ServerSocketChannel canalServidor) {
+        this.banco = banco;
+        this.selector = selector;
+        this.canalServidor = canalServidor;
+        this.hilo = new Thread(this::atender, "banco-servidor-binario");
+    }
+
+    /**
+     * Arranca el servidor binario del banco.
+     *
+     * @param banco     Banco concurrente al que da acceso el servidor.
+     * @param direccion Dirección y puerto de escucha (el puerto 0 elige uno libre).
+     * @return El servidor arrancado.
+     * @throws IllegalArgumentException si el banco no es concurrente.
+     * @throws IOException              si no se puede abrir el puerto.
+     */
+    public static ServidorBinario iniciar(Banco banco, InetSocketAddress direccion) throws IOException {
+        if (!banco.isConcurrente()) {
+            throw new IllegalArgumentException("El servidor binario necesita un banco concurrente");
+        }
+        Selector selector = Selector.open();
+        ServerSocketChannel canalServidor = ServerSocketChannel.open();
+        try {
+            canalServidor.bind(direccion);
+            canalServidor.configureBlocking(false);
+            canalServidor.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            canalServidor.close();
+            selector.close();
+            throw e;
+        }
+        ServidorBinario servidor = new ServidorBinario(banco, selector, canalServidor);
+        servidor.hilo.start();
+        return servidor;
+    }
+
+    /**
+     * Obtiene el puerto en el que escucha el servidor.
+     *
+     * @return Número de puerto.
+     */
+    public int getPuerto() {
+        return canalServidor.socket().getLocalPort();
+    }
+
+    /**
+     * Detiene el servidor y espera a que su hilo cierre todas las conexiones.
+     */
+    @Override
+    public void close() {
+        cerrado = true;
+        selector.wakeup();
+        try {
+            hilo.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Bucle del hilo del servidor: acepta conexiones, lee peticiones y envía respuestas hasta que se
+     * cierra el servidor, y entonces cierra todos los canales.
+     */
+    private void atender() {
+        try {
+            while (!cerrado) {
+                selector.select();
+                Iterator<SelectionKey> listas = selector.selectedKeys().iterator();
+                while (listas.hasNext()) {
+                    SelectionKey clave = listas.next();
+                    listas.remove();
+                    if (!clave.isValid()) {
+                        continue;
+                    }
+                    if (clave.isAcceptable()) {
+                        aceptar();
+                    } else {
+                        Conexion conexion = (Conexion) clave.attachment();
+                        try {
+                            if (clave.isWritable()) {
+                                conexion.enviar(clave);
+                            } else if (clave.isReadable()) {
+                                conexion.recibir(clave, this);
+                            }
+                        } catch (IOException e) {
+                            // El cliente ha cortado la conexión: se cierra sin afectar a las demás
+                            clave.channel().close();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error en el servidor binario", e);
+        } finally {
+            cerrarCanales();
+        }
+    }
+
+    private void cerrarCanales() {
+        try {
+            for (SelectionKey clave : selector.keys()) {
+                clave.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo cerrar el servidor binario", e);
+        }
+    }
+
+    private void aceptar() throws IOException {
+        SocketChannel canal = canalServidor.accept();
+        if (canal == null) {
+            return;
+        }
+        canal.configureBlocking(false);
+        // Las respuestas ya salen agrupadas; esperar a juntar más solo añadiría latencia
+        canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        canal.register(selector, SelectionKey.OP_READ, new Conexion());
+    }
+
+    /**
+     * Atiende las peticiones completas de la entrada, confirma sus movimientos y escribe sus respuestas
+     * en la salida.
+     *
+     * @return false si alguna petición está mal formada.
+     */
+    private boolean atenderPeticiones(ByteBuffer entrada, ByteBuffer salida) {
+        int inicioLote = salida.position();
+        boolean valida = aplicarPeticiones(entrada, salida);
+        confirmarLote(salida, inicioLote);
+        return valida;
+    }
+
+    /**
+     * Aplica las peticiones completas de la entrada sin esperar la confirmación de sus movimientos.
+     *
+     * @return false si alguna petición está mal formada.
+     */
+    private boolean aplicarPeticiones(ByteBuffer entrada, ByteBuffer salida) {
+        while (entrada.remaining() >= Integer.BYTES) {
+            int longitud = entrada.getInt(entrada.position());
+            if (longitud < LONGITUD_MINIMA || longitud > LONGITUD_MAXIMA) {
+                return false;
+            }
+            if (entrada.remaining() < Integer.BYTES + longitud) {
+                return true;
+            }
+            int fin = entrada.position() + Integer.BYTES + longitud;
+            entrada.position(entrada.position() + Integer.BYTES);
+            if (!atenderPeticion(entrada, fin, salida) || entrada.position() != fin) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean atenderPeticion(ByteBuffer entrada, int fin, ByteBuffer salida) {
+        byte operacion = entrada.get();
+        int id = entrada.getInt();
+        String ibanCuenta = leerIBAN(entrada, fin);
+        String ibanDestino = operacion == TRANSFERENCIA ? leerIBAN(entrada, fin) : "";
+        if (ibanCuenta == null || ibanDestino == null) {
+            return false;
+        }
+        int datos = operacion == SALDO ? 0 : Long.BYTES;
+        if (operacion < INGRESO || operacion > TRANSFERENCIA || fin - entrada.position() != datos) {
+            return false;
+        }
+        long centimos = operacion == SALDO ? 0 : entrada.getLong();
+        CuentaBancaria cuenta = banco.buscarCuentaPorIBAN(ibanCuenta);
+        CuentaBancaria destino = operacion == TRANSFERENCIA ? banco.buscarCuentaPorIBAN(ibanDestino) : cuenta;
+        if (cuenta == null || destino == null) {
+            responder(salida, id, ResultadoOperacion.CUENTA_INEXISTENTE, 0);
+            return true;
+        }
+        if (operacion != SALDO) {
+            // Se anota antes de operar: si la operación falla a medias, lo aplicado también se confirma
+            anotarPorConfirmar(cuenta.getObservador());
+            anotarPorConfirmar(destino.getObservador());
+        }
+        long nuevoSaldo;
+        ResultadoOperacion resultado;
+        try {
+            switch (operacion) {
+                case INGRESO:
+                    nuevoSaldo = OperarCuenta.ingresarSinConfirmar(cuenta, centimos);
+                    resultado = OperarCuenta.resultadoIngreso(cuenta, centimos, nuevoSaldo);
+                    break;
+                case RETIRO:
+                    nuevoSaldo = OperarCuenta.retirarSinConfirmar(cuenta, centimos);
+                    resultado = OperarCuenta.resultadoRetiro(cuenta, centimos, nuevoSaldo);
+                    break;
+                case SALDO:
+                    nuevoSaldo = cuenta.getSaldoCentimos();
+                    resultado = ResultadoOperacion.CORRECTA;
+                    break;
+                default:
+                    nuevoSaldo = OperarCuenta.transferirSinConfirmar(cuenta, destino, centimos);
+                    if (nuevoSaldo == CuentaBancaria.OPERACION_RECHAZADA && cuenta == destino) {
+                        resultado = ResultadoOperacion.CANTIDAD_INVALIDA;
+                    } else if (nuevoSaldo == CuentaBancaria.OPERACION_RECHAZADA && destino.isCerrada()) {
+                        resultado = ResultadoOperacion.CUENTA_CERRADA;
+                    } else {
+                        resultado = OperarCuenta.resultadoRetiro(cuenta, centimos, nuevoSaldo);
+                    }
+            }
+        } catch (RuntimeException e) {
+            // Por ejemplo, un observador que no puede registrar el movimiento: el resto del lote sigue
+            nuevoSaldo = 0;
+            resultado = ResultadoOperacion.ERROR_INTERNO;
+        }
+        responder(salida, id, resultado, resultado == ResultadoOperacion.CORRECTA ? nuevoSaldo
+                : cuenta.getSaldoCentimos());
+        return true;
+    }
+
+    private void anotarPorConfirmar(ObservadorCuenta observador) {
+        if (observador != null && observador.registraMovimientos() && !porConfirmar.contains(observador)) {
+            porConfirmar.add(observador);
+        }
+    }
+
+    /**
+     * Confirma de una vez los movimientos del lote. Si alguna confirmación falla, las respuestas
+     * correctas del lote, que empiezan en la posición indicada de la salida, pasan a ser errores internos.
+     */
+    private void confirmarLote(ByteBuffer salida, int inicioLote) {
+        boolean confirmado = true;
+        for (ObservadorCuenta observador : porConfirmar) {
+            try {
+                observador.confirmarMovimientos();
+            } catch (RuntimeException e) {
+                confirmado = false;
+            }
+        }
+        porConfirmar.clear();
+        if (!confirmado) {
+            for (int posicion = inicioLote + Integer.BYTES; posicion < salida.position();
+                 posicion += TAMANO_RESPUESTA) {
+                if (salida.get(posicion) == ResultadoOperacion.CORRECTA.getCodigo()) {
+                    salida.put(posicion, ResultadoOperacion.ERROR_INTERNO.getCodigo());
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee un IBAN precedido de su longitud.
+     *
+     * @return El IBAN, o null si no cabe en lo que queda de la petición o está vacío.
+     */
+    private String leerIBAN(ByteBuffer entrada, int fin) {
+        if (fin - entrada.position() < 1) {
+            return null;
+        }
+        int longitud = Byte.toUnsignedInt(entrada.get());
+        if (longitud == 0 || fin - entrada.position() < longitud) {
+            return null;
+        }
+        entrada.get(iban, 0, longitud);
+        return new String(iban, 0, longitud, StandardCharsets.US_ASCII);
+    }
+
+    private static void responder(ByteBuffer salida, int id, ResultadoOperacion resultado, long saldo) {
+        salida.putInt(id).put(resultado.getCodigo()).putLong(saldo);
+    }
+
+    /**
+     * Estado de una conexión: las peticiones recibidas que aún no están completas y las respuestas que
+     * aún no se han podido enviar.
+     */
+    private static final class Conexion {
+
+        private final ByteBuffer entrada = ByteBuffer.allocateDirect(TAMANO_ENTRADA);
+        private final ByteBuffer salida = ByteBuffer.allocateDirect(TAMANO_SALIDA);
+
+        /**
+         * Lee lo que haya llegado, atiende las peticiones completas y envía sus respuestas.
+         * Solo se invoca con la salida vacía.
+         */
+        void recibir(SelectionKey clave, ServidorBinario servidor) throws IOException {
+            SocketChannel canal = (SocketChannel) clave.channel();
+            if (canal.read(entrada) < 0) {
+                canal.close();
+                return;
+            }
+            entrada.flip();
+            boolean valida = servidor.atenderPeticiones(entrada, salida);
+            entrada.compact();
+            if (!valida) {
+                canal.close();
+                return;
+            }
+            salida.flip();
+            enviar(clave);
+        }
+
+        /**
+         * Envía las respuestas pendientes. Si el cliente no las admite todas, deja de leer sus peticiones
+         * hasta que se puedan enviar las que faltan.
+         */
+        void enviar(SelectionKey clave) throws IOException {
+            ((SocketChannel) clave.channel()).write(salida);
+            if (salida.hasRemaining()) {
+                clave.interestOps(SelectionKey.OP_WRITE);
+            } else {
+                salida.clear();
+                clave.interestOps(SelectionKey.OP_READ);
+            }
+        }
+    }
+}
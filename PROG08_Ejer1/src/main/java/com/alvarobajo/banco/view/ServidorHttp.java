@@ -0,0 +1,595 @@
+package com.alvarobajo.banco.view;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.OrdenListado;
+import com.alvarobajo.banco.controller.PaginaCuentas;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.controller.cuentas.ResultadoOperacion;
+import com.alvarobajo.banco.metricas.Metricas;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.CodificadorCuentas;
+import com.alvarobajo.banco.persistencia.Extracto;
+import com.alvarobajo.banco.persistencia.HistorialMovimientos;
+import com.alvarobajo.banco.persistencia.ListaMovimientos;
+import com.alvarobajo.banco.proyecciones.ProyeccionesBanco;
+import com.alvarobajo.banco.proyecciones.SaldosPorTipo;
+import com.alvarobajo.banco.proyecciones.VistaTitular;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * API HTTP del banco, servida con el servidor HTTP del JDK ({@code com.sun.net.httpserver}).
+ *
+ * <p>Cada petición se atiende en su propio hilo virtual y llama directamente a {@link Banco} y a
+ * {@link OperarCuenta}, así que el banco tiene que ser concurrente. Las respuestas son JSON con las
+ * cantidades en euros; los datos de entrada se envían como parámetros de formulario en el cuerpo
+ * ({@code application/x-www-form-urlencoded}) o en la URL.</p>
+ * <pre>
+ * POST /cuentas                    tipo, dni, nombre, apellido1, apellido2, saldo y, según el tipo,
+ *                                  tipoInteres (AHORRO), entidades y comision (PERSONAL) o entidades,
+ *                                  tipoDescubierto y maximoDescubierto (EMPRESA)       → 201 cuenta
+ * GET  /cuentas?orden=&amp;cursor=&amp;tamano=  página del listado (por IBAN o por SALDO)        → 200
+ * GET  /cuentas/{iban}                                                               → 200 cuenta
+ * POST /cuentas/{iban}/ingresos    cantidad                                          → 200 cuenta
+ * POST /cuentas/{iban}/retiros     cantidad                                          → 200 cuenta
+ * GET  /cuentas/{iban}/movimientos?n=  últimos movimientos, si hay historial           → 200
+ * GET  /cuentas/{iban}/extracto?desde=&amp;hasta=  extracto entre dos fechas (AAAA-MM-DD, UTC,
+ *                                  ambas incluidas), si hay historial                → 200
+ * GET  /titulares/{dni}            cuentas y saldos del titular, si hay proyecciones  → 200
+ * GET  /saldos                     cuentas y saldo total por tipo, si hay proyecciones → 200
+ * GET  /metricas                   resumen de {@link Metricas} en texto              → 200
+ * </pre>
+ *
+ * <p>Los errores se devuelven como {@code {"error": motivo}}, con los motivos de
+ * {@link ResultadoOperacion}, {@code DATOS_INVALIDOS}, {@code IBAN_EN_USO}, {@code HISTORIAL_NO_DISPONIBLE}
+ * o {@code ERROR_INTERNO}, y los códigos 400 (datos o cantidad no válidos), 404 (cuenta o titular
+ * inexistente, ruta desconocida o extracto de fechas anteriores a la apertura del historial),
+ * 405 (método no admitido), 409 (saldo insuficiente o IBAN asignado ya en uso), 410 (cuenta cerrada) o
+ * 500 (el alta de la cuenta ha fallado por otro motivo, por ejemplo al escribir el diario).</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+public final class ServidorHttp implements AutoCloseable {
+
+    private static final String RUTA_CUENTAS = "/cuentas";
+    private static final String RUTA_METRICAS = "/metricas";
+    private static final String RUTA_TITULARES = "/titulares/";
+    private static final String RUTA_SALDOS = "/saldos";
+    private static final int TAMANO_PAGINA_POR_DEFECTO = 50;
+    private static final int TAMANO_PAGINA_MAXIMO = 1000;
+    private static final int MOVIMIENTOS_POR_DEFECTO = 20;
+    private static final int MOVIMIENTOS_MAXIMO = 1000;
+    // Cuerpo máximo de una petición: los formularios de la API ocupan unos cientos de bytes
+    private static final int TAMANO_CUERPO_MAXIMO = 8192;
+    // El servidor del JDK envía las cabeceras y el cuerpo por separado; con el algoritmo de Nagle, el
+    // cuerpo espera al ACK retardado del cliente y cada petición con conexión persistente tarda unos 40 ms
+    private static final String PROPIEDAD_NODELAY = "sun.net.httpserver.nodelay";
+
+    private final Banco banco;
+    private final HistorialMovimientos historial;
+    private final ProyeccionesBanco proyecciones;
+    private final HttpServer servidor;
+    private final ExecutorService hilos;
+
+    private ServidorHttp(Banco banco, HistorialMovimientos historial, ProyeccionesBanco proyecciones,
+                         HttpServer servidor, ExecutorService hilos) {
+        this.banco = banco;
+        this.historial = historial;
+        this.proyecciones = proyecciones;
+        this.servidor = servidor;
+        this.hilos = hilos;
+    }
+
+    /**
+     * Arranca el servidor HTTP del banco.
+     *
+     * @param banco     Banco concurrente al que da acceso la API.
+     * @param direccion Dirección y puerto de escucha (el puerto 0 elige uno libre).
+     * @return El servidor arrancado.
+     * @throws IllegalArgumentException si el banco no es concurrente.
+     * @throws IOException              si no se puede abrir el puerto.
+     */
+    public static ServidorHttp iniciar(Banco banco, InetSocketAddress direccion) throws IOException {
+        return iniciar(banco, null, direccion);
+    }
+
+    /**
+     * Arranca el servidor HTTP del banco con la consulta de los últimos movimientos de cada cuenta.
+     *
+     * @param banco     Banco concurrente al que da acceso la API.
+     * @param historial Historial de movimientos del banco, o null para no ofrecer la consulta.
+     * @param direccion Dirección y puerto de escucha (el puerto 0 elige uno libre).
+     * @return El servidor arrancado.
+     * @throws IllegalArgumentException si el banco no es concurrente.
+     * @throws IOException              si no se puede abrir el puerto.
+     */
+    public static ServidorHttp iniciar(Banco banco, HistorialMovimientos historial, InetSocketAddress direccion)
+            throws IOException {
+        return iniciar(banco, historial, null, direccion);
+    }
+
+    /**
+     * Arranca el servidor HTTP del banco con las consultas del historial de movimientos y de las
+     * proyecciones de titulares y saldos por tipo, que se responden sin recorrer las cuentas.
+     *
+     * @param banco        Banco concurrente al que da acceso la API.
+     * @param historial    Historial de movimientos del banco, o null para no ofrecer sus consultas.
+     * @param proyecciones Proyecciones del banco, o null para no ofrecer sus consultas.
+     * @param direccion    Dirección y puerto de escucha (el puerto 0 elige uno libre).
+     * @return El servidor arrancado.
+     * @throws IllegalArgumentException si el banco no es concurrente.
+     * @throws IOException              si no se puede abrir el puerto.
+     */
+    public static ServidorHttp iniciar(Banco banco, HistorialMovimientos historial, ProyeccionesBanco proyecciones,
+                                       InetSocketAddress direccion) throws IOException {
+        if (!banco.isConcurrente()) {
+            throw new IllegalArgumentException("El servidor HTTP necesita un banco concurrente");
+        }
+        if (System.getProperty(PROPIEDAD_NODELAY) == null) {
+            System.setProperty(PROPIEDAD_NODELAY, "true");
+        }
+        HttpServer servidor = HttpServer.create(direccion, 0);
+        ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+        ServidorHttp api = new ServidorHttp(banco, historial, proyecciones, servidor, hilos);
+        servidor.createContext(RUTA_CUENTAS, api::atenderCuentas);
+        servidor.createContext(RUTA_METRICAS, api::atenderMetricas);
+        if (proyecciones != null) {
+            servidor.createContext(RUTA_TITULARES, api::atenderTitulares);
+            servidor.createContext(RUTA_SALDOS, api::atenderSaldos);
+        }
+        servidor.setExecutor(hilos);
+        servidor.start();
+        return api;
+    }
+
+    /**
+     * Obtiene el puerto en el que escucha el servidor.
+     *
+     * @return Número de puerto.
+     */
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Detiene el servidor sin esperar a las peticiones en curso.
+     */
+    @Override
+    public void close() {
+        servidor.stop(0);
+        hilos.shutdown();
+    }
+
+    private void atenderCuentas(HttpExchange intercambio) throws IOException {
+        try (intercambio) {
+            String metodo = intercambio.getRequestMethod();
+            String ruta = intercambio.getRequestURI().getRawPath();
+            Map<String, String> parametros = leerParametros(intercambio);
+            if (parametros == null) {
+                responderError(intercambio, 400, "DATOS_INVALIDOS");
+                return;
+            }
+            if (ruta.length() > RUTA_CUENTAS.length() && ruta.charAt(RUTA_CUENTAS.length()) != '/') {
+                responderError(intercambio, 404, "RUTA_DESCONOCIDA");
+                return;
+            }
+            String resto = ruta.length() > RUTA_CUENTAS.length() ? ruta.substring(RUTA_CUENTAS.length() + 1) : "";
+            int barra = resto.indexOf('/');
+            String iban = URLDecoder.decode(barra < 0 ? resto : resto.substring(0, barra), StandardCharsets.UTF_8);
+            String accion = barra < 0 ? "" : resto.substring(barra + 1);
+
+            if (iban.isEmpty()) {
+                if (metodo.equals("POST")) {
+                    crearCuenta(intercambio, parametros);
+                } else if (metodo.equals("GET")) {
+                    listar(intercambio, parametros);
+                } else {
+                    responderError(intercambio, 405, "METODO_NO_ADMITIDO");
+                }
+                return;
+            }
+            CuentaBancaria cuenta = banco.buscarCuentaPorIBAN(iban);
+            if (cuenta == null) {
+                responderError(intercambio, 404, ResultadoOperacion.CUENTA_INEXISTENTE.name());
+            } else if (accion.isEmpty()) {
+                if (metodo.equals("GET")) {
+                    responderCuenta(intercambio, 200, cuenta, cuenta.getSaldoCentimos());
+                } else {
+                    responderError(intercambio, 405, "METODO_NO_ADMITIDO");
+                }
+            } else if (accion.equals("ingresos") || accion.equals("retiros")) {
+                if (metodo.equals("POST")) {
+                    operar(intercambio, cuenta, accion.equals("ingresos"), parametros.getOrDefault("cantidad", ""));
+                } else {
+                    responderError(intercambio, 405, "METODO_NO_ADMITIDO");
+                }
+            } else if (accion.equals("movimientos") && historial != null) {
+                if (metodo.equals("GET")) {
+                    listarMovimientos(intercambio, cuenta, parametros.get("n"));
+                } else {
+                    responderError(intercambio, 405, "METODO_NO_ADMITIDO");
+                }
+            } else if (accion.equals("extracto") && historial != null) {
+                if (metodo.equals("GET")) {
+                    responderExtracto(intercambio, cuenta, parametros.get("desde"), parametros.get("hasta"));
+                } else {
+                    responderError(intercambio, 405, "METODO_NO_ADMITIDO");
+                }
+            } else {
+                responderError(intercambio, 404, "RUTA_DESCONOCIDA");
+            }
+        }
+    }
+
+    private void crearCuenta(HttpExchange intercambio, Map<String, String> parametros) throws IOException {
+        String tipo = parametros.getOrDefault("tipo", "");
+        String[] datos;
+        switch (ModoLote.datosPorTipo(tipo)) {
+            case 1:
+                datos = new String[]{parametros.get("tipoInteres")};
+                break;
+            case 2:
+                datos = new String[]{parametros.get("entidades"), parametros.get("comision")};
+                break;
+            case 3:
+                datos = new String[]{parametros.get("entidades"), parametros.get("tipoDescubierto"),
+                        parametros.get("maximoDescubierto")};
+                break;
+            default:
+                responderError(intercambio, 400, "DATOS_INVALIDOS");
+                return;
+        }
+        CuentaBancaria cuenta;
+        try {
+            for (String dato : datos) {
+                if (dato == null) {
+                    throw new IllegalArgumentException("Faltan datos de la cuenta");
+                }
+            }
+            cuenta = ModoLote.crearCuenta(banco, tipo, parametros.getOrDefault("dni", ""),
+                    parametros.getOrDefault("nombre", ""), parametros.getOrDefault("apellido1", ""),
+                    parametros.getOrDefault("apellido2", ""), parametros.getOrDefault("saldo", ""), datos);
+        } catch (IllegalArgumentException e) {
+            responderError(intercambio, 400, "DATOS_INVALIDOS");
+            return;
+        }
+        try {
+            banco.abrirCuenta(cuenta);
+        } catch (RuntimeException e) {
+            // El IBAN lo asigna el banco, pero puede chocar con cuentas cargadas de otra numeración; si
+            // la cuenta ya está en el banco, lo que ha fallado es un observador, por ejemplo el diario
+            CuentaBancaria existente = banco.buscarCuentaPorIBAN(cuenta.getIban());
+            if (existente != null && existente != cuenta) {
+                responderError(intercambio, 409, "IBAN_EN_USO");
+            } else {
+                responderError(intercambio, 500, "ERROR_INTERNO");
+            }
+            return;
+        }
+        responderCuenta(intercambio, 201, cuenta, cuenta.getSaldoCentimos());
+    }
+
+    private void operar(HttpExchange intercambio, CuentaBancaria cuenta, boolean ingreso, String cantidad)
+            throws IOException {
+        long centimos = ModoLote.leerCentimos(cantidad);
+        if (centimos <= 0) {
+            responderError(intercambio, 400, ResultadoOperacion.CANTIDAD_INVALIDA.name());
+            return;
+        }
+        long nuevoSaldo = ingreso ? OperarCuenta.ingresar(cuenta, centimos) : OperarCuenta.retirar(cuenta, centimos);
+        ResultadoOperacion resultado = ingreso ? OperarCuenta.resultadoIngreso(cuenta, centimos, nuevoSaldo)
+                : OperarCuenta.resultadoRetiro(cuenta, centimos, nuevoSaldo);
+        switch (resultado) {
+            case CORRECTA:
+                responderCuenta(intercambio, 200, cuenta, nuevoSaldo);
+                break;
+            case SALDO_INSUFICIENTE:
+                responderError(intercambio, 409, resultado.name());
+                break;
+            case CUENTA_CERRADA:
+                responderError(intercambio, 410, resultado.name());
+                break;
+            default:
+                responderError(intercambio, 400, resultado.name());
+        }
+    }
+
+    private void listar(HttpExchange intercambio, Map<String, String> parametros) throws IOException {
+        PaginaCuentas pagina;
+        try {
+            OrdenListado orden = OrdenListado.valueOf(parametros.getOrDefault("orden", "IBAN").toUpperCase());
+            String tamano = parametros.get("tamano");
+            int tamanoPagina = tamano == null ? TAMANO_PAGINA_POR_DEFECTO : Integer.parseInt(tamano);
+            pagina = banco.listarCuentas(orden, parametros.get("cursor"), Math.min(tamanoPagina, TAMANO_PAGINA_MAXIMO));
+        } catch (IllegalArgumentException e) {
+            // Orden desconocido, tamaño que no es un número positivo o cursor no válido
+            responderError(intercambio, 400, "DATOS_INVALIDOS");
+            return;
+        }
+        StringBuilder json = new StringBuilder(64 + 160 * pagina.getCuentas().size()).append("{\"cuentas\":[");
+        boolean primera = true;
+        for (CuentaBancaria cuenta : pagina.getCuentas()) {
+            if (!primera) {
+                json.append(',');
+            }
+            primera = false;
+            anadirCuenta(json, cuenta, cuenta.getSaldoCentimos());
+        }
+        json.append("],\"siguiente\":");
+        if (pagina.haySiguiente()) {
+            anadirTexto(json, pagina.getCursorSiguiente());
+        } else {
+            json.append("null");
+        }
+        responder(intercambio, 200, json.append('}'));
+    }
+
+    private void listarMovimientos(HttpExchange intercambio, CuentaBancaria cuenta, String n) throws IOException {
+        int cantidad;
+        try {
+            cantidad = n == null ? MOVIMIENTOS_POR_DEFECTO : Integer.parseInt(n);
+        } catch (NumberFormatException e) {
+            cantidad = -1;
+        }
+        if (cantidad <= 0) {
+            responderError(intercambio, 400, "DATOS_INVALIDOS");
+            return;
+        }
+        ListaMovimientos movimientos = new ListaMovimientos();
+        historial.ultimosMovimientos(cuenta, Math.min(cantidad, MOVIMIENTOS_MAXIMO), movimientos);
+        StringBuilder json = new StringBuilder(32 + 96 * movimientos.getTamano()).append('{');
+        anadirMovimientos(json, movimientos);
+        responder(intercambio, 200, json.append('}'));
+    }
+
+    private void responderExtracto(HttpExchange intercambio, CuentaBancaria cuenta, String desde, String hasta)
+            throws IOException {
+        long inicio;
+        long fin;
+        try {
+            if (desde == null || hasta == null) {
+                throw new IllegalArgumentException("Faltan las fechas del extracto");
+            }
+            inicio = LocalDate.parse(desde).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            fin = LocalDate.parse(hasta).plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            if (fin <= inicio) {
+                throw new IllegalArgumentException("La fecha final es anterior a la inicial");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException | ArithmeticException e) {
+            responderError(intercambio, 400, "DATOS_INVALIDOS");
+            return;
+        }
+        Extracto extracto = new Extracto();
+        historial.extracto(cuenta, inicio, fin, extracto);
+        if (!extracto.isDisponible()) {
+            responderError(intercambio, 404, "HISTORIAL_NO_DISPONIBLE");
+            return;
+        }
+        ListaMovimientos movimientos = extracto.getMovimientos();
+        StringBuilder json = new StringBuilder(64 + 96 * movimientos.getTamano()).append("{\"saldoInicial\":");
+        ModoLote.anadirCentimos(json, extracto.getSaldoInicialCentimos());
+        json.append(",\"saldoFinal\":");
+        ModoLote.anadirCentimos(json, extracto.getSaldoFinalCentimos());
+        json.append(',');
+        anadirMovimientos(json, movimientos);
+        responder(intercambio, 200, json.append('}'));
+    }
+
+    private static void anadirMovimientos(StringBuilder json, ListaMovimientos movimientos) {
+        json.append("\"movimientos\":[");
+        for (int i = 0; i < movimientos.getTamano(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"instante\":\"").append(Instant.ofEpochMilli(movimientos.getInstante(i)))
+                    .append("\",\"tipo\":\"").append(movimientos.getTipo(i).name()).append("\",\"importe\":");
+            ModoLote.anadirCentimos(json, movimientos.getImporteCentimos(i));
+            json.append(",\"saldo\":");
+            ModoLote.anadirCentimos(json, movimientos.getSaldoCentimos(i));
+            json.append('}');
+        }
+        json.append(']');
+    }
+
+    private void atenderTitulares(HttpExchange intercambio) throws IOException {
+        try (intercambio) {
+            if (!intercambio.getRequestMethod().equals("GET")) {
+                responderError(intercambio, 405, "METODO_NO_ADMITIDO");
+                return;
+            }
+            String ruta = intercambio.getRequestURI().getRawPath();
+            String dni = URLDecoder.decode(ruta.substring(RUTA_TITULARES.length()), StandardCharsets.UTF_8);
+            VistaTitular vista = proyecciones.getVistaTitular(dni);
+            if (vista == null) {
+                responderError(intercambio, 404, "TITULAR_INEXISTENTE");
+                return;
+            }
+            StringBuilder json = new StringBuilder(64 + 80 * vista.getNumCuentas()).append("{\"dni\":");
+            anadirTexto(json, vista.getDni());
+            json.append(",\"titular\":");
+            anadirTexto(json, vista.getNombre());
+            json.append(",\"saldo\":");
+            ModoLote.anadirCentimos(json, vista.getSaldoTotalCentimos());
+            json.append(",\"cuentas\":[");
+            for (int i = 0; i < vista.getNumCuentas(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"iban\":");
+                anadirTexto(json, vista.getIban(i));
+                json.append(",\"tipo\":\"").append(tipo(vista.getTipo(i))).append("\",\"saldo\":");
+                ModoLote.anadirCentimos(json, vista.getSaldoCentimos(i));
+                json.append('}');
+            }
+            responder(intercambio, 200, json.append("]}"));
+        }
+    }
+
+    private void atenderSaldos(HttpExchange intercambio) throws IOException {
+        try (intercambio) {
+            if (!intercambio.getRequestMethod().equals("GET")) {
+                responderError(intercambio, 405, "METODO_NO_ADMITIDO");
+                return;
+            }
+            if (!intercambio.getRequestURI().getRawPath().equals(RUTA_SALDOS)) {
+                responderError(intercambio, 404, "RUTA_DESCONOCIDA");
+                return;
+            }
+            SaldosPorTipo saldos = proyecciones.getSaldosPorTipo();
+            StringBuilder json = new StringBuilder(256).append('{');
+            byte[] tipos = {CodificadorCuentas.TIPO_AHORRO, CodificadorCuentas.TIPO_CORRIENTE_PERSONAL,
+                    CodificadorCuentas.TIPO_CORRIENTE_EMPRESA};
+            for (byte tipo : tipos) {
+                json.append('"').append(tipo(tipo)).append("\":{\"cuentas\":").append(saldos.getNumCuentas(tipo))
+                        .append(",\"saldo\":");
+                ModoLote.anadirCentimos(json, saldos.getSaldoCentimos(tipo));
+                json.append("},");
+            }
+            json.append("\"total\":{\"cuentas\":").append(saldos.getNumCuentasTotal()).append(",\"saldo\":");
+            ModoLote.anadirCentimos(json, saldos.getSaldoTotalCentimos());
+            responder(intercambio, 200, json.append("}}"));
+        }
+    }
+
+    private void atenderMetricas(HttpExchange intercambio) throws IOException {
+        try (intercambio) {
+            byte[] cuerpo = Metricas.resumen().devolverInfoString().getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            intercambio.sendResponseHeaders(200, cuerpo.length);
+            intercambio.getResponseBody().write(cuerpo);
+        }
+    }
+
+    /**
+     * Lee los parámetros de la URL y, si los hay, los del cuerpo de la petición.
+     *
+     * @return Los parámetros, o null si el cuerpo es demasiado grande.
+     */
+    private static Map<String, String> leerParametros(HttpExchange intercambio) throws IOException {
+        Map<String, String> parametros = new HashMap<>();
+        anadirParametros(parametros, intercambio.getRequestURI().getRawQuery());
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            byte[] cuerpo = entrada.readNBytes(TAMANO_CUERPO_MAXIMO + 1);
+            if (cuerpo.length > TAMANO_CUERPO_MAXIMO) {
+                return null;
+            }
+            anadirParametros(parametros, new String(cuerpo, StandardCharsets.UTF_8));
+        }
+        return parametros;
+    }
+
+    private static void anadirParametros(Map<String, String> parametros, String codificados) {
+        if (codificados == null || codificados.isEmpty()) {
+            return;
+        }
+        for (String par : codificados.split("&")) {
+            int igual = par.indexOf('=');
+            String nombre = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            parametros.put(URLDecoder.decode(nombre, StandardCharsets.UTF_8),
+                    URLDecoder.decode(valor, StandardCharsets.UTF_8).strip());
+        }
+    }
+
+    private static void responderCuenta(HttpExchange intercambio, int estado, CuentaBancaria cuenta, long saldo)
+            throws IOException {
+        StringBuilder json = new StringBuilder(192);
+        anadirCuenta(json, cuenta, saldo);
+        responder(intercambio, estado, json);
+    }
+
+    private static void responderError(HttpExchange intercambio, int estado, String motivo) throws IOException {
+        StringBuilder json = new StringBuilder(48).append("{\"error\":");
+        anadirTexto(json, motivo);
+        responder(intercambio, estado, json.append('}'));
+    }
+
+    private static void responder(HttpExchange intercambio, int estado, CharSequence json) throws IOException {
+        byte[] cuerpo = json.toString().getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(estado, cuerpo.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(cuerpo);
+        }
+    }
+
+    /**
+     * Escribe una cuenta como objeto JSON, con el saldo indicado (el que dejó la operación, que puede
+     * no ser ya el actual si otra petición ha cambiado la cuenta después).
+     */
+    private static void anadirCuenta(StringBuilder json, CuentaBancaria cuenta, long saldo) {
+        json.append("{\"iban\":");
+        anadirTexto(json, cuenta.getIban());
+        json.append(",\"tipo\":\"").append(tipo(cuenta)).append("\",\"dni\":");
+        Persona titular = cuenta.getTitular();
+        anadirTexto(json, titular != null ? titular.getDni() : "");
+        json.append(",\"titular\":");
+        anadirTexto(json, titular == null ? "" : titular.getApellido2() == null || titular.getApellido2().isEmpty()
+                ? titular.getNombre() + " " + titular.getApellido1()
+                : titular.getNombre() + " " + titular.getApellido1() + " " + titular.getApellido2());
+        json.append(",\"saldo\":");
+        ModoLote.anadirCentimos(json, saldo);
+        json.append('}');
+    }
+
+    private static String tipo(CuentaBancaria cuenta) {
+        if (cuenta instanceof CuentaAhorro) {
+            return "AHORRO";
+        }
+        if (cuenta instanceof CuentaCorrientePersonal) {
+            return "PERSONAL";
+        }
+        return cuenta instanceof CuentaCorrienteEmpresa ? "EMPRESA" : "OTRA";
+    }
+
+    private static String tipo(byte etiqueta) {
+        switch (etiqueta) {
+            case CodificadorCuentas.TIPO_AHORRO:
+                return "AHORRO";
+            case CodificadorCuentas.TIPO_CORRIENTE_PERSONAL:
+                return "PERSONAL";
+            case CodificadorCuentas.TIPO_CORRIENTE_EMPRESA:
+                return "EMPRESA";
+            default:
+                return "OTRA";
+        }
+    }
+
+    /**
+     * Escribe un texto como cadena JSON, escapando las comillas, las barras invertidas y los caracteres
+     * de control.
+     */
+    private static void anadirTexto(StringBuilder json, String texto) {
+        json.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,93 @@
+package com.alvarobajo.banco.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la asignación de IBAN de {@link AsignadorIBAN}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class AsignadorIBANTest {
+
+    private static final int TAMANO_BLOQUE = 16;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void unIBANPorHiloVirtualNoReservaUnBloquePorHilo() throws IOException {
+        Path ruta = directorio.resolve("asignador.iban");
+        int hilos = 1000;
+        Set<String> ibans = ConcurrentHashMap.newKeySet();
+        try (AsignadorIBAN asignador = AsignadorIBAN.abrir(ruta, AsignadorIBAN.ENTIDAD_POR_DEFECTO,
+                AsignadorIBAN.OFICINA_POR_DEFECTO, TAMANO_BLOQUE);
+             ExecutorService virtuales = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < hilos; i++) {
+                virtuales.submit(() -> ibans.add(asignador.siguiente()));
+            }
+        }
+
+        assertEquals(hilos, ibans.size());
+        for (String iban : ibans) {
+            assertTrue(AsignadorIBAN.esValido(iban), iban);
+        }
+        long reservado = leerReservado(ruta);
+        assertTrue(reservado >= hilos && reservado <= hilos + TAMANO_BLOQUE, "reservado: " + reservado);
+    }
+
+    @Test
+    void trasReabrirNoSeRepiteNingunIBAN() throws IOException {
+        Path ruta = directorio.resolve("asignador.iban");
+        Set<String> ibans = ConcurrentHashMap.newKeySet();
+        for (int ejecucion = 0; ejecucion < 3; ejecucion++) {
+            try (AsignadorIBAN asignador = AsignadorIBAN.abrir(ruta, AsignadorIBAN.ENTIDAD_POR_DEFECTO,
+                    AsignadorIBAN.OFICINA_POR_DEFECTO, TAMANO_BLOQUE)) {
+                for (int i = 0; i < 20; i++) {
+                    assertTrue(ibans.add(asignador.siguiente()));
+                }
+            }
+        }
+        assertFalse(ibans.isEmpty());
+    }
+
+    @Test
+    void avanzarHastaUnIBANCargadoNoLoVuelveAEntregarNiTrasReabrir() throws IOException {
+        String cargado;
+        try (AsignadorIBAN otro = new AsignadorIBAN()) {
+            for (int i = 0; i < 5 * TAMANO_BLOQUE; i++) {
+                otro.siguiente();
+            }
+            cargado = otro.siguiente();
+        }
+        Path ruta = directorio.resolve("asignador.iban");
+        try (AsignadorIBAN asignador = AsignadorIBAN.abrir(ruta, AsignadorIBAN.ENTIDAD_POR_DEFECTO,
+                AsignadorIBAN.OFICINA_POR_DEFECTO, TAMANO_BLOQUE)) {
+            asignador.avanzarHasta(cargado);
+            // Los IBAN de otra oficina o no válidos no cuentan
+            asignador.avanzarHasta("ES7690000002000000000999");
+            assertEquals(5 * TAMANO_BLOQUE + 1, Long.parseLong(asignador.siguiente().substring(14)));
+        }
+        // Los bloques que cubren el IBAN cargado se reservan de una vez
+        assertEquals(6 * TAMANO_BLOQUE, leerReservado(ruta));
+    }
+
+    private static long leerReservado(Path ruta) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(Files.newInputStream(ruta))) {
+            return entrada.readLong();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.alvarobajo.banco.controller;
+
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.models.TipoMovimiento;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del {@link Banco} concurrente con varios hilos: los ingresos y retiros simultáneos sobre una
+ * misma cuenta se aplican uno detrás de otro y se avisan en ese orden, y las altas y bajas simultáneas
+ * dejan las cuentas, el índice por IBAN y el índice de titulares de acuerdo entre sí.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class BancoConcurrenteTest {
+
+    private static final int HILOS = 4;
+
+    @Test
+    void ingresosYRetirosSimultaneosEnUnaCuentaConservanElSaldo() throws InterruptedException {
+        try (Banco banco = new Banco(true)) {
+            // Con un observador que registra movimientos, cada operación se aplica con el monitor de la cuenta
+            AtomicLong neto = new AtomicLong();
+            AtomicLong ultimoSaldo = new AtomicLong();
+            AtomicLong minimo = new AtomicLong(Long.MAX_VALUE);
+            banco.agregarObservador(new ObservadorBanco() {
+                @Override
+                public void movimientoRealizado(CuentaBancaria cuenta, TipoMovimiento tipo, long importeCentimos,
+                                                long saldoCentimos) {
+                    long anterior = ultimoSaldo.get();
+                    long esperado = tipo == TipoMovimiento.INGRESO ? anterior + importeCentimos
+                            : anterior - importeCentimos;
+                    // Los avisos llegan en el orden en que se aplicaron sobre el saldo
+                    if (esperado != saldoCentimos) {
+                        throw new AssertionError(esperado + " != " + saldoCentimos);
+                    }
+                    neto.addAndGet(tipo == TipoMovimiento.INGRESO ? importeCentimos : -importeCentimos);
+                    ultimoSaldo.set(saldoCentimos);
+                    minimo.accumulateAndGet(saldoCentimos, Math::min);
+                }
+            });
+            // Sin saldo y con 50 euros de descubierto
+            CuentaBancaria cuenta = new CuentaCorrienteEmpresa(new Persona("Prueba", "Saldos", "", "00000000T"),
+                    0, banco.getAsignadorIBAN().siguiente(), "", 1, 50);
+            assertTrue(banco.abrirCuenta(cuenta));
+
+            AtomicLong aceptado = new AtomicLong();
+            Thread[] hilos = new Thread[HILOS];
+            for (int h = 0; h < hilos.length; h++) {
+                SplittableRandom azar = new SplittableRandom(h);
+                hilos[h] = new Thread(() -> {
+                    for (int i = 0; i < 50_000; i++) {
+                        long cantidad = 1 + azar.nextInt(2_000);
+                        if (azar.nextInt(3) == 0) {
+                            if (OperarCuenta.ingresar(cuenta, cantidad) != CuentaBancaria.OPERACION_RECHAZADA) {
+                                aceptado.addAndGet(cantidad);
+                            }
+                        } else if (OperarCuenta.retirar(cuenta, cantidad) != CuentaBancaria.OPERACION_RECHAZADA) {
+                            aceptado.addAndGet(-cantidad);
+                        }
+                    }
+                });
+                hilos[h].start();
+            }
+            for (Thread hilo : hilos) {
+                hilo.join();
+            }
+
+            assertEquals(aceptado.get(), cuenta.getSaldoCentimos());
+            assertEquals(aceptado.get(), neto.get());
+            assertEquals(cuenta.getSaldoCentimos(), ultimoSaldo.get());
+            assertTrue(minimo.get() >= -50_00, "Saldo mínimo " + minimo.get());
+        }
+    }
+
+    @Test
+    void altasYBajasSimultaneasDejanLosIndicesDeAcuerdo() throws InterruptedException {
+        try (Banco banco = new Banco(true)) {
+            Persona[] titulares = new Persona[8];
+            for (int i = 0; i < titulares.length; i++) {
+                titulares[i] = new Persona("Titular" + i, "Prueba", "", String.format("%08dT", i));
+            }
+
+            // Cada hilo abre cuentas de titulares compartidos y elimina al azar algunas de las que ha abierto
+            Set<CuentaBancaria> vivas = ConcurrentHashMap.newKeySet();
+            Set<CuentaBancaria> eliminadas = ConcurrentHashMap.newKeySet();
+            Thread[] hilos = new Thread[HILOS];
+            for (int h = 0; h < hilos.length; h++) {
+                SplittableRandom azar = new SplittableRandom(h);
+                hilos[h] = new Thread(() -> {
+                    List<CuentaBancaria> abiertas = new ArrayList<>();
+                    for (int i = 0; i < 10_000; i++) {
+                        CuentaBancaria cuenta = new CuentaAhorro(titulares[azar.nextInt(titulares.length)], 0,
+                                banco.getAsignadorIBAN().siguiente(), 1);
+                        if (!banco.abrirCuenta(cuenta)) {
+                            throw new AssertionError("No se pudo abrir " + cuenta.getIban());
+                        }
+                        abiertas.add(cuenta);
+                        if (azar.nextBoolean()) {
+                            CuentaBancaria baja = abiertas.remove(azar.nextInt(abiertas.size()));
+                            if (!banco.eliminarCuenta(baja.getIban())) {
+                                throw new AssertionError("No se pudo eliminar " + baja.getIban());
+                            }
+                            eliminadas.add(baja);
+                        }
+                    }
+                    vivas.addAll(abiertas);
+                });
+                hilos[h].start();
+            }
+            for (Thread hilo : hilos) {
+                hilo.join();
+            }
+
+            assertEquals(vivas.size(), banco.getNumCuentas());
+            assertEquals(vivas, new HashSet<>(banco.getCuentas()));
+            // El listado por IBAN recorre el índice ordenado por IBAN
+            Set<CuentaBancaria> listadas = new HashSet<>();
+            String cursor = null;
+            do {
+                PaginaCuentas pagina = banco.listarCuentas(OrdenListado.IBAN, cursor, 1_000);
+                for (CuentaBancaria cuenta : pagina.getCuentas()) {
+                    assertTrue(listadas.add(cuenta), cuenta.getIban());
+                }
+                cursor = pagina.getCursorSiguiente();
+            } while (cursor != null);
+            assertEquals(vivas, listadas);
+            for (CuentaBancaria cuenta : vivas) {
+                assertSame(cuenta, banco.buscarCuentaPorIBAN(cuenta.getIban()));
+            }
+            for (CuentaBancaria cuenta : eliminadas) {
+                assertNull(banco.buscarCuentaPorIBAN(cuenta.getIban()), cuenta.getIban());
+                assertTrue(cuenta.isCerrada(), cuenta.getIban());
+            }
+
+            for (Persona titular : titulares) {
+                Set<CuentaBancaria> suyas = new HashSet<>();
+                for (CuentaBancaria cuenta : vivas) {
+                    if (cuenta.getTitular() == titular) {
+                        suyas.add(cuenta);
+                    }
+                }
+                List<CuentaBancaria> porDni = banco.buscarCuentasPorDNI(titular.getDni());
+                assertEquals(suyas.size(), porDni.size(), titular.getDni());
+                assertEquals(suyas, new HashSet<>(porDni), titular.getDni());
+                List<CuentaBancaria> porNombre = banco.buscarCuentasPorTitular(titular.getNombre() + " Prueba");
+                assertEquals(suyas.size(), porNombre.size(), titular.getNombre());
+                assertEquals(suyas, new HashSet<>(porNombre), titular.getNombre());
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.alvarobajo.banco.controller;
+
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del listado paginado de cuentas de {@link Banco} y de la parada del refresco del índice
+ * de saldos.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class BancoListadoTest {
+
+    private static final Persona TITULAR = new Persona("Prueba", "Listado", "", "00000000T");
+    private static final String HILO_REFRESCO = "banco-indice-saldos";
+
+    @Test
+    void conAltasYBajasSimultaneasCadaCuentaApareceUnaSolaVez() throws InterruptedException {
+        int numCuentas = 20_000;
+        try (Banco banco = new Banco(true)) {
+            Map<String, Integer> posiciones = new HashMap<>();
+            for (int i = 0; i < numCuentas; i++) {
+                CuentaBancaria cuenta = new CuentaAhorro(TITULAR, (i * 7919L) % 100_000 / 100.0,
+                        banco.getAsignadorIBAN().siguiente(), 1);
+                banco.abrirCuenta(cuenta);
+                posiciones.put(cuenta.getIban(), i);
+            }
+
+            AtomicBoolean parar = new AtomicBoolean();
+            Thread altasYBajas = new Thread(() -> {
+                while (!parar.get()) {
+                    CuentaBancaria temporal = new CuentaAhorro(TITULAR, 0, banco.getAsignadorIBAN().siguiente(), 1);
+                    banco.abrirCuenta(temporal);
+                    banco.eliminarCuenta(temporal.getIban());
+                }
+            });
+            altasYBajas.start();
+            try {
+                for (OrdenListado orden : OrdenListado.values()) {
+                    recorrer(banco, orden, posiciones, numCuentas);
+                }
+            } finally {
+                parar.set(true);
+                altasYBajas.join();
+            }
+        }
+    }
+
+    @Test
+    void cerrarElBancoDetieneElRefrescoYElListadoPorSaldoSeReordenaAlEmpezar() {
+        Banco banco = new Banco(true);
+        CuentaBancaria pobre = new CuentaAhorro(TITULAR, 1, "ES0000000001", 1);
+        CuentaBancaria rica = new CuentaAhorro(TITULAR, 100, "ES0000000002", 1);
+        banco.abrirCuenta(pobre);
+        banco.abrirCuenta(rica);
+        banco.listarCuentas(OrdenListado.SALDO, null, 10);
+        assertTrue(hayHiloDeRefresco());
+
+        banco.close();
+        assertFalse(hayHiloDeRefresco());
+
+        OperarCuenta.ingresar(pobre, 1_000_000);
+        List<CuentaBancaria> pagina = banco.listarCuentas(OrdenListado.SALDO, null, 10).getCuentas();
+        assertSame(rica, pagina.get(0));
+        assertSame(pobre, pagina.get(1));
+    }
+
+    private static void recorrer(Banco banco, OrdenListado orden, Map<String, Integer> posiciones,
+                                 int numCuentas) {
+        byte[] vistas = new byte[numCuentas];
+        long anterior = Long.MIN_VALUE;
+        String cursor = null;
+        do {
+            PaginaCuentas pagina = banco.listarCuentas(orden, cursor, 100);
+            for (CuentaBancaria cuenta : pagina.getCuentas()) {
+                Integer posicion = posiciones.get(cuenta.getIban());
+                if (posicion != null) {
+                    vistas[posicion]++;
+                }
+                // Sin movimientos durante el recorrido, el orden por saldo coincide con el saldo actual
+                if (orden == OrdenListado.SALDO) {
+                    assertTrue(cuenta.getSaldoCentimos() >= anterior, "El listado por saldo no está ordenado");
+                    anterior = cuenta.getSaldoCentimos();
+                }
+            }
+            cursor = pagina.getCursorSiguiente();
+        } while (cursor != null);
+        for (int i = 0; i < numCuentas; i++) {
+            assertEquals(1, vistas[i], "veces que aparece la cuenta " + i + " por " + orden);
+        }
+    }
+
+    private static boolean hayHiloDeRefresco() {
+        for (Thread hilo : Thread.getAllStackTraces().keySet()) {
+            if (hilo.getName().equals(HILO_REFRESCO) && hilo.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
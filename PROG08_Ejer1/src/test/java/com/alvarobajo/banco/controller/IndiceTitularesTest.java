@@ -0,0 +1,128 @@
+package com.alvarobajo.banco.controller;
+
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del índice de titulares a través de las búsquedas de {@link Banco}: por DNI, por nombre
+ * completo y por prefijo, y que el índice sigue al día al cambiar el titular de una cuenta, al modificar
+ * los datos de una persona y al eliminar una cuenta.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class IndiceTitularesTest {
+
+    @Test
+    void buscaPorDniPorNombreCompletoYPorPrefijo() {
+        try (Banco banco = new Banco(true)) {
+            Persona ana = new Persona("Ana", "García", "", "00000000T");
+            Persona jose = new Persona("José", "Pérez", "Muñoz", "11111111H");
+            CuentaBancaria primera = abrir(banco, ana);
+            CuentaBancaria segunda = abrir(banco, ana);
+            CuentaBancaria otra = abrir(banco, jose);
+
+            assertEquals(List.of(primera, segunda), banco.buscarCuentasPorDNI(" 00000000t "));
+            assertEquals(List.of(otra), banco.buscarCuentasPorDNI("11111111H"));
+            assertTrue(banco.buscarCuentasPorDNI("22222222J").isEmpty());
+
+            assertEquals(List.of(otra), banco.buscarCuentasPorTitular("jose  PEREZ munoz"));
+            assertEquals(List.of(primera, segunda), banco.buscarCuentasPorTitular("Ana García"));
+            assertTrue(banco.buscarCuentasPorTitular("Ana").isEmpty());
+
+            assertEquals(List.of(primera, segunda), banco.buscarCuentasPorPrefijoTitular("an"));
+            assertTrue(banco.buscarCuentasPorPrefijoTitular(" ").isEmpty());
+            assertEquals(List.of(otra), banco.buscarCuentasPorPrefijoTitular("José Pér"));
+            assertTrue(banco.buscarCuentasPorPrefijoTitular("Luis").isEmpty());
+        }
+    }
+
+    @Test
+    void cambiarElTitularReindexaLaCuenta() {
+        try (Banco banco = new Banco(true)) {
+            Persona anterior = new Persona("Ana", "García", "", "00000000T");
+            Persona nuevo = new Persona("Luis", "Martín", "", "11111111H");
+            CuentaBancaria cuenta = abrir(banco, anterior);
+            CuentaBancaria sigue = abrir(banco, anterior);
+
+            cuenta.setTitular(nuevo);
+            assertEquals(List.of(sigue), banco.buscarCuentasPorDNI("00000000T"));
+            assertEquals(List.of(sigue), banco.buscarCuentasPorTitular("Ana García"));
+            assertEquals(List.of(cuenta), banco.buscarCuentasPorDNI("11111111H"));
+            assertEquals(List.of(cuenta), banco.buscarCuentasPorTitular("Luis Martín"));
+            assertEquals(List.of(cuenta), banco.buscarCuentasPorPrefijoTitular("lu"));
+
+            // Los cambios del titular anterior ya no afectan a la cuenta
+            anterior.setDni("22222222J");
+            assertEquals(List.of(sigue), banco.buscarCuentasPorDNI("22222222J"));
+            assertEquals(List.of(cuenta), banco.buscarCuentasPorDNI("11111111H"));
+        }
+    }
+
+    @Test
+    void modificarLosDatosDeUnaPersonaReindexaSusCuentas() {
+        try (Banco banco = new Banco(true)) {
+            Persona titular = new Persona("Ana", "García", "López", "00000000T");
+            CuentaBancaria primera = abrir(banco, titular);
+            CuentaBancaria segunda = abrir(banco, titular);
+            List<CuentaBancaria> ambas = List.of(primera, segunda);
+
+            titular.setNombre("Eva");
+            comprobarNombre(banco, "Ana García López", "Eva García López", ambas);
+            assertTrue(banco.buscarCuentasPorPrefijoTitular("Ana").isEmpty());
+            assertEquals(ambas, banco.buscarCuentasPorPrefijoTitular("Eva"));
+
+            titular.setApellido1("Sánchez");
+            comprobarNombre(banco, "Eva García López", "Eva Sánchez López", ambas);
+
+            titular.setApellido2("");
+            comprobarNombre(banco, "Eva Sánchez López", "Eva Sánchez", ambas);
+
+            titular.setDni("11111111H");
+            assertTrue(banco.buscarCuentasPorDNI("00000000T").isEmpty());
+            assertEquals(ambas, banco.buscarCuentasPorDNI("11111111H"));
+            assertEquals(ambas, banco.buscarCuentasPorTitular("Eva Sánchez"));
+        }
+    }
+
+    @Test
+    void eliminarUnaCuentaLaQuitaDelIndice() {
+        try (Banco banco = new Banco(true)) {
+            Persona titular = new Persona("Ana", "García", "", "00000000T");
+            CuentaBancaria eliminada = abrir(banco, titular);
+            CuentaBancaria sigue = abrir(banco, titular);
+
+            assertTrue(banco.eliminarCuenta(eliminada.getIban()));
+            assertEquals(List.of(sigue), banco.buscarCuentasPorDNI("00000000T"));
+            assertEquals(List.of(sigue), banco.buscarCuentasPorTitular("Ana García"));
+            assertEquals(List.of(sigue), banco.buscarCuentasPorPrefijoTitular("Ana"));
+
+            // Una cuenta eliminada no vuelve al índice aunque cambien los datos de su titular
+            titular.setNombre("Eva");
+            assertEquals(List.of(sigue), banco.buscarCuentasPorTitular("Eva García"));
+            assertTrue(banco.eliminarCuenta(sigue.getIban()));
+            assertTrue(banco.buscarCuentasPorDNI("00000000T").isEmpty());
+            assertTrue(banco.buscarCuentasPorPrefijoTitular("Eva").isEmpty());
+        }
+    }
+
+    private static CuentaBancaria abrir(Banco banco, Persona titular) {
+        CuentaBancaria cuenta = new CuentaAhorro(titular, 0, banco.getAsignadorIBAN().siguiente(), 1);
+        assertTrue(banco.abrirCuenta(cuenta));
+        return cuenta;
+    }
+
+    /**
+     * Comprueba que el nombre anterior ya no devuelve las cuentas y el nuevo sí.
+     */
+    private static void comprobarNombre(Banco banco, String anterior, String nuevo, List<CuentaBancaria> cuentas) {
+        assertTrue(banco.buscarCuentasPorTitular(anterior).isEmpty(), anterior);
+        assertEquals(cuentas, banco.buscarCuentasPorTitular(nuevo), nuevo);
+    }
+}
@@ -0,0 +1,106 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del cobro de comisiones de mantenimiento con {@link CobroComisiones}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class CobroComisionesTest {
+
+    private static final Persona TITULAR = new Persona("Prueba", "Comisiones", "", "00000000T");
+    private static final LocalDate FECHA = LocalDate.of(2024, 3, 31);
+
+    @Test
+    void repetirElCobroDelMesSoloReintentaLasImpagadas() {
+        Banco banco = new Banco(true);
+        CuentaBancaria pobre = new CuentaCorrientePersonal(TITULAR, 1, "ES0000000001", "", 5);
+        banco.abrirCuenta(pobre);
+        banco.abrirCuenta(new CuentaCorrientePersonal(TITULAR, 100, "ES0000000002", "", 5));
+        CobroComisiones cobro = new CobroComisiones(banco);
+
+        ResultadoCobro primero = cobro.cobrar(FECHA);
+        assertEquals(1, primero.getCobradas());
+        assertEquals(List.of("ES0000000001"), primero.getImpagadas());
+
+        OperarCuenta.ingresar(pobre, 1_000);
+        ResultadoCobro segundo = cobro.cobrar(FECHA.minusDays(10));
+        assertEquals(1, segundo.getCobradas());
+        assertEquals(1, segundo.getOmitidas());
+        assertEquals(600, pobre.getSaldoCentimos());
+        assertEquals(0, cobro.cobrar(FECHA).getCobradas());
+    }
+
+    @Test
+    void elDineroTotalCuadraConElCobroYElTraficoSimultaneo() throws InterruptedException {
+        int numCuentas = 50_000;
+        Banco banco = new Banco(true);
+        CuentaBancaria[] cuentas = new CuentaBancaria[numCuentas];
+        for (int i = 0; i < numCuentas; i++) {
+            double saldo = i % 10 == 0 ? 1 : 100;
+            cuentas[i] = new CuentaCorrientePersonal(TITULAR, saldo, String.format("ES%010d", i), "", 5);
+            banco.abrirCuenta(cuentas[i]);
+        }
+
+        AtomicBoolean parar = new AtomicBoolean();
+        LongAdder neto = new LongAdder();
+        Thread[] trafico = new Thread[2];
+        for (int h = 0; h < trafico.length; h++) {
+            long semillaInicial = 31L * h + 7;
+            trafico[h] = new Thread(() -> {
+                long semilla = semillaInicial;
+                while (!parar.get()) {
+                    semilla = semilla * 6364136223846793005L + 1442695040888963407L;
+                    CuentaBancaria cuenta = cuentas[(int) ((semilla >>> 33) % numCuentas)];
+                    if ((semilla & 1) == 0) {
+                        if (OperarCuenta.ingresar(cuenta, 300) != CuentaBancaria.OPERACION_RECHAZADA) {
+                            neto.add(300);
+                        }
+                    } else if (OperarCuenta.retirar(cuenta, 200) != CuentaBancaria.OPERACION_RECHAZADA) {
+                        neto.add(-200);
+                    }
+                }
+            });
+            trafico[h].start();
+        }
+
+        CobroComisiones cobro = new CobroComisiones(banco);
+        ResultadoCobro primero = cobro.cobrar(FECHA);
+        ResultadoCobro segundo = cobro.cobrar(FECHA);
+        parar.set(true);
+        for (Thread hilo : trafico) {
+            hilo.join();
+        }
+
+        assertTrue(primero.getCobradas() >= numCuentas * 9L / 10);
+        assertEquals(primero.getCobradas(), segundo.getOmitidas());
+        long cobrado = 0;
+        for (CuentaBancaria cuenta : cuentas) {
+            cobrado += cuenta.getUltimaLiquidacion() == CobroComisiones.periodo(FECHA) ? 500 : 0;
+        }
+        assertEquals(primero.getImporteCentimos() + segundo.getImporteCentimos(), cobrado);
+        long esperado = numCuentas * 10_000L - (numCuentas + 9) / 10 * 9_900L + neto.sum() - cobrado;
+        assertEquals(esperado, saldoTotal(banco));
+    }
+
+    private static long saldoTotal(Banco banco) {
+        long total = 0;
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            total += cuenta.getSaldoCentimos();
+        }
+        return total;
+    }
+}
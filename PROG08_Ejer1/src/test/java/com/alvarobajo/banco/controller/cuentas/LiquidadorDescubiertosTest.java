@@ -0,0 +1,116 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.Diario;
+import com.alvarobajo.banco.persistencia.ModoDurabilidad;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del cobro de intereses de descubierto con {@link LiquidadorDescubiertos}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class LiquidadorDescubiertosTest {
+
+    private static final Persona TITULAR = new Persona("Prueba", "Descubiertos", "", "00000000T");
+    private static final LocalDate DIA = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void elCalculoVectorialDaLosMismosInteresesQueElEscalar() {
+        int n = 100_003;
+        double[] descubiertos = new double[n];
+        double[] tipos = new double[n];
+        for (int i = 0; i < n; i++) {
+            descubiertos[i] = 1 + (i * 7919L) % 10_000_000;
+            tipos[i] = 5 + (i % 16) * 0.75;
+        }
+        double factor = ConvencionDias.REAL_365.fraccionAnio(DIA, DIA.plusDays(1)) / 100;
+        long[] escalar = new long[n];
+        long[] vectorial = new long[n];
+        LiquidadorDescubiertos.calcularInteresesEscalar(descubiertos, tipos, factor, escalar, n);
+        LiquidadorDescubiertos.calcularIntereses(descubiertos, tipos, factor, vectorial, n);
+        assertArrayEquals(escalar, vectorial);
+    }
+
+    @Test
+    void elSaldoTotalBajaEnLoCobradoYNoSeCobraDosVecesElMismoDia() {
+        CuentaBancaria[] cuentas = new CuentaBancaria[20_000];
+        for (int i = 0; i < cuentas.length; i++) {
+            CuentaCorrienteEmpresa cuenta = new CuentaCorrienteEmpresa(TITULAR, 100, null, "", 8 + (i % 8) * 0.5,
+                    1000);
+            if (i % 2 == 0) {
+                // Hasta el máximo descubierto se admite; un céntimo más, no
+                assertTrue(cuenta.retirarCentimos(10_000 + (i % 1001) * 100) != CuentaBancaria.OPERACION_RECHAZADA);
+                assertEquals(CuentaBancaria.OPERACION_RECHAZADA, cuenta.retirarCentimos(10_000_000));
+            }
+            cuentas[i] = cuenta;
+        }
+
+        long antes = saldoTotal(cuentas);
+        ResultadoLiquidacion resultado = LiquidadorDescubiertos.liquidar(cuentas, DIA, ConvencionDias.REAL_365,
+                ForkJoinPool.commonPool());
+        assertEquals(antes - resultado.getImporteCentimos(), saldoTotal(cuentas));
+
+        ResultadoLiquidacion secuencial = LiquidadorDescubiertos.liquidarSecuencial(cuentas, DIA.plusDays(1),
+                ConvencionDias.REAL_365);
+        assertEquals(resultado.getLiquidadas(), secuencial.getLiquidadas());
+
+        long despues = saldoTotal(cuentas);
+        ResultadoLiquidacion repetida = LiquidadorDescubiertos.liquidar(cuentas, DIA, ConvencionDias.REAL_365,
+                ForkJoinPool.commonPool());
+        assertEquals(0, repetida.getLiquidadas());
+        assertEquals(0, repetida.getImporteCentimos());
+        assertEquals(despues, saldoTotal(cuentas));
+    }
+
+    @Test
+    void elDiaLiquidadoSinInteresesTambienSeRecuperaDelDiario() throws IOException {
+        Path fichero = directorio.resolve("diario.log");
+        Banco banco = new Banco(true);
+        try (Diario diario = Diario.abrir(fichero, ModoDurabilidad.POR_OPERACION, banco)) {
+            CuentaBancaria conIntereses = new CuentaCorrienteEmpresa(TITULAR, 0, "ES0000000001", "", 10, 1000);
+            CuentaBancaria sinIntereses = new CuentaCorrienteEmpresa(TITULAR, 0, "ES0000000002", "", 10, 1000);
+            banco.abrirCuenta(conIntereses);
+            banco.abrirCuenta(sinIntereses);
+            OperarCuenta.retirar(conIntereses, 100_000);
+            // Un céntimo al 10 % durante un día no llega a medio céntimo de interés
+            OperarCuenta.retirar(sinIntereses, 1);
+            ResultadoLiquidacion resultado = LiquidadorDescubiertos.liquidar(banco, DIA, ConvencionDias.REAL_365);
+            assertEquals(2, resultado.getLiquidadas());
+            diario.sincronizar();
+        }
+
+        Banco recuperado = new Banco(true);
+        Diario.abrir(fichero, ModoDurabilidad.POR_OPERACION, recuperado).close();
+        long periodo = LiquidadorDescubiertos.periodo(DIA);
+        assertEquals(periodo, recuperado.buscarCuentaPorIBAN("ES0000000001").getUltimaLiquidacion());
+        assertEquals(periodo, recuperado.buscarCuentaPorIBAN("ES0000000002").getUltimaLiquidacion());
+        assertEquals(-1, recuperado.buscarCuentaPorIBAN("ES0000000002").getSaldoCentimos());
+        assertEquals(banco.buscarCuentaPorIBAN("ES0000000001").getSaldoCentimos(),
+                recuperado.buscarCuentaPorIBAN("ES0000000001").getSaldoCentimos());
+    }
+
+    private static long saldoTotal(CuentaBancaria[] cuentas) {
+        long total = 0;
+        for (CuentaBancaria cuenta : cuentas) {
+            total += cuenta.getSaldoCentimos();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,98 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.Diario;
+import com.alvarobajo.banco.persistencia.ModoDurabilidad;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de la liquidación de intereses con {@link LiquidadorIntereses}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class LiquidadorInteresesTest {
+
+    private static final Persona TITULAR = new Persona("Prueba", "Intereses", "", "00000000T");
+    private static final LocalDate ENERO = LocalDate.of(2024, 1, 1);
+    private static final LocalDate FEBRERO = LocalDate.of(2024, 2, 1);
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void laLiquidacionEnParaleloAbonaLoMismoQueLaSecuencialYNoRepiteElPeriodo() {
+        CuentaBancaria[] secuenciales = crearCuentas(20_000);
+        CuentaBancaria[] paralelas = crearCuentas(20_000);
+        long saldoInicial = saldoTotal(paralelas);
+
+        ResultadoLiquidacion secuencial = LiquidadorIntereses.liquidarSecuencial(secuenciales, ENERO, FEBRERO,
+                ConvencionDias.REAL_365);
+        ResultadoLiquidacion paralela = LiquidadorIntereses.liquidar(paralelas, ENERO, FEBRERO,
+                ConvencionDias.REAL_365, ForkJoinPool.commonPool());
+        assertEquals(secuencial.getImporteCentimos(), paralela.getImporteCentimos());
+        assertEquals(paralelas.length, paralela.getLiquidadas());
+        assertEquals(saldoInicial + paralela.getImporteCentimos(), saldoTotal(paralelas));
+
+        ResultadoLiquidacion repetida = LiquidadorIntereses.liquidar(paralelas, ENERO, FEBRERO,
+                ConvencionDias.REAL_365, ForkJoinPool.commonPool());
+        assertEquals(0, repetida.getLiquidadas());
+        assertEquals(paralelas.length, repetida.getOmitidas());
+        assertEquals(saldoInicial + paralela.getImporteCentimos(), saldoTotal(paralelas));
+    }
+
+    @Test
+    void elPeriodoLiquidadoSinInteresesTambienSeRecuperaDelDiario() throws IOException {
+        Path fichero = directorio.resolve("diario.log");
+        Banco banco = new Banco(true);
+        try (Diario diario = Diario.abrir(fichero, ModoDurabilidad.POR_OPERACION, banco)) {
+            banco.abrirCuenta(new CuentaAhorro(TITULAR, 1000, "ES0000000001", 2));
+            banco.abrirCuenta(new CuentaAhorro(TITULAR, 1000, "ES0000000002", 0));
+            ResultadoLiquidacion resultado = LiquidadorIntereses.liquidar(banco, ENERO, FEBRERO,
+                    ConvencionDias.REAL_365);
+            assertEquals(2, resultado.getLiquidadas());
+            diario.sincronizar();
+        }
+
+        Banco recuperado = new Banco(true);
+        Diario.abrir(fichero, ModoDurabilidad.POR_OPERACION, recuperado).close();
+        long periodo = LiquidadorIntereses.periodo(FEBRERO);
+        CuentaBancaria conIntereses = recuperado.buscarCuentaPorIBAN("ES0000000001");
+        CuentaBancaria sinIntereses = recuperado.buscarCuentaPorIBAN("ES0000000002");
+        assertEquals(periodo, conIntereses.getUltimaLiquidacion());
+        assertEquals(periodo, sinIntereses.getUltimaLiquidacion());
+        assertEquals(banco.buscarCuentaPorIBAN("ES0000000001").getSaldoCentimos(), conIntereses.getSaldoCentimos());
+        assertEquals(100_000, sinIntereses.getSaldoCentimos());
+
+        ResultadoLiquidacion repetida = LiquidadorIntereses.liquidar(recuperado, ENERO, FEBRERO,
+                ConvencionDias.REAL_365);
+        assertEquals(0, repetida.getLiquidadas());
+        assertEquals(2, repetida.getOmitidas());
+    }
+
+    private static CuentaBancaria[] crearCuentas(int numCuentas) {
+        CuentaBancaria[] cuentas = new CuentaBancaria[numCuentas];
+        for (int i = 0; i < numCuentas; i++) {
+            cuentas[i] = new CuentaAhorro(TITULAR, 1000 + i % 10_000, null, (i % 8) * 0.25);
+        }
+        return cuentas;
+    }
+
+    private static long saldoTotal(CuentaBancaria[] cuentas) {
+        long total = 0;
+        for (CuentaBancaria cuenta : cuentas) {
+            total += cuenta.getSaldoCentimos();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,51 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas del listado de cuentas de {@link MostrarCuenta}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class MostrarCuentaTest {
+
+    @Test
+    void elListadoConAppendToEsIdenticoAlDeUnaCadenaPorCuenta() throws IOException {
+        Banco banco = new Banco();
+        for (int i = 0; i < 3_000; i++) {
+            Persona titular = new Persona("Titular" + i, "Apellido", i % 2 == 0 ? "" : "Segundo", "00000000T");
+            String iban = String.format("ES%010d", i);
+            CuentaBancaria cuenta;
+            switch (i % 3) {
+                case 0:
+                    cuenta = new CuentaAhorro(titular, i * 1.37, iban, 1.5 + i % 7 * 0.25);
+                    break;
+                case 1:
+                    cuenta = new CuentaCorrientePersonal(titular, i * 0.91, iban, "Entidad", 4.5);
+                    break;
+                default:
+                    cuenta = new CuentaCorrienteEmpresa(titular, -i * 0.05, iban, "Entidad", 9.75, 50_000);
+            }
+            banco.abrirCuenta(cuenta);
+        }
+
+        StringBuilder cadenas = new StringBuilder();
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            cadenas.append(cuenta.devolverInfoString()).append(System.lineSeparator());
+        }
+        StringWriter listado = new StringWriter();
+        MostrarCuenta.escribirListado(banco, listado);
+        assertEquals(cadenas.toString(), listado.toString());
+    }
+}
@@ -0,0 +1,179 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.ObservadorBanco;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.models.TipoMovimiento;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de las transferencias y de los lotes de operaciones de {@link OperarCuenta}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class OperarCuentaTest {
+
+    private static final Persona TITULAR = new Persona("Prueba", "Transferencias", "", "00000000T");
+
+    @Test
+    void transferirMueveElDineroEntreLasDosCuentas() {
+        CuentaBancaria origen = new CuentaAhorro(TITULAR, 10, "ES0000000001", 1);
+        CuentaBancaria destino = new CuentaAhorro(TITULAR, 5, "ES0000000002", 1);
+
+        assertEquals(700, OperarCuenta.transferir(origen, destino, 300));
+        assertEquals(700, origen.getSaldoCentimos());
+        assertEquals(800, destino.getSaldoCentimos());
+    }
+
+    @Test
+    void transferirRechazaSaldoInsuficienteYLaMismaCuenta() {
+        CuentaBancaria origen = new CuentaAhorro(TITULAR, 1, "ES0000000001", 1);
+        CuentaBancaria destino = new CuentaAhorro(TITULAR, 0, "ES0000000002", 1);
+
+        assertEquals(CuentaBancaria.OPERACION_RECHAZADA, OperarCuenta.transferir(origen, destino, 101));
+        assertEquals(CuentaBancaria.OPERACION_RECHAZADA, OperarCuenta.transferir(origen, origen, 1));
+        assertEquals(100, origen.getSaldoCentimos());
+        assertEquals(0, destino.getSaldoCentimos());
+    }
+
+    @Test
+    void transferenciasCruzadasDesdeVariosHilosConservanElDineroTotal() throws InterruptedException {
+        Banco banco = new Banco(true);
+        CuentaBancaria[] cuentas = new CuentaBancaria[8];
+        for (int i = 0; i < cuentas.length; i++) {
+            cuentas[i] = new CuentaAhorro(TITULAR, 100, String.format("ES%010d", i), 1);
+            banco.abrirCuenta(cuentas[i]);
+        }
+
+        // Pocas cuentas compartidas por todos los hilos: muchas transferencias cruzadas entre las mismas
+        Thread[] hilos = new Thread[4];
+        for (int h = 0; h < hilos.length; h++) {
+            SplittableRandom azar = new SplittableRandom(h);
+            hilos[h] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    int origen = azar.nextInt(cuentas.length);
+                    int destino = (origen + 1 + azar.nextInt(cuentas.length - 1)) % cuentas.length;
+                    OperarCuenta.transferir(cuentas[origen], cuentas[destino], 1 + azar.nextInt(1000));
+                }
+            });
+            hilos[h].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        long total = 0;
+        for (CuentaBancaria cuenta : cuentas) {
+            total += cuenta.getSaldoCentimos();
+        }
+        assertEquals(100_00L * cuentas.length, total);
+    }
+
+    @Test
+    void aplicarLoteAplicaEnOrdenLasOperacionesDeCadaCuentaSinDistinguirMayusculas() {
+        Banco banco = new Banco(true);
+        CuentaBancaria[] cuentas = new CuentaBancaria[50];
+        for (int i = 0; i < cuentas.length; i++) {
+            cuentas[i] = new CuentaAhorro(TITULAR, 0, String.format("ES%010d", i), 1);
+            banco.abrirCuenta(cuentas[i]);
+        }
+
+        // Las operaciones de todas las cuentas intercaladas, con el IBAN unas veces en minúsculas: los
+        // retiros de cada forma de escribirlo necesitan ingresos de la otra, y los rechazos caen en medio
+        LoteOperaciones lote = new LoteOperaciones();
+        ResultadoOperacion[] esperados = new ResultadoOperacion[7 * cuentas.length + 2];
+        for (CuentaBancaria cuenta : cuentas) {
+            String minusculas = cuenta.getIban().toLowerCase(Locale.ROOT);
+            esperados[lote.agregarIngreso(minusculas, 500)] = ResultadoOperacion.CORRECTA;
+        }
+        for (CuentaBancaria cuenta : cuentas) {
+            esperados[lote.agregarRetiro(cuenta.getIban(), 300)] = ResultadoOperacion.CORRECTA;
+        }
+        esperados[lote.agregarIngreso("ES9999999999", 100)] = ResultadoOperacion.CUENTA_INEXISTENTE;
+        esperados[lote.agregarRetiro(null, 100)] = ResultadoOperacion.CUENTA_INEXISTENTE;
+        for (CuentaBancaria cuenta : cuentas) {
+            String minusculas = cuenta.getIban().toLowerCase(Locale.ROOT);
+            esperados[lote.agregarIngreso(cuenta.getIban(), 400)] = ResultadoOperacion.CORRECTA;
+            esperados[lote.agregarRetiro(minusculas, 600)] = ResultadoOperacion.CORRECTA;
+            esperados[lote.agregarRetiro(minusculas, 1)] = ResultadoOperacion.SALDO_INSUFICIENTE;
+            esperados[lote.agregarIngreso(cuenta.getIban(), 0)] = ResultadoOperacion.CANTIDAD_INVALIDA;
+            esperados[lote.agregarIngreso(minusculas, 50)] = ResultadoOperacion.CORRECTA;
+        }
+
+        ResultadoLote resultado = OperarCuenta.aplicarLote(banco, lote);
+        assertEquals(esperados.length, resultado.getTamano());
+        for (int i = 0; i < esperados.length; i++) {
+            assertEquals(esperados[i], resultado.getResultado(i), "Posición " + i);
+        }
+        assertEquals(2 * cuentas.length + 2, resultado.getRechazadas());
+        for (CuentaBancaria cuenta : cuentas) {
+            assertEquals(50, cuenta.getSaldoCentimos(), cuenta.getIban());
+        }
+    }
+
+    @Test
+    void unObservadorQueFallaSoloAnulaSuOperacionDelLote() {
+        Banco banco = new Banco(true);
+        // El movimiento de 7,77 no llega a registrarse, como si fallara el diario
+        banco.agregarObservador(new ObservadorBanco() {
+            @Override
+            public void movimientoRealizado(CuentaBancaria cuenta, TipoMovimiento tipo, long importeCentimos,
+                                            long saldoCentimos) {
+                if (importeCentimos == 777) {
+                    throw new IllegalStateException("No se pudo escribir el movimiento");
+                }
+            }
+        });
+        CuentaBancaria cuenta = new CuentaAhorro(TITULAR, 10, "ES0000000001", 1);
+        CuentaBancaria otra = new CuentaAhorro(TITULAR, 10, "ES0000000002", 1);
+        banco.abrirCuenta(cuenta);
+        banco.abrirCuenta(otra);
+
+        LoteOperaciones lote = new LoteOperaciones();
+        lote.agregarIngreso(cuenta.getIban(), 100);
+        lote.agregarIngreso(cuenta.getIban(), 777);
+        lote.agregarRetiro(cuenta.getIban(), 200);
+        lote.agregarRetiro(otra.getIban(), 777);
+        lote.agregarRetiro(otra.getIban(), 100);
+
+        ResultadoLote resultado = OperarCuenta.aplicarLote(banco, lote);
+        assertEquals(ResultadoOperacion.CORRECTA, resultado.getResultado(0));
+        assertEquals(ResultadoOperacion.ERROR_INTERNO, resultado.getResultado(1));
+        assertEquals(ResultadoOperacion.CORRECTA, resultado.getResultado(2));
+        assertEquals(ResultadoOperacion.ERROR_INTERNO, resultado.getResultado(3));
+        assertEquals(ResultadoOperacion.CORRECTA, resultado.getResultado(4));
+        assertEquals(2, resultado.getRechazadas());
+    }
+
+    @Test
+    void siNoSePuedenConfirmarLosMovimientosLasOperacionesCorrectasPasanAErrorInterno() {
+        Banco banco = new Banco(true);
+        CuentaBancaria cuenta = new CuentaAhorro(TITULAR, 1, "ES0000000001", 1);
+        banco.abrirCuenta(cuenta);
+        // Después del alta, que también se confirma
+        banco.agregarObservador(new ObservadorBanco() {
+            @Override
+            public void confirmar() {
+                throw new IllegalStateException("No se pudo sincronizar el diario");
+            }
+        });
+
+        LoteOperaciones lote = new LoteOperaciones();
+        lote.agregarIngreso(cuenta.getIban(), 100);
+        lote.agregarRetiro(cuenta.getIban(), 1000);
+        lote.agregarIngreso("ES9999999999", 100);
+
+        ResultadoLote resultado = OperarCuenta.aplicarLote(banco, lote);
+        assertEquals(ResultadoOperacion.ERROR_INTERNO, resultado.getResultado(0));
+        assertEquals(ResultadoOperacion.SALDO_INSUFICIENTE, resultado.getResultado(1));
+        assertEquals(ResultadoOperacion.CUENTA_INEXISTENTE, resultado.getResultado(2));
+        assertEquals(3, resultado.getRechazadas());
+    }
+}
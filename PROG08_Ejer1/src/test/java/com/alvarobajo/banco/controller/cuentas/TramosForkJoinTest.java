@@ -0,0 +1,37 @@
+package com.alvarobajo.banco.controller.cuentas;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas del reparto en tramos de {@link TramosForkJoin}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class TramosForkJoinTest {
+
+    @Test
+    void elRepartoEnParaleloProcesaCadaPosicionUnaSolaVezEnLosMismosTramos() {
+        for (int total : new int[]{0, 1, 99, 100, 101, 10_007}) {
+            AtomicIntegerArray vistas = new AtomicIntegerArray(total);
+            AtomicIntegerArray inicios = new AtomicIntegerArray(total + 1);
+            TramosForkJoin.paralelo(total, 100, (desde, hasta) -> {
+                inicios.incrementAndGet(desde);
+                for (int i = desde; i < hasta; i++) {
+                    vistas.incrementAndGet(i);
+                }
+            }, ForkJoinPool.commonPool());
+
+            int[] iniciosSecuencial = new int[total + 1];
+            TramosForkJoin.secuencial(total, 100, (desde, hasta) -> iniciosSecuencial[desde]++);
+            for (int i = 0; i < total; i++) {
+                assertEquals(1, vistas.get(i), "posición " + i + " de " + total);
+                assertEquals(iniciosSecuencial[i], inicios.get(i), "tramo en " + i + " de " + total);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.alvarobajo.banco.metricas;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link ContadoresHilos}: la suma de los contadores de todos los hilos, vivos o ya
+ * terminados, es igual a lo que cada hilo ha contado.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class ContadoresHilosTest {
+
+    private static final int NUM_CONTADORES = 4;
+
+    @Test
+    void laSumaIncluyeLosHilosVivosYLosTerminados() throws InterruptedException {
+        ContadoresHilos contadores = new ContadoresHilos(NUM_CONTADORES);
+        long[] esperados = new long[NUM_CONTADORES];
+
+        // Más hilos de corta vida que el periodo de limpieza, para que sus contadores pasen a los terminados
+        for (int h = 0; h < 3_000; h++) {
+            int contador = h % NUM_CONTADORES;
+            Thread hilo = new Thread(() -> {
+                for (int i = 0; i <= contador; i++) {
+                    contadores.incrementar(contador);
+                }
+            });
+            hilo.start();
+            hilo.join();
+            esperados[contador] += contador + 1;
+        }
+
+        // Hilos que siguen vivos mientras se suman sus contadores
+        CountDownLatch contado = new CountDownLatch(4);
+        CountDownLatch terminar = new CountDownLatch(1);
+        Thread[] vivos = new Thread[4];
+        for (int h = 0; h < vivos.length; h++) {
+            vivos[h] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    contadores.incrementar(i % NUM_CONTADORES);
+                }
+                contado.countDown();
+                try {
+                    terminar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            vivos[h].start();
+        }
+        for (int i = 0; i < NUM_CONTADORES; i++) {
+            esperados[i] += vivos.length * 100_000L / NUM_CONTADORES;
+        }
+        contado.await();
+        assertArrayEquals(esperados, contadores.sumar());
+
+        terminar.countDown();
+        for (Thread hilo : vivos) {
+            hilo.join();
+        }
+        assertArrayEquals(esperados, contadores.sumar());
+    }
+
+    @Test
+    void laSumaDuranteLasEscriturasNuncaDisminuye() throws InterruptedException {
+        ContadoresHilos contadores = new ContadoresHilos(1);
+        Thread[] hilos = new Thread[4];
+        for (int h = 0; h < hilos.length; h++) {
+            hilos[h] = new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    contadores.incrementar(0);
+                }
+            });
+            hilos[h].start();
+        }
+        long anterior = 0;
+        boolean vivos = true;
+        while (vivos) {
+            vivos = false;
+            for (Thread hilo : hilos) {
+                vivos |= hilo.isAlive();
+            }
+            long suma = contadores.sumar()[0];
+            assertTrue(suma >= anterior, suma + " < " + anterior);
+            anterior = suma;
+        }
+        assertArrayEquals(new long[]{hilos.length * 200_000L}, contadores.sumar());
+    }
+}
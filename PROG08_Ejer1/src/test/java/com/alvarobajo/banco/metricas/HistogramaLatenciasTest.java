@@ -0,0 +1,93 @@
+package com.alvarobajo.banco.metricas;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link HistogramaLatencias}: la correspondencia entre latencias y cubetas, los percentiles
+ * de una distribución conocida y la suma de las franjas escritas desde varios hilos.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class HistogramaLatenciasTest {
+
+    @Test
+    void cadaCubetaEmpiezaJustoDespuesDeLaAnterior() {
+        assertEquals(0, HistogramaLatencias.indice(0));
+        assertEquals(0, HistogramaLatencias.maximoCubeta(0));
+        for (int i = 1; i < HistogramaLatencias.NUM_CUBETAS; i++) {
+            long minimo = HistogramaLatencias.maximoCubeta(i - 1) + 1;
+            long maximo = HistogramaLatencias.maximoCubeta(i);
+            assertTrue(maximo >= minimo, "Cubeta " + i);
+            assertEquals(i, HistogramaLatencias.indice(minimo), "Mínimo de la cubeta " + i);
+            assertEquals(i, HistogramaLatencias.indice(maximo), "Máximo de la cubeta " + i);
+        }
+        assertEquals((1L << 40) - 1, HistogramaLatencias.maximoCubeta(HistogramaLatencias.NUM_CUBETAS - 1));
+    }
+
+    @Test
+    void elMaximoDeLaCubetaSeExcedeComoMuchoEnUnTreintaidosavo() {
+        SplittableRandom azar = new SplittableRandom(1);
+        for (int i = 0; i < 100_000; i++) {
+            // Latencias repartidas por todos los órdenes de magnitud
+            long nanos = azar.nextLong(1L << azar.nextInt(1, 41));
+            long maximo = HistogramaLatencias.maximoCubeta(HistogramaLatencias.indice(nanos));
+            assertTrue(maximo >= nanos && maximo - nanos <= nanos / 32, nanos + " -> " + maximo);
+        }
+    }
+
+    @Test
+    void losPercentilesDeUnaDistribucionConocidaQuedanDentroDelError() {
+        HistogramaLatencias histograma = new HistogramaLatencias();
+        // Las latencias de 1 a 10000 ns, una vez cada una
+        for (long nanos = 1; nanos <= 10_000; nanos++) {
+            histograma.registrar(nanos);
+        }
+        ResumenOperacion resumen = new ResumenOperacion(OperacionMedida.INGRESO, 0, 0, histograma.sumar());
+
+        assertEquals(10_000, resumen.getMuestras());
+        assertEquals(5_000.5, resumen.getMediaNanos(), 1e-9);
+        assertEquals(1, resumen.getPercentilNanos(0));
+        assertEquals(63, resumen.getPercentilNanos(0.63));
+        for (double percentil : new double[]{10, 50, 90, 99, 99.9, 100}) {
+            long exacto = (long) Math.ceil(percentil * 100);
+            long calculado = resumen.getPercentilNanos(percentil);
+            assertTrue(calculado >= exacto && calculado - exacto <= exacto / 32,
+                    "Percentil " + percentil + ": " + calculado + " en lugar de " + exacto);
+        }
+        assertEquals(resumen.getPercentilNanos(100), resumen.getMaximoNanos());
+        assertThrows(IllegalArgumentException.class, () -> resumen.getPercentilNanos(100.1));
+    }
+
+    @Test
+    void lasLatenciasAnotadasDesdeVariosHilosSeSumanTodas() throws InterruptedException {
+        HistogramaLatencias histograma = new HistogramaLatencias();
+        Thread[] hilos = new Thread[8];
+        for (int h = 0; h < hilos.length; h++) {
+            hilos[h] = new Thread(() -> {
+                for (long nanos = 1; nanos <= 100_000; nanos++) {
+                    histograma.registrar(nanos);
+                }
+            });
+            hilos[h].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        long[] suma = histograma.sumar();
+        assertEquals(hilos.length * (100_000L * 100_001 / 2), suma[HistogramaLatencias.SUMA_NANOS]);
+        long[] esperadas = new long[HistogramaLatencias.NUM_CUBETAS];
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            esperadas[HistogramaLatencias.indice(nanos)] += hilos.length;
+        }
+        for (int i = 0; i < esperadas.length; i++) {
+            assertEquals(esperadas[i], suma[HistogramaLatencias.PRIMERA_CUBETA + i], "Cubeta " + i);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.alvarobajo.banco.metricas;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link Metricas}: los contadores del resumen, sumados entre hilos, son iguales a las
+ * ejecuciones registradas, las muestras de latencia son una parte de ellas y el volcado periódico
+ * escribe el resumen.
+ *
+ * <p>Las métricas son globales y las registran también las demás pruebas, así que se comparan los
+ * resúmenes de antes y después.</p>
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class MetricasTest {
+
+    private static final OperacionMedida OPERACION = OperacionMedida.BAJA_CUENTA;
+    private static final String CABECERA_VOLCADO = "--- Métricas ";
+
+    @Test
+    void losContadoresDeTodosLosHilosSumanLasEjecucionesRegistradas() throws InterruptedException {
+        ResumenOperacion antes = Metricas.resumen().getOperacion(OPERACION);
+        Thread[] hilos = new Thread[4];
+        for (int h = 0; h < hilos.length; h++) {
+            hilos[h] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    long inicio = Metricas.iniciar();
+                    Metricas.registrar(OPERACION, inicio, i % 10 != 0);
+                }
+            });
+            hilos[h].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        ResumenOperacion despues = Metricas.resumen().getOperacion(OPERACION);
+
+        assertTrue(Metricas.isActivas());
+        assertEquals(hilos.length * 100_000L, despues.getTotal() - antes.getTotal());
+        assertEquals(hilos.length * 10_000L, despues.getRechazadas() - antes.getRechazadas());
+        // Se mide una de cada MUESTREO ejecuciones, elegidas al azar
+        long muestras = despues.getMuestras() - antes.getMuestras();
+        long esperadas = hilos.length * 100_000L / Metricas.MUESTREO;
+        assertTrue(muestras > esperadas / 2 && muestras < esperadas * 2, "Muestras " + muestras);
+    }
+
+    @Test
+    void elVolcadoPeriodicoEscribeElResumenDeTodasLasOperaciones() throws InterruptedException {
+        // StringBuffer, porque lo escribe el hilo del volcado mientras esta prueba lo lee
+        StringBuffer destino = new StringBuffer();
+        ScheduledFuture<?> volcado = Metricas.programarVolcado(destino, 10, TimeUnit.MILLISECONDS);
+        int segundo;
+        try {
+            // Cuando empieza el segundo volcado, el primero está completo
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            do {
+                Thread.sleep(10);
+                segundo = destino.indexOf(CABECERA_VOLCADO, 1);
+            } while (segundo < 0 && System.nanoTime() < limite);
+        } finally {
+            volcado.cancel(false);
+        }
+        assertTrue(segundo > 0, "No se ha completado ningún volcado");
+
+        String[] lineas = destino.substring(0, segundo).split(System.lineSeparator());
+        assertTrue(lineas[0].startsWith(CABECERA_VOLCADO), lineas[0]);
+        // La hora, la cabecera de la tabla y una fila por operación
+        assertEquals(2 + OperacionMedida.values().length, lineas.length);
+        for (OperacionMedida operacion : OperacionMedida.values()) {
+            assertTrue(lineas[2 + operacion.ordinal()].startsWith(operacion.name() + "\t"),
+                    lineas[2 + operacion.ordinal()]);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.alvarobajo.banco.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del saldo en céntimos de {@link CuentaBancaria} con varios hilos: los ingresos y retiros
+ * simultáneos sobre una misma cuenta no pierden ninguna actualización y ningún retiro deja el saldo por
+ * debajo del descubierto permitido.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class CuentaBancariaTest {
+
+    private static final Persona TITULAR = new Persona("Prueba", "Saldos", "", "00000000T");
+    private static final int HILOS = 4;
+
+    @Test
+    void ingresosYRetirosSimultaneosConservanElSaldoYRespetanElDescubierto() throws InterruptedException {
+        // 10 euros de saldo y 50 de descubierto
+        CuentaBancaria cuenta = new CuentaCorrienteEmpresa(TITULAR, 10, "ES0000000001", "", 1, 50);
+        long limite = -50_00;
+        AtomicLong ingresado = new AtomicLong();
+        AtomicLong retirado = new AtomicLong();
+        AtomicLong minimo = new AtomicLong(Long.MAX_VALUE);
+
+        Thread[] hilos = new Thread[HILOS];
+        for (int h = 0; h < hilos.length; h++) {
+            SplittableRandom azar = new SplittableRandom(h);
+            hilos[h] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    long cantidad = 1 + azar.nextInt(2_000);
+                    // Más retiros que ingresos, para que el saldo ronde el límite del descubierto
+                    if (azar.nextInt(3) == 0) {
+                        if (cuenta.ingresarCentimos(cantidad) != CuentaBancaria.OPERACION_RECHAZADA) {
+                            ingresado.addAndGet(cantidad);
+                        }
+                    } else {
+                        long nuevoSaldo = cuenta.retirarCentimos(cantidad);
+                        if (nuevoSaldo != CuentaBancaria.OPERACION_RECHAZADA) {
+                            retirado.addAndGet(cantidad);
+                            minimo.accumulateAndGet(nuevoSaldo, Math::min);
+                        }
+                    }
+                    minimo.accumulateAndGet(cuenta.getSaldoCentimos(), Math::min);
+                }
+            });
+            hilos[h].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        assertEquals(10_00 + ingresado.get() - retirado.get(), cuenta.getSaldoCentimos());
+        assertTrue(minimo.get() >= limite, "Saldo mínimo " + minimo.get());
+        assertTrue(retirado.get() > 0 && ingresado.get() > 0);
+    }
+
+    @Test
+    void losRetirosSimultaneosSoloAgotanElSaldoMasElDescubierto() throws InterruptedException {
+        // 10 euros de saldo y 5 de descubierto: caben exactamente 1500 retiros de un céntimo
+        CuentaBancaria cuenta = new CuentaCorrienteEmpresa(TITULAR, 10, "ES0000000001", "", 1, 5);
+        AtomicLong aceptados = new AtomicLong();
+
+        Thread[] hilos = new Thread[HILOS];
+        for (int h = 0; h < hilos.length; h++) {
+            hilos[h] = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    if (cuenta.retirarCentimos(1) != CuentaBancaria.OPERACION_RECHAZADA) {
+                        aceptados.incrementAndGet();
+                    }
+                }
+            });
+            hilos[h].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        assertEquals(15_00, aceptados.get());
+        assertEquals(-5_00, cuenta.getSaldoCentimos());
+    }
+}
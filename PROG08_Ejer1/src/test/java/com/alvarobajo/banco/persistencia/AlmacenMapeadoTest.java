@@ -0,0 +1,80 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de las operaciones de {@link AlmacenMapeado} y de su persistencia al reabrirlo.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class AlmacenMapeadoTest {
+
+    private static final Persona TITULAR = new Persona("Prueba", "Almacén", "", "00000000T");
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void retirarRespetaElLimiteDeDescubiertoDeCadaCuenta() throws IOException {
+        try (AlmacenMapeado almacen = AlmacenMapeado.abrir(directorio.resolve("almacen.dat"), 16)) {
+            almacen.abrirCuenta(new CuentaAhorro(TITULAR, 10, "ES0000000001", 1));
+            almacen.abrirCuenta(new CuentaCorrienteEmpresa(TITULAR, 10, "ES0000000002", "Entidad", 7.5, 50));
+
+            assertEquals(CuentaBancaria.OPERACION_RECHAZADA, almacen.retirarCentimos("ES0000000001", 1_001));
+            assertEquals(0, almacen.retirarCentimos("ES0000000001", 1_000));
+
+            assertEquals(-4_000, almacen.retirarCentimos("ES0000000002", 5_000));
+            assertEquals(CuentaBancaria.OPERACION_RECHAZADA, almacen.retirarCentimos("ES0000000002", 1_001));
+            assertEquals(-5_000, almacen.retirarCentimos("ES0000000002", 1_000));
+            assertEquals(-5_000, almacen.consultarSaldoCentimos("ES0000000002"));
+        }
+    }
+
+    @Test
+    void ingresarRechazaCantidadesNoPositivasYCuentasInexistentes() throws IOException {
+        try (AlmacenMapeado almacen = AlmacenMapeado.abrir(directorio.resolve("almacen.dat"), 16)) {
+            almacen.abrirCuenta(new CuentaAhorro(TITULAR, 10, "ES0000000001", 1));
+
+            assertEquals(CuentaBancaria.OPERACION_RECHAZADA, almacen.ingresarCentimos("ES0000000001", 0));
+            assertEquals(CuentaBancaria.OPERACION_RECHAZADA, almacen.ingresarCentimos("ES0000000009", 1));
+            assertEquals(1_100, almacen.ingresarCentimos("es0000000001", 100));
+        }
+    }
+
+    @Test
+    void reabrirConservaLasCuentasYSusSaldos() throws IOException {
+        Path fichero = directorio.resolve("almacen.dat");
+        try (AlmacenMapeado almacen = AlmacenMapeado.abrir(fichero, 16)) {
+            almacen.abrirCuenta(new CuentaAhorro(TITULAR, 10, "ES0000000001", 1.5));
+            almacen.abrirCuenta(new CuentaCorrientePersonal(TITULAR, 20, "ES0000000002", "Entidad A", 3));
+            almacen.abrirCuenta(new CuentaAhorro(TITULAR, 0, "ES0000000003", 1));
+            almacen.ingresarCentimos("ES0000000001", 250);
+            assertTrue(almacen.eliminarCuenta("ES0000000003"));
+        }
+
+        try (AlmacenMapeado almacen = AlmacenMapeado.abrir(fichero, 1)) {
+            assertEquals(16, almacen.getCapacidad());
+            assertEquals(2, almacen.getNumCuentas());
+            assertEquals(3_250, almacen.getSaldoTotalCentimos());
+            assertFalse(almacen.estaIBANEnUso("ES0000000003"));
+            CuentaBancaria cuenta = almacen.buscarCuentaPorIBAN("ES0000000002");
+            assertInstanceOf(CuentaCorrientePersonal.class, cuenta);
+            assertEquals("Entidad A", ((CuentaCorrientePersonal) cuenta).getListaEntidades());
+            assertEquals(TITULAR.getDni(), cuenta.getTitular().getDni());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link ArchivoBanco}: guardar y cargar un banco conserva todas sus cuentas, un bloque dañado
+ * impide la carga y las cuentas abiertas después de cargar no repiten ningún IBAN.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class ArchivoBancoTest {
+
+    // Más de dos bloques, el último incompleto
+    private static final int CUENTAS = 2 * ArchivoBanco.CUENTAS_POR_BLOQUE + 1_000;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void guardarYCargarConservaTodasLasCuentas() throws IOException {
+        Banco banco = new Banco(false);
+        CuentaBancaria[] cuentas = crearCuentas(banco, CUENTAS);
+        Path fichero = directorio.resolve("banco.bin");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(CUENTAS, ArchivoBanco.guardar(banco, fichero, pool));
+
+            Banco secuencial = new Banco(false);
+            assertEquals(CUENTAS, ArchivoBanco.cargar(fichero, secuencial, pool));
+            comprobar(cuentas, secuencial);
+
+            Banco concurrente = new Banco(true);
+            assertEquals(CUENTAS, ArchivoBanco.cargar(fichero, concurrente, pool));
+            comprobar(cuentas, concurrente);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void unBloqueDanadoImpideLaCarga() throws IOException {
+        Banco banco = new Banco(false);
+        crearCuentas(banco, CUENTAS);
+        Path fichero = directorio.resolve("banco.bin");
+        ArchivoBanco.guardar(banco, fichero);
+        // La mitad del fichero cae dentro de un bloque
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long posicion = canal.size() / 2;
+            ByteBuffer octeto = ByteBuffer.allocate(1);
+            canal.read(octeto, posicion);
+            octeto.put(0, (byte) (octeto.get(0) ^ 0x5A)).rewind();
+            canal.write(octeto, posicion);
+        }
+
+        Banco cargado = new Banco(false);
+        assertThrows(IOException.class, () -> ArchivoBanco.cargar(fichero, cargado));
+        assertEquals(0, cargado.getNumCuentas());
+    }
+
+    @Test
+    void lasCuentasAbiertasTrasCargarNoRepitenNingunIBAN() throws IOException {
+        Banco banco = new Banco(true);
+        CuentaBancaria[] cuentas = crearCuentas(banco, 3_000);
+        Path fichero = directorio.resolve("banco.bin");
+        ArchivoBanco.guardar(banco, fichero);
+        Set<String> cargados = new HashSet<>();
+        for (CuentaBancaria cuenta : cuentas) {
+            cargados.add(cuenta.getIban());
+        }
+
+        Banco cargado = new Banco(true);
+        ArchivoBanco.cargar(fichero, cargado);
+        Persona titular = new Persona("Ana", "Nueva", "", "00000000T");
+        for (int i = 0; i < 100; i++) {
+            String iban = cargado.getAsignadorIBAN().siguiente();
+            assertFalse(cargados.contains(iban), iban);
+            assertTrue(cargado.abrirCuenta(new CuentaAhorro(titular, 10, iban, 1)));
+        }
+        assertEquals(cuentas.length + 100, cargado.getNumCuentas());
+    }
+
+    /**
+     * Crea cuentas de los tres tipos, con titulares con y sin caracteres fuera de ASCII, algunas sin
+     * titular o sin lista de entidades y con un último periodo liquidado, y las abre en el banco.
+     */
+    private static CuentaBancaria[] crearCuentas(Banco banco, int numCuentas) {
+        CuentaBancaria[] cuentas = new CuentaBancaria[numCuentas];
+        for (int i = 0; i < numCuentas; i++) {
+            Persona titular = i % 97 == 0 ? null
+                    : new Persona(i % 5 == 0 ? "Begoña" + i : "Titular" + i, "Apellido" + (i % 1000),
+                    i % 7 == 0 ? null : "Muñoz", String.format("%08dT", i / 2));
+            String iban = banco.getAsignadorIBAN().siguiente();
+            switch (i % 3) {
+                case 0:
+                    cuentas[i] = new CuentaAhorro(titular, 1000, iban, 1.5 + i % 10);
+                    break;
+                case 1:
+                    cuentas[i] = new CuentaCorrientePersonal(titular, 1000, iban,
+                            i % 11 == 0 ? null : "Entidad A, Entidad B", 3);
+                    break;
+                default:
+                    cuentas[i] = new CuentaCorrienteEmpresa(titular, 1000, iban, "Entidad C", 7.5, 5000 + i);
+            }
+            cuentas[i].setSaldoCentimos(i * 37L - 50_000);
+            cuentas[i].setUltimaLiquidacion(i % 4 == 0 ? 20_250_101 : 0);
+            assertTrue(banco.abrirCuenta(cuentas[i]));
+        }
+        return cuentas;
+    }
+
+    /**
+     * Comprueba que el banco cargado tiene las mismas cuentas que las originales, y en el mismo orden si
+     * no es concurrente.
+     */
+    private static void comprobar(CuentaBancaria[] cuentas, Banco cargado) {
+        assertEquals(cuentas.length, cargado.getNumCuentas());
+        Iterator<CuentaBancaria> enOrden = cargado.getCuentas().iterator();
+        for (CuentaBancaria original : cuentas) {
+            CuentaBancaria cuenta = cargado.isConcurrente() ? cargado.buscarCuentaPorIBAN(original.getIban())
+                    : enOrden.next();
+            assertNotNull(cuenta, original.getIban());
+            comprobar(original, cuenta);
+        }
+    }
+
+    private static void comprobar(CuentaBancaria original, CuentaBancaria cuenta) {
+        String iban = original.getIban();
+        byte tipo = CodificadorCuentas.tipoDe(original);
+        assertEquals(tipo, CodificadorCuentas.tipoDe(cuenta), iban);
+        assertEquals(iban, cuenta.getIban());
+        assertEquals(original.getSaldoCentimos(), cuenta.getSaldoCentimos(), iban);
+        assertEquals(original.getUltimaLiquidacion(), cuenta.getUltimaLiquidacion(), iban);
+        comprobar(original.getTitular(), cuenta.getTitular(), iban);
+        switch (tipo) {
+            case CodificadorCuentas.TIPO_AHORRO:
+                assertEquals(((CuentaAhorro) original).getTipoInteres(), ((CuentaAhorro) cuenta).getTipoInteres(),
+                        iban);
+                break;
+            case CodificadorCuentas.TIPO_CORRIENTE_PERSONAL:
+                CuentaCorrientePersonal personal = (CuentaCorrientePersonal) original;
+                CuentaCorrientePersonal personalCargada = (CuentaCorrientePersonal) cuenta;
+                assertEquals(personal.getListaEntidades(), personalCargada.getListaEntidades(), iban);
+                assertEquals(personal.getComisionMantenimiento(), personalCargada.getComisionMantenimiento(), iban);
+                break;
+            default:
+                CuentaCorrienteEmpresa empresa = (CuentaCorrienteEmpresa) original;
+                CuentaCorrienteEmpresa empresaCargada = (CuentaCorrienteEmpresa) cuenta;
+                assertEquals(empresa.getListaEntidades(), empresaCargada.getListaEntidades(), iban);
+                assertEquals(empresa.getTipoInteresDescubierto(), empresaCargada.getTipoInteresDescubierto(), iban);
+                assertEquals(empresa.getMaximoDescubierto(), empresaCargada.getMaximoDescubierto(), iban);
+        }
+    }
+
+    private static void comprobar(Persona original, Persona titular, String iban) {
+        if (original == null) {
+            assertNull(titular, iban);
+            return;
+        }
+        assertNotNull(titular, iban);
+        assertEquals(original.getNombre(), titular.getNombre(), iban);
+        assertEquals(original.getApellido1(), titular.getApellido1(), iban);
+        assertEquals(original.getApellido2(), titular.getApellido2(), iban);
+        assertEquals(original.getDni(), titular.getDni(), iban);
+    }
+}
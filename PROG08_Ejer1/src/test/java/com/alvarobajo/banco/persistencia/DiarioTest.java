@@ -0,0 +1,141 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la reproducción del {@link Diario} al abrirlo.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class DiarioTest {
+
+    private static final Persona TITULAR = new Persona("Prueba", "Diario", "", "00000000T");
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void reabrirRecuperaLasCuentasYSusSaldos() throws IOException {
+        Path fichero = directorio.resolve("diario.log");
+        escribirOperaciones(fichero);
+
+        Banco recuperado = new Banco(true);
+        try (Diario diario = Diario.abrir(fichero, ModoDurabilidad.POR_OPERACION, recuperado)) {
+            assertEquals(3, diario.getSiguienteSecuencia());
+        }
+        assertEquals(2, recuperado.getNumCuentas());
+        assertEquals(1_050, recuperado.buscarCuentaPorIBAN("ES0000000001").getSaldoCentimos());
+        assertEquals(500, recuperado.buscarCuentaPorIBAN("ES0000000002").getSaldoCentimos());
+    }
+
+    @Test
+    void descartaUnaEscrituraInterrumpidaAlFinal() throws IOException {
+        Path fichero = directorio.resolve("diario.log");
+        escribirOperaciones(fichero);
+        long tamanoValido = Files.size(fichero);
+        byte[] registro = registro(Diario.REGISTRO_MOVIMIENTO, 3);
+        Files.write(fichero, Arrays.copyOf(registro, registro.length - 3), StandardOpenOption.APPEND);
+
+        Banco recuperado = new Banco(true);
+        Diario.abrir(fichero, ModoDurabilidad.POR_OPERACION, recuperado).close();
+        assertEquals(tamanoValido, Files.size(fichero));
+        assertEquals(1_050, recuperado.buscarCuentaPorIBAN("ES0000000001").getSaldoCentimos());
+    }
+
+    @Test
+    void unRegistroConCRCCorrectoQueNoSePuedeAplicarNoTruncaElDiario() throws IOException {
+        Path fichero = directorio.resolve("diario.log");
+        escribirOperaciones(fichero);
+        long posicion = Files.size(fichero);
+        Files.write(fichero, registro((byte) 99, 3), StandardOpenOption.APPEND);
+        // Un registro válido detrás del erróneo no debe perderse
+        Files.write(fichero, registro(Diario.REGISTRO_MOVIMIENTO, 4), StandardOpenOption.APPEND);
+        byte[] antes = Files.readAllBytes(fichero);
+
+        IOException error = assertThrows(IOException.class,
+                () -> Diario.abrir(fichero, ModoDurabilidad.POR_OPERACION, new Banco(true)));
+        assertTrue(error.getMessage().contains(String.valueOf(posicion)), error.getMessage());
+        assertArrayEquals(antes, Files.readAllBytes(fichero));
+    }
+
+    @Test
+    void losIngresosEnUnaCuentaRecienAbiertaDesdeOtroHiloQuedanEnElDiario()
+            throws IOException, InterruptedException {
+        Path fichero = directorio.resolve("diario.log");
+        String[] ibans = new String[2_000];
+        Banco banco = new Banco(true);
+        try (Diario diario = Diario.abrir(fichero, ModoDurabilidad.ASINCRONO, banco)) {
+            for (int i = 0; i < ibans.length; i++) {
+                ibans[i] = banco.getAsignadorIBAN().siguiente();
+            }
+            // Ingresa en cada cuenta en cuanto la encuentra en el banco, mientras se está abriendo
+            Thread ingresos = new Thread(() -> {
+                for (String iban : ibans) {
+                    CuentaBancaria cuenta;
+                    while ((cuenta = banco.buscarCuentaPorIBAN(iban)) == null) {
+                        Thread.onSpinWait();
+                    }
+                    OperarCuenta.ingresar(cuenta, 50);
+                }
+            });
+            ingresos.start();
+            for (String iban : ibans) {
+                banco.abrirCuenta(new CuentaAhorro(TITULAR, 10, iban, 1));
+            }
+            ingresos.join();
+            diario.sincronizar();
+        }
+
+        Banco recuperado = new Banco(true);
+        Diario.abrir(fichero, ModoDurabilidad.POR_OPERACION, recuperado).close();
+        assertEquals(ibans.length, recuperado.getNumCuentas());
+        for (String iban : ibans) {
+            assertEquals(banco.buscarCuentaPorIBAN(iban).getSaldoCentimos(),
+                    recuperado.buscarCuentaPorIBAN(iban).getSaldoCentimos(), iban);
+            assertEquals(1_050, recuperado.buscarCuentaPorIBAN(iban).getSaldoCentimos(), iban);
+        }
+    }
+
+    /**
+     * Abre dos cuentas con diario e ingresa en la primera: tres registros, con secuencias 0 a 2.
+     */
+    private static void escribirOperaciones(Path fichero) throws IOException {
+        Banco banco = new Banco(true);
+        try (Diario diario = Diario.abrir(fichero, ModoDurabilidad.POR_OPERACION, banco)) {
+            CuentaBancaria primera = new CuentaAhorro(TITULAR, 10, "ES0000000001", 1);
+            banco.abrirCuenta(primera);
+            banco.abrirCuenta(new CuentaAhorro(TITULAR, 5, "ES0000000002", 1));
+            OperarCuenta.ingresar(primera, 50);
+            diario.sincronizar();
+        }
+    }
+
+    /**
+     * Construye un registro con el CRC correcto y solo el tipo y el número de secuencia como contenido.
+     */
+    private static byte[] registro(byte tipo, long secuencia) {
+        ByteBuffer contenido = ByteBuffer.allocate(9).put(tipo).putLong(secuencia).flip();
+        CRC32C crc = new CRC32C();
+        crc.update(contenido.duplicate());
+        return ByteBuffer.allocate(8 + 9).putInt(9).putInt((int) crc.getValue()).put(contenido).array();
+    }
+}
@@ -0,0 +1,118 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de la recuperación de un banco con {@link GestorInstantaneas}: desde la instantánea más
+ * el final del diario, reproduciendo el diario completo y con la última instantánea dañada.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class GestorInstantaneasTest {
+
+    private static final int CUENTAS = 300;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void arrancarDesdeLaInstantaneaYElFinalDelDiarioRecuperaElBanco() throws IOException {
+        long esperado = prepararDirectorio();
+
+        Banco recuperado = new Banco(true);
+        GestorInstantaneas.abrir(directorio, ModoDurabilidad.POR_OPERACION, recuperado).close();
+        assertEquals(CUENTAS, recuperado.getNumCuentas());
+        assertEquals(esperado, saldoTotal(recuperado));
+    }
+
+    @Test
+    void reproducirElDiarioCompletoDaElMismoBanco() throws IOException {
+        long esperado = prepararDirectorio();
+
+        Banco completo = new Banco(true);
+        Diario.abrir(directorio.resolve("diario.log"), ModoDurabilidad.POR_OPERACION, completo).close();
+        assertEquals(CUENTAS, completo.getNumCuentas());
+        assertEquals(esperado, saldoTotal(completo));
+    }
+
+    @Test
+    void conLaUltimaInstantaneaDanadaArrancaDesdeLaAnterior() throws IOException {
+        long esperado = prepararDirectorio();
+        Path ultima;
+        try (GestorInstantaneas gestor = GestorInstantaneas.abrir(directorio, ModoDurabilidad.POR_OPERACION,
+                new Banco(true))) {
+            ultima = gestor.tomarInstantanea();
+        }
+        Files.write(ultima, new byte[]{1, 2, 3});
+
+        Banco recuperado = new Banco(true);
+        GestorInstantaneas.abrir(directorio, ModoDurabilidad.POR_OPERACION, recuperado).close();
+        assertEquals(CUENTAS, recuperado.getNumCuentas());
+        assertEquals(esperado, saldoTotal(recuperado));
+    }
+
+    /**
+     * Abre cuentas de los tres tipos y opera con ellas antes y después de tomar una instantánea.
+     *
+     * @return Saldo total del banco en céntimos.
+     */
+    private long prepararDirectorio() throws IOException {
+        Banco banco = new Banco(true);
+        try (GestorInstantaneas gestor = GestorInstantaneas.abrir(directorio, ModoDurabilidad.POR_OPERACION,
+                banco)) {
+            CuentaBancaria[] cuentas = new CuentaBancaria[CUENTAS];
+            for (int i = 0; i < CUENTAS; i++) {
+                Persona titular = new Persona("Titular" + i, "Apellido", "", String.format("%08dT", i));
+                String iban = String.format("ES%010d", i);
+                switch (i % 3) {
+                    case 0:
+                        cuentas[i] = new CuentaAhorro(titular, 1000, iban, 1.5);
+                        break;
+                    case 1:
+                        cuentas[i] = new CuentaCorrientePersonal(titular, 1000, iban, "Entidad A", 3);
+                        break;
+                    default:
+                        cuentas[i] = new CuentaCorrienteEmpresa(titular, 1000, iban, "Entidad C", 7.5, 5000);
+                }
+                banco.abrirCuenta(cuentas[i]);
+            }
+            operar(cuentas, 2_000);
+            gestor.tomarInstantanea();
+            operar(cuentas, 500);
+        }
+        return saldoTotal(banco);
+    }
+
+    private static void operar(CuentaBancaria[] cuentas, int operaciones) {
+        for (int i = 0; i < operaciones; i++) {
+            CuentaBancaria cuenta = cuentas[(int) ((i * 2654435761L) % cuentas.length)];
+            if ((i & 1) == 0) {
+                OperarCuenta.ingresar(cuenta, 100);
+            } else {
+                OperarCuenta.retirar(cuenta, 50);
+            }
+        }
+    }
+
+    private static long saldoTotal(Banco banco) {
+        long total = 0;
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            total += cuenta.getSaldoCentimos();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,261 @@
+package com.alvarobajo.banco.persistencia;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de los últimos movimientos de {@link HistorialMovimientos}, con cuentas que desbordan
+ * al fichero desde varios hilos a la vez, y de sus extractos entre dos fechas.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class HistorialMovimientosTest {
+
+    private static final Persona TITULAR = new Persona("Prueba", "Historial", "", "00000000T");
+    private static final long DIA_MS = 24L * 60 * 60 * 1000;
+    private static final long PRINCIPIO = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void desbordamientosSimultaneosEncadenanTodosLosMovimientosDeCadaCuenta() throws Exception {
+        int hilos = 4;
+        int cuentasPorHilo = 50;
+        int operacionesPorCuenta = 2_000;
+        Banco banco = new Banco(true);
+        CuentaBancaria[] cuentas = new CuentaBancaria[hilos * cuentasPorHilo];
+        for (int i = 0; i < cuentas.length; i++) {
+            cuentas[i] = new CuentaAhorro(TITULAR, 1000, banco.getAsignadorIBAN().siguiente(), 1);
+            banco.abrirCuenta(cuentas[i]);
+        }
+
+        try (HistorialMovimientos historial = HistorialMovimientos.abrir(directorio.resolve("historial.bin"), 4,
+                banco)) {
+            Thread[] operadores = new Thread[hilos];
+            for (int h = 0; h < hilos; h++) {
+                int primera = h * cuentasPorHilo;
+                SplittableRandom azar = new SplittableRandom(h);
+                operadores[h] = new Thread(() -> {
+                    // Cada hilo opera sobre sus cuentas: solo los ingresos, que nunca se rechazan
+                    for (int i = 0; i < cuentasPorHilo * operacionesPorCuenta; i++) {
+                        OperarCuenta.ingresar(cuentas[primera + i % cuentasPorHilo], 1 + azar.nextInt(100));
+                    }
+                });
+                operadores[h].start();
+            }
+            for (Thread operador : operadores) {
+                operador.join();
+            }
+
+            ListaMovimientos lista = new ListaMovimientos();
+            for (CuentaBancaria cuenta : cuentas) {
+                assertEquals(operacionesPorCuenta, historial.ultimosMovimientos(cuenta, Integer.MAX_VALUE, lista));
+                comprobarEncadenados(cuenta, lista);
+                assertEquals(1000_00L, lista.getSaldoCentimos(operacionesPorCuenta - 1)
+                        - lista.getImporteCentimos(operacionesPorCuenta - 1));
+            }
+        }
+    }
+
+    @Test
+    void losUltimosMovimientosPasanDelAnilloAlFicheroSinHuecos() throws IOException {
+        Banco banco = new Banco(true);
+        CuentaBancaria cuenta = new CuentaAhorro(TITULAR, 0, "ES0000000001", 1);
+        banco.abrirCuenta(cuenta);
+        try (HistorialMovimientos historial = HistorialMovimientos.abrir(directorio.resolve("historial.bin"), 8,
+                banco)) {
+            for (int i = 1; i <= 100_000; i++) {
+                OperarCuenta.ingresar(cuenta, i);
+            }
+            ListaMovimientos lista = new ListaMovimientos();
+            assertEquals(20, historial.ultimosMovimientos(cuenta, 20, lista));
+            for (int i = 0; i < 20; i++) {
+                assertEquals(100_000 - i, lista.getImporteCentimos(i));
+            }
+            assertEquals(100_000, historial.ultimosMovimientos(cuenta, 200_000, lista));
+            comprobarEncadenados(cuenta, lista);
+        }
+    }
+
+    @Test
+    void losExtractosCoincidenConLosMovimientosDelIntervalo() throws IOException {
+        int dias = 60;
+        int operaciones = 100_000;
+        Banco banco = new Banco(true);
+        CuentaBancaria[] cuentas = new CuentaBancaria[200];
+        for (int i = 0; i < cuentas.length; i++) {
+            cuentas[i] = new CuentaAhorro(TITULAR, 1000, banco.getAsignadorIBAN().siguiente(), 1);
+            banco.abrirCuenta(cuentas[i]);
+        }
+
+        long paso = dias * DIA_MS / operaciones;
+        try (HistorialMovimientos historial = HistorialMovimientos.abrir(directorio.resolve("historial.bin"), 4,
+                new RelojSimulado(PRINCIPIO - paso, paso), banco)) {
+            assertEquals(PRINCIPIO, historial.getRegistraDesde());
+            SplittableRandom azar = new SplittableRandom(1);
+            for (int i = 0; i < operaciones; i++) {
+                CuentaBancaria cuenta = cuentas[azar.nextInt(cuentas.length)];
+                long centimos = 1 + azar.nextInt(5_000);
+                int tipo = azar.nextInt(10);
+                if (tipo < 5) {
+                    OperarCuenta.ingresar(cuenta, centimos);
+                } else if (tipo < 9) {
+                    OperarCuenta.retirar(cuenta, centimos);
+                } else {
+                    OperarCuenta.transferir(cuenta, cuentas[azar.nextInt(cuentas.length)], centimos);
+                }
+            }
+
+            Extracto extracto = new Extracto();
+            ListaMovimientos todos = new ListaMovimientos();
+            for (int consulta = 0; consulta < 500; consulta++) {
+                CuentaBancaria cuenta = cuentas[azar.nextInt(cuentas.length)];
+                int duracion = 1 + azar.nextInt(dias + 10);
+                long desde = PRINCIPIO + azar.nextInt(dias) * DIA_MS + azar.nextInt((int) DIA_MS);
+                long hasta = desde + duracion * DIA_MS;
+                historial.extracto(cuenta, desde, hasta, extracto);
+                historial.ultimosMovimientos(cuenta, Integer.MAX_VALUE, todos);
+                comprobarExtracto(cuenta, extracto, todos, desde, hasta);
+            }
+        }
+    }
+
+    @Test
+    void losExtractosDeAntesDeReabrirElHistorialNoEstanDisponibles() throws IOException {
+        Banco banco = new Banco(true);
+        CuentaBancaria cuenta = new CuentaAhorro(TITULAR, 10, "ES0000000001", 1);
+        banco.abrirCuenta(cuenta);
+        Path fichero = directorio.resolve("historial.bin");
+        RelojSimulado reloj = new RelojSimulado(PRINCIPIO, DIA_MS);
+        try (HistorialMovimientos historial = HistorialMovimientos.abrir(fichero, 4, reloj, banco)) {
+            for (int i = 0; i < 20; i++) {
+                OperarCuenta.ingresar(cuenta, 100);
+            }
+            Extracto extracto = new Extracto();
+            historial.extracto(cuenta, historial.getRegistraDesde(), reloj.millis(), extracto);
+            assertTrue(extracto.isDisponible());
+            assertEquals(20, extracto.getMovimientos().getTamano());
+        }
+
+        // Al reiniciar, el nuevo historial no conoce los movimientos del anterior
+        try (HistorialMovimientos historial = HistorialMovimientos.abrir(fichero, 4, reloj, banco)) {
+            OperarCuenta.retirar(cuenta, 50);
+            Extracto extracto = new Extracto();
+            historial.extracto(cuenta, PRINCIPIO, reloj.millis(), extracto);
+            assertFalse(extracto.isDisponible());
+            assertEquals(0, extracto.getMovimientos().getTamano());
+
+            historial.extracto(cuenta, historial.getRegistraDesde(), reloj.millis(), extracto);
+            assertTrue(extracto.isDisponible());
+            assertEquals(1, extracto.getMovimientos().getTamano());
+            assertEquals(30_00, extracto.getSaldoInicialCentimos());
+            assertEquals(29_50, extracto.getSaldoFinalCentimos());
+        }
+    }
+
+    /**
+     * Comprueba un extracto contra todos los movimientos de la cuenta, que van del más reciente al más
+     * antiguo: recorre los posteriores al intervalo para obtener el saldo final, compara los del
+     * intervalo en orden inverso y toma como saldo inicial el anterior al primero. Comprueba también que
+     * los movimientos del extracto están en orden cronológico y que llevan del saldo inicial al final.
+     */
+    private static void comprobarExtracto(CuentaBancaria cuenta, Extracto extracto, ListaMovimientos todos,
+                                          long desde, long hasta) {
+        assertTrue(extracto.isDisponible());
+        ListaMovimientos movimientos = extracto.getMovimientos();
+        long saldo = cuenta.getSaldoCentimos();
+        long saldoFinal = saldo;
+        int enIntervalo = 0;
+        for (int i = 0; i < todos.getTamano() && todos.getInstante(i) >= desde; i++) {
+            saldo = todos.getSaldoCentimos(i) + (todos.getTipo(i).isAbono() ? -1 : 1) * todos.getImporteCentimos(i);
+            if (todos.getInstante(i) >= hasta) {
+                saldoFinal = saldo;
+                continue;
+            }
+            int j = movimientos.getTamano() - 1 - enIntervalo;
+            assertTrue(j >= 0, "el extracto tiene menos movimientos de los que debe");
+            assertEquals(todos.getInstante(i), movimientos.getInstante(j), "movimiento " + j);
+            assertEquals(todos.getTipo(i), movimientos.getTipo(j), "movimiento " + j);
+            assertEquals(todos.getImporteCentimos(i), movimientos.getImporteCentimos(j), "movimiento " + j);
+            assertEquals(todos.getSaldoCentimos(i), movimientos.getSaldoCentimos(j), "movimiento " + j);
+            enIntervalo++;
+        }
+        assertEquals(enIntervalo, movimientos.getTamano());
+        assertEquals(saldo, extracto.getSaldoInicialCentimos());
+        assertEquals(saldoFinal, extracto.getSaldoFinalCentimos());
+
+        long acumulado = extracto.getSaldoInicialCentimos();
+        for (int i = 0; i < movimientos.getTamano(); i++) {
+            assertTrue(i == 0 || movimientos.getInstante(i) >= movimientos.getInstante(i - 1), "fuera de orden");
+            acumulado += (movimientos.getTipo(i).isAbono() ? 1 : -1) * movimientos.getImporteCentimos(i);
+        }
+        assertEquals(extracto.getSaldoFinalCentimos(), acumulado);
+    }
+
+    /**
+     * Comprueba que el primer saldo es el actual de la cuenta y que cada saldo se obtiene del siguiente
+     * aplicando el movimiento.
+     */
+    private static void comprobarEncadenados(CuentaBancaria cuenta, ListaMovimientos lista) {
+        assertEquals(cuenta.getSaldoCentimos(), lista.getSaldoCentimos(0));
+        for (int i = 0; i + 1 < lista.getTamano(); i++) {
+            long anterior = lista.getSaldoCentimos(i) + (lista.getTipo(i).isAbono() ? -1 : 1)
+                    * lista.getImporteCentimos(i);
+            assertEquals(anterior, lista.getSaldoCentimos(i + 1), "movimientos " + i + " y " + (i + 1));
+        }
+    }
+
+    /**
+     * Reloj que avanza un paso fijo cada vez que se consulta, para repartir las operaciones en el tiempo
+     * sin esperar.
+     */
+    private static final class RelojSimulado extends Clock {
+
+        private final long paso;
+        private long instante;
+
+        RelojSimulado(long inicio, long paso) {
+            this.instante = inicio;
+            this.paso = paso;
+        }
+
+        @Override
+        public long millis() {
+            instante += paso;
+            return instante;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zona) {
+            throw new UnsupportedOperationException("El reloj simulado solo usa UTC");
+        }
+    }
+}
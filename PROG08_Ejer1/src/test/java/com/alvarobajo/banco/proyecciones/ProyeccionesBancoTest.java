@@ -0,0 +1,180 @@
+package com.alvarobajo.banco.proyecciones;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.cuentas.OperarCuenta;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.CuentaCorrienteEmpresa;
+import com.alvarobajo.banco.models.CuentaCorrientePersonal;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.CodificadorCuentas;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de {@link ProyeccionesBanco}: que coinciden con las cuentas del banco después de operar desde
+ * varios hilos y que no obligan a los ingresos a adquirir el monitor de la cuenta.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class ProyeccionesBancoTest {
+
+    private static final int CUENTAS_POR_TITULAR = 3;
+    private static final String LETRAS_DNI = "TRWAGMYFPDXBNJZSQVHLCKE";
+
+    @Test
+    void losIngresosNoEsperanAlMonitorDeLaCuenta() throws InterruptedException {
+        Banco banco = new Banco(true);
+        CuentaBancaria cuenta = new CuentaAhorro(new Persona("Ana", "Prueba", "", "00000000T"), 10,
+                banco.getAsignadorIBAN().siguiente(), 1);
+        banco.abrirCuenta(cuenta);
+        try (ProyeccionesBanco proyecciones = ProyeccionesBanco.abrir(banco)) {
+            Thread ingreso = new Thread(() -> OperarCuenta.ingresar(cuenta, 500));
+            // Con el monitor ocupado, un ingreso que tuviera que adquirirlo no terminaría
+            synchronized (cuenta) {
+                ingreso.start();
+                ingreso.join(5_000);
+                assertFalse(ingreso.isAlive(), "el ingreso espera al monitor de la cuenta");
+            }
+            proyecciones.sincronizar();
+            assertEquals(15_00, proyecciones.getSaldosPorTipo().getSaldoTotalCentimos());
+        }
+    }
+
+    @Test
+    void lasProyeccionesCoincidenConLasCuentasTrasOperarDesdeVariosHilos() throws InterruptedException {
+        Banco banco = new Banco(true);
+        CuentaBancaria[] cuentas = new CuentaBancaria[3_000];
+        String[] dnis = new String[cuentas.length / CUENTAS_POR_TITULAR];
+        for (int i = 0; i < dnis.length; i++) {
+            dnis[i] = String.format("%08d%c", i, LETRAS_DNI.charAt(i % 23));
+        }
+        // La mitad de las cuentas se abren antes que las proyecciones y el resto mientras se opera
+        int previas = cuentas.length / 2;
+        for (int i = 0; i < previas; i++) {
+            cuentas[i] = abrir(banco, i, dnis);
+        }
+
+        try (ProyeccionesBanco proyecciones = ProyeccionesBanco.abrir(banco)) {
+            Thread[] hilos = new Thread[4];
+            for (int h = 0; h < hilos.length; h++) {
+                SplittableRandom azar = new SplittableRandom(h);
+                hilos[h] = new Thread(() -> {
+                    for (int i = 0; i < 50_000; i++) {
+                        CuentaBancaria cuenta = cuentas[azar.nextInt(previas)];
+                        long centimos = 1 + azar.nextInt(5_000);
+                        int tipo = azar.nextInt(10);
+                        if (tipo < 5) {
+                            OperarCuenta.ingresar(cuenta, centimos);
+                        } else if (tipo < 9) {
+                            OperarCuenta.retirar(cuenta, centimos);
+                        } else {
+                            OperarCuenta.transferir(cuenta, cuentas[azar.nextInt(previas)], centimos);
+                        }
+                    }
+                });
+                hilos[h].start();
+            }
+            for (int i = previas; i < cuentas.length; i++) {
+                cuentas[i] = abrir(banco, i, dnis);
+            }
+            for (Thread hilo : hilos) {
+                hilo.join();
+            }
+            // Bajas: las cuentas que han quedado a cero se pueden eliminar
+            for (int i = 0; i < previas; i += 7) {
+                OperarCuenta.retirar(cuentas[i], cuentas[i].getSaldoCentimos());
+                banco.eliminarCuenta(cuentas[i].getIban());
+            }
+
+            proyecciones.sincronizar();
+            comprobar(banco, dnis, proyecciones);
+        }
+    }
+
+    @Test
+    void unTitularSinCuentasDesapareceDeLasProyecciones() {
+        Banco banco = new Banco(true);
+        Persona titular = new Persona("Ana", "Prueba", "Muñoz", "00000000T");
+        CuentaBancaria cuenta = new CuentaAhorro(titular, 10, banco.getAsignadorIBAN().siguiente(), 1);
+        try (ProyeccionesBanco proyecciones = ProyeccionesBanco.abrir(banco)) {
+            banco.abrirCuenta(cuenta);
+            proyecciones.sincronizar();
+            VistaTitular vista = proyecciones.getVistaTitular("00000000T");
+            assertNotNull(vista);
+            assertEquals("Ana Prueba Muñoz", vista.getNombre());
+            assertEquals(10_00, vista.getSaldoTotalCentimos());
+
+            OperarCuenta.retirar(cuenta, 10_00);
+            banco.eliminarCuenta(cuenta.getIban());
+            proyecciones.sincronizar();
+            assertNull(proyecciones.getVistaTitular("00000000T"));
+            assertEquals(0, proyecciones.getSaldosPorTipo().getNumCuentas(CodificadorCuentas.TIPO_AHORRO));
+        }
+    }
+
+    @Test
+    void unBancoDeUnSoloHiloSeRechaza() {
+        assertThrows(IllegalArgumentException.class, () -> ProyeccionesBanco.abrir(new Banco(false)));
+    }
+
+    private static CuentaBancaria abrir(Banco banco, int i, String[] dnis) {
+        Persona titular = new Persona("Titular", String.valueOf(i / CUENTAS_POR_TITULAR), "",
+                dnis[i / CUENTAS_POR_TITULAR]);
+        String iban = banco.getAsignadorIBAN().siguiente();
+        CuentaBancaria cuenta;
+        switch (i % 3) {
+            case 0:
+                cuenta = new CuentaAhorro(titular, 1000, iban, 1);
+                break;
+            case 1:
+                cuenta = new CuentaCorrientePersonal(titular, 1000, iban, "Entidad", 1);
+                break;
+            default:
+                cuenta = new CuentaCorrienteEmpresa(titular, 1000, iban, "Entidad", 5, 500);
+        }
+        banco.abrirCuenta(cuenta);
+        return cuenta;
+    }
+
+    /**
+     * Comprueba los saldos por tipo y las cuentas de todos los titulares contra las cuentas del banco.
+     */
+    private static void comprobar(Banco banco, String[] dnis, ProyeccionesBanco proyecciones) {
+        long[] numCuentas = new long[CodificadorCuentas.TIPO_CORRIENTE_EMPRESA + 1];
+        long[] saldos = new long[CodificadorCuentas.TIPO_CORRIENTE_EMPRESA + 1];
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            numCuentas[CodificadorCuentas.tipoDe(cuenta)]++;
+            saldos[CodificadorCuentas.tipoDe(cuenta)] += cuenta.getSaldoCentimos();
+        }
+        SaldosPorTipo proyectados = proyecciones.getSaldosPorTipo();
+        for (byte tipo = CodificadorCuentas.TIPO_AHORRO; tipo < numCuentas.length; tipo++) {
+            assertEquals(numCuentas[tipo], proyectados.getNumCuentas(tipo), "cuentas del tipo " + tipo);
+            assertEquals(saldos[tipo], proyectados.getSaldoCentimos(tipo), "saldo del tipo " + tipo);
+        }
+        for (String dni : dnis) {
+            List<CuentaBancaria> delTitular = banco.buscarCuentasPorDNI(dni);
+            VistaTitular vista = proyecciones.getVistaTitular(dni);
+            if (delTitular.isEmpty()) {
+                assertNull(vista, dni);
+                continue;
+            }
+            assertNotNull(vista, dni);
+            assertEquals(delTitular.size(), vista.getNumCuentas(), dni);
+            for (int i = 0; i < vista.getNumCuentas(); i++) {
+                CuentaBancaria cuenta = banco.buscarCuentaPorIBAN(vista.getIban(i));
+                assertNotNull(cuenta, vista.getIban(i));
+                assertEquals(dni, cuenta.getTitular().getDni());
+                assertEquals(cuenta.getSaldoCentimos(), vista.getSaldoCentimos(i), vista.getIban(i));
+            }
+        }
+    }
+}
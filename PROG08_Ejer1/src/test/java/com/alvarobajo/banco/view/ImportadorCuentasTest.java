@@ -0,0 +1,199 @@
+package com.alvarobajo.banco.view;
+
+import com.alvarobajo.banco.controller.AsignadorIBAN;
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.ObservadorBanco;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link ImportadorCuentas}: las filas válidas se abren y las rechazadas se informan en orden
+ * con su motivo, en un banco de un solo hilo y en uno concurrente, un IBAN ya en uso no rechaza la fila
+ * y un alta que falla en el banco solo rechaza su fila.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class ImportadorCuentasTest {
+
+    // Más de dos lotes, el último incompleto
+    private static final int FILAS = 2 * ImportadorCuentas.FILAS_POR_LOTE + 1_000;
+    private static final int FILAS_CON_ERROR = 100;
+    private static final String[] MOTIVOS = {"CAMPOS_INVALIDOS", "DNI_INVALIDO", "SALDO_INVALIDO",
+            "DATOS_INVALIDOS"};
+    private static final Persona TITULAR = new Persona("Ana", "Previa", "", "00000000T");
+
+    @Test
+    void importarAbreLasFilasValidasEnUnBancoDeUnSoloHilo() throws IOException {
+        importarYComprobar(new Banco(false));
+    }
+
+    @Test
+    void importarAbreLasFilasValidasEnUnBancoConcurrente() throws IOException {
+        importarYComprobar(new Banco(true));
+    }
+
+    @Test
+    void unIBANYaEnUsoNoRechazaLaFila() throws IOException {
+        // Cuentas de la misma numeración que el asignador del banco, que las volvería a entregar
+        Banco banco = new Banco(true);
+        try (AsignadorIBAN otraNumeracion = new AsignadorIBAN()) {
+            for (int i = 0; i < 1_000; i++) {
+                banco.abrirCuenta(new CuentaAhorro(TITULAR, 1, otraNumeracion.siguiente(), 1));
+            }
+        }
+        StringBuilder fichero = new StringBuilder();
+        long saldoEsperado = generar(fichero, FILAS) + 1_000 * 100L;
+
+        StringWriter rechazos = new StringWriter();
+        ResumenImportacion resumen = importar(banco, fichero, rechazos);
+        assertEquals(1_000 + resumen.getImportadas(), banco.getNumCuentas());
+        comprobar(banco, resumen, rechazos.toString(), saldoEsperado);
+    }
+
+    @Test
+    void lasCuentasAbiertasALaVezDesdeOtroHiloNoRechazanFilas() throws IOException, InterruptedException {
+        Banco banco = new Banco(true);
+        StringBuilder fichero = new StringBuilder();
+        long saldoFilas = generar(fichero, FILAS);
+        // Otro hilo abre cuentas con los mismos IBAN que va a entregar el asignador del banco
+        AtomicInteger abiertas = new AtomicInteger();
+        Thread otro = new Thread(() -> {
+            try (AsignadorIBAN otraNumeracion = new AsignadorIBAN()) {
+                for (int i = 0; i < FILAS; i++) {
+                    try {
+                        banco.abrirCuenta(new CuentaAhorro(TITULAR, 1, otraNumeracion.siguiente(), 1));
+                        abiertas.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        // La importación ya ha abierto una cuenta con ese IBAN
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        otro.start();
+        StringWriter rechazos = new StringWriter();
+        ResumenImportacion resumen = importar(banco, fichero, rechazos);
+        otro.join();
+
+        assertEquals(abiertas.get() + resumen.getImportadas(), banco.getNumCuentas());
+        comprobar(banco, resumen, rechazos.toString(), saldoFilas + abiertas.get() * 100L);
+    }
+
+    @Test
+    void unObservadorQueFallaRechazaSoloSuFilaSinCambiarElIBANDeLaCuenta() throws IOException {
+        Banco banco = new Banco(true);
+        // El alta de la cuenta de "Fallo" no llega a confirmarse, como si fallara el diario
+        banco.agregarObservador(new ObservadorBanco() {
+            @Override
+            public void cuentaAbierta(CuentaBancaria cuenta) {
+                if (cuenta.getTitular().getNombre().equals("Fallo")) {
+                    throw new IllegalStateException("No se pudo escribir el alta");
+                }
+            }
+        });
+        String fila = "AHORRO;00000000T;%s;Prueba;;10;1,5" + System.lineSeparator();
+        String fichero = String.format(fila, "Ana") + String.format(fila, "Fallo") + String.format(fila, "Luis");
+
+        StringWriter rechazos = new StringWriter();
+        ResumenImportacion resumen = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> importar(banco, fichero, rechazos));
+        assertEquals(1, resumen.getRechazadas());
+        assertTrue(rechazos.toString().startsWith("2;ALTA_FALLIDA;"), rechazos.toString());
+        // La cuenta del alta fallida sigue en el banco con el IBAN con el que se insertó
+        assertEquals(3, banco.getNumCuentas());
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            assertSame(cuenta, banco.buscarCuentaPorIBAN(cuenta.getIban()));
+        }
+    }
+
+    private static void importarYComprobar(Banco banco) throws IOException {
+        StringBuilder fichero = new StringBuilder();
+        long saldoEsperado = generar(fichero, FILAS);
+        StringWriter rechazos = new StringWriter();
+        ResumenImportacion resumen = importar(banco, fichero, rechazos);
+        assertEquals(resumen.getImportadas(), banco.getNumCuentas());
+        comprobar(banco, resumen, rechazos.toString(), saldoEsperado);
+    }
+
+    private static ResumenImportacion importar(Banco banco, CharSequence fichero, StringWriter rechazos)
+            throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            return ImportadorCuentas.importar(banco, new StringReader(fichero.toString()), rechazos, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Escribe las filas de los tres tipos de cuenta, una de cada cien con un error (tipo desconocido, DNI
+     * mal formado, saldo negativo o un dato propio del tipo no válido). La primera línea es un
+     * comentario, así que la fila {@code i} está en la línea {@code i + 2}.
+     *
+     * @return Saldo total en céntimos de las filas sin error.
+     */
+    private static long generar(StringBuilder destino, int filas) {
+        long saldoTotal = 0;
+        destino.append("# tipo;dni;nombre;apellido1;apellido2;saldo;datos del tipo").append(System.lineSeparator());
+        for (int i = 0; i < filas; i++) {
+            int error = i % FILAS_CON_ERROR == 0 ? (i / FILAS_CON_ERROR) % MOTIVOS.length : -1;
+            long centimos = 100 + i % 100_000;
+            destino.append(error == 0 ? "PLAZO" : i % 3 == 0 ? "AHORRO" : i % 3 == 1 ? "PERSONAL" : "EMPRESA")
+                    .append(';').append(String.format("%08d%c", i / 2, error == 1 ? '-' : 'T'))
+                    .append(";Titular").append(i).append(";Apellido").append(i % 1000).append(";Muñoz;")
+                    .append(error == 2 ? "-" : "").append(centimos / 100).append(',')
+                    .append(centimos % 100 / 10).append(centimos % 10);
+            switch (i % 3) {
+                case 0:
+                    destino.append(error == 3 ? ";cero" : ";1,5");
+                    break;
+                case 1:
+                    destino.append(";Entidad A, Entidad B;").append(error == 3 ? "0" : "3");
+                    break;
+                default:
+                    destino.append(";Entidad C;7.5;").append(error == 3 ? "-1" : "5000");
+            }
+            destino.append(System.lineSeparator());
+            if (error < 0) {
+                saldoTotal += centimos;
+            }
+        }
+        return saldoTotal;
+    }
+
+    /**
+     * Comprueba el saldo total del banco y que el informe contiene exactamente las filas con error, en
+     * orden y con su motivo.
+     */
+    private static void comprobar(Banco banco, ResumenImportacion resumen, String rechazos, long saldoEsperado) {
+        long saldo = 0;
+        for (CuentaBancaria cuenta : banco.getCuentas()) {
+            saldo += cuenta.getSaldoCentimos();
+        }
+        assertEquals(FILAS, resumen.getFilas());
+        assertEquals(saldoEsperado, saldo);
+        String[] lineas = rechazos.isEmpty() ? new String[0] : rechazos.split(System.lineSeparator());
+        assertEquals((FILAS + FILAS_CON_ERROR - 1) / FILAS_CON_ERROR, resumen.getRechazadas());
+        assertEquals(resumen.getRechazadas(), lineas.length);
+        for (int r = 0; r < lineas.length; r++) {
+            int fila = r * FILAS_CON_ERROR;
+            String esperado = (fila + 2) + ";" + MOTIVOS[r % MOTIVOS.length] + ";";
+            assertTrue(lineas[r].startsWith(esperado), lineas[r]);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.alvarobajo.banco.view;
+
+import com.alvarobajo.banco.controller.AsignadorIBAN;
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.ObservadorBanco;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de {@link ModoLote}: el resultado de cada orden, con cada motivo de error, y el resumen de la
+ * ejecución. Una cuenta que el banco no puede abrir no detiene las órdenes siguientes.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class ModoLoteTest {
+
+    private static final String ABRIR = "ABRIR;AHORRO;00000000T;Ana;Prueba;;100;1,5";
+
+    @Test
+    void cadaOrdenTieneSuResultado() throws IOException {
+        Banco banco = new Banco(false);
+        String[] ibans = new String[3];
+        try (AsignadorIBAN mismaNumeracion = new AsignadorIBAN()) {
+            for (int i = 0; i < ibans.length; i++) {
+                ibans[i] = mismaNumeracion.siguiente();
+            }
+        }
+        // El primer IBAN que va a entregar el asignador del banco ya lo tiene otra cuenta
+        banco.abrirCuenta(new CuentaAhorro(new Persona("Luis", "Previo", "", "00000000T"), 1, ibans[0], 1));
+        // El alta de la cuenta de "Fallo" no llega a confirmarse, como si fallara el diario
+        banco.agregarObservador(new ObservadorBanco() {
+            @Override
+            public void cuentaAbierta(CuentaBancaria cuenta) {
+                if (cuenta.getTitular().getNombre().equals("Fallo")) {
+                    throw new IllegalStateException("No se pudo escribir el alta");
+                }
+            }
+        });
+        String iban = ibans[1];
+        String[][] ordenes = {
+                {"# Órdenes de prueba", null},
+                {ABRIR, "ERROR;IBAN_EN_USO"},
+                {ABRIR, "OK;" + iban},
+                {"", null},
+                {"INGRESAR;" + iban + ";50,5", "OK;150.50"},
+                {"RETIRAR;" + iban + ";200", "ERROR;SALDO_INSUFICIENTE"},
+                {"retirar;" + iban + ";150.50", "OK;0.00"},
+                {"INGRESAR;" + iban + ";1,234", "ERROR;CANTIDAD_INVALIDA"},
+                {"INGRESAR;" + iban + ";abc", "ERROR;CANTIDAD_INVALIDA"},
+                {"INGRESAR;" + iban + ";-5", "ERROR;CANTIDAD_INVALIDA"},
+                {"INGRESAR;" + iban + ";0", "ERROR;CANTIDAD_INVALIDA"},
+                {"INGRESAR;ES0000000000;10", "ERROR;CUENTA_INEXISTENTE"},
+                {"INGRESAR;" + iban, "ERROR;ORDEN_INVALIDA"},
+                {"SALDO;" + iban, "OK;0.00"},
+                {"ABRIR;PLAZO;00000000T;Ana;Prueba;;100;1,5", "ERROR;ORDEN_INVALIDA"},
+                {"ABRIR;AHORRO;0000000-T;Ana;Prueba;;100;1,5", "ERROR;DATOS_INVALIDOS"},
+                {"ABRIR;AHORRO;00000000T;Ana;Prueba;;100;cero", "ERROR;DATOS_INVALIDOS"},
+                {"TRANSFERIR;" + iban + ";" + ibans[0] + ";1", "ERROR;ORDEN_INVALIDA"},
+                {"ELIMINAR;" + iban, "OK"},
+                {"SALDO;" + iban, "ERROR;CUENTA_INEXISTENTE"},
+                {ABRIR, "OK;" + ibans[2]},
+                {"ELIMINAR;" + ibans[2], "ERROR;SALDO_NO_NULO"},
+                {"ABRIR;AHORRO;00000000T;Fallo;Prueba;;100;1,5", "ERROR;ERROR_INTERNO"},
+                {"SALDO;" + ibans[2], "OK;100.00"},
+        };
+
+        StringBuilder entrada = new StringBuilder();
+        StringBuilder esperada = new StringBuilder();
+        long numOrdenes = 0;
+        long errores = 0;
+        for (int i = 0; i < ordenes.length; i++) {
+            entrada.append(ordenes[i][0]).append('\n');
+            if (ordenes[i][1] != null) {
+                numOrdenes++;
+                errores += ordenes[i][1].startsWith("ERROR") ? 1 : 0;
+                esperada.append(i + 1).append(';').append(ordenes[i][1]).append(System.lineSeparator());
+            }
+        }
+        StringWriter salida = new StringWriter();
+        ResumenModoLote resumen = ModoLote.ejecutar(banco, new StringReader(entrada.toString()), salida);
+
+        assertArrayEquals(esperada.toString().split(System.lineSeparator()),
+                salida.toString().split(System.lineSeparator()));
+        assertEquals(numOrdenes, resumen.getOrdenes());
+        assertEquals(errores, resumen.getErrores());
+    }
+}
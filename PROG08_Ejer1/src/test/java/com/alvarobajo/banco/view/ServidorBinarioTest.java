@@ -0,0 +1,201 @@
+package com.alvarobajo.banco.view;
+
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.ObservadorBanco;
+import com.alvarobajo.banco.controller.cuentas.ResultadoOperacion;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.models.TipoMovimiento;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del protocolo binario de {@link ServidorBinario}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class ServidorBinarioTest {
+
+    private static final Persona TITULAR = new Persona("Prueba", "Binario", "", "00000000T");
+    private static final int VENTANA = 200;
+
+    @Test
+    void unaVentanaSeConfirmaDeUnaVezYConservaElDinero() throws IOException {
+        Banco banco = new Banco(true);
+        AtomicInteger confirmaciones = new AtomicInteger();
+        banco.agregarObservador(new ObservadorBanco() {
+            @Override
+            public void confirmar() {
+                confirmaciones.incrementAndGet();
+            }
+        });
+        CuentaBancaria[] cuentas = abrirCuentas(banco, 50, 10);
+        long saldoInicial = saldoTotal(cuentas);
+        // Las altas también se confirman
+        confirmaciones.set(0);
+
+        SplittableRandom azar = new SplittableRandom(1);
+        byte[] tipos = new byte[VENTANA];
+        long[] cantidades = new long[VENTANA];
+        ByteBuffer peticiones = ByteBuffer.allocate(VENTANA * 128);
+        for (int i = 0; i < VENTANA; i++) {
+            int tipo = azar.nextInt(20);
+            tipos[i] = tipo < 2 ? ServidorBinario.TRANSFERENCIA
+                    : tipo < 11 ? ServidorBinario.INGRESO : ServidorBinario.RETIRO;
+            cantidades[i] = 1 + azar.nextInt(2000);
+            escribirPeticion(peticiones, tipos[i], i, cuentas[azar.nextInt(cuentas.length)],
+                    cuentas[azar.nextInt(cuentas.length)], cantidades[i]);
+        }
+
+        long movimientoNeto = 0;
+        try (ServidorBinario servidor = ServidorBinario.iniciar(banco, new InetSocketAddress("127.0.0.1", 0));
+             SocketChannel canal = conectar(servidor)) {
+            ByteBuffer respuestas = enviar(canal, peticiones, VENTANA);
+            for (int i = 0; i < VENTANA; i++) {
+                assertEquals(i, respuestas.getInt(), "Respuesta fuera de orden");
+                ResultadoOperacion resultado = ResultadoOperacion.desdeCodigo(respuestas.get());
+                respuestas.getLong();
+                if (tipos[i] == ServidorBinario.INGRESO) {
+                    assertEquals(ResultadoOperacion.CORRECTA, resultado);
+                    movimientoNeto += cantidades[i];
+                } else if (tipos[i] == ServidorBinario.RETIRO && resultado == ResultadoOperacion.CORRECTA) {
+                    movimientoNeto -= cantidades[i];
+                }
+            }
+        }
+
+        assertEquals(saldoInicial + movimientoNeto, saldoTotal(cuentas));
+        // Una confirmación por cada lectura del servidor, no una por petición
+        assertTrue(confirmaciones.get() < VENTANA / 10, "confirmaciones: " + confirmaciones.get());
+    }
+
+    @Test
+    void unaPeticionQueFallaRecibeErrorInternoYElRestoSigue() throws IOException {
+        Banco banco = new Banco(true);
+        CuentaBancaria[] cuentas = abrirCuentas(banco, 2, 10);
+        CuentaBancaria averiada = cuentas[0];
+        banco.agregarObservador(new ObservadorBanco() {
+            @Override
+            public void movimientoRealizado(CuentaBancaria cuenta, TipoMovimiento tipo, long importeCentimos,
+                                            long saldoCentimos) {
+                if (cuenta == averiada) {
+                    throw new IllegalStateException("No se pudo registrar el movimiento");
+                }
+            }
+        });
+
+        try (ServidorBinario servidor = ServidorBinario.iniciar(banco, new InetSocketAddress("127.0.0.1", 0));
+             SocketChannel canal = conectar(servidor)) {
+            ByteBuffer peticiones = ByteBuffer.allocate(256);
+            escribirPeticion(peticiones, ServidorBinario.INGRESO, 1, averiada, null, 100);
+            escribirPeticion(peticiones, ServidorBinario.INGRESO, 2, cuentas[1], null, 100);
+            ByteBuffer respuestas = enviar(canal, peticiones, 2);
+            assertEquals(ResultadoOperacion.ERROR_INTERNO, resultado(respuestas, 0));
+            assertEquals(ResultadoOperacion.CORRECTA, resultado(respuestas, 1));
+
+            // La conexión y el servidor siguen atendiendo peticiones
+            peticiones.clear();
+            escribirPeticion(peticiones, ServidorBinario.SALDO, 3, cuentas[1], null, 0);
+            respuestas = enviar(canal, peticiones, 1);
+            assertEquals(ResultadoOperacion.CORRECTA, resultado(respuestas, 0));
+            assertEquals(1100, respuestas.getLong(Integer.BYTES + 1));
+        }
+    }
+
+    @Test
+    void siFallaLaConfirmacionLasRespuestasCorrectasPasanAErrorInterno() throws IOException {
+        Banco banco = new Banco(true);
+        CuentaBancaria[] cuentas = abrirCuentas(banco, 2, 10);
+        banco.agregarObservador(new ObservadorBanco() {
+            @Override
+            public void confirmar() {
+                throw new IllegalStateException("No se pudo sincronizar el diario");
+            }
+        });
+
+        try (ServidorBinario servidor = ServidorBinario.iniciar(banco, new InetSocketAddress("127.0.0.1", 0));
+             SocketChannel canal = conectar(servidor)) {
+            ByteBuffer peticiones = ByteBuffer.allocate(256);
+            escribirPeticion(peticiones, ServidorBinario.INGRESO, 1, cuentas[0], null, 100);
+            escribirPeticion(peticiones, ServidorBinario.RETIRO, 2, cuentas[1], null, 1_000_000);
+            ByteBuffer respuestas = enviar(canal, peticiones, 2);
+            assertEquals(ResultadoOperacion.ERROR_INTERNO, resultado(respuestas, 0));
+            assertEquals(ResultadoOperacion.SALDO_INSUFICIENTE, resultado(respuestas, 1));
+        }
+    }
+
+    private static CuentaBancaria[] abrirCuentas(Banco banco, int numCuentas, double saldo) {
+        CuentaBancaria[] cuentas = new CuentaBancaria[numCuentas];
+        for (int i = 0; i < numCuentas; i++) {
+            cuentas[i] = new CuentaAhorro(TITULAR, saldo, banco.getAsignadorIBAN().siguiente(), 1);
+            banco.abrirCuenta(cuentas[i]);
+        }
+        return cuentas;
+    }
+
+    private static long saldoTotal(CuentaBancaria[] cuentas) {
+        long total = 0;
+        for (CuentaBancaria cuenta : cuentas) {
+            total += cuenta.getSaldoCentimos();
+        }
+        return total;
+    }
+
+    private static SocketChannel conectar(ServidorBinario servidor) throws IOException {
+        return SocketChannel.open(new InetSocketAddress("127.0.0.1", servidor.getPuerto()));
+    }
+
+    private static void escribirPeticion(ByteBuffer peticiones, byte operacion, int id, CuentaBancaria cuenta,
+                                         CuentaBancaria destino, long centimos) {
+        int inicio = peticiones.position();
+        peticiones.putInt(0).put(operacion).putInt(id);
+        escribirIBAN(peticiones, cuenta);
+        if (operacion == ServidorBinario.TRANSFERENCIA) {
+            escribirIBAN(peticiones, destino);
+        }
+        if (operacion != ServidorBinario.SALDO) {
+            peticiones.putLong(centimos);
+        }
+        peticiones.putInt(inicio, peticiones.position() - inicio - Integer.BYTES);
+    }
+
+    private static void escribirIBAN(ByteBuffer peticiones, CuentaBancaria cuenta) {
+        byte[] iban = cuenta.getIban().getBytes(StandardCharsets.US_ASCII);
+        peticiones.put((byte) iban.length).put(iban);
+    }
+
+    /**
+     * Envía de una vez todas las peticiones escritas y lee las respuestas indicadas.
+     */
+    private static ByteBuffer enviar(SocketChannel canal, ByteBuffer peticiones, int numRespuestas)
+            throws IOException {
+        peticiones.flip();
+        while (peticiones.hasRemaining()) {
+            canal.write(peticiones);
+        }
+        ByteBuffer respuestas = ByteBuffer.allocate(numRespuestas * ServidorBinario.TAMANO_RESPUESTA);
+        while (respuestas.hasRemaining()) {
+            if (canal.read(respuestas) < 0) {
+                throw new EOFException("El servidor ha cerrado la conexión");
+            }
+        }
+        return respuestas.flip();
+    }
+
+    private static ResultadoOperacion resultado(ByteBuffer respuestas, int posicion) {
+        return ResultadoOperacion.desdeCodigo(respuestas.get(posicion * ServidorBinario.TAMANO_RESPUESTA
+                + Integer.BYTES));
+    }
+}
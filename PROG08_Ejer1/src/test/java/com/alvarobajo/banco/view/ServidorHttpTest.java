@@ -0,0 +1,112 @@
+package com.alvarobajo.banco.view;
+
+import com.alvarobajo.banco.controller.AsignadorIBAN;
+import com.alvarobajo.banco.controller.Banco;
+import com.alvarobajo.banco.controller.ObservadorBanco;
+import com.alvarobajo.banco.models.CuentaAhorro;
+import com.alvarobajo.banco.models.CuentaBancaria;
+import com.alvarobajo.banco.models.Persona;
+import com.alvarobajo.banco.persistencia.HistorialMovimientos;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la API HTTP de {@link ServidorHttp}.
+ *
+ * @author Álvaro Bajo Tabero
+ */
+class ServidorHttpTest {
+
+    private static final String FORMULARIO_CUENTA = "tipo=AHORRO&dni=12345678Z&nombre=Ana&apellido1=Prueba"
+            + "&saldo=100&tipoInteres=1.5";
+
+    @TempDir
+    Path directorio;
+
+    private final HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void abrirOperarYConsultarUnaCuenta() throws IOException, InterruptedException {
+        try (ServidorHttp servidor = ServidorHttp.iniciar(new Banco(true), new InetSocketAddress("127.0.0.1", 0))) {
+            HttpResponse<String> alta = enviar(servidor, "/cuentas", FORMULARIO_CUENTA);
+            assertEquals(201, alta.statusCode(), alta.body());
+            String iban = alta.body().replaceAll(".*\"iban\":\"([^\"]+)\".*", "$1");
+
+            assertEquals(200, enviar(servidor, "/cuentas/" + iban + "/ingresos", "cantidad=1.25").statusCode());
+            HttpResponse<String> retiro = enviar(servidor, "/cuentas/" + iban + "/retiros", "cantidad=1000");
+            assertEquals(409, retiro.statusCode(), retiro.body());
+            HttpResponse<String> consulta = cliente.send(HttpRequest.newBuilder(url(servidor, "/cuentas/" + iban))
+                    .GET().build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, consulta.statusCode());
+            assertTrue(consulta.body().contains("101.25"), consulta.body());
+        }
+    }
+
+    @Test
+    void altaConIBANYaEnUsoDevuelve409() throws IOException, InterruptedException {
+        Banco banco = new Banco(true);
+        // Cuenta cargada con el mismo número que entregará primero el asignador del banco
+        String ocupado = new AsignadorIBAN().siguiente();
+        banco.abrirCuenta(new CuentaAhorro(new Persona("Otra", "Entidad", "", "00000000T"), 1, ocupado, 1));
+        try (ServidorHttp servidor = ServidorHttp.iniciar(banco, new InetSocketAddress("127.0.0.1", 0))) {
+            HttpResponse<String> alta = enviar(servidor, "/cuentas", FORMULARIO_CUENTA);
+            assertEquals(409, alta.statusCode(), alta.body());
+            assertTrue(alta.body().contains("IBAN_EN_USO"), alta.body());
+            assertEquals(201, enviar(servidor, "/cuentas", FORMULARIO_CUENTA).statusCode());
+        }
+    }
+
+    @Test
+    void altaQueFallaAlAvisarALosObservadoresDevuelve500() throws IOException, InterruptedException {
+        Banco banco = new Banco(true);
+        banco.agregarObservador(new ObservadorBanco() {
+            @Override
+            public void cuentaAbierta(CuentaBancaria cuenta) {
+                throw new IllegalStateException("No se pudo escribir el diario");
+            }
+        });
+        try (ServidorHttp servidor = ServidorHttp.iniciar(banco, new InetSocketAddress("127.0.0.1", 0))) {
+            HttpResponse<String> alta = enviar(servidor, "/cuentas", FORMULARIO_CUENTA);
+            assertEquals(500, alta.statusCode(), alta.body());
+            assertTrue(alta.body().contains("ERROR_INTERNO"), alta.body());
+        }
+    }
+
+    @Test
+    void extractoDeAntesDeAbrirElHistorialDevuelve404() throws IOException, InterruptedException {
+        Banco banco = new Banco(true);
+        try (HistorialMovimientos historial = HistorialMovimientos.abrir(directorio.resolve("historial.bin"), 8,
+                banco);
+             ServidorHttp servidor = ServidorHttp.iniciar(banco, historial, new InetSocketAddress("127.0.0.1", 0))) {
+            HttpResponse<String> alta = enviar(servidor, "/cuentas", FORMULARIO_CUENTA);
+            String iban = alta.body().replaceAll(".*\"iban\":\"([^\"]+)\".*", "$1");
+            HttpResponse<String> extracto = cliente.send(HttpRequest.newBuilder(url(servidor, "/cuentas/" + iban
+                    + "/extracto?desde=2020-01-01&hasta=2020-12-31")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(404, extracto.statusCode(), extracto.body());
+            assertTrue(extracto.body().contains("HISTORIAL_NO_DISPONIBLE"), extracto.body());
+        }
+    }
+
+    private HttpResponse<String> enviar(ServidorHttp servidor, String ruta, String formulario)
+            throws IOException, InterruptedException {
+        return cliente.send(HttpRequest.newBuilder(url(servidor, ruta))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(formulario)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI url(ServidorHttp servidor, String ruta) {
+        return URI.create("http://127.0.0.1:" + servidor.getPuerto() + ruta);
+    }
+}